@@ -0,0 +1,117 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Shares the package of AppInitializer to drive a fresh instance for every iteration.
+package androidx.startup
+
+import android.content.Context
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.FlakyTest
+import androidx.test.filters.LargeTest
+import org.junit.Assert.assertEquals
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+
+/**
+ * Measures how long the main thread is blocked while initializing a typical set of app
+ * components: independent initializers doing I/O (crash reporting, dependency injection,
+ * database and image cache warm up) and a critical one that needs two of them on the main
+ * thread.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class AppInitializerBenchmark(private val concurrency: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private val context: Context = ApplicationProvider.getApplicationContext()
+
+    /**
+     * Note that the flaky label is intentional opt-out of presubmit for this test, since
+     * presubmit is only configured for dryRunMode, and dryRunMode is incompatible with startupMode.
+     */
+    @FlakyTest // NOTE: intentional! Test can't run in presubmit!
+    @Test
+    fun initialize() {
+        benchmarkRule.measureRepeated {
+            val appInitializer = runWithTimingDisabled { AppInitializer(context) }
+
+            if (concurrency == 0) {
+                COMPONENTS.forEach { appInitializer.doInitialize<Any>(it, HashSet()) }
+            } else {
+                appInitializer.initializeConcurrently(COMPONENTS, concurrency)
+            }
+
+            runWithTimingDisabled {
+                // Wait for the initializers still running in the background.
+                COMPONENTS.forEach { appInitializer.doInitialize<Any>(it, HashSet()) }
+                assertEquals(COMPONENTS.size, appInitializer.mInitialized.size)
+            }
+        }
+    }
+
+    abstract class IoInitializer : BackgroundInitializer<Unit> {
+        override fun create(context: Context) {
+            Thread.sleep(IO_MILLIS)
+        }
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = emptyList()
+    }
+
+    class CrashReportingInitializer : IoInitializer()
+
+    class DependencyGraphInitializer : IoInitializer()
+
+    class DatabaseInitializer : IoInitializer()
+
+    class ImageCacheInitializer : IoInitializer()
+
+    class UiInitializer : CriticalInitializer<Unit> {
+        override fun create(context: Context) {
+            Thread.sleep(IO_MILLIS)
+        }
+
+        override fun dependencies(): List<Class<out Initializer<*>>> = listOf(
+            CrashReportingInitializer::class.java,
+            DependencyGraphInitializer::class.java
+        )
+    }
+
+    companion object {
+        private const val IO_MILLIS = 10L
+
+        private val COMPONENTS: Set<Class<out Initializer<*>>> = linkedSetOf(
+            CrashReportingInitializer::class.java,
+            DependencyGraphInitializer::class.java,
+            DatabaseInitializer::class.java,
+            ImageCacheInitializer::class.java,
+            UiInitializer::class.java
+        )
+
+        /**
+         * 0 initializes the components serially on the calling thread, like
+         * [InitializationProvider] does by default.
+         */
+        @JvmStatic
+        @Parameterized.Parameters(name = "concurrency={0}")
+        fun data() = listOf(0, 2, 4)
+    }
+}
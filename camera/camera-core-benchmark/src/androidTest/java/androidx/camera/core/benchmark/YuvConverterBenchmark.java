@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.benchmark;
+
+import android.annotation.SuppressLint;
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.internal.utils.ImageUtil;
+import androidx.camera.core.internal.utils.YuvConverter;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.camera.testing.fakes.FakePlaneProxy;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Measures converting a stream of synthetic YUV_420_888 frames with {@link YuvConverter}.
+ */
+// YuvConverter and ImageUtil are internal to camera-core.
+@SuppressLint("RestrictedApi")
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class YuvConverterBenchmark {
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+    private static final int ROW_PADDING = 64;
+    private static final Rect CROP_RECT = new Rect(80, 60, 560, 420);
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final FakeImageProxy mImage = createImage();
+
+    @Test
+    public void nv21() {
+        measure(YuvConverter.OUTPUT_FORMAT_NV21, null, 0);
+    }
+
+    @Test
+    public void i420() {
+        measure(YuvConverter.OUTPUT_FORMAT_I420, null, 0);
+    }
+
+    @Test
+    public void rgba() {
+        measure(YuvConverter.OUTPUT_FORMAT_RGBA_8888, null, 0);
+    }
+
+    @Test
+    public void nv21Rotated() {
+        measure(YuvConverter.OUTPUT_FORMAT_NV21, null, 90);
+    }
+
+    @Test
+    public void nv21Cropped() {
+        measure(YuvConverter.OUTPUT_FORMAT_NV21, CROP_RECT, 0);
+    }
+
+    @Test
+    public void rgbaCroppedRotated() {
+        measure(YuvConverter.OUTPUT_FORMAT_RGBA_8888, CROP_RECT, 270);
+    }
+
+    @Test
+    public void nv21ToArray_reusedConverter() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        YuvConverter converter = new YuvConverter(0);
+        while (state.keepRunning()) {
+            converter.convertToArray(mImage, YuvConverter.OUTPUT_FORMAT_NV21, null, 0);
+        }
+    }
+
+    @Test
+    public void nv21ToArray_newConverter() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            new YuvConverter(0).convertToArray(mImage, YuvConverter.OUTPUT_FORMAT_NV21, null, 0);
+        }
+    }
+
+    @Test
+    public void jpeg_reusedConverter() throws ImageUtil.CodecFailedException {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        YuvConverter converter = new YuvConverter(0);
+        while (state.keepRunning()) {
+            ImageUtil.imageToJpegByteArray(mImage, converter);
+        }
+    }
+
+    private void measure(int outputFormat, Rect cropRect, int rotationDegrees) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        YuvConverter converter = new YuvConverter();
+        while (state.keepRunning()) {
+            converter.releaseBuffer(
+                    converter.convert(mImage, outputFormat, cropRect, rotationDegrees));
+        }
+    }
+
+    /** Creates a frame with padded rows and interleaved chroma planes, as cameras output. */
+    private static FakeImageProxy createImage() {
+        int rowStride = WIDTH + ROW_PADDING;
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * (HEIGHT - 1) + WIDTH);
+        for (int i = 0; i < y.capacity(); i++) {
+            y.put(i, (byte) i);
+        }
+
+        int chromaRowStride = WIDTH + ROW_PADDING;
+        int chromaSize = chromaRowStride * (HEIGHT / 2 - 1) + WIDTH - 1;
+        ByteBuffer vu = ByteBuffer.allocateDirect(chromaSize + 1);
+        for (int i = 0; i < vu.capacity(); i++) {
+            vu.put(i, (byte) (i * 7));
+        }
+        ByteBuffer v = vu.duplicate();
+        v.limit(chromaSize);
+        vu.position(1);
+        ByteBuffer u = vu.slice();
+
+        FakeImageProxy image = new FakeImageProxy(new FakeImageInfo());
+        image.setFormat(ImageFormat.YUV_420_888);
+        image.setWidth(WIDTH);
+        image.setHeight(HEIGHT);
+        image.setPlanes(new ImageProxy.PlaneProxy[]{
+                new FakePlaneProxy(y, rowStride, 1),
+                new FakePlaneProxy(u, chromaRowStride, 2),
+                new FakePlaneProxy(v, chromaRowStride, 2)});
+        return image;
+    }
+}
@@ -42,6 +42,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.camera.core.ImageSaver.OnImageSavedCallback;
 import androidx.camera.core.ImageSaver.SaveError;
+import androidx.camera.core.internal.utils.YuvConverter;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 import androidx.test.filters.MediumTest;
@@ -226,6 +227,7 @@ public class ImageSaverTest {
                 image,
                 outputFileOptions,
                 /*orientation=*/ 0,
+                new YuvConverter(0),
                 mBackgroundExecutor,
                 mBackgroundExecutor,
                 mSyncCallback);
@@ -0,0 +1,428 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import android.graphics.Rect;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Preconditions;
+
+import com.google.auto.value.AutoValue;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * An {@link ImageAnalysis.Analyzer} which analyzes every image with several analyzers in
+ * parallel, e.g. to detect barcodes and faces and to compute exposure statistics on the same
+ * frames.
+ *
+ * <p>Every analyzer receives its own share of the image on its own executor and closes it
+ * independently. The image is closed once all analyzers have closed their shares. Each analyzer
+ * has its own backpressure strategy:
+ * <ul>
+ * <li>{@link ImageAnalysis#STRATEGY_KEEP_ONLY_LATEST}: while the analyzer is busy, only the
+ * latest image is kept for it. Older images are dropped for this analyzer only.
+ * <li>{@link ImageAnalysis#STRATEGY_BLOCK_PRODUCER}: while the analyzer is busy, images are
+ * queued for it. The images are not closed until it has analyzed them, which eventually blocks
+ * the producer.
+ * </ul>
+ *
+ * <p>To keep a slow analyzer from holding back the others, the {@link ImageAnalysis} should use
+ * {@link ImageAnalysis#STRATEGY_BLOCK_PRODUCER}, so that it delivers the next image while the
+ * previous one is still analyzed. The {@linkplain ImageAnalysis.Builder#setImageQueueDepth(int)
+ * image queue depth} then bounds the number of images which are analyzed or queued at once.
+ * The fan-out analyzer itself should be set with a direct executor, as it only hands the images
+ * over to the executors of the analyzers:
+ *
+ * <pre><code>
+ * FanOutAnalyzer fanOutAnalyzer = new FanOutAnalyzer();
+ * fanOutAnalyzer.addAnalyzer(barcodeExecutor, barcodeAnalyzer,
+ *         ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+ * fanOutAnalyzer.addAnalyzer(statsExecutor, exposureStatsAnalyzer,
+ *         ImageAnalysis.STRATEGY_BLOCK_PRODUCER);
+ * imageAnalysis.setAnalyzer(directExecutor, fanOutAnalyzer);
+ * </code></pre>
+ *
+ * <p>The {@link Stats} of an analyzer give its latency and how many images were dropped for it.
+ */
+@ExperimentalFanOutAnalyzer
+public final class FanOutAnalyzer implements ImageAnalysis.Analyzer {
+    private static final String TAG = "FanOutAnalyzer";
+
+    private final CopyOnWriteArrayList<Branch> mBranches = new CopyOnWriteArrayList<>();
+
+    /**
+     * Adds an analyzer which analyzes all following images.
+     *
+     * @param executor             The executor in which
+     *                             {@link ImageAnalysis.Analyzer#analyze(ImageProxy)} will be run.
+     * @param analyzer             The analyzer to add.
+     * @param backpressureStrategy The strategy for images which arrive while the analyzer is
+     *                             busy, which is {@link ImageAnalysis#STRATEGY_KEEP_ONLY_LATEST}
+     *                             or {@link ImageAnalysis#STRATEGY_BLOCK_PRODUCER}.
+     * @throws IllegalArgumentException if the analyzer has already been added.
+     */
+    public void addAnalyzer(@NonNull Executor executor, @NonNull ImageAnalysis.Analyzer analyzer,
+            @ImageAnalysis.BackpressureStrategy int backpressureStrategy) {
+        Preconditions.checkNotNull(executor);
+        Preconditions.checkNotNull(analyzer);
+        synchronized (mBranches) {
+            if (findBranch(analyzer) != null) {
+                throw new IllegalArgumentException("The analyzer has already been added");
+            }
+            mBranches.add(new Branch(executor, analyzer, backpressureStrategy));
+        }
+    }
+
+    /**
+     * Removes a previously added analyzer. The images which have been queued for it are released,
+     * the image it is analyzing still needs to be closed by it.
+     *
+     * @param analyzer The analyzer to remove.
+     */
+    public void removeAnalyzer(@NonNull ImageAnalysis.Analyzer analyzer) {
+        Branch branch;
+        synchronized (mBranches) {
+            branch = findBranch(analyzer);
+            if (branch == null) {
+                return;
+            }
+            mBranches.remove(branch);
+        }
+        branch.remove();
+    }
+
+    /**
+     * Returns the statistics of an analyzer since it has been added, or null if it has not been
+     * added.
+     */
+    @Nullable
+    public Stats getStats(@NonNull ImageAnalysis.Analyzer analyzer) {
+        Branch branch = findBranch(analyzer);
+        return branch != null ? branch.getStats() : null;
+    }
+
+    /**
+     * Hands the image over to all analyzers.
+     */
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        SharedImage sharedImage = new SharedImage(image);
+        for (Branch branch : mBranches) {
+            branch.offer(sharedImage.acquireShare());
+        }
+        // Closes the image if there are no analyzers or all of them have dropped it
+        sharedImage.release();
+    }
+
+    @Nullable
+    private Branch findBranch(@NonNull ImageAnalysis.Analyzer analyzer) {
+        for (Branch branch : mBranches) {
+            if (branch.mAnalyzer == analyzer) {
+                return branch;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * The statistics of an analyzer of a {@link FanOutAnalyzer}.
+     *
+     * <p>The latency of an image is the time from the image being handed over to the
+     * {@link FanOutAnalyzer} until the analyzer has closed it, so it includes the time the image
+     * was queued for the analyzer.
+     */
+    @ExperimentalFanOutAnalyzer
+    @AutoValue
+    public abstract static class Stats {
+        Stats() {
+        }
+
+        @NonNull
+        static Stats create(long analyzedCount, long droppedCount, long totalLatencyNanos,
+                long maxLatencyNanos) {
+            return new AutoValue_FanOutAnalyzer_Stats(analyzedCount, droppedCount,
+                    totalLatencyNanos, maxLatencyNanos);
+        }
+
+        /** Returns the number of images which the analyzer has analyzed and closed. */
+        public abstract long getAnalyzedCount();
+
+        /** Returns the number of images which were dropped before reaching the analyzer. */
+        public abstract long getDroppedCount();
+
+        /** Returns the sum of the latencies of all analyzed images. */
+        public abstract long getTotalLatencyNanos();
+
+        /** Returns the largest latency of an analyzed image. */
+        public abstract long getMaxLatencyNanos();
+
+        /** Returns the average latency of the analyzed images, or 0 if there are none. */
+        public long getAverageLatencyNanos() {
+            return getAnalyzedCount() > 0 ? getTotalLatencyNanos() / getAnalyzedCount() : 0;
+        }
+
+        /**
+         * Returns the fraction of the images which were dropped, between 0 and 1, or 0 if there
+         * have been no images.
+         */
+        public float getDropRate() {
+            long total = getAnalyzedCount() + getDroppedCount();
+            return total > 0 ? (float) getDroppedCount() / total : 0;
+        }
+    }
+
+    /**
+     * An image which is shared by the analyzers. It is closed once the fan-out analyzer and all
+     * shares have released it.
+     */
+    private static final class SharedImage {
+        final ImageProxy mImage;
+        final long mTimestampNanos = System.nanoTime();
+        private final AtomicInteger mReferenceCount = new AtomicInteger(1);
+
+        SharedImage(ImageProxy image) {
+            mImage = image;
+        }
+
+        ImageShare acquireShare() {
+            mReferenceCount.incrementAndGet();
+            return new ImageShare(this);
+        }
+
+        void release() {
+            if (mReferenceCount.decrementAndGet() == 0) {
+                mImage.close();
+            }
+        }
+    }
+
+    /**
+     * The share of an image which is handed to one analyzer. Closing it only releases the
+     * share, and it has its own crop rect and plane buffers so that analyzers don't affect each
+     * other.
+     */
+    private static final class ImageShare extends ForwardingImageProxy {
+        final SharedImage mSharedImage;
+        @GuardedBy("this")
+        private boolean mClosed = false;
+        @GuardedBy("this")
+        private Rect mCropRect;
+        @GuardedBy("this")
+        @Nullable
+        private ImageProxy.PlaneProxy[] mPlanes;
+
+        ImageShare(SharedImage sharedImage) {
+            super(sharedImage.mImage);
+            mSharedImage = sharedImage;
+            mCropRect = new Rect(sharedImage.mImage.getCropRect());
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (mClosed) {
+                    return;
+                }
+                mClosed = true;
+            }
+            notifyOnImageCloseListeners();
+            mSharedImage.release();
+        }
+
+        @Override
+        @NonNull
+        public synchronized Rect getCropRect() {
+            return new Rect(mCropRect);
+        }
+
+        @Override
+        public synchronized void setCropRect(@Nullable Rect rect) {
+            mCropRect = rect != null ? new Rect(rect) : new Rect(0, 0, getWidth(), getHeight());
+        }
+
+        @Override
+        @NonNull
+        public synchronized ImageProxy.PlaneProxy[] getPlanes() {
+            if (mPlanes == null) {
+                ImageProxy.PlaneProxy[] planes = super.getPlanes();
+                mPlanes = new ImageProxy.PlaneProxy[planes.length];
+                for (int i = 0; i < planes.length; i++) {
+                    mPlanes[i] = new PlaneShare(planes[i]);
+                }
+            }
+            return mPlanes;
+        }
+    }
+
+    /**
+     * A plane of an {@link ImageShare}. Its buffer is a duplicate of the buffer of the image, so
+     * analyzers reading the plane at the same time don't move each other's position and limit.
+     */
+    private static final class PlaneShare implements ImageProxy.PlaneProxy {
+        private final ImageProxy.PlaneProxy mPlane;
+        private final ByteBuffer mBuffer;
+
+        PlaneShare(ImageProxy.PlaneProxy plane) {
+            mPlane = plane;
+            ByteBuffer buffer = plane.getBuffer();
+            mBuffer = buffer.duplicate().order(buffer.order());
+        }
+
+        @Override
+        public int getRowStride() {
+            return mPlane.getRowStride();
+        }
+
+        @Override
+        public int getPixelStride() {
+            return mPlane.getPixelStride();
+        }
+
+        @Override
+        @NonNull
+        public ByteBuffer getBuffer() {
+            return mBuffer;
+        }
+    }
+
+    /**
+     * An analyzer with its executor, the images which are queued for it and its statistics.
+     */
+    private static final class Branch {
+        final ImageAnalysis.Analyzer mAnalyzer;
+        private final Executor mExecutor;
+        @ImageAnalysis.BackpressureStrategy
+        private final int mBackpressureStrategy;
+
+        private final Object mLock = new Object();
+        @GuardedBy("mLock")
+        private final ArrayDeque<ImageShare> mPendingImages = new ArrayDeque<>();
+        @GuardedBy("mLock")
+        private boolean mBusy = false;
+        @GuardedBy("mLock")
+        private boolean mRemoved = false;
+        @GuardedBy("mLock")
+        private long mAnalyzedCount;
+        @GuardedBy("mLock")
+        private long mDroppedCount;
+        @GuardedBy("mLock")
+        private long mTotalLatencyNanos;
+        @GuardedBy("mLock")
+        private long mMaxLatencyNanos;
+
+        Branch(Executor executor, ImageAnalysis.Analyzer analyzer,
+                @ImageAnalysis.BackpressureStrategy int backpressureStrategy) {
+            mExecutor = executor;
+            mAnalyzer = analyzer;
+            mBackpressureStrategy = backpressureStrategy;
+        }
+
+        /**
+         * Posts the image to the analyzer, or queues it if the analyzer is busy.
+         */
+        void offer(@NonNull ImageShare image) {
+            ImageShare droppedImage = null;
+            synchronized (mLock) {
+                if (mRemoved) {
+                    droppedImage = image;
+                } else if (mBusy) {
+                    if (mBackpressureStrategy == ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST) {
+                        droppedImage = mPendingImages.poll();
+                        if (droppedImage != null) {
+                            mDroppedCount++;
+                        }
+                    }
+                    mPendingImages.add(image);
+                    image = null;
+                } else {
+                    mBusy = true;
+                }
+            }
+            if (droppedImage != null) {
+                droppedImage.close();
+            }
+            if (image != null) {
+                post(image);
+            }
+        }
+
+        /**
+         * Releases the queued images and stops posting images to the analyzer.
+         */
+        void remove() {
+            ArrayDeque<ImageShare> pendingImages;
+            synchronized (mLock) {
+                mRemoved = true;
+                pendingImages = new ArrayDeque<>(mPendingImages);
+                mPendingImages.clear();
+            }
+            for (ImageShare image : pendingImages) {
+                image.close();
+            }
+        }
+
+        Stats getStats() {
+            synchronized (mLock) {
+                return Stats.create(mAnalyzedCount, mDroppedCount, mTotalLatencyNanos,
+                        mMaxLatencyNanos);
+            }
+        }
+
+        private void post(@NonNull ImageShare image) {
+            image.addOnImageCloseListener(closedImage -> onImageClosed(image));
+            try {
+                mExecutor.execute(() -> mAnalyzer.analyze(image));
+            } catch (RejectedExecutionException e) {
+                Logger.w(TAG, "The executor of an analyzer rejected an image", e);
+                synchronized (mLock) {
+                    mDroppedCount++;
+                }
+                // Only closes the share, as the analyzer never got it
+                image.mSharedImage.release();
+                onImageClosed(null);
+            }
+        }
+
+        /**
+         * Records the latency of the closed image and posts the next queued image.
+         */
+        private void onImageClosed(@Nullable ImageShare image) {
+            ImageShare nextImage;
+            synchronized (mLock) {
+                if (image != null) {
+                    long latencyNanos = System.nanoTime() - image.mSharedImage.mTimestampNanos;
+                    mAnalyzedCount++;
+                    mTotalLatencyNanos += latencyNanos;
+                    mMaxLatencyNanos = Math.max(mMaxLatencyNanos, latencyNanos);
+                }
+                nextImage = mRemoved ? null : mPendingImages.poll();
+                mBusy = nextImage != null;
+            }
+            if (nextImage != null) {
+                post(nextImage);
+            }
+        }
+    }
+}
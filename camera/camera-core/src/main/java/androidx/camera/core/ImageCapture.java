@@ -26,7 +26,9 @@ import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_FLASH_MODE;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_IMAGE_CAPTURE_MODE;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_IMAGE_READER_PROXY_PROVIDER;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_IO_EXECUTOR;
+import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_MAX_CAPTURES_IN_FLIGHT;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_MAX_CAPTURE_STAGES;
+import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_MAX_CONCURRENT_SAVES;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_MAX_RESOLUTION;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_SESSION_CONFIG_UNPACKER;
 import static androidx.camera.core.impl.ImageCaptureConfig.OPTION_SUPPORTED_RESOLUTIONS;
@@ -112,6 +114,7 @@ import androidx.camera.core.internal.utils.ImageUtil;
 import androidx.concurrent.futures.CallbackToFutureAdapter;
 import androidx.core.util.Preconditions;
 
+import com.google.auto.value.AutoValue;
 import com.google.common.util.concurrent.ListenableFuture;
 
 import java.io.ByteArrayInputStream;
@@ -123,6 +126,7 @@ import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
@@ -242,9 +246,6 @@ public final class ImageCapture extends UseCase {
         }
     });
 
-    @NonNull
-    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
-    final Executor mIoExecutor;
     @CaptureMode
     private final int mCaptureMode;
 
@@ -309,7 +310,22 @@ public final class ImageCapture extends UseCase {
     private ImageCaptureRequestProcessor mImageCaptureRequestProcessor;
     // Synthetic access
     @SuppressWarnings("WeakerAccess")
-    final Executor mSequentialIoExecutor;
+    final ImageSavePipeline mImageSavePipeline;
+
+    /** The max number of captures in flight of the current pipeline. */
+    private int mMaxCapturesInFlight = 1;
+
+    /**
+     * The completers of the captures in flight of the current pipeline, in the order the
+     * captures were issued in. Images are received in the same order.
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    final Deque<CallbackToFutureAdapter.Completer<ImageProxy>> mPendingImageCompleters =
+            new ArrayDeque<>();
+
+    /** The completion of the most recently issued capture, see {@link #takePictureInternal}. */
+    @GuardedBy("mPendingImageCompleters")
+    private ListenableFuture<Void> mLastIssueFuture = Futures.immediateFuture(null);
 
     /**
      * Creates a new image capture use case from the given configuration.
@@ -328,9 +344,11 @@ public final class ImageCapture extends UseCase {
             mCaptureMode = DEFAULT_CAPTURE_MODE;
         }
 
-        mIoExecutor = Preconditions.checkNotNull(
+        Executor ioExecutor = Preconditions.checkNotNull(
                 useCaseConfig.getIoExecutor(CameraXExecutors.ioExecutor()));
-        mSequentialIoExecutor = CameraXExecutors.newSequentialExecutor(mIoExecutor);
+        mImageSavePipeline = new ImageSavePipeline(ioExecutor,
+                CameraXExecutors.newSequentialExecutor(ioExecutor),
+                useCaseConfig.getMaxConcurrentSaves(Integer.MAX_VALUE));
 
         if (mCaptureMode == CAPTURE_MODE_MAXIMIZE_QUALITY) {
             mEnableCheck3AConverged = true; // check 3A convergence in MAX_QUALITY mode
@@ -347,12 +365,18 @@ public final class ImageCapture extends UseCase {
         SessionConfig.Builder sessionConfigBuilder = SessionConfig.Builder.createFrom(config);
         sessionConfigBuilder.addRepeatingCameraCaptureCallback(mSessionCallbackChecker);
 
+        // Captures are only pipelined if they are not processed, and every capture in flight
+        // needs an image buffer of its own.
+        mMaxCapturesInFlight = mCaptureMode == CAPTURE_MODE_MINIMIZE_LATENCY
+                && mCaptureProcessor == null ? config.getMaxCapturesInFlight(1) : 1;
+        int maxImages = MAX_IMAGES + mMaxCapturesInFlight - 1;
+
         // Setup the ImageReader to do processing
         if (config.getImageReaderProxyProvider() != null) {
             mImageReader =
                     new SafeCloseImageReaderProxy(
                             config.getImageReaderProxyProvider().newInstance(resolution.getWidth(),
-                                    resolution.getHeight(), getImageFormat(), MAX_IMAGES, 0));
+                                    resolution.getHeight(), getImageFormat(), maxImages, 0));
             mMetadataMatchingCaptureCallback = new CameraCaptureCallback() {
             };
         } else if (mCaptureProcessor != null) {
@@ -369,12 +393,17 @@ public final class ImageCapture extends UseCase {
             mImageReader = new SafeCloseImageReaderProxy(mProcessingImageReader);
         } else {
             MetadataImageReader metadataImageReader = new MetadataImageReader(resolution.getWidth(),
-                    resolution.getHeight(), getImageFormat(), MAX_IMAGES);
+                    resolution.getHeight(), getImageFormat(), maxImages);
             mMetadataMatchingCaptureCallback = metadataImageReader.getCameraCaptureCallback();
             mImageReader = new SafeCloseImageReaderProxy(metadataImageReader);
         }
-        mImageCaptureRequestProcessor = new ImageCaptureRequestProcessor(MAX_IMAGES,
-                request -> takePictureInternal(request));
+        synchronized (mPendingImageCompleters) {
+            // The captures in flight of a previous pipeline won't receive an image anymore
+            mPendingImageCompleters.clear();
+            mLastIssueFuture = Futures.immediateFuture(null);
+        }
+        mImageCaptureRequestProcessor = new ImageCaptureRequestProcessor(maxImages,
+                mMaxCapturesInFlight, request -> takePictureInternal(request));
 
         // By default close images that come from the listener.
         mImageReader.setOnImageAvailableListener(mClosingListener,
@@ -663,6 +692,37 @@ public final class ImageCapture extends UseCase {
         }
     }
 
+    /**
+     * Returns the current queue depths and stage latencies of the capture pipeline.
+     *
+     * <p>The capture stats cover the captures since the use case was last attached to a camera,
+     * the save stats cover all images saved by
+     * {@link #takePicture(OutputFileOptions, Executor, OnImageSavedCallback)}.
+     *
+     * @see Builder#setMaxCapturesInFlight(int)
+     * @see Builder#setMaxConcurrentSaves(int)
+     */
+    @ExperimentalPipelinedCapture
+    @NonNull
+    public PipelineStats getPipelineStats() {
+        ImageCaptureRequestProcessor requestProcessor = mImageCaptureRequestProcessor;
+        int pendingCaptureCount = 0;
+        int capturesInFlightCount = 0;
+        long averageCaptureLatencyNanos = 0;
+        if (requestProcessor != null) {
+            pendingCaptureCount = requestProcessor.getPendingRequestCount();
+            capturesInFlightCount = requestProcessor.getCurrentRequestCount();
+            averageCaptureLatencyNanos = requestProcessor.getAverageCaptureLatencyNanos();
+        }
+        return PipelineStats.create(pendingCaptureCount, capturesInFlightCount,
+                averageCaptureLatencyNanos, mImageSavePipeline.getPendingSaveCount(),
+                mImageSavePipeline.getSavesInFlightCount(),
+                mImageSavePipeline.getCompletedSaveCount(),
+                mImageSavePipeline.getAverageQueueLatencyNanos(),
+                mImageSavePipeline.getAverageEncodeLatencyNanos(),
+                mImageSavePipeline.getAverageWriteLatencyNanos());
+    }
+
     /**
      * Returns the set capture mode.
      *
@@ -794,14 +854,12 @@ public final class ImageCapture extends UseCase {
                 new OnImageCapturedCallback() {
                     @Override
                     public void onCaptureSuccess(@NonNull ImageProxy image) {
-                        mIoExecutor.execute(
-                                new ImageSaver(
-                                        image,
-                                        outputFileOptions,
-                                        image.getImageInfo().getRotationDegrees(),
-                                        executor,
-                                        mSequentialIoExecutor,
-                                        imageSavedCallbackWrapper));
+                        mImageSavePipeline.save(
+                                image,
+                                outputFileOptions,
+                                image.getImageInfo().getRotationDegrees(),
+                                executor,
+                                imageSavedCallbackWrapper);
                     }
 
                     @Override
@@ -918,34 +976,40 @@ public final class ImageCapture extends UseCase {
      * <p>(2) Issue take picture single request.
      *
      * <p>(3) Post-take picture, which will cancel af/ae scan or close torch if necessary.
+     *
+     * <p>If several captures are in flight, the pre-take picture of a capture waits until the
+     * previous capture has been issued, so that the 3A and flash states of the captures don't
+     * interfere.
      */
     private ListenableFuture<ImageProxy> takePictureInternal(
             @NonNull ImageCaptureRequest imageCaptureRequest) {
+        final boolean pipelined = mMaxCapturesInFlight > 1;
         return CallbackToFutureAdapter.getFuture(
                 completer -> {
                     mImageReader.setOnImageAvailableListener(
-                            (imageReader) -> {
-                                try {
-                                    ImageProxy image = imageReader.acquireLatestImage();
-                                    if (image != null) {
-                                        if (!completer.set(image)) {
-                                            // If the future is already complete (probably be
-                                            // cancelled), then close the image.
-                                            image.close();
-                                        }
-                                    } else {
-                                        completer.setException(new IllegalStateException(
-                                                "Unable to acquire image"));
-                                    }
-                                } catch (IllegalStateException e) {
-                                    completer.setException(e);
-                                }
-                            },
+                            (imageReader) -> onCaptureImageAvailable(imageReader, pipelined),
                             CameraXExecutors.mainThreadExecutor());
 
                     TakePictureState state = new TakePictureState();
-                    ListenableFuture<Void> future = FutureChain.from(preTakePicture(state))
-                            .transformAsync(v -> issueTakePicture(imageCaptureRequest), mExecutor);
+                    ListenableFuture<Void> future;
+                    synchronized (mPendingImageCompleters) {
+                        mPendingImageCompleters.offer(completer);
+
+                        FutureChain<Void> preTakePictureFuture;
+                        if (pipelined) {
+                            // Waits for the previous capture, whether it succeeded or not.
+                            ListenableFuture<List<Void>> previousIssueFuture =
+                                    Futures.successfulAsList(Collections.singletonList(
+                                            Futures.nonCancellationPropagating(mLastIssueFuture)));
+                            preTakePictureFuture = FutureChain.from(previousIssueFuture)
+                                    .transformAsync(v -> preTakePicture(state), mExecutor);
+                        } else {
+                            preTakePictureFuture = FutureChain.from(preTakePicture(state));
+                        }
+                        future = preTakePictureFuture.transformAsync(
+                                v -> issueTakePicture(imageCaptureRequest), mExecutor);
+                        mLastIssueFuture = future;
+                    }
 
                     Futures.addCallback(future,
                             new FutureCallback<Void>() {
@@ -958,52 +1022,111 @@ public final class ImageCapture extends UseCase {
                                 public void onFailure(Throwable throwable) {
                                     postTakePicture(state);
 
+                                    removePendingImageCompleter(completer);
                                     completer.setException(throwable);
                                 }
                             },
                             mExecutor);
 
-                    completer.addCancellationListener(() -> future.cancel(true),
-                            CameraXExecutors.directExecutor());
+                    completer.addCancellationListener(() -> {
+                        removePendingImageCompleter(completer);
+                        future.cancel(true);
+                    }, CameraXExecutors.directExecutor());
 
                     return "takePictureInternal";
                 });
     }
 
+    /**
+     * Hands the next image of the {@link ImageReaderProxy} to the oldest capture in flight, or
+     * closes it if there is no capture in flight.
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    void onCaptureImageAvailable(@NonNull ImageReaderProxy imageReader, boolean pipelined) {
+        CallbackToFutureAdapter.Completer<ImageProxy> completer;
+        synchronized (mPendingImageCompleters) {
+            completer = mPendingImageCompleters.poll();
+        }
+        try {
+            // If several captures are in flight, the images of the other captures must not be
+            // discarded.
+            ImageProxy image = pipelined ? imageReader.acquireNextImage()
+                    : imageReader.acquireLatestImage();
+            if (image != null) {
+                if (completer == null || !completer.set(image)) {
+                    // If the future is already complete (probably be cancelled), then close the
+                    // image.
+                    image.close();
+                }
+            } else if (completer != null) {
+                completer.setException(new IllegalStateException("Unable to acquire image"));
+            }
+        } catch (IllegalStateException e) {
+            if (completer != null) {
+                completer.setException(e);
+            }
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    void removePendingImageCompleter(
+            @NonNull CallbackToFutureAdapter.Completer<ImageProxy> completer) {
+        synchronized (mPendingImageCompleters) {
+            mPendingImageCompleters.remove(completer);
+        }
+    }
+
     /**
      * A processor that manages and issues the pending {@link ImageCaptureRequest}s.
      *
-     * <p>It ensures that only one single {@link ImageCaptureRequest} is in progress at a time
-     * and is able to process next request only when there is not over the maximum number of
-     * dispatched image.
+     * <p>It ensures that at most the maximum number of {@link ImageCaptureRequest}s, by default
+     * one, is in progress at a time and is able to process next request only when there is not
+     * over the maximum number of dispatched image.
      */
     @VisibleForTesting
     static class ImageCaptureRequestProcessor implements OnImageCloseListener {
         @GuardedBy("mLock")
         private final Deque<ImageCaptureRequest> mPendingRequests = new ArrayDeque<>();
 
+        /** The requests in progress, in the order they were issued in. */
         @SuppressWarnings("WeakerAccess") /* synthetic accessor */
         @GuardedBy("mLock")
-        ImageCaptureRequest mCurrentRequest = null;
+        final List<ImageCaptureRequest> mCurrentRequests = new ArrayList<>();
 
         @SuppressWarnings("WeakerAccess") /* synthetic accessor */
         @GuardedBy("mLock")
-        ListenableFuture<ImageProxy> mCurrentRequestFuture = null;
+        final List<ListenableFuture<ImageProxy>> mCurrentRequestFutures = new ArrayList<>();
 
         @SuppressWarnings("WeakerAccess") /* synthetic accessor */
         @GuardedBy("mLock")
         int mOutstandingImages = 0;
 
+        @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+        @GuardedBy("mLock")
+        long mCapturedCount = 0;
+
+        @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+        @GuardedBy("mLock")
+        long mTotalCaptureLatencyNanos = 0;
+
         @GuardedBy("mLock")
         private final ImageCaptor mImageCaptor;
 
         private final int mMaxImages;
 
+        private final int mMaxCapturesInFlight;
+
         @SuppressWarnings("WeakerAccess") /* synthetic accessor */
         final Object mLock = new Object();
 
         ImageCaptureRequestProcessor(int maxImages, @NonNull ImageCaptor imageCaptor) {
+            this(maxImages, 1, imageCaptor);
+        }
+
+        ImageCaptureRequestProcessor(int maxImages, int maxCapturesInFlight,
+                @NonNull ImageCaptor imageCaptor) {
             mMaxImages = maxImages;
+            mMaxCapturesInFlight = maxCapturesInFlight;
             mImageCaptor = imageCaptor;
         }
 
@@ -1017,28 +1140,28 @@ public final class ImageCapture extends UseCase {
                 mPendingRequests.offer(imageCaptureRequest);
                 Logger.d(TAG, String.format(Locale.US,
                         "Send image capture request [current, pending] = [%d, %d]",
-                        mCurrentRequest != null ? 1 : 0, mPendingRequests.size()));
+                        mCurrentRequests.size(), mPendingRequests.size()));
                 processNextRequest();
             }
         }
 
         /** Cancels current processing and pending requests. */
         public void cancelRequests(@NonNull Throwable throwable) {
-            ImageCaptureRequest currentRequest;
-            ListenableFuture<ImageProxy> currentRequestFuture;
+            List<ImageCaptureRequest> currentRequests;
+            List<ListenableFuture<ImageProxy>> currentRequestFutures;
             List<ImageCaptureRequest> pendingRequests;
             synchronized (mLock) {
-                currentRequest = mCurrentRequest;
-                mCurrentRequest = null;
-                currentRequestFuture = mCurrentRequestFuture;
-                mCurrentRequestFuture = null;
+                currentRequests = new ArrayList<>(mCurrentRequests);
+                mCurrentRequests.clear();
+                currentRequestFutures = new ArrayList<>(mCurrentRequestFutures);
+                mCurrentRequestFutures.clear();
                 pendingRequests = new ArrayList<>(mPendingRequests);
                 mPendingRequests.clear();
             }
-            if (currentRequest != null && currentRequestFuture != null) {
-                currentRequest.notifyCallbackError(getError(throwable), throwable.getMessage(),
-                        throwable);
-                currentRequestFuture.cancel(true);
+            for (int i = 0; i < currentRequests.size(); i++) {
+                currentRequests.get(i).notifyCallbackError(getError(throwable),
+                        throwable.getMessage(), throwable);
+                currentRequestFutures.get(i).cancel(true);
             }
             for (ImageCaptureRequest request : pendingRequests) {
                 request.notifyCallbackError(getError(throwable), throwable.getMessage(), throwable);
@@ -1053,16 +1176,41 @@ public final class ImageCapture extends UseCase {
             }
         }
 
+        /** Returns the number of requests which have not been issued yet. */
+        int getPendingRequestCount() {
+            synchronized (mLock) {
+                return mPendingRequests.size();
+            }
+        }
+
+        /** Returns the number of requests which are in progress. */
+        int getCurrentRequestCount() {
+            synchronized (mLock) {
+                return mCurrentRequests.size();
+            }
+        }
+
+        /**
+         * Returns the average time from issuing a request to receiving its image, or 0 if no
+         * image has been received yet.
+         */
+        long getAverageCaptureLatencyNanos() {
+            synchronized (mLock) {
+                return mCapturedCount == 0 ? 0 : mTotalCaptureLatencyNanos / mCapturedCount;
+            }
+        }
+
         @SuppressWarnings("WeakerAccess") /* synthetic accessor */
         void processNextRequest() {
             synchronized (mLock) {
-                // Unable to issue request if there is currently a request in flight
-                if (mCurrentRequest != null) {
+                // Unable to issue request if the maximum number of requests is in flight
+                if (mCurrentRequests.size() >= mMaxCapturesInFlight) {
                     return;
                 }
 
-                // Unable to issue request if the ImageReader has no available image buffer left.
-                if (mOutstandingImages >= mMaxImages) {
+                // Unable to issue request if the ImageReader has no available image buffer left,
+                // taking the buffers of the requests in flight into account.
+                if (mOutstandingImages + mCurrentRequests.size() >= mMaxImages) {
                     Logger.w(TAG,
                             "Too many acquire images. Close image to be able to process next.");
                     return;
@@ -1073,9 +1221,12 @@ public final class ImageCapture extends UseCase {
                     return;
                 }
 
-                mCurrentRequest = imageCaptureRequest;
-                mCurrentRequestFuture = mImageCaptor.capture(imageCaptureRequest);
-                Futures.addCallback(mCurrentRequestFuture, new FutureCallback<ImageProxy>() {
+                final long issuedNanos = System.nanoTime();
+                ListenableFuture<ImageProxy> requestFuture =
+                        mImageCaptor.capture(imageCaptureRequest);
+                mCurrentRequests.add(imageCaptureRequest);
+                mCurrentRequestFutures.add(requestFuture);
+                Futures.addCallback(requestFuture, new FutureCallback<ImageProxy>() {
                     @Override
                     public void onSuccess(@Nullable ImageProxy image) {
                         synchronized (mLock) {
@@ -1083,10 +1234,11 @@ public final class ImageCapture extends UseCase {
                             SingleCloseImageProxy wrappedImage = new SingleCloseImageProxy(image);
                             wrappedImage.addOnImageCloseListener(ImageCaptureRequestProcessor.this);
                             mOutstandingImages++;
+                            mCapturedCount++;
+                            mTotalCaptureLatencyNanos += System.nanoTime() - issuedNanos;
                             imageCaptureRequest.dispatchImage(wrappedImage);
 
-                            mCurrentRequest = null;
-                            mCurrentRequestFuture = null;
+                            removeCurrentRequest(imageCaptureRequest);
                             processNextRequest();
                         }
                     }
@@ -1102,8 +1254,7 @@ public final class ImageCapture extends UseCase {
                                         t != null ? t.getMessage() : "Unknown error", t);
                             }
 
-                            mCurrentRequest = null;
-                            mCurrentRequestFuture = null;
+                            removeCurrentRequest(imageCaptureRequest);
                             processNextRequest();
                         }
                     }
@@ -1111,6 +1262,16 @@ public final class ImageCapture extends UseCase {
             }
         }
 
+        @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+        @GuardedBy("mLock")
+        void removeCurrentRequest(@NonNull ImageCaptureRequest imageCaptureRequest) {
+            int index = mCurrentRequests.indexOf(imageCaptureRequest);
+            if (index != -1) {
+                mCurrentRequests.remove(index);
+                mCurrentRequestFutures.remove(index);
+            }
+        }
+
         /** An interface of an {@link ImageProxy} captor. */
         interface ImageCaptor {
             /**
@@ -1849,6 +2010,58 @@ public final class ImageCapture extends UseCase {
         }
     }
 
+    /**
+     * A snapshot of the queue depths and stage latencies of the capture pipeline of an
+     * {@link ImageCapture}.
+     *
+     * <p>The latencies are averages over all captures and saves since the pipeline was created,
+     * or 0 if there were none.
+     */
+    @ExperimentalPipelinedCapture
+    @AutoValue
+    public abstract static class PipelineStats {
+        PipelineStats() {
+        }
+
+        @NonNull
+        static PipelineStats create(int pendingCaptureCount, int capturesInFlightCount,
+                long averageCaptureLatencyNanos, int pendingSaveCount, int savesInFlightCount,
+                long completedSaveCount, long averageSaveQueueLatencyNanos,
+                long averageEncodeLatencyNanos, long averageWriteLatencyNanos) {
+            return new AutoValue_ImageCapture_PipelineStats(pendingCaptureCount,
+                    capturesInFlightCount, averageCaptureLatencyNanos, pendingSaveCount,
+                    savesInFlightCount, completedSaveCount, averageSaveQueueLatencyNanos,
+                    averageEncodeLatencyNanos, averageWriteLatencyNanos);
+        }
+
+        /** Returns the number of {@link #takePicture} calls which wait to be captured. */
+        public abstract int getPendingCaptureCount();
+
+        /** Returns the number of captures which wait for their image. */
+        public abstract int getCapturesInFlightCount();
+
+        /** Returns the average time from issuing a capture to receiving its image. */
+        public abstract long getAverageCaptureLatencyNanos();
+
+        /** Returns the number of captured images which wait to be saved. */
+        public abstract int getPendingSaveCount();
+
+        /** Returns the number of captured images which are being saved. */
+        public abstract int getSavesInFlightCount();
+
+        /** Returns the number of captured images which have been saved or failed to be saved. */
+        public abstract long getCompletedSaveCount();
+
+        /** Returns the average time a captured image waited to be saved. */
+        public abstract long getAverageSaveQueueLatencyNanos();
+
+        /** Returns the average time to encode a captured image, including cropping it. */
+        public abstract long getAverageEncodeLatencyNanos();
+
+        /** Returns the average time to write an encoded image to its destination. */
+        public abstract long getAverageWriteLatencyNanos();
+    }
+
     /** Holder class for metadata that will be saved with captured images. */
     public static final class Metadata {
         /**
@@ -2406,6 +2619,15 @@ public final class ImageCapture extends UseCase {
                     getMutableConfig().retrieveOption(OPTION_MAX_CAPTURE_STAGES, MAX_IMAGES) >= 1,
                     "Maximum outstanding image count must be at least 1");
 
+            Preconditions.checkArgument(
+                    getMutableConfig().retrieveOption(OPTION_MAX_CAPTURES_IN_FLIGHT, 1) >= 1,
+                    "Maximum captures in flight must be at least 1");
+
+            Preconditions.checkArgument(
+                    getMutableConfig().retrieveOption(OPTION_MAX_CONCURRENT_SAVES,
+                            Integer.MAX_VALUE) >= 1,
+                    "Maximum concurrent saves must be at least 1");
+
             Preconditions.checkNotNull(getMutableConfig().retrieveOption(OPTION_IO_EXECUTOR,
                     CameraXExecutors.ioExecutor()), "The IO executor can't be null");
 
@@ -2460,6 +2682,51 @@ public final class ImageCapture extends UseCase {
             return this;
         }
 
+        /**
+         * Sets the max number of captures which are in flight at the same time.
+         *
+         * <p>By default, a capture is only issued once the image of the previous capture has
+         * been received. With a larger value, captures are issued while the images of previous
+         * captures are still being produced by the camera, which shortens the time to take a
+         * burst of pictures. The images are still received in the order of the
+         * {@link #takePicture} calls.
+         *
+         * <p>Captures are only pipelined in {@link #CAPTURE_MODE_MINIMIZE_LATENCY}. The
+         * pre-capture sequence of a capture, e.g. for the flash, still waits for the previous
+         * capture to be issued.
+         *
+         * <p>If not set, the max number of captures in flight will default to 1.
+         *
+         * @param maxCapturesInFlight The max number of captures in flight, at least 1.
+         * @return The current Builder.
+         */
+        @ExperimentalPipelinedCapture
+        @NonNull
+        public Builder setMaxCapturesInFlight(@IntRange(from = 1) int maxCapturesInFlight) {
+            getMutableConfig().insertOption(OPTION_MAX_CAPTURES_IN_FLIGHT, maxCapturesInFlight);
+            return this;
+        }
+
+        /**
+         * Sets the max number of captured images which are saved at the same time by
+         * {@link #takePicture(OutputFileOptions, Executor, OnImageSavedCallback)}.
+         *
+         * <p>Images which are captured while this many images are being saved wait for one of
+         * the saves to finish. Regardless of this value, the {@link OnImageSavedCallback}s are
+         * called in the order of the {@link #takePicture} calls.
+         *
+         * <p>If not set, the number of images which are saved at the same time is not limited.
+         *
+         * @param maxConcurrentSaves The max number of images saved at the same time, at least 1.
+         * @return The current Builder.
+         */
+        @ExperimentalPipelinedCapture
+        @NonNull
+        public Builder setMaxConcurrentSaves(@IntRange(from = 1) int maxConcurrentSaves) {
+            getMutableConfig().insertOption(OPTION_MAX_CONCURRENT_SAVES, maxConcurrentSaves);
+            return this;
+        }
+
         /**
          * Sets the {@link CaptureBundle}.
          *
@@ -0,0 +1,330 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.core.internal.utils.YuvConverter;
+import androidx.core.util.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Saves captured images with a bounded number of concurrent {@link ImageSaver}s.
+ *
+ * <p>Images wait in a queue while the maximum number of images is being saved. Whatever order
+ * the saves finish in, their callbacks are called in the order the images were submitted in.
+ *
+ * <p>The {@link YuvConverter}s of the saves are reused by the following saves, so that
+ * encoding YUV images doesn't allocate an NV21 array per image.
+ *
+ * <p>It also keeps the latency of the stages of the saves: waiting in the queue, encoding the
+ * image to a temp file, and writing the temp file to the destination.
+ */
+final class ImageSavePipeline {
+    private static final String TAG = "ImageSavePipeline";
+
+    private final Executor mIoExecutor;
+    private final Executor mSequentialIoExecutor;
+    private final int mMaxConcurrentSaves;
+
+    private final Object mLock = new Object();
+
+    /** Saves which haven't been started yet. */
+    @GuardedBy("mLock")
+    private final Deque<Save> mPendingSaves = new ArrayDeque<>();
+
+    /** Saves whose callbacks haven't been called yet, in the order they were submitted in. */
+    @GuardedBy("mLock")
+    private final Deque<Save> mUndeliveredSaves = new ArrayDeque<>();
+
+    /** Whether a thread is delivering results, see {@link #deliverResults()}. */
+    @GuardedBy("mLock")
+    private boolean mDelivering = false;
+
+    /** Converters which aren't used by a save, at most one per concurrent save. */
+    @GuardedBy("mLock")
+    private final Deque<YuvConverter> mYuvConverters = new ArrayDeque<>();
+
+    @GuardedBy("mLock")
+    private int mSavesInFlight = 0;
+    @GuardedBy("mLock")
+    private long mCompletedSaveCount = 0;
+    @GuardedBy("mLock")
+    private long mTotalQueueLatencyNanos = 0;
+    @GuardedBy("mLock")
+    private long mEncodedCount = 0;
+    @GuardedBy("mLock")
+    private long mTotalEncodeLatencyNanos = 0;
+    @GuardedBy("mLock")
+    private long mWrittenCount = 0;
+    @GuardedBy("mLock")
+    private long mTotalWriteLatencyNanos = 0;
+
+    /**
+     * @param ioExecutor           the executor to encode the images on
+     * @param sequentialIoExecutor the sequential executor to write the images to their
+     *                             destinations on
+     * @param maxConcurrentSaves   the max number of images which are saved at the same time
+     */
+    ImageSavePipeline(@NonNull Executor ioExecutor, @NonNull Executor sequentialIoExecutor,
+            int maxConcurrentSaves) {
+        mIoExecutor = ioExecutor;
+        mSequentialIoExecutor = sequentialIoExecutor;
+        mMaxConcurrentSaves = maxConcurrentSaves;
+    }
+
+    /**
+     * Saves the image, see {@link ImageSaver}. The image is closed once it has been encoded.
+     *
+     * @param callback the callback which is called on the executor once the image has been
+     *                 saved, after the callbacks of all previously submitted images
+     */
+    void save(@NonNull ImageProxy image, @NonNull ImageCapture.OutputFileOptions outputFileOptions,
+            int orientation, @NonNull Executor userCallbackExecutor,
+            @NonNull ImageSaver.OnImageSavedCallback callback) {
+        Save save = new Save(image, outputFileOptions, orientation, userCallbackExecutor,
+                callback);
+        List<Save> savesToStart;
+        synchronized (mLock) {
+            mPendingSaves.offer(save);
+            mUndeliveredSaves.offer(save);
+            savesToStart = pollSavesToStart();
+        }
+        startSaves(savesToStart);
+    }
+
+    /** Returns the number of images which wait to be saved. */
+    int getPendingSaveCount() {
+        synchronized (mLock) {
+            return mPendingSaves.size();
+        }
+    }
+
+    /** Returns the number of images which are being saved. */
+    int getSavesInFlightCount() {
+        synchronized (mLock) {
+            return mSavesInFlight;
+        }
+    }
+
+    /** Returns the number of images which have been saved or failed to be saved. */
+    long getCompletedSaveCount() {
+        synchronized (mLock) {
+            return mCompletedSaveCount;
+        }
+    }
+
+    /** Returns the average time images waited to be saved, or 0 if no save has started. */
+    long getAverageQueueLatencyNanos() {
+        synchronized (mLock) {
+            long startedCount = mCompletedSaveCount + mSavesInFlight;
+            return startedCount == 0 ? 0 : mTotalQueueLatencyNanos / startedCount;
+        }
+    }
+
+    /**
+     * Returns the average time to encode an image to a temp file, or 0 if no image has been
+     * encoded.
+     */
+    long getAverageEncodeLatencyNanos() {
+        synchronized (mLock) {
+            return mEncodedCount == 0 ? 0 : mTotalEncodeLatencyNanos / mEncodedCount;
+        }
+    }
+
+    /**
+     * Returns the average time to write a temp file to its destination, including the time
+     * waiting for the writes of other images, or 0 if no image has been written.
+     */
+    long getAverageWriteLatencyNanos() {
+        synchronized (mLock) {
+            return mWrittenCount == 0 ? 0 : mTotalWriteLatencyNanos / mWrittenCount;
+        }
+    }
+
+    @GuardedBy("mLock")
+    private List<Save> pollSavesToStart() {
+        List<Save> saves = new ArrayList<>();
+        while (mSavesInFlight < mMaxConcurrentSaves && !mPendingSaves.isEmpty()) {
+            Save save = mPendingSaves.poll();
+            save.mStartNanos = System.nanoTime();
+            mTotalQueueLatencyNanos += save.mStartNanos - save.mSubmitNanos;
+            save.mYuvConverter = mYuvConverters.isEmpty()
+                    ? new YuvConverter(0) : mYuvConverters.pop();
+            mSavesInFlight++;
+            saves.add(save);
+        }
+        return saves;
+    }
+
+    private void startSaves(@NonNull List<Save> saves) {
+        for (Save save : saves) {
+            save.start();
+        }
+    }
+
+    /** Returns the converter of the save to the pool, once the save no longer uses it. */
+    @GuardedBy("mLock")
+    private void releaseYuvConverter(@NonNull Save save) {
+        if (save.mYuvConverter != null) {
+            mYuvConverters.push(save.mYuvConverter);
+            save.mYuvConverter = null;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    void onEncoded(@NonNull Save save) {
+        synchronized (mLock) {
+            releaseYuvConverter(save);
+            save.mEncodedNanos = System.nanoTime();
+            mEncodedCount++;
+            mTotalEncodeLatencyNanos += save.mEncodedNanos - save.mStartNanos;
+        }
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic accessor */
+    void onSaved(@NonNull Save save, @NonNull Runnable result) {
+        List<Save> savesToStart;
+        boolean deliver;
+        synchronized (mLock) {
+            releaseYuvConverter(save);
+            if (save.mEncodedNanos != 0) {
+                mWrittenCount++;
+                mTotalWriteLatencyNanos += System.nanoTime() - save.mEncodedNanos;
+            }
+            mSavesInFlight--;
+            mCompletedSaveCount++;
+            save.mResult = result;
+            savesToStart = pollSavesToStart();
+            deliver = !mDelivering;
+            mDelivering = true;
+        }
+        startSaves(savesToStart);
+        if (deliver) {
+            deliverResults();
+        }
+    }
+
+    /**
+     * Posts the results which are next in order to their executors until there are none left.
+     *
+     * <p>The results are posted without holding the lock, as the executors belong to the
+     * application. Only one thread delivers at a time so that they are still posted in order, and
+     * results which become ready meanwhile are delivered by that thread.
+     */
+    private void deliverResults() {
+        List<Save> saves = new ArrayList<>();
+        while (true) {
+            synchronized (mLock) {
+                Save nextSave;
+                while ((nextSave = mUndeliveredSaves.peek()) != null
+                        && nextSave.mResult != null) {
+                    saves.add(mUndeliveredSaves.poll());
+                }
+                if (saves.isEmpty()) {
+                    mDelivering = false;
+                    return;
+                }
+            }
+            for (Save save : saves) {
+                save.deliverResult();
+            }
+            saves.clear();
+        }
+    }
+
+    /** A single image to save, which is also the callback of its {@link ImageSaver}. */
+    private final class Save implements ImageSaver.OnImageSavedCallback {
+        private final ImageProxy mImage;
+        private final ImageCapture.OutputFileOptions mOutputFileOptions;
+        private final int mOrientation;
+        private final Executor mUserCallbackExecutor;
+        private final ImageSaver.OnImageSavedCallback mCallback;
+
+        final long mSubmitNanos = System.nanoTime();
+        @GuardedBy("mLock")
+        long mStartNanos;
+        @GuardedBy("mLock")
+        long mEncodedNanos;
+        // Set when the save is started, until the image has been encoded
+        @GuardedBy("mLock")
+        @Nullable
+        YuvConverter mYuvConverter;
+        // Set while holding mLock, and only read by deliverResult() after it has been set.
+        @Nullable
+        volatile Runnable mResult;
+
+        Save(@NonNull ImageProxy image, @NonNull ImageCapture.OutputFileOptions outputFileOptions,
+                int orientation, @NonNull Executor userCallbackExecutor,
+                @NonNull ImageSaver.OnImageSavedCallback callback) {
+            mImage = image;
+            mOutputFileOptions = outputFileOptions;
+            mOrientation = orientation;
+            mUserCallbackExecutor = userCallbackExecutor;
+            mCallback = callback;
+        }
+
+        void start() {
+            // The ImageSaver calls back directly so the result can be put in order. Copying the
+            // temp file to its destination marks the end of the encoding.
+            Executor sequentialIoExecutor = command -> {
+                onEncoded(this);
+                mSequentialIoExecutor.execute(command);
+            };
+            YuvConverter yuvConverter;
+            synchronized (mLock) {
+                yuvConverter = Preconditions.checkNotNull(mYuvConverter);
+            }
+            try {
+                mIoExecutor.execute(new ImageSaver(mImage, mOutputFileOptions, mOrientation,
+                        yuvConverter, CameraXExecutors.directExecutor(), sequentialIoExecutor,
+                        this));
+            } catch (RejectedExecutionException e) {
+                mImage.close();
+                onError(ImageSaver.SaveError.UNKNOWN, "IO executor rejected saving the image", e);
+            }
+        }
+
+        void deliverResult() {
+            try {
+                mUserCallbackExecutor.execute(mResult);
+            } catch (RejectedExecutionException e) {
+                Logger.e(TAG, "Application executor rejected executing OnImageSavedCallback "
+                        + "callback. Skipping.");
+            }
+        }
+
+        @Override
+        public void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults) {
+            onSaved(this, () -> mCallback.onImageSaved(outputFileResults));
+        }
+
+        @Override
+        public void onError(@NonNull ImageSaver.SaveError saveError, @NonNull String message,
+                @Nullable Throwable cause) {
+            onSaved(this, () -> mCallback.onError(saveError, message, cause));
+        }
+    }
+}
@@ -27,9 +27,9 @@ import androidx.annotation.Nullable;
 import androidx.camera.core.impl.utils.Exif;
 import androidx.camera.core.internal.utils.ImageUtil;
 import androidx.camera.core.internal.utils.ImageUtil.CodecFailedException;
+import androidx.camera.core.internal.utils.YuvConverter;
 import androidx.core.util.Preconditions;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -37,6 +37,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
@@ -54,6 +55,8 @@ final class ImageSaver implements Runnable {
     private final ImageProxy mImage;
     // The orientation of the image
     private final int mOrientation;
+    // Converts YUV images before they are encoded
+    private final YuvConverter mYuvConverter;
     // The target location to save the image to.
     @NonNull
     private final ImageCapture.OutputFileOptions mOutputFileOptions;
@@ -67,12 +70,14 @@ final class ImageSaver implements Runnable {
             ImageProxy image,
             @NonNull ImageCapture.OutputFileOptions outputFileOptions,
             int orientation,
+            @NonNull YuvConverter yuvConverter,
             Executor userCallbackExecutor,
             Executor sequentialIoExecutor,
             OnImageSavedCallback callback) {
         mImage = image;
         mOutputFileOptions = outputFileOptions;
         mOrientation = orientation;
+        mYuvConverter = yuvConverter;
         mCallback = callback;
         mUserCallbackExecutor = userCallbackExecutor;
         mSequentialIoExecutor = sequentialIoExecutor;
@@ -110,26 +115,28 @@ final class ImageSaver implements Runnable {
         Exception exception = null;
         try (ImageProxy imageToClose = mImage;
              FileOutputStream output = new FileOutputStream(tempFile)) {
-            byte[] bytes = ImageUtil.imageToJpegByteArray(mImage);
-            output.write(bytes);
+            boolean isJpeg = mImage.getFormat() == ImageFormat.JPEG;
+            boolean shouldCropImage = ImageUtil.shouldCropImage(mImage);
+            if (isJpeg && !shouldCropImage) {
+                // Stream the JPEG data straight from the image buffer, without copying it.
+                writeBufferToChannel(getJpegBuffer(), output.getChannel());
+            } else {
+                byte[] bytes = ImageUtil.imageToJpegByteArray(mImage, mYuvConverter);
+                output.write(bytes);
+            }
 
             Exif exif = Exif.createFromFile(tempFile);
             exif.attachTimestamp();
 
             // Use exif for orientation (contains rotation only) from the original image if JPEG,
             // because imageToJpegByteArray removes EXIF in certain conditions. See b/124280392
-            if (mImage.getFormat() == ImageFormat.JPEG) {
-                ByteBuffer buffer = mImage.getPlanes()[0].getBuffer();
-                // Rewind to make sure it is at the beginning of the buffer
-                buffer.rewind();
-
-                byte[] data = new byte[buffer.capacity()];
-                buffer.get(data);
-                InputStream inputStream = new ByteArrayInputStream(data);
+            // The EXIF of an image which isn't cropped has been written as is.
+            if (isJpeg && shouldCropImage) {
+                InputStream inputStream = new ByteBufferInputStream(getJpegBuffer());
                 Exif originalExif = Exif.createFromInputStream(inputStream);
 
                 exif.setOrientation(originalExif.getOrientation());
-            } else {
+            } else if (!isJpeg) {
                 exif.rotate(mOrientation);
             }
 
@@ -175,6 +182,25 @@ final class ImageSaver implements Runnable {
         return tempFile;
     }
 
+    /**
+     * Returns a view of the whole buffer of the JPEG {@link #mImage}, which doesn't change the
+     * position of the buffer.
+     */
+    @NonNull
+    private ByteBuffer getJpegBuffer() {
+        ByteBuffer buffer = mImage.getPlanes()[0].getBuffer().duplicate();
+        // Clear to make sure it covers the whole buffer
+        buffer.clear();
+        return buffer;
+    }
+
+    private static void writeBufferToChannel(@NonNull ByteBuffer buffer,
+            @NonNull FileChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
     /**
      * Copy the temp file to user specified destination.
      *
@@ -282,6 +308,11 @@ final class ImageSaver implements Runnable {
 
     private void copyTempFileToOutputStream(@NonNull File tempFile,
             @NonNull OutputStream outputStream) throws IOException {
+        if (outputStream instanceof FileOutputStream) {
+            // Let the file system copy the file, without reading it into memory.
+            copyTempFileToChannel(tempFile, ((FileOutputStream) outputStream).getChannel());
+            return;
+        }
         try (InputStream in = new FileInputStream(tempFile)) {
             byte[] buf = new byte[COPY_BUFFER_SIZE];
             int len;
@@ -291,6 +322,17 @@ final class ImageSaver implements Runnable {
         }
     }
 
+    private static void copyTempFileToChannel(@NonNull File tempFile,
+            @NonNull FileChannel outputChannel) throws IOException {
+        try (FileChannel in = new FileInputStream(tempFile).getChannel()) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                position += in.transferTo(position, size - position, outputChannel);
+            }
+        }
+    }
+
     private void postSuccess(@Nullable Uri outputUri) {
         try {
             mUserCallbackExecutor.execute(
@@ -323,6 +365,38 @@ final class ImageSaver implements Runnable {
         UNKNOWN
     }
 
+    /** An {@link InputStream} which reads a {@link ByteBuffer}, without copying it. */
+    private static final class ByteBufferInputStream extends InputStream {
+        private final ByteBuffer mBuffer;
+
+        ByteBufferInputStream(@NonNull ByteBuffer buffer) {
+            mBuffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return mBuffer.hasRemaining() ? mBuffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(@NonNull byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!mBuffer.hasRemaining()) {
+                return -1;
+            }
+            length = Math.min(length, mBuffer.remaining());
+            mBuffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public int available() {
+            return mBuffer.remaining();
+        }
+    }
+
     public interface OnImageSavedCallback {
 
         void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults);
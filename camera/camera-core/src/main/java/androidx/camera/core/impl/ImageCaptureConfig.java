@@ -50,6 +50,10 @@ public final class ImageCaptureConfig implements UseCaseConfig<ImageCapture>, Im
             Option.create("camerax.core.imageCapture.bufferFormat", Integer.class);
     public static final Option<Integer> OPTION_MAX_CAPTURE_STAGES =
             Option.create("camerax.core.imageCapture.maxCaptureStages", Integer.class);
+    public static final Option<Integer> OPTION_MAX_CAPTURES_IN_FLIGHT =
+            Option.create("camerax.core.imageCapture.maxCapturesInFlight", Integer.class);
+    public static final Option<Integer> OPTION_MAX_CONCURRENT_SAVES =
+            Option.create("camerax.core.imageCapture.maxConcurrentSaves", Integer.class);
     public static final Option<ImageReaderProxyProvider> OPTION_IMAGE_READER_PROXY_PROVIDER =
             Option.create("camerax.core.imageAnalysis.imageReaderProxyProvider",
                     ImageReaderProxyProvider.class);
@@ -212,6 +216,28 @@ public final class ImageCaptureConfig implements UseCaseConfig<ImageCapture>, Im
         return retrieveOption(OPTION_MAX_CAPTURE_STAGES);
     }
 
+    /**
+     * Returns the max number of captures which are in flight at the same time.
+     *
+     * @param valueIfMissing The value to return if this configuration option has not been set.
+     * @return The stored value or <code>valueIfMissing</code> if the value does not exist in
+     * this configuration.
+     */
+    public int getMaxCapturesInFlight(int valueIfMissing) {
+        return retrieveOption(OPTION_MAX_CAPTURES_IN_FLIGHT, valueIfMissing);
+    }
+
+    /**
+     * Returns the max number of captured images which are saved at the same time.
+     *
+     * @param valueIfMissing The value to return if this configuration option has not been set.
+     * @return The stored value or <code>valueIfMissing</code> if the value does not exist in
+     * this configuration.
+     */
+    public int getMaxConcurrentSaves(int valueIfMissing) {
+        return retrieveOption(OPTION_MAX_CONCURRENT_SAVES, valueIfMissing);
+    }
+
     /**
      * Gets the caller provided {@link ImageReaderProxy}.
      *
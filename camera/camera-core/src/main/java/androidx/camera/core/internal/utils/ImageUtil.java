@@ -78,11 +78,21 @@ public final class ImageUtil {
     @Nullable
     public static byte[] imageToJpegByteArray(@NonNull ImageProxy image)
             throws CodecFailedException {
+        return imageToJpegByteArray(image, new YuvConverter(0));
+    }
+
+    /**
+     * {@link android.media.Image} to JPEG byte array, converting YUV images with the given
+     * converter, so that the NV21 array it keeps is reused between images.
+     */
+    @Nullable
+    public static byte[] imageToJpegByteArray(@NonNull ImageProxy image,
+            @NonNull YuvConverter yuvConverter) throws CodecFailedException {
         byte[] data = null;
         if (image.getFormat() == ImageFormat.JPEG) {
             data = jpegImageToJpegByteArray(image);
         } else if (image.getFormat() == ImageFormat.YUV_420_888) {
-            data = yuvImageToJpegByteArray(image);
+            data = yuvImageToJpegByteArray(image, yuvConverter);
         } else {
             Logger.w(TAG, "Unrecognized image format: " + image.getFormat());
         }
@@ -188,57 +198,9 @@ public final class ImageUtil {
         return out.toByteArray();
     }
 
-    private static byte[] yuv_420_888toNv21(ImageProxy image) {
-        ImageProxy.PlaneProxy yPlane = image.getPlanes()[0];
-        ImageProxy.PlaneProxy uPlane = image.getPlanes()[1];
-        ImageProxy.PlaneProxy vPlane = image.getPlanes()[2];
-
-        ByteBuffer yBuffer = yPlane.getBuffer();
-        ByteBuffer uBuffer = uPlane.getBuffer();
-        ByteBuffer vBuffer = vPlane.getBuffer();
-        yBuffer.rewind();
-        uBuffer.rewind();
-        vBuffer.rewind();
-
-        int ySize = yBuffer.remaining();
-
-        int position = 0;
-        // TODO(b/115743986): Pull these bytes from a pool instead of allocating for every image.
-        byte[] nv21 = new byte[ySize + (image.getWidth() * image.getHeight() / 2)];
-
-        // Add the full y buffer to the array. If rowStride > 1, some padding may be skipped.
-        for (int row = 0; row < image.getHeight(); row++) {
-            yBuffer.get(nv21, position, image.getWidth());
-            position += image.getWidth();
-            yBuffer.position(
-                    Math.min(ySize, yBuffer.position() - image.getWidth() + yPlane.getRowStride()));
-        }
-
-        int chromaHeight = image.getHeight() / 2;
-        int chromaWidth = image.getWidth() / 2;
-        int vRowStride = vPlane.getRowStride();
-        int uRowStride = uPlane.getRowStride();
-        int vPixelStride = vPlane.getPixelStride();
-        int uPixelStride = uPlane.getPixelStride();
-
-        // Interleave the u and v frames, filling up the rest of the buffer. Use two line buffers to
-        // perform faster bulk gets from the byte buffers.
-        byte[] vLineBuffer = new byte[vRowStride];
-        byte[] uLineBuffer = new byte[uRowStride];
-        for (int row = 0; row < chromaHeight; row++) {
-            vBuffer.get(vLineBuffer, 0, Math.min(vRowStride, vBuffer.remaining()));
-            uBuffer.get(uLineBuffer, 0, Math.min(uRowStride, uBuffer.remaining()));
-            int vLineBufferPosition = 0;
-            int uLineBufferPosition = 0;
-            for (int col = 0; col < chromaWidth; col++) {
-                nv21[position++] = vLineBuffer[vLineBufferPosition];
-                nv21[position++] = uLineBuffer[uLineBufferPosition];
-                vLineBufferPosition += vPixelStride;
-                uLineBufferPosition += uPixelStride;
-            }
-        }
-
-        return nv21;
+    private static byte[] yuv_420_888toNv21(ImageProxy image, YuvConverter yuvConverter) {
+        // YuvImage needs an array, which the converter keeps for the next image.
+        return yuvConverter.convertToArray(image, YuvConverter.OUTPUT_FORMAT_NV21, null, 0);
     }
 
     private static boolean isCropAspectRatioHasEffect(Size sourceSize, Rational aspectRatio) {
@@ -260,7 +222,8 @@ public final class ImageUtil {
                 /*denominator=*/ rational.getNumerator());
     }
 
-    private static boolean shouldCropImage(ImageProxy image) {
+    /** Returns whether the crop rect of the image doesn't cover the whole image. */
+    public static boolean shouldCropImage(@NonNull ImageProxy image) {
         Size sourceSize = new Size(image.getWidth(), image.getHeight());
         Size targetSize = new Size(image.getCropRect().width(), image.getCropRect().height());
 
@@ -279,13 +242,24 @@ public final class ImageUtil {
         return data;
     }
 
-    private static byte[] yuvImageToJpegByteArray(ImageProxy image)
+    private static byte[] yuvImageToJpegByteArray(ImageProxy image, YuvConverter yuvConverter)
             throws CodecFailedException {
+        // The NV21 image is aligned to even sizes, so the crop rect has to fit in it too.
+        Rect nv21Rect = YuvConverter.getAlignedCropRect(image, null);
+        Rect cropRect = null;
+        if (shouldCropImage(image)) {
+            cropRect = new Rect(image.getCropRect());
+            if (!cropRect.intersect(nv21Rect)) {
+                throw new CodecFailedException("The crop rect " + image.getCropRect()
+                        + " is outside of the image.",
+                        CodecFailedException.FailureType.ENCODE_FAILED);
+            }
+        }
         return ImageUtil.nv21ToJpeg(
-                ImageUtil.yuv_420_888toNv21(image),
-                image.getWidth(),
-                image.getHeight(),
-                shouldCropImage(image) ? image.getCropRect() : null);
+                ImageUtil.yuv_420_888toNv21(image, yuvConverter),
+                nv21Rect.width(),
+                nv21Rect.height(),
+                cropRect);
     }
 
     /** Exception for error during transcoding image. */
@@ -0,0 +1,462 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+
+import androidx.annotation.GuardedBy;
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.ImageProxy;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * Converts {@link ImageFormat#YUV_420_888} images to NV21, I420 or RGBA8888, optionally cropping
+ * and rotating them in the same pass.
+ *
+ * <p>The output is written to a {@link ByteBuffer} given by the caller, or to a direct buffer
+ * from a pool of the converter which should be returned with {@link #releaseBuffer(ByteBuffer)}.
+ * The planes are read a row at a time with bulk gets, whatever their row and pixel strides, and
+ * the row buffers are kept between conversions, so that converting a stream of frames of the same
+ * size doesn't allocate.
+ *
+ * <p>As the chroma planes have half the resolution of the luma plane, the crop rect is aligned to
+ * even coordinates and sizes.
+ *
+ * <p>A converter is not thread safe, it should only convert one image at a time.
+ * {@link #releaseBuffer(ByteBuffer)} can be called from any thread.
+ */
+public final class YuvConverter {
+    /** Y plane, followed by interleaved V and U planes. */
+    public static final int OUTPUT_FORMAT_NV21 = 0;
+    /** Y plane, followed by the U plane and the V plane. */
+    public static final int OUTPUT_FORMAT_I420 = 1;
+    /** 4 bytes per pixel, in the order R, G, B, A. */
+    public static final int OUTPUT_FORMAT_RGBA_8888 = 2;
+
+    /** The formats which images can be converted to. */
+    @IntDef({OUTPUT_FORMAT_NV21, OUTPUT_FORMAT_I420, OUTPUT_FORMAT_RGBA_8888})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface OutputFormat {
+    }
+
+    private static final int DEFAULT_MAX_POOLED_BUFFERS = 3;
+
+    private final int mMaxPooledBuffers;
+    @GuardedBy("mPool")
+    private final ArrayDeque<ByteBuffer> mPool = new ArrayDeque<>();
+
+    // The parameters of the current conversion
+    private final Rect mCropRect = new Rect();
+    private ImageProxy.PlaneProxy[] mPlanes;
+    private int mRotationDegrees;
+    private int mOutputWidth;
+    private int mOutputHeight;
+
+    // Rows of the output orientation, without strides
+    private byte[] mRowY = new byte[0];
+    private byte[] mRowU = new byte[0];
+    private byte[] mRowV = new byte[0];
+    private byte[] mRowOut = new byte[0];
+    // A row of a plane including its pixel stride
+    private byte[] mStridedRow = new byte[0];
+    // The cropped planes, without strides, which are only needed for rotation
+    private byte[] mPlaneY = new byte[0];
+    private byte[] mPlaneU = new byte[0];
+    private byte[] mPlaneV = new byte[0];
+    // The output of convertToArray(), and a buffer wrapping it
+    private byte[] mOutputArray = new byte[0];
+    private ByteBuffer mOutputArrayBuffer = ByteBuffer.wrap(mOutputArray);
+
+    /**
+     * Creates a converter which keeps up to 3 output buffers in its pool.
+     */
+    public YuvConverter() {
+        this(DEFAULT_MAX_POOLED_BUFFERS);
+    }
+
+    /**
+     * Creates a converter which keeps up to the given number of released output buffers in its
+     * pool.
+     */
+    public YuvConverter(int maxPooledBuffers) {
+        if (maxPooledBuffers < 0) {
+            throw new IllegalArgumentException("maxPooledBuffers should not be negative");
+        }
+        mMaxPooledBuffers = maxPooledBuffers;
+    }
+
+    /**
+     * Returns the number of bytes which a conversion of the image writes.
+     *
+     * @param outputFormat the format to convert to
+     * @param image        the {@link ImageFormat#YUV_420_888} image
+     * @param cropRect     the region of the image to convert, or null for the whole image
+     */
+    public static int getOutputSize(@OutputFormat int outputFormat, @NonNull ImageProxy image,
+            @Nullable Rect cropRect) {
+        Rect alignedCropRect = getAlignedCropRect(image, cropRect);
+        return getOutputSize(outputFormat, alignedCropRect.width(), alignedCropRect.height());
+    }
+
+    /**
+     * Returns the region of the image which a conversion with the given crop rect writes, aligned
+     * to even coordinates and sizes. For an image with odd sizes, the last row or column is
+     * dropped.
+     */
+    @NonNull
+    static Rect getAlignedCropRect(@NonNull ImageProxy image, @Nullable Rect cropRect) {
+        Rect rect = new Rect();
+        alignCropRect(image, cropRect, rect);
+        return rect;
+    }
+
+    private static int getOutputSize(@OutputFormat int outputFormat, int width, int height) {
+        int pixels = width * height;
+        switch (outputFormat) {
+            case OUTPUT_FORMAT_NV21:
+            case OUTPUT_FORMAT_I420:
+                return pixels * 3 / 2;
+            case OUTPUT_FORMAT_RGBA_8888:
+                return pixels * 4;
+            default:
+                throw new IllegalArgumentException("Unknown output format: " + outputFormat);
+        }
+    }
+
+    /**
+     * Converts the image into a buffer from the pool.
+     *
+     * @param image           the {@link ImageFormat#YUV_420_888} image
+     * @param outputFormat    the format to convert to
+     * @param cropRect        the region of the image to convert, or null for the whole image
+     * @param rotationDegrees the clockwise rotation of the output, which is 0, 90, 180 or 270
+     * @return the converted image, from position 0 to its limit, which should be returned with
+     * {@link #releaseBuffer(ByteBuffer)} once it is no longer used
+     */
+    @NonNull
+    public ByteBuffer convert(@NonNull ImageProxy image, @OutputFormat int outputFormat,
+            @Nullable Rect cropRect, int rotationDegrees) {
+        alignCropRect(image, cropRect, mCropRect);
+        ByteBuffer output = acquireBuffer(
+                getOutputSize(outputFormat, mCropRect.width(), mCropRect.height()));
+        convert(image, outputFormat, cropRect, rotationDegrees, output);
+        output.flip();
+        return output;
+    }
+
+    /**
+     * Converts the image into the given buffer, starting at its position. The position is
+     * advanced by {@link #getOutputSize(int, ImageProxy, Rect)}.
+     *
+     * @param image           the {@link ImageFormat#YUV_420_888} image
+     * @param outputFormat    the format to convert to
+     * @param cropRect        the region of the image to convert, or null for the whole image
+     * @param rotationDegrees the clockwise rotation of the output, which is 0, 90, 180 or 270
+     * @param output          the buffer to write to
+     * @throws IllegalArgumentException if the image is not in {@link ImageFormat#YUV_420_888},
+     *                                  the rotation is not supported or the output doesn't have
+     *                                  enough space remaining
+     */
+    public void convert(@NonNull ImageProxy image, @OutputFormat int outputFormat,
+            @Nullable Rect cropRect, int rotationDegrees, @NonNull ByteBuffer output) {
+        if (image.getFormat() != ImageFormat.YUV_420_888) {
+            throw new IllegalArgumentException("Unsupported image format: " + image.getFormat());
+        }
+        if (rotationDegrees != 0 && rotationDegrees != 90 && rotationDegrees != 180
+                && rotationDegrees != 270) {
+            throw new IllegalArgumentException("Unsupported rotation: " + rotationDegrees);
+        }
+        alignCropRect(image, cropRect, mCropRect);
+        int outputSize = getOutputSize(outputFormat, mCropRect.width(), mCropRect.height());
+        if (output.remaining() < outputSize) {
+            throw new IllegalArgumentException("The output has " + output.remaining()
+                    + " bytes remaining, but " + outputSize + " bytes are needed");
+        }
+
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        int yPosition = planes[0].getBuffer().position();
+        int uPosition = planes[1].getBuffer().position();
+        int vPosition = planes[2].getBuffer().position();
+        mPlanes = planes;
+        mRotationDegrees = rotationDegrees;
+        boolean swapSides = rotationDegrees == 90 || rotationDegrees == 270;
+        mOutputWidth = swapSides ? mCropRect.height() : mCropRect.width();
+        mOutputHeight = swapSides ? mCropRect.width() : mCropRect.height();
+        try {
+            if (rotationDegrees != 0) {
+                unpackPlanes();
+            }
+            switch (outputFormat) {
+                case OUTPUT_FORMAT_NV21:
+                case OUTPUT_FORMAT_I420:
+                    writeYuv(outputFormat, output);
+                    break;
+                case OUTPUT_FORMAT_RGBA_8888:
+                    writeRgba(output);
+                    break;
+            }
+        } finally {
+            mPlanes = null;
+            planes[0].getBuffer().position(yPosition);
+            planes[1].getBuffer().position(uPosition);
+            planes[2].getBuffer().position(vPosition);
+        }
+    }
+
+    /**
+     * Converts the image into an array of the converter, for APIs such as
+     * {@link android.graphics.YuvImage} which only take arrays. The array is reused by the next
+     * call of this method, and can be longer than the converted image.
+     *
+     * @param image           the {@link ImageFormat#YUV_420_888} image
+     * @param outputFormat    the format to convert to
+     * @param cropRect        the region of the image to convert, or null for the whole image
+     * @param rotationDegrees the clockwise rotation of the output, which is 0, 90, 180 or 270
+     * @return the array, of which the first {@link #getOutputSize(int, ImageProxy, Rect)} bytes
+     * are the converted image
+     */
+    @NonNull
+    public byte[] convertToArray(@NonNull ImageProxy image, @OutputFormat int outputFormat,
+            @Nullable Rect cropRect, int rotationDegrees) {
+        int outputSize = getOutputSize(outputFormat, image, cropRect);
+        if (mOutputArray.length < outputSize) {
+            mOutputArray = new byte[outputSize];
+            mOutputArrayBuffer = ByteBuffer.wrap(mOutputArray);
+        }
+        mOutputArrayBuffer.clear();
+        convert(image, outputFormat, cropRect, rotationDegrees, mOutputArrayBuffer);
+        return mOutputArray;
+    }
+
+    /**
+     * Returns a buffer which has been returned by {@link #convert(ImageProxy, int, Rect, int)} to
+     * the pool.
+     */
+    public void releaseBuffer(@NonNull ByteBuffer buffer) {
+        synchronized (mPool) {
+            if (mPool.size() < mMaxPooledBuffers) {
+                mPool.push(buffer);
+            }
+        }
+    }
+
+    private ByteBuffer acquireBuffer(int size) {
+        synchronized (mPool) {
+            Iterator<ByteBuffer> iterator = mPool.iterator();
+            while (iterator.hasNext()) {
+                ByteBuffer buffer = iterator.next();
+                if (buffer.capacity() >= size) {
+                    iterator.remove();
+                    buffer.clear();
+                    buffer.limit(size);
+                    return buffer;
+                }
+            }
+        }
+        return ByteBuffer.allocateDirect(size);
+    }
+
+    private void writeYuv(@OutputFormat int outputFormat, ByteBuffer output) {
+        int width = mOutputWidth;
+        int chromaWidth = width / 2;
+        mRowY = ensureSize(mRowY, width);
+        for (int row = 0; row < mOutputHeight; row++) {
+            loadRow(0, row, mRowY);
+            output.put(mRowY, 0, width);
+        }
+
+        mRowU = ensureSize(mRowU, chromaWidth);
+        mRowV = ensureSize(mRowV, chromaWidth);
+        int chromaHeight = mOutputHeight / 2;
+        if (outputFormat == OUTPUT_FORMAT_I420) {
+            for (int row = 0; row < chromaHeight; row++) {
+                loadRow(1, row, mRowU);
+                output.put(mRowU, 0, chromaWidth);
+            }
+            for (int row = 0; row < chromaHeight; row++) {
+                loadRow(2, row, mRowV);
+                output.put(mRowV, 0, chromaWidth);
+            }
+        } else {
+            mRowOut = ensureSize(mRowOut, width);
+            for (int row = 0; row < chromaHeight; row++) {
+                loadRow(1, row, mRowU);
+                loadRow(2, row, mRowV);
+                for (int col = 0; col < chromaWidth; col++) {
+                    mRowOut[2 * col] = mRowV[col];
+                    mRowOut[2 * col + 1] = mRowU[col];
+                }
+                output.put(mRowOut, 0, width);
+            }
+        }
+    }
+
+    private void writeRgba(ByteBuffer output) {
+        int width = mOutputWidth;
+        mRowY = ensureSize(mRowY, width);
+        mRowU = ensureSize(mRowU, width / 2);
+        mRowV = ensureSize(mRowV, width / 2);
+        mRowOut = ensureSize(mRowOut, width * 4);
+        for (int row = 0; row < mOutputHeight; row++) {
+            // Every chroma row is shared by two rows
+            if (row % 2 == 0) {
+                loadRow(1, row / 2, mRowU);
+                loadRow(2, row / 2, mRowV);
+            }
+            loadRow(0, row, mRowY);
+            for (int col = 0, out = 0; col < width; col++) {
+                // Full range BT.601 in 16 bit fixed point, as used by JPEG
+                int y = (mRowY[col] & 0xFF) << 16;
+                int u = (mRowU[col / 2] & 0xFF) - 128;
+                int v = (mRowV[col / 2] & 0xFF) - 128;
+                mRowOut[out++] = clampToByte((y + 91881 * v + 32768) >> 16);
+                mRowOut[out++] = clampToByte((y - 22554 * u - 46802 * v + 32768) >> 16);
+                mRowOut[out++] = clampToByte((y + 116130 * u + 32768) >> 16);
+                mRowOut[out++] = (byte) 0xFF;
+            }
+            output.put(mRowOut, 0, width * 4);
+        }
+    }
+
+    /**
+     * Loads a row of the output orientation of a plane into dst.
+     *
+     * @param plane 0 for Y, 1 for U and 2 for V
+     * @param row   the row in the output orientation, at the resolution of the plane
+     */
+    private void loadRow(int plane, int row, byte[] dst) {
+        // Chroma planes have half the resolution
+        int shift = plane == 0 ? 0 : 1;
+        int width = mCropRect.width() >> shift;
+        int height = mCropRect.height() >> shift;
+        if (mRotationDegrees == 0) {
+            // Read the row straight from the plane
+            readRow(mPlanes[plane], (mCropRect.top >> shift) + row,
+                    mCropRect.left >> shift, width, dst, 0);
+            return;
+        }
+
+        byte[] source = plane == 0 ? mPlaneY : plane == 1 ? mPlaneU : mPlaneV;
+        // Walk through the unrotated plane along the column or row which ends up in the row
+        int start;
+        int step;
+        int length;
+        switch (mRotationDegrees) {
+            case 90:
+                start = (height - 1) * width + row;
+                step = -width;
+                length = height;
+                break;
+            case 180:
+                start = (height - 1 - row) * width + width - 1;
+                step = -1;
+                length = width;
+                break;
+            default:
+                start = width - 1 - row;
+                step = width;
+                length = height;
+                break;
+        }
+        for (int i = 0, index = start; i < length; i++, index += step) {
+            dst[i] = source[index];
+        }
+    }
+
+    /**
+     * Reads a row of the given plane into dst without its pixel stride.
+     */
+    private void readRow(ImageProxy.PlaneProxy plane, int row, int left, int width, byte[] dst,
+            int dstOffset) {
+        ByteBuffer buffer = plane.getBuffer();
+        int pixelStride = plane.getPixelStride();
+        buffer.position(row * plane.getRowStride() + left * pixelStride);
+        if (pixelStride == 1) {
+            buffer.get(dst, dstOffset, width);
+            return;
+        }
+        // The last row may end right after its last pixel, so don't read the rest of the stride
+        int length = (width - 1) * pixelStride + 1;
+        mStridedRow = ensureSize(mStridedRow, length);
+        buffer.get(mStridedRow, 0, length);
+        for (int col = 0, index = 0; col < width; col++, index += pixelStride) {
+            dst[dstOffset + col] = mStridedRow[index];
+        }
+    }
+
+    /**
+     * Reads the cropped region of the planes, which can then be walked through in any
+     * direction.
+     */
+    private void unpackPlanes() {
+        Rect cropRect = mCropRect;
+        int width = cropRect.width();
+        int height = cropRect.height();
+        mPlaneY = ensureSize(mPlaneY, width * height);
+        for (int row = 0; row < height; row++) {
+            readRow(mPlanes[0], cropRect.top + row, cropRect.left, width, mPlaneY,
+                    row * width);
+        }
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        mPlaneU = ensureSize(mPlaneU, chromaWidth * chromaHeight);
+        mPlaneV = ensureSize(mPlaneV, chromaWidth * chromaHeight);
+        for (int row = 0; row < chromaHeight; row++) {
+            readRow(mPlanes[1], cropRect.top / 2 + row, cropRect.left / 2, chromaWidth,
+                    mPlaneU, row * chromaWidth);
+            readRow(mPlanes[2], cropRect.top / 2 + row, cropRect.left / 2, chromaWidth,
+                    mPlaneV, row * chromaWidth);
+        }
+    }
+
+    /**
+     * Sets rect to the crop rect within the image, aligned to even coordinates and sizes.
+     */
+    private static void alignCropRect(ImageProxy image, @Nullable Rect cropRect, Rect rect) {
+        if (cropRect != null) {
+            rect.set(cropRect);
+        } else {
+            rect.set(0, 0, image.getWidth(), image.getHeight());
+        }
+        if (!rect.intersect(0, 0, image.getWidth(), image.getHeight())) {
+            throw new IllegalArgumentException("The crop rect " + cropRect
+                    + " is outside of the image");
+        }
+        int width = rect.width() & ~1;
+        int height = rect.height() & ~1;
+        rect.left &= ~1;
+        rect.top &= ~1;
+        rect.right = rect.left + width;
+        rect.bottom = rect.top + height;
+    }
+
+    private static byte[] ensureSize(byte[] array, int size) {
+        return array.length >= size ? array : new byte[size];
+    }
+
+    private static byte clampToByte(int value) {
+        return (byte) (value < 0 ? 0 : value > 255 ? 255 : value);
+    }
+}
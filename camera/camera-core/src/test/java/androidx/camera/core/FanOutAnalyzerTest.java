@@ -0,0 +1,349 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.Rect;
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.experimental.UseExperimental;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.camera.testing.fakes.FakePlaneProxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+@UseExperimental(markerClass = ExperimentalFanOutAnalyzer.class)
+public class FanOutAnalyzerTest {
+    private FanOutAnalyzer mFanOutAnalyzer;
+    private QueueExecutor mFirstExecutor;
+    private QueueExecutor mSecondExecutor;
+    private RecordingAnalyzer mFirstAnalyzer;
+    private RecordingAnalyzer mSecondAnalyzer;
+    private long mNextTimestamp = 0;
+
+    @Before
+    public void setUp() {
+        mFanOutAnalyzer = new FanOutAnalyzer();
+        mFirstExecutor = new QueueExecutor();
+        mSecondExecutor = new QueueExecutor();
+        mFirstAnalyzer = new RecordingAnalyzer();
+        mSecondAnalyzer = new RecordingAnalyzer();
+    }
+
+    @Test
+    public void imageClosed_whenNoAnalyzers() {
+        FakeImageProxy image = createImage();
+
+        mFanOutAnalyzer.analyze(image);
+
+        assertThat(isClosed(image)).isTrue();
+    }
+
+    @Test
+    public void imageClosed_onlyAfterAllAnalyzersCloseIt() {
+        addAnalyzers(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        FakeImageProxy image = createImage();
+
+        mFanOutAnalyzer.analyze(image);
+        mFirstExecutor.runAll();
+        mSecondExecutor.runAll();
+        mFirstAnalyzer.closeAll();
+
+        assertThat(isClosed(image)).isFalse();
+
+        mSecondAnalyzer.closeAll();
+
+        assertThat(isClosed(image)).isTrue();
+    }
+
+    @Test
+    public void closingShareTwice_onlyReleasesItOnce() {
+        addAnalyzers(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        FakeImageProxy image = createImage();
+
+        mFanOutAnalyzer.analyze(image);
+        mFirstExecutor.runAll();
+        mFirstAnalyzer.mImages.get(0).close();
+        mFirstAnalyzer.mImages.get(0).close();
+
+        assertThat(isClosed(image)).isFalse();
+    }
+
+    @Test
+    public void keepOnlyLatest_dropsImagesOnlyForBusyAnalyzer() {
+        addAnalyzers(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        List<FakeImageProxy> images = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            FakeImageProxy image = createImage();
+            images.add(image);
+            mFanOutAnalyzer.analyze(image);
+            // Only the second analyzer keeps up
+            mSecondExecutor.runAll();
+            mSecondAnalyzer.closeAll();
+        }
+
+        // The first analyzer got the first image, the second image was dropped for it
+        mFirstExecutor.runAll();
+        assertThat(mFirstAnalyzer.mTimestamps).containsExactly(0L);
+        assertThat(isClosed(images.get(1))).isTrue();
+        assertThat(isClosed(images.get(2))).isFalse();
+
+        mFirstAnalyzer.closeAll();
+        mFirstExecutor.runAll();
+        mFirstAnalyzer.closeAll();
+
+        assertThat(mFirstAnalyzer.mTimestamps).containsExactly(0L, 2L).inOrder();
+        assertThat(mSecondAnalyzer.mTimestamps).containsExactly(0L, 1L, 2L).inOrder();
+        for (FakeImageProxy image : images) {
+            assertThat(isClosed(image)).isTrue();
+        }
+
+        FanOutAnalyzer.Stats firstStats = mFanOutAnalyzer.getStats(mFirstAnalyzer);
+        assertThat(firstStats.getAnalyzedCount()).isEqualTo(2L);
+        assertThat(firstStats.getDroppedCount()).isEqualTo(1L);
+        assertThat(firstStats.getDropRate()).isWithin(0.001f).of(1 / 3f);
+        FanOutAnalyzer.Stats secondStats = mFanOutAnalyzer.getStats(mSecondAnalyzer);
+        assertThat(secondStats.getAnalyzedCount()).isEqualTo(3L);
+        assertThat(secondStats.getDroppedCount()).isEqualTo(0L);
+        assertThat(secondStats.getDropRate()).isEqualTo(0f);
+    }
+
+    @Test
+    public void blockProducer_queuesImagesInOrder() {
+        mFanOutAnalyzer.addAnalyzer(mFirstExecutor, mFirstAnalyzer,
+                ImageAnalysis.STRATEGY_BLOCK_PRODUCER);
+        List<FakeImageProxy> images = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            FakeImageProxy image = createImage();
+            images.add(image);
+            mFanOutAnalyzer.analyze(image);
+        }
+        for (int i = 0; i < 3; i++) {
+            mFirstExecutor.runAll();
+            mFirstAnalyzer.closeAll();
+        }
+
+        assertThat(mFirstAnalyzer.mTimestamps).containsExactly(0L, 1L, 2L).inOrder();
+        for (FakeImageProxy image : images) {
+            assertThat(isClosed(image)).isTrue();
+        }
+        assertThat(mFanOutAnalyzer.getStats(mFirstAnalyzer).getDroppedCount()).isEqualTo(0L);
+    }
+
+    @Test
+    public void removeAnalyzer_releasesQueuedImages() {
+        mFanOutAnalyzer.addAnalyzer(mFirstExecutor, mFirstAnalyzer,
+                ImageAnalysis.STRATEGY_BLOCK_PRODUCER);
+        FakeImageProxy first = createImage();
+        FakeImageProxy second = createImage();
+        mFanOutAnalyzer.analyze(first);
+        mFanOutAnalyzer.analyze(second);
+        mFirstExecutor.runAll();
+
+        mFanOutAnalyzer.removeAnalyzer(mFirstAnalyzer);
+
+        assertThat(isClosed(second)).isTrue();
+        assertThat(isClosed(first)).isFalse();
+        mFirstAnalyzer.closeAll();
+        assertThat(isClosed(first)).isTrue();
+        assertThat(mFanOutAnalyzer.getStats(mFirstAnalyzer)).isNull();
+    }
+
+    @Test
+    public void rejectedImage_isDropped() {
+        mFanOutAnalyzer.addAnalyzer(command -> {
+            throw new RejectedExecutionException();
+        }, mFirstAnalyzer, ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        FakeImageProxy image = createImage();
+
+        mFanOutAnalyzer.analyze(image);
+
+        assertThat(isClosed(image)).isTrue();
+        assertThat(mFanOutAnalyzer.getStats(mFirstAnalyzer).getDroppedCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void cropRect_isNotSharedBetweenAnalyzers() {
+        addAnalyzers(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        FakeImageProxy image = createImage();
+        image.setCropRect(new Rect(0, 0, 40, 30));
+
+        mFanOutAnalyzer.analyze(image);
+        mFirstExecutor.runAll();
+        mSecondExecutor.runAll();
+        mFirstAnalyzer.mImages.get(0).setCropRect(new Rect(10, 10, 20, 20));
+
+        assertThat(mFirstAnalyzer.mImages.get(0).getCropRect())
+                .isEqualTo(new Rect(10, 10, 20, 20));
+        assertThat(mSecondAnalyzer.mImages.get(0).getCropRect())
+                .isEqualTo(new Rect(0, 0, 40, 30));
+    }
+
+    @Test
+    public void planeBuffers_areReadConcurrentlyByAllAnalyzers() throws Exception {
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        FakeImageProxy image = createImage();
+        image.setPlanes(new ImageProxy.PlaneProxy[]{
+                new FakePlaneProxy(ByteBuffer.wrap(data), 40, 1)});
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        ReadingAnalyzer firstAnalyzer = new ReadingAnalyzer(barrier);
+        ReadingAnalyzer secondAnalyzer = new ReadingAnalyzer(barrier);
+        ExecutorService firstExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService secondExecutor = Executors.newSingleThreadExecutor();
+        try {
+            mFanOutAnalyzer.addAnalyzer(firstExecutor, firstAnalyzer,
+                    ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+            mFanOutAnalyzer.addAnalyzer(secondExecutor, secondAnalyzer,
+                    ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+
+            mFanOutAnalyzer.analyze(image);
+
+            assertThat(firstAnalyzer.mDone.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(secondAnalyzer.mDone.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(firstAnalyzer.mData).isEqualTo(data);
+            assertThat(secondAnalyzer.mData).isEqualTo(data);
+            assertThat(isClosed(image)).isTrue();
+        } finally {
+            firstExecutor.shutdown();
+            secondExecutor.shutdown();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void addAnalyzerTwice_throwsException() {
+        addAnalyzers(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST);
+        mFanOutAnalyzer.addAnalyzer(mSecondExecutor, mFirstAnalyzer,
+                ImageAnalysis.STRATEGY_BLOCK_PRODUCER);
+    }
+
+    private void addAnalyzers(int backpressureStrategy) {
+        mFanOutAnalyzer.addAnalyzer(mFirstExecutor, mFirstAnalyzer, backpressureStrategy);
+        mFanOutAnalyzer.addAnalyzer(mSecondExecutor, mSecondAnalyzer, backpressureStrategy);
+    }
+
+    private FakeImageProxy createImage() {
+        FakeImageInfo imageInfo = new FakeImageInfo();
+        imageInfo.setTimestamp(mNextTimestamp++);
+        FakeImageProxy image = new FakeImageProxy(imageInfo);
+        image.setWidth(40);
+        image.setHeight(30);
+        // The close future only completes if it has been requested before closing
+        image.getCloseFuture();
+        return image;
+    }
+
+    private static boolean isClosed(FakeImageProxy image) {
+        return image.getCloseFuture().isDone();
+    }
+
+    private static class QueueExecutor implements Executor {
+        private final ArrayDeque<Runnable> mTasks = new ArrayDeque<>();
+
+        @Override
+        public void execute(@NonNull Runnable command) {
+            mTasks.add(command);
+        }
+
+        void runAll() {
+            Runnable task;
+            while ((task = mTasks.poll()) != null) {
+                task.run();
+            }
+        }
+    }
+
+    /**
+     * Reads the whole buffer of the first plane byte by byte, at the same time as the other
+     * analyzers waiting on the barrier.
+     */
+    private static class ReadingAnalyzer implements ImageAnalysis.Analyzer {
+        final CountDownLatch mDone = new CountDownLatch(1);
+        volatile byte[] mData;
+        private final CyclicBarrier mBarrier;
+
+        ReadingAnalyzer(CyclicBarrier barrier) {
+            mBarrier = barrier;
+        }
+
+        @Override
+        public void analyze(@NonNull ImageProxy image) {
+            try {
+                ByteBuffer buffer = image.getPlanes()[0].getBuffer();
+                mBarrier.await(5, TimeUnit.SECONDS);
+                byte[] data = new byte[buffer.remaining()];
+                for (int i = 0; i < data.length; i++) {
+                    data[i] = buffer.get();
+                }
+                mData = data;
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            } finally {
+                image.close();
+                mDone.countDown();
+            }
+        }
+    }
+
+    private static class RecordingAnalyzer implements ImageAnalysis.Analyzer {
+        final List<ImageProxy> mImages = new ArrayList<>();
+        final List<Long> mTimestamps = new ArrayList<>();
+        private final List<ImageProxy> mOpenImages = new ArrayList<>();
+
+        @Override
+        public void analyze(@NonNull ImageProxy image) {
+            mImages.add(image);
+            mTimestamps.add(image.getImageInfo().getTimestamp());
+            mOpenImages.add(image);
+        }
+
+        void closeAll() {
+            List<ImageProxy> images = new ArrayList<>(mOpenImages);
+            mOpenImages.clear();
+            for (ImageProxy image : images) {
+                image.close();
+            }
+        }
+    }
+}
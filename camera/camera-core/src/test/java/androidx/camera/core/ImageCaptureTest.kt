@@ -363,6 +363,103 @@ public class ImageCaptureTest {
         verify(request).notifyCallbackError(anyInt(), eq(errorMsg), eq(throwable))
     }
 
+    @Test
+    public fun imageCaptureRequestProcessor_allowMaxCapturesInFlight() {
+        // Arrange.
+        val captorFutures = ArrayDeque<ResolvableFuture<ImageProxy>>()
+        val requestProcessor =
+            ImageCaptureRequestProcessor(MAX_IMAGES, 2, createQueueImageCaptor(captorFutures))
+        val request0 = createImageCaptureRequest()
+        val request1 = createImageCaptureRequest()
+        val request2 = createImageCaptureRequest()
+
+        // Act.
+        requestProcessor.sendRequest(request0)
+        requestProcessor.sendRequest(request1)
+        requestProcessor.sendRequest(request2)
+
+        // Assert.
+        // Two requests are in flight and one is pending.
+        assertThat(captorFutures.size).isEqualTo(2)
+        assertThat(requestProcessor.currentRequestCount).isEqualTo(2)
+        assertThat(requestProcessor.pendingRequestCount).isEqualTo(1)
+
+        // Act.
+        // Complete request0.
+        captorFutures.poll()!!.set(mock(ImageProxy::class.java))
+
+        // Assert.
+        // request0 is complete and request2 is in flight.
+        verify(request0).dispatchImage(any())
+        verify(request1, never()).dispatchImage(any())
+        assertThat(captorFutures.size).isEqualTo(2)
+        assertThat(requestProcessor.currentRequestCount).isEqualTo(2)
+        assertThat(requestProcessor.pendingRequestCount).isEqualTo(0)
+    }
+
+    @Test
+    public fun imageCaptureRequestProcessor_capturesInFlightCountTowardsMaxImages() {
+        // Arrange.
+        val captorFutures = ArrayDeque<ResolvableFuture<ImageProxy>>()
+        val requestProcessor =
+            ImageCaptureRequestProcessor(2, 2, createQueueImageCaptor(captorFutures))
+        val request0 = createImageCaptureRequest()
+        val request2 = createImageCaptureRequest()
+        requestProcessor.sendRequest(request0)
+        requestProcessor.sendRequest(createImageCaptureRequest())
+        requestProcessor.sendRequest(request2)
+
+        // Act.
+        // Complete request0 and keep its image open.
+        captorFutures.poll()!!.set(mock(ImageProxy::class.java))
+
+        // Assert.
+        // The open image and the request in flight use up all images.
+        assertThat(captorFutures.size).isEqualTo(1)
+        assertThat(requestProcessor.pendingRequestCount).isEqualTo(1)
+
+        // Act.
+        // Close the image of request0.
+        val captor = ArgumentCaptor.forClass(ImageProxy::class.java)
+        verify(request0).dispatchImage(captor.capture())
+        captor.value.close()
+
+        // Assert.
+        // request2 is in flight.
+        assertThat(captorFutures.size).isEqualTo(2)
+        assertThat(requestProcessor.pendingRequestCount).isEqualTo(0)
+    }
+
+    @Test
+    public fun imageCaptureRequestProcessor_canCancelRequestsInFlight() {
+        // Arrange.
+        val captorFutures = ArrayDeque<ResolvableFuture<ImageProxy>>()
+        val requestProcessor =
+            ImageCaptureRequestProcessor(MAX_IMAGES, 2, createQueueImageCaptor(captorFutures))
+        val requestList = ArrayList<ImageCaptureRequest>()
+        for (i in 0 until 3) {
+            val request = createImageCaptureRequest()
+            requestList.add(request)
+            requestProcessor.sendRequest(request)
+        }
+
+        // Act.
+        val errorMsg = "Cancel request."
+        val throwable = RuntimeException(errorMsg)
+        requestProcessor.cancelRequests(throwable)
+
+        // Assert.
+        for (request in requestList) {
+            verify(request).notifyCallbackError(anyInt(), eq(errorMsg), eq(throwable))
+        }
+        // All capture futures in flight are cancelled.
+        assertThat(captorFutures.size).isEqualTo(2)
+        for (future in captorFutures) {
+            assertThat(future.isCancelled).isTrue()
+        }
+        assertThat(requestProcessor.currentRequestCount).isEqualTo(0)
+    }
+
     private fun bindImageCapture(): ImageCapture {
         return bindImageCapture(null)
     }
@@ -426,6 +523,16 @@ public class ImageCaptureTest {
         }
     }
 
+    private fun createQueueImageCaptor(
+        futures: ArrayDeque<ResolvableFuture<ImageProxy>>
+    ): ImageCaptor {
+        return ImageCaptor {
+            ResolvableFuture.create<ImageProxy>().apply {
+                futures.offer(this)
+            }
+        }
+    }
+
     private fun createFailedImageCaptor(throwable: Throwable): ImageCaptor {
         return ImageCaptor {
             Futures.immediateFailedFuture(throwable)
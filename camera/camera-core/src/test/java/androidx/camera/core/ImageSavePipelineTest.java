@@ -0,0 +1,222 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.os.Build;
+import android.util.Base64;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.camera.core.impl.utils.executor.CameraXExecutors;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.camera.testing.fakes.FakePlaneProxy;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Unit tests for {@link ImageSavePipeline}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class ImageSavePipelineTest {
+    private static final int WIDTH = 160;
+    private static final int HEIGHT = 120;
+    private static final String JPEG_IMAGE_DATA_BASE_64 =
+            "/9j/4AAQSkZJRgABAQAAAQABAAD/2wBDAAEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEB"
+                    + "AQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQH/2wBDAQEBAQEBAQEBAQEBAQEBAQEBAQEB"
+                    + "AQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQEBAQH/wAARCAB4AKADASIA"
+                    + "AhEBAxEB/8QAHwAAAQUBAQEBAQEAAAAAAAAAAAECAwQFBgcICQoL/8QAtRAAAgEDAwIEAwUFBAQA"
+                    + "AAF9AQIDAAQRBRIhMUEGE1FhByJxFDKBkaEII0KxwRVS0fAkM2JyggkKFhcYGRolJicoKSo0NTY3"
+                    + "ODk6Q0RFRkdISUpTVFVWV1hZWmNkZWZnaGlqc3R1dnd4eXqDhIWGh4iJipKTlJWWl5iZmqKjpKWm"
+                    + "p6ipqrKztLW2t7i5usLDxMXGx8jJytLT1NXW19jZ2uHi4+Tl5ufo6erx8vP09fb3+Pn6/8QAHwEA"
+                    + "AwEBAQEBAQEBAQAAAAAAAAECAwQFBgcICQoL/8QAtREAAgECBAQDBAcFBAQAAQJ3AAECAxEEBSEx"
+                    + "BhJBUQdhcRMiMoEIFEKRobHBCSMzUvAVYnLRChYkNOEl8RcYGRomJygpKjU2Nzg5OkNERUZHSElK"
+                    + "U1RVVldYWVpjZGVmZ2hpanN0dXZ3eHl6goOEhYaHiImKkpOUlZaXmJmaoqOkpaanqKmqsrO0tba3"
+                    + "uLm6wsPExcbHyMnK0tPU1dbX2Nna4uPk5ebn6Onq8vP09fb3+Pn6/9oADAMBAAIRAxEAPwD/AD/6"
+                    + "KKK/8/8AP/P/AAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiii"
+                    + "gAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKA"
+                    + "CiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAK"
+                    + "KKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAoo"
+                    + "ooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiii"
+                    + "gAooooAKKKKACiiigAooooAKKKKACiiigAooooAKKKKACiiigAooooA//9k=";
+
+    private final List<Runnable> mIoTasks = new ArrayList<>();
+    private final Executor mIoExecutor = mIoTasks::add;
+    private final List<String> mResults = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mIoTasks.clear();
+        mResults.clear();
+    }
+
+    @Test
+    public void savesAreLimitedToMaxConcurrentSaves() throws IOException {
+        ImageSavePipeline pipeline = createPipeline(2);
+
+        for (int i = 0; i < 3; i++) {
+            save(pipeline, "image" + i);
+        }
+
+        assertThat(mIoTasks).hasSize(2);
+        assertThat(pipeline.getSavesInFlightCount()).isEqualTo(2);
+        assertThat(pipeline.getPendingSaveCount()).isEqualTo(1);
+
+        mIoTasks.remove(0).run();
+
+        // Finishing a save starts the pending one
+        assertThat(mIoTasks).hasSize(2);
+        assertThat(pipeline.getSavesInFlightCount()).isEqualTo(2);
+        assertThat(pipeline.getPendingSaveCount()).isEqualTo(0);
+        assertThat(pipeline.getCompletedSaveCount()).isEqualTo(1L);
+    }
+
+    @Test
+    public void callbacksAreCalledInSubmissionOrder() throws IOException {
+        ImageSavePipeline pipeline = createPipeline(3);
+        for (int i = 0; i < 3; i++) {
+            save(pipeline, "image" + i);
+        }
+
+        // The last two saves finish first
+        mIoTasks.remove(2).run();
+        mIoTasks.remove(1).run();
+
+        assertThat(mResults).isEmpty();
+
+        mIoTasks.remove(0).run();
+
+        assertThat(mResults).containsExactly("image0", "image1", "image2").inOrder();
+        assertThat(pipeline.getCompletedSaveCount()).isEqualTo(3L);
+        assertThat(pipeline.getSavesInFlightCount()).isEqualTo(0);
+    }
+
+    @Test
+    public void callbacksAreCalledWithoutHoldingTheLock() throws Exception {
+        ImageSavePipeline pipeline = createPipeline(1);
+        File file = File.createTempFile("test", ".jpg");
+        file.deleteOnExit();
+        List<Boolean> pipelineAccessible = new ArrayList<>();
+        pipeline.save(createJpegImage(ByteBuffer.wrap(Base64.decode(JPEG_IMAGE_DATA_BASE_64,
+                Base64.DEFAULT))), new ImageCapture.OutputFileOptions.Builder(file).build(), 0,
+                CameraXExecutors.directExecutor(), new RecordingCallback("image") {
+                    @Override
+                    public void onImageSaved(
+                            @NonNull ImageCapture.OutputFileResults outputFileResults) {
+                        super.onImageSaved(outputFileResults);
+                        // Another thread can use the pipeline while the callback runs.
+                        Thread thread = new Thread(pipeline::getCompletedSaveCount);
+                        thread.start();
+                        try {
+                            thread.join(5000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        pipelineAccessible.add(!thread.isAlive());
+                    }
+                });
+
+        mIoTasks.remove(0).run();
+
+        assertThat(mResults).containsExactly("image");
+        assertThat(pipelineAccessible).containsExactly(true);
+    }
+
+    @Test
+    public void jpegIsSavedWithoutConsumingImageBuffer() throws IOException {
+        ImageSavePipeline pipeline = createPipeline(1);
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.decode(JPEG_IMAGE_DATA_BASE_64,
+                Base64.DEFAULT));
+        File file = File.createTempFile("test", ".jpg");
+        file.deleteOnExit();
+        FakeImageProxy image = createJpegImage(buffer);
+
+        pipeline.save(image, new ImageCapture.OutputFileOptions.Builder(file).build(), 0,
+                CameraXExecutors.directExecutor(), new RecordingCallback("image"));
+        mIoTasks.remove(0).run();
+
+        assertThat(mResults).containsExactly("image");
+        assertThat(buffer.position()).isEqualTo(0);
+        assertThat(image.getCloseFuture().isDone()).isTrue();
+        // The EXIF timestamp has been added to the JPEG data
+        assertThat(file.length()).isGreaterThan((long) buffer.capacity());
+    }
+
+    private ImageSavePipeline createPipeline(int maxConcurrentSaves) {
+        return new ImageSavePipeline(mIoExecutor, CameraXExecutors.directExecutor(),
+                maxConcurrentSaves);
+    }
+
+    private void save(ImageSavePipeline pipeline, String name) throws IOException {
+        File file = File.createTempFile("test", ".jpg");
+        file.deleteOnExit();
+        ByteBuffer buffer = ByteBuffer.wrap(Base64.decode(JPEG_IMAGE_DATA_BASE_64,
+                Base64.DEFAULT));
+        pipeline.save(createJpegImage(buffer),
+                new ImageCapture.OutputFileOptions.Builder(file).build(), 0,
+                CameraXExecutors.directExecutor(), new RecordingCallback(name));
+    }
+
+    private static FakeImageProxy createJpegImage(ByteBuffer buffer) {
+        FakeImageProxy image = new FakeImageProxy(new FakeImageInfo());
+        image.setFormat(ImageFormat.JPEG);
+        image.setWidth(WIDTH);
+        image.setHeight(HEIGHT);
+        image.setCropRect(new Rect(0, 0, WIDTH, HEIGHT));
+        image.setPlanes(new ImageProxy.PlaneProxy[]{new FakePlaneProxy(buffer, 0, 0)});
+        // The close future only completes if it has been requested before closing
+        image.getCloseFuture();
+        return image;
+    }
+
+    private class RecordingCallback implements ImageSaver.OnImageSavedCallback {
+        private final String mName;
+
+        RecordingCallback(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void onImageSaved(@NonNull ImageCapture.OutputFileResults outputFileResults) {
+            mResults.add(mName);
+        }
+
+        @Override
+        public void onError(@NonNull ImageSaver.SaveError saveError, @NonNull String message,
+                @Nullable Throwable cause) {
+            mResults.add(mName + ": " + saveError);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.camera.core.internal.utils;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.os.Build;
+
+import androidx.camera.core.ImageProxy;
+import androidx.camera.testing.fakes.FakeImageInfo;
+import androidx.camera.testing.fakes.FakeImageProxy;
+import androidx.camera.testing.fakes.FakePlaneProxy;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.internal.DoNotInstrument;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Unit tests for {@link YuvConverter}.
+ */
+@RunWith(RobolectricTestRunner.class)
+@DoNotInstrument
+@Config(minSdk = Build.VERSION_CODES.LOLLIPOP)
+public class YuvConverterTest {
+    private static final int WIDTH = 24;
+    private static final int HEIGHT = 16;
+    private static final int ROW_PADDING = 8;
+    private static final int[] ROTATIONS = {0, 90, 180, 270};
+    private static final int[] OUTPUT_FORMATS = {YuvConverter.OUTPUT_FORMAT_NV21,
+            YuvConverter.OUTPUT_FORMAT_I420, YuvConverter.OUTPUT_FORMAT_RGBA_8888};
+    private static final Rect[] CROP_RECTS = {null, new Rect(2, 4, 18, 10),
+            new Rect(3, 1, 20, 16)};
+
+    @Test
+    public void convert_interleavedChroma() {
+        assertConversions(createImage(WIDTH, HEIGHT, 2));
+    }
+
+    @Test
+    public void convert_planarChroma() {
+        assertConversions(createImage(WIDTH, HEIGHT, 1));
+    }
+
+    @Test
+    public void convert_restoresPlanePositions() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        image.getPlanes()[1].getBuffer().position(3);
+
+        new YuvConverter().convert(image, YuvConverter.OUTPUT_FORMAT_NV21, null, 90);
+
+        assertThat(image.getPlanes()[0].getBuffer().position()).isEqualTo(0);
+        assertThat(image.getPlanes()[1].getBuffer().position()).isEqualTo(3);
+        assertThat(image.getPlanes()[2].getBuffer().position()).isEqualTo(0);
+    }
+
+    @Test
+    public void convert_reusesReleasedBuffer() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        YuvConverter converter = new YuvConverter();
+
+        ByteBuffer first = converter.convert(image, YuvConverter.OUTPUT_FORMAT_I420, null, 0);
+        converter.releaseBuffer(first);
+        ByteBuffer second = converter.convert(image, YuvConverter.OUTPUT_FORMAT_I420, null, 0);
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(second.isDirect()).isTrue();
+        assertThat(second.position()).isEqualTo(0);
+        assertThat(second.limit()).isEqualTo(WIDTH * HEIGHT * 3 / 2);
+    }
+
+    @Test
+    public void convert_writesAtPositionOfOutput() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        ByteBuffer output = ByteBuffer.allocate(WIDTH * HEIGHT * 3 / 2 + 5);
+        output.position(5);
+
+        new YuvConverter().convert(image, YuvConverter.OUTPUT_FORMAT_NV21, null, 0, output);
+
+        assertThat(output.position()).isEqualTo(output.capacity());
+        assertThat(output.get(5)).isEqualTo(expectedY(0, 0));
+    }
+
+    @Test
+    public void convertToArray_reusesArray() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        YuvConverter converter = new YuvConverter(0);
+
+        byte[] first = converter.convertToArray(image, YuvConverter.OUTPUT_FORMAT_NV21,
+                null, 0);
+        byte[] second = converter.convertToArray(image, YuvConverter.OUTPUT_FORMAT_NV21,
+                new Rect(2, 4, 18, 10), 0);
+
+        assertThat(second).isSameInstanceAs(first);
+        assertThat(first.length).isEqualTo(WIDTH * HEIGHT * 3 / 2);
+        assertThat(second[0]).isEqualTo(expectedY(2, 4));
+    }
+
+    @Test
+    public void getAlignedCropRect_dropsLastRowAndColumnOfOddImage() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        image.setWidth(WIDTH + 1);
+        image.setHeight(HEIGHT + 1);
+
+        assertThat(YuvConverter.getAlignedCropRect(image, null))
+                .isEqualTo(new Rect(0, 0, WIDTH, HEIGHT));
+        assertThat(YuvConverter.getAlignedCropRect(image, new Rect(3, 1, WIDTH + 1, 8)))
+                .isEqualTo(new Rect(2, 0, WIDTH, 6));
+        assertThat(YuvConverter.getOutputSize(YuvConverter.OUTPUT_FORMAT_NV21, image, null))
+                .isEqualTo(WIDTH * HEIGHT * 3 / 2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_throwsIfOutputTooSmall() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        new YuvConverter().convert(image, YuvConverter.OUTPUT_FORMAT_RGBA_8888, null, 0,
+                ByteBuffer.allocate(WIDTH * HEIGHT * 4 - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_throwsForUnsupportedRotation() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        new YuvConverter().convert(image, YuvConverter.OUTPUT_FORMAT_NV21, null, 45);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void convert_throwsForUnsupportedFormat() {
+        FakeImageProxy image = createImage(WIDTH, HEIGHT, 2);
+        image.setFormat(ImageFormat.JPEG);
+        new YuvConverter().convert(image, YuvConverter.OUTPUT_FORMAT_NV21, null, 0);
+    }
+
+    private static void assertConversions(FakeImageProxy image) {
+        YuvConverter converter = new YuvConverter();
+        for (Rect cropRect : CROP_RECTS) {
+            for (int outputFormat : OUTPUT_FORMATS) {
+                for (int rotation : ROTATIONS) {
+                    ByteBuffer output = converter.convert(image, outputFormat, cropRect,
+                            rotation);
+                    byte[] actual = new byte[output.remaining()];
+                    output.get(actual);
+                    converter.releaseBuffer(output);
+
+                    byte[] expected = expectedOutput(image, outputFormat, cropRect, rotation);
+                    if (outputFormat != YuvConverter.OUTPUT_FORMAT_RGBA_8888) {
+                        assertThat(actual).isEqualTo(expected);
+                        continue;
+                    }
+                    // The converter uses fixed point math, which may round differently
+                    assertThat(actual.length).isEqualTo(expected.length);
+                    for (int i = 0; i < actual.length; i++) {
+                        int difference = (actual[i] & 0xFF) - (expected[i] & 0xFF);
+                        assertThat(Math.abs(difference)).isAtMost(1);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Converts the image pixel by pixel, from the values that {@link #createImage(int, int, int)}
+     * has written.
+     */
+    private static byte[] expectedOutput(ImageProxy image, int outputFormat, Rect cropRect,
+            int rotation) {
+        Rect rect = cropRect != null ? new Rect(cropRect)
+                : new Rect(0, 0, image.getWidth(), image.getHeight());
+        rect.set(rect.left & ~1, rect.top & ~1, (rect.left & ~1) + (rect.width() & ~1),
+                (rect.top & ~1) + (rect.height() & ~1));
+        boolean swapSides = rotation == 90 || rotation == 270;
+        int width = swapSides ? rect.height() : rect.width();
+        int height = swapSides ? rect.width() : rect.height();
+
+        ByteBuffer output = ByteBuffer.allocate(
+                YuvConverter.getOutputSize(outputFormat, image, cropRect));
+        if (outputFormat == YuvConverter.OUTPUT_FORMAT_RGBA_8888) {
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int[] point = unrotate(x, y, rect.width(), rect.height(), rotation);
+                    int col = rect.left + point[0];
+                    int row = rect.top + point[1];
+                    int luma = expectedY(col, row) & 0xFF;
+                    int u = (expectedU(col / 2, row / 2) & 0xFF) - 128;
+                    int v = (expectedV(col / 2, row / 2) & 0xFF) - 128;
+                    output.put(clamp(luma + 1.402 * v));
+                    output.put(clamp(luma - 0.344136 * u - 0.714136 * v));
+                    output.put(clamp(luma + 1.772 * u));
+                    output.put((byte) 0xFF);
+                }
+            }
+            return output.array();
+        }
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[] point = unrotate(x, y, rect.width(), rect.height(), rotation);
+                output.put(expectedY(rect.left + point[0], rect.top + point[1]));
+            }
+        }
+        byte[] u = new byte[width * height / 4];
+        byte[] v = new byte[width * height / 4];
+        for (int y = 0, i = 0; y < height / 2; y++) {
+            for (int x = 0; x < width / 2; x++, i++) {
+                int[] point = unrotate(x, y, rect.width() / 2, rect.height() / 2, rotation);
+                u[i] = expectedU(rect.left / 2 + point[0], rect.top / 2 + point[1]);
+                v[i] = expectedV(rect.left / 2 + point[0], rect.top / 2 + point[1]);
+            }
+        }
+        if (outputFormat == YuvConverter.OUTPUT_FORMAT_I420) {
+            output.put(u);
+            output.put(v);
+        } else {
+            for (int i = 0; i < u.length; i++) {
+                output.put(v[i]);
+                output.put(u[i]);
+            }
+        }
+        return output.array();
+    }
+
+    /**
+     * Returns the position in the unrotated image of size width x height, which is rotated
+     * clockwise to the given position.
+     */
+    private static int[] unrotate(int x, int y, int width, int height, int rotation) {
+        switch (rotation) {
+            case 90:
+                return new int[]{y, height - 1 - x};
+            case 180:
+                return new int[]{width - 1 - x, height - 1 - y};
+            case 270:
+                return new int[]{width - 1 - y, x};
+            default:
+                return new int[]{x, y};
+        }
+    }
+
+    private static byte clamp(double value) {
+        return (byte) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    private static byte expectedY(int col, int row) {
+        return (byte) (col * 7 + row * 13);
+    }
+
+    private static byte expectedU(int col, int row) {
+        return (byte) (100 + col * 5 - row * 3);
+    }
+
+    private static byte expectedV(int col, int row) {
+        return (byte) (150 - col * 3 + row * 11);
+    }
+
+    /**
+     * Creates a YUV_420_888 image whose rows are padded. With a chroma pixel stride of 2 the U
+     * and V planes share the memory of interleaved V and U values, like on most devices.
+     */
+    static FakeImageProxy createImage(int width, int height, int chromaPixelStride) {
+        int rowStride = width + ROW_PADDING;
+        ByteBuffer y = ByteBuffer.allocateDirect(rowStride * (height - 1) + width);
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                y.put(row * rowStride + col, expectedY(col, row));
+            }
+        }
+
+        int chromaWidth = width / 2;
+        int chromaHeight = height / 2;
+        int chromaRowStride = chromaWidth * chromaPixelStride + ROW_PADDING;
+        int chromaSize = chromaRowStride * (chromaHeight - 1)
+                + (chromaWidth - 1) * chromaPixelStride + 1;
+        ByteBuffer u;
+        ByteBuffer v;
+        if (chromaPixelStride == 2) {
+            ByteBuffer vu = ByteBuffer.allocateDirect(chromaSize + 1);
+            v = vu.duplicate();
+            v.limit(chromaSize);
+            vu.position(1);
+            u = vu.slice();
+        } else {
+            u = ByteBuffer.allocateDirect(chromaSize);
+            v = ByteBuffer.allocateDirect(chromaSize);
+        }
+        for (int row = 0; row < chromaHeight; row++) {
+            for (int col = 0; col < chromaWidth; col++) {
+                int index = row * chromaRowStride + col * chromaPixelStride;
+                u.put(index, expectedU(col, row));
+                v.put(index, expectedV(col, row));
+            }
+        }
+
+        FakeImageProxy image = new FakeImageProxy(new FakeImageInfo());
+        image.setFormat(ImageFormat.YUV_420_888);
+        image.setWidth(width);
+        image.setHeight(height);
+        image.setPlanes(new ImageProxy.PlaneProxy[]{
+                new FakePlaneProxy(y, rowStride, 1),
+                new FakePlaneProxy(u, chromaRowStride, chromaPixelStride),
+                new FakePlaneProxy(v, chromaRowStride, chromaPixelStride)});
+        return image;
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.After
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.Executors
+
+/**
+ * Measures the time for [threads] threads to each perform [OPERATIONS_PER_THREAD] mostly-hit
+ * lookups against a shared [LruCache] or [ConcurrentLruCache]. A cache which scales should keep
+ * this time roughly flat as the number of threads grows.
+ */
+@RunWith(Parameterized::class)
+class LruCacheContentionBenchmarkTest(private val threads: Int, private val concurrent: Boolean) {
+    private val lruCache = LruCache<Int, String>(CACHE_SIZE)
+    private val concurrentCache = ConcurrentLruCache<Int, String>(CACHE_SIZE, threads)
+    private val executor = Executors.newFixedThreadPool(threads)
+    private val barrier = CyclicBarrier(threads + 1)
+
+    init {
+        for (key in 0 until CACHE_SIZE) {
+            lruCache.put(key, "value$key")
+            concurrentCache.put(key, "value$key")
+        }
+    }
+
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @Test fun getFromAllThreads() {
+        benchmark.measureRepeated {
+            repeat(threads) { thread ->
+                executor.execute {
+                    barrier.await()
+                    // Every 16th key misses so that writes are part of the mix.
+                    var key = thread
+                    repeat(OPERATIONS_PER_THREAD) {
+                        key = (key + 7) % (CACHE_SIZE + CACHE_SIZE / 16)
+                        if (concurrent) {
+                            if (concurrentCache.get(key) == null) {
+                                concurrentCache.put(key, "")
+                            }
+                        } else {
+                            if (lruCache.get(key) == null) {
+                                lruCache.put(key, "")
+                            }
+                        }
+                    }
+                    barrier.await()
+                }
+            }
+            barrier.await()
+            barrier.await()
+        }
+    }
+
+    companion object {
+        private const val CACHE_SIZE = 1_024
+        private const val OPERATIONS_PER_THREAD = 1_000
+
+        @JvmStatic
+        @Parameters(name = "threads={0},concurrent={1}")
+        fun parameters() = buildParameters(
+            listOf(1, 2, 4, 8),
+            listOf(false, true)
+        )
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import org.junit.runners.Parameterized.Parameters
+import kotlin.random.Random
+
+/**
+ * Compares the open addressing containers against the binary search containers and
+ * [java.util.HashMap] for the same random key set.
+ */
+@RunWith(Parameterized::class)
+class OpenAddressingBenchmarkTest(private val size: Int) {
+    // Despite the fixed seed, the algorithm which produces random values may vary across
+    // OS versions. Since we're not doing cross-device comparison this is acceptable.
+    private val keys = IntArray(size).also { keys ->
+        val random = Random(0)
+        val seen = HashSet<Int>()
+        for (i in keys.indices) {
+            var candidate = random.nextInt()
+            while (!seen.add(candidate)) {
+                candidate = random.nextInt()
+            }
+            keys[i] = candidate
+        }
+    }
+    private val lastKey = keys[size - 1]
+
+    private val sparseArray = SparseArrayCompat<String>().apply {
+        keys.forEach { put(it, "value$it") }
+    }
+    private val intObjectMap = IntObjectMap<String>().apply {
+        keys.forEach { put(it, "value$it") }
+    }
+    private val hashMap = HashMap<Int, String>().apply {
+        keys.forEach { put(it, "value$it") }
+    }
+    private val intIntMap = IntIntMap().apply {
+        keys.forEach { put(it, it) }
+    }
+    private val intSet = IntSet().apply {
+        keys.forEach { add(it) }
+    }
+
+    @get:Rule
+    val benchmark = BenchmarkRule()
+
+    @Test fun sparseArrayCompatGet() {
+        benchmark.measureRepeated {
+            sparseArray.get(lastKey)
+        }
+    }
+
+    @Test fun intObjectMapGet() {
+        benchmark.measureRepeated {
+            intObjectMap.get(lastKey)
+        }
+    }
+
+    @Test fun hashMapGet() {
+        benchmark.measureRepeated {
+            hashMap[lastKey]
+        }
+    }
+
+    @Test fun intIntMapGet() {
+        benchmark.measureRepeated {
+            intIntMap.get(lastKey)
+        }
+    }
+
+    @Test fun intSetContains() {
+        benchmark.measureRepeated {
+            intSet.contains(lastKey)
+        }
+    }
+
+    @Test fun sparseArrayCompatFill() {
+        benchmark.measureRepeated {
+            val map = SparseArrayCompat<String>()
+            for (key in keys) {
+                map.put(key, "")
+            }
+        }
+    }
+
+    @Test fun intObjectMapFill() {
+        benchmark.measureRepeated {
+            val map = IntObjectMap<String>()
+            for (key in keys) {
+                map.put(key, "")
+            }
+        }
+    }
+
+    @Test fun hashMapFill() {
+        benchmark.measureRepeated {
+            val map = HashMap<Int, String>()
+            for (key in keys) {
+                map[key] = ""
+            }
+        }
+    }
+
+    @Test fun intIntMapFill() {
+        benchmark.measureRepeated {
+            val map = IntIntMap()
+            for (key in keys) {
+                map.put(key, key)
+            }
+        }
+    }
+
+    @Test fun intObjectMapRemoveAndPut() {
+        benchmark.measureRepeated {
+            intObjectMap.remove(lastKey)
+            intObjectMap.put(lastKey, "")
+        }
+    }
+
+    @Test fun sparseArrayCompatRemoveAndPut() {
+        benchmark.measureRepeated {
+            sparseArray.remove(lastKey)
+            sparseArray.put(lastKey, "")
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameters(name = "size={0}")
+        fun parameters() = listOf(10, 100, 1_000, 10_000, 100_000)
+    }
+}
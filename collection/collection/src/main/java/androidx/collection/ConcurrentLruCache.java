@@ -0,0 +1,621 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A thread-safe cache with the same contract as {@link LruCache} ({@link #create},
+ * {@link #entryRemoved} and {@link #sizeOf}) that is designed to be shared between many threads.
+ *
+ * <p>{@link LruCache} guards every operation with a single monitor, so threads reading from a
+ * shared cache serialize on it. This cache instead keeps its entries in a
+ * {@link ConcurrentHashMap} and splits its capacity between a number of independent segments,
+ * each owning its own recency list, lock and statistics:
+ * <ul>
+ *     <li>{@link #get} never takes a lock on a hit. The access is recorded in a small
+ *     per-segment buffer which is replayed against the recency list the next time the segment
+ *     is locked, or when the buffer fills up. If the buffer is full and the segment is busy the
+ *     access is simply dropped.</li>
+ *     <li>{@link #put}, {@link #remove} and evictions only lock the segment owning the key.</li>
+ *     <li>Hit, miss and other counters are striped across segments and summed when read.</li>
+ * </ul>
+ *
+ * <p>As a consequence the eviction order only approximates LRU: each segment evicts its own least
+ * recently used entry once it exceeds its share of {@link #maxSize()}, and recently buffered
+ * accesses may not yet be reflected. With a concurrency level of 1 the cache behaves exactly like
+ * {@link LruCache}.
+ */
+public class ConcurrentLruCache<K, V> {
+    /** Number of accesses each segment buffers before replaying them. Must be a power of two. */
+    private static final int READ_BUFFER_SIZE = 16;
+
+    private final ConcurrentHashMap<K, Node<K, V>> mMap;
+    private final Segment<K, V>[] mSegments;
+    private final int mSegmentMask;
+    private volatile int mMaxSize;
+
+    /**
+     * Creates a cache with a concurrency level based on the number of available processors.
+     *
+     * @param maxSize for caches that do not override {@link #sizeOf}, this is
+     *     the maximum number of entries in the cache. For all other caches,
+     *     this is the maximum sum of the sizes of the entries in this cache.
+     */
+    public ConcurrentLruCache(int maxSize) {
+        this(maxSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param maxSize for caches that do not override {@link #sizeOf}, this is
+     *     the maximum number of entries in the cache. For all other caches,
+     *     this is the maximum sum of the sizes of the entries in this cache.
+     * @param concurrencyLevel the expected number of threads using the cache concurrently. This
+     *     is rounded up to a power of two to pick the number of segments, but the cache never
+     *     uses more segments than {@code maxSize}.
+     */
+    public ConcurrentLruCache(int maxSize, int concurrencyLevel) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        if (concurrencyLevel <= 0) {
+            throw new IllegalArgumentException("concurrencyLevel <= 0");
+        }
+        int segmentCount = 1;
+        while (segmentCount < concurrencyLevel && segmentCount * 2 <= maxSize
+                && segmentCount < (1 << 16)) {
+            segmentCount <<= 1;
+        }
+        // Generic arrays can't be created, the segments only ever hold K keys and V values.
+        @SuppressWarnings("unchecked")
+        Segment<K, V>[] segments = (Segment<K, V>[]) new Segment<?, ?>[segmentCount];
+        mSegments = segments;
+        for (int i = 0; i < segmentCount; i++) {
+            mSegments[i] = new Segment<>();
+        }
+        mSegmentMask = segmentCount - 1;
+        mMap = new ConcurrentHashMap<>(16, 0.75f, segmentCount);
+        mMaxSize = maxSize;
+        distributeMaxSize(maxSize);
+    }
+
+    private void distributeMaxSize(int maxSize) {
+        final int count = mSegments.length;
+        for (int i = 0; i < count; i++) {
+            mSegments[i].mMaxSize = maxSize / count + (i < maxSize % count ? 1 : 0);
+        }
+    }
+
+    private Segment<K, V> segmentFor(Object key) {
+        return mSegments[OpenAddressing.hash(key.hashCode()) & mSegmentMask];
+    }
+
+    /**
+     * Sets the size of the cache.
+     *
+     * @param maxSize The new maximum size. Must be at least {@link #segmentCount()}.
+     */
+    public void resize(int maxSize) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        if (maxSize < mSegments.length) {
+            throw new IllegalArgumentException("maxSize < number of segments ("
+                    + mSegments.length + ")");
+        }
+
+        synchronized (this) {
+            mMaxSize = maxSize;
+            distributeMaxSize(maxSize);
+        }
+        for (Segment<K, V> segment : mSegments) {
+            trimSegment(segment, segment.mMaxSize);
+        }
+    }
+
+    /**
+     * Returns the value for {@code key} if it exists in the cache or can be
+     * created by {@code #create}. If a value was returned, it is moved to the
+     * head of its segment's queue. This returns null if a value is not cached
+     * and cannot be created.
+     */
+    @Nullable
+    public final V get(@NonNull K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        final Segment<K, V> segment = segmentFor(key);
+        Node<K, V> node = mMap.get(key);
+        if (node != null) {
+            segment.mHitCount.incrementAndGet();
+            recordRead(segment, node);
+            return node.mValue;
+        }
+        segment.mMissCount.incrementAndGet();
+
+        /*
+         * Attempt to create a value. This may take a long time, and the map
+         * may be different when create() returns. If a conflicting value was
+         * added to the map while create() was working, we leave that value in
+         * the map and release the created value.
+         */
+
+        V createdValue = create(key);
+        if (createdValue == null) {
+            return null;
+        }
+
+        V mapValue = null;
+        List<Node<K, V>> evicted;
+        segment.mLock.lock();
+        try {
+            drainReadBuffer(segment);
+            segment.mCreateCount++;
+            node = mMap.get(key);
+            if (node != null) {
+                // There was a conflict so keep the value which is already cached.
+                mapValue = node.mValue;
+                evicted = null;
+            } else {
+                node = new Node<>(key, createdValue, safeSizeOf(key, createdValue));
+                mMap.put(key, node);
+                segment.linkLast(node);
+                evicted = evictLocked(segment, segment.mMaxSize);
+            }
+        } finally {
+            segment.mLock.unlock();
+        }
+
+        if (mapValue != null) {
+            entryRemoved(false, key, createdValue, mapValue);
+            return mapValue;
+        }
+        notifyEvicted(evicted);
+        return createdValue;
+    }
+
+    /**
+     * Caches {@code value} for {@code key}. The value is moved to the head of
+     * its segment's queue.
+     *
+     * @return the previous value mapped by {@code key}.
+     */
+    @Nullable
+    public final V put(@NonNull K key, @NonNull V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException("key == null || value == null");
+        }
+
+        final Segment<K, V> segment = segmentFor(key);
+        final Node<K, V> node = new Node<>(key, value, safeSizeOf(key, value));
+        Node<K, V> previous;
+        List<Node<K, V>> evicted;
+        segment.mLock.lock();
+        try {
+            drainReadBuffer(segment);
+            segment.mPutCount++;
+            previous = mMap.put(key, node);
+            if (previous != null) {
+                segment.unlink(previous);
+            }
+            segment.linkLast(node);
+            evicted = evictLocked(segment, segment.mMaxSize);
+        } finally {
+            segment.mLock.unlock();
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous.mValue, value);
+        }
+        notifyEvicted(evicted);
+        return previous != null ? previous.mValue : null;
+    }
+
+    /**
+     * Remove the eldest entries of every segment until the total of remaining
+     * entries is at or below the requested size. The requested size is split
+     * evenly between the segments.
+     *
+     * @param maxSize the maximum size of the cache before returning. May be -1
+     *            to evict even 0-sized elements.
+     */
+    public void trimToSize(int maxSize) {
+        final int count = mSegments.length;
+        for (int i = 0; i < count; i++) {
+            final int share = maxSize < 0
+                    ? maxSize : maxSize / count + (i < maxSize % count ? 1 : 0);
+            trimSegment(mSegments[i], share);
+        }
+    }
+
+    private void trimSegment(Segment<K, V> segment, int maxSize) {
+        List<Node<K, V>> evicted;
+        segment.mLock.lock();
+        try {
+            drainReadBuffer(segment);
+            evicted = evictLocked(segment, maxSize);
+        } finally {
+            segment.mLock.unlock();
+        }
+        notifyEvicted(evicted);
+    }
+
+    /**
+     * Removes the entry for {@code key} if it exists.
+     *
+     * @return the previous value mapped by {@code key}.
+     */
+    @Nullable
+    public final V remove(@NonNull K key) {
+        if (key == null) {
+            throw new NullPointerException("key == null");
+        }
+
+        final Segment<K, V> segment = segmentFor(key);
+        Node<K, V> previous;
+        segment.mLock.lock();
+        try {
+            drainReadBuffer(segment);
+            previous = mMap.remove(key);
+            if (previous != null) {
+                segment.unlink(previous);
+            }
+        } finally {
+            segment.mLock.unlock();
+        }
+
+        if (previous != null) {
+            entryRemoved(false, key, previous.mValue, null);
+            return previous.mValue;
+        }
+        return null;
+    }
+
+    /**
+     * Records a read of {@code node} without blocking. Once the segment's buffer has filled up
+     * the accesses are replayed, but only if the segment lock is immediately available.
+     */
+    private void recordRead(Segment<K, V> segment, Node<K, V> node) {
+        final int index = segment.mReadCount.getAndIncrement() & (READ_BUFFER_SIZE - 1);
+        segment.mReadBuffer.lazySet(index, node);
+        if (index == READ_BUFFER_SIZE - 1 && segment.mLock.tryLock()) {
+            try {
+                drainReadBuffer(segment);
+            } finally {
+                segment.mLock.unlock();
+            }
+        }
+    }
+
+    /** Moves every buffered node which is still cached to the tail of the recency list. */
+    private void drainReadBuffer(Segment<K, V> segment) {
+        final AtomicReferenceArray<Node<K, V>> buffer = segment.mReadBuffer;
+        // The slot which will be written next holds the oldest buffered access.
+        final int start = segment.mReadCount.get();
+        for (int i = 0; i < READ_BUFFER_SIZE; i++) {
+            final Node<K, V> node = buffer.getAndSet((start + i) & (READ_BUFFER_SIZE - 1), null);
+            if (node != null && node.mPrev != null) {
+                segment.unlink(node);
+                segment.linkLast(node);
+            }
+        }
+    }
+
+    /**
+     * Unlinks the eldest entries of {@code segment} until it fits in {@code maxSize}. Must be
+     * called with the segment lock held; the returned entries must be passed to
+     * {@link #notifyEvicted} once the lock has been released.
+     */
+    @Nullable
+    private List<Node<K, V>> evictLocked(Segment<K, V> segment, int maxSize) {
+        List<Node<K, V>> evicted = null;
+        while (true) {
+            if (segment.mSize < 0 || (segment.isEmpty() && segment.mSize != 0)) {
+                throw new IllegalStateException(getClass().getName()
+                        + ".sizeOf() is reporting inconsistent results!");
+            }
+
+            if (segment.mSize <= maxSize || segment.isEmpty()) {
+                break;
+            }
+
+            final Node<K, V> eldest = segment.mHead.mNext;
+            mMap.remove(eldest.mKey, eldest);
+            segment.unlink(eldest);
+            segment.mEvictionCount++;
+            if (evicted == null) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(eldest);
+        }
+        return evicted;
+    }
+
+    private void notifyEvicted(@Nullable List<Node<K, V>> evicted) {
+        if (evicted != null) {
+            for (int i = 0, size = evicted.size(); i < size; i++) {
+                final Node<K, V> node = evicted.get(i);
+                entryRemoved(true, node.mKey, node.mValue, null);
+            }
+        }
+    }
+
+    /**
+     * Called for entries that have been evicted or removed. This method is
+     * invoked when a value is evicted to make space, removed by a call to
+     * {@link #remove}, or replaced by a call to {@link #put}. The default
+     * implementation does nothing.
+     *
+     * <p>The method is called without synchronization: other threads may
+     * access the cache while this method is executing.
+     *
+     * @param evicted true if the entry is being removed to make space, false
+     *     if the removal was caused by a {@link #put} or {@link #remove}.
+     * @param newValue the new value for {@code key}, if it exists. If non-null,
+     *     this removal was caused by a {@link #put}. Otherwise it was caused by
+     *     an eviction or a {@link #remove}.
+     */
+    protected void entryRemoved(boolean evicted, @NonNull K key, @NonNull V oldValue,
+            @Nullable V newValue) {
+    }
+
+    /**
+     * Called after a cache miss to compute a value for the corresponding key.
+     * Returns the computed value or null if no value can be computed. The
+     * default implementation returns null.
+     *
+     * <p>The method is called without synchronization: other threads may
+     * access the cache while this method is executing.
+     *
+     * <p>If a value for {@code key} exists in the cache when this method
+     * returns, the created value will be released with {@link #entryRemoved}
+     * and discarded. This can occur when multiple threads request the same key
+     * at the same time (causing multiple values to be created), or when one
+     * thread calls {@link #put} while another is creating a value for the same
+     * key.
+     */
+    @Nullable
+    protected V create(@NonNull K key) {
+        return null;
+    }
+
+    private int safeSizeOf(K key, V value) {
+        int result = sizeOf(key, value);
+        if (result < 0) {
+            throw new IllegalStateException("Negative size: " + key + "=" + value);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the size of the entry for {@code key} and {@code value} in
+     * user-defined units.  The default implementation returns 1 so that size
+     * is the number of entries and max size is the maximum number of entries.
+     *
+     * <p>An entry's size must not change while it is in the cache.
+     */
+    protected int sizeOf(@NonNull K key, @NonNull V value) {
+        return 1;
+    }
+
+    /**
+     * Clear the cache, calling {@link #entryRemoved} on each removed entry.
+     */
+    public final void evictAll() {
+        trimToSize(-1); // -1 will evict 0-sized elements
+    }
+
+    /**
+     * For caches that do not override {@link #sizeOf}, this returns the number
+     * of entries in the cache. For all other caches, this returns the sum of
+     * the sizes of the entries in this cache.
+     */
+    public final int size() {
+        int size = 0;
+        for (Segment<K, V> segment : mSegments) {
+            size += segment.mSize;
+        }
+        return size;
+    }
+
+    /**
+     * For caches that do not override {@link #sizeOf}, this returns the maximum
+     * number of entries in the cache. For all other caches, this returns the
+     * maximum sum of the sizes of the entries in this cache.
+     */
+    public final int maxSize() {
+        return mMaxSize;
+    }
+
+    /**
+     * Returns the number of independently locked segments the capacity is split between.
+     */
+    public final int segmentCount() {
+        return mSegments.length;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned a value that was
+     * already present in the cache.
+     */
+    public final int hitCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mHitCount.get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times {@link #get} returned null or required a new
+     * value to be created.
+     */
+    public final int missCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mMissCount.get();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times {@link #create(Object)} returned a value.
+     */
+    public final int createCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mCreateCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of times {@link #put} was called.
+     */
+    public final int putCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mPutCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of values that have been evicted.
+     */
+    public final int evictionCount() {
+        int count = 0;
+        for (Segment<K, V> segment : mSegments) {
+            count += segment.mEvictionCount;
+        }
+        return count;
+    }
+
+    /**
+     * Returns a copy of the current contents of the cache. Within each segment,
+     * entries are ordered from least recently accessed to most recently accessed.
+     */
+    public final Map<K, V> snapshot() {
+        final LinkedHashMap<K, V> snapshot = new LinkedHashMap<>();
+        for (Segment<K, V> segment : mSegments) {
+            segment.mLock.lock();
+            try {
+                drainReadBuffer(segment);
+                for (Node<K, V> node = segment.mHead.mNext; node != segment.mHead;
+                        node = node.mNext) {
+                    snapshot.put(node.mKey, node.mValue);
+                }
+            } finally {
+                segment.mLock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    @Override public final String toString() {
+        int hitCount = hitCount();
+        int accesses = hitCount + missCount();
+        int hitPercent = accesses != 0 ? (100 * hitCount / accesses) : 0;
+        return String.format(Locale.US,
+                "ConcurrentLruCache[maxSize=%d,segments=%d,hits=%d,misses=%d,hitRate=%d%%]",
+                mMaxSize, mSegments.length, hitCount, accesses - hitCount, hitPercent);
+    }
+
+    /**
+     * A cached entry. The value is immutable; the links are guarded by the owning segment's
+     * lock and are null while the node is not in a recency list.
+     */
+    private static final class Node<K, V> {
+        final K mKey;
+        final V mValue;
+        final int mSize;
+        @Nullable Node<K, V> mPrev;
+        @Nullable Node<K, V> mNext;
+
+        Node(K key, V value, int size) {
+            mKey = key;
+            mValue = value;
+            mSize = size;
+        }
+    }
+
+    /**
+     * One stripe of the cache: a recency list with its own lock, size budget, read buffer and
+     * statistics. Fields which aren't atomic are guarded by {@link #mLock}.
+     */
+    private static final class Segment<K, V> {
+        final ReentrantLock mLock = new ReentrantLock();
+        final AtomicReferenceArray<Node<K, V>> mReadBuffer =
+                new AtomicReferenceArray<>(READ_BUFFER_SIZE);
+        final AtomicInteger mReadCount = new AtomicInteger();
+        final AtomicInteger mHitCount = new AtomicInteger();
+        final AtomicInteger mMissCount = new AtomicInteger();
+
+        /** Sentinel of the circular recency list: head.next is the eldest entry. */
+        final Node<K, V> mHead;
+        volatile int mSize;
+        volatile int mMaxSize;
+        volatile int mCreateCount;
+        volatile int mPutCount;
+        volatile int mEvictionCount;
+
+        @SuppressWarnings("NullAway") // The sentinel never holds a key or value.
+        Segment() {
+            mHead = new Node<>(null, null, 0);
+            mHead.mPrev = mHead;
+            mHead.mNext = mHead;
+        }
+
+        boolean isEmpty() {
+            return mHead.mNext == mHead;
+        }
+
+        @SuppressWarnings("NullAway") // Linked nodes always have both neighbours.
+        void linkLast(Node<K, V> node) {
+            final Node<K, V> last = mHead.mPrev;
+            node.mPrev = last;
+            node.mNext = mHead;
+            last.mNext = node;
+            mHead.mPrev = node;
+            mSize += node.mSize;
+        }
+
+        @SuppressWarnings("NullAway") // Linked nodes always have both neighbours.
+        void unlink(Node<K, V> node) {
+            if (node.mPrev == null) {
+                return;
+            }
+            node.mPrev.mNext = node.mNext;
+            node.mNext.mPrev = node.mPrev;
+            node.mPrev = null;
+            node.mNext = null;
+            mSize -= node.mSize;
+        }
+    }
+}
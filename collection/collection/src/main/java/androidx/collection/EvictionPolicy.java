@@ -0,0 +1,65 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Decides which entry an {@link LruCache} evicts once it grows past its maximum size.
+ *
+ * <p>A cache created without a policy evicts its least recently used entry. A cache created with
+ * {@link LruCache#LruCache(int, EvictionPolicy)} instead reports every access to its policy and
+ * asks it for a victim each time it needs to make room.
+ *
+ * <p>All methods are called while the cache holds its lock, so implementations don't need to be
+ * thread-safe but must be fast and must not call back into the cache. A policy instance must only
+ * be used by a single cache.
+ *
+ * @param <K> the type of keys of the cache.
+ * @see WindowTinyLfuPolicy
+ */
+public interface EvictionPolicy<K> {
+    /**
+     * Called when {@code key} was found in the cache, or when its value was replaced by
+     * {@link LruCache#put}.
+     */
+    void recordAccess(@NonNull K key);
+
+    /**
+     * Called when {@code key} was requested from the cache but was not present.
+     */
+    void recordMiss(@NonNull K key);
+
+    /**
+     * Called when {@code key} was added to the cache.
+     */
+    void recordInsertion(@NonNull K key);
+
+    /**
+     * Called when {@code key} left the cache, either because it was evicted or because it was
+     * removed with {@link LruCache#remove}.
+     */
+    void recordRemoval(@NonNull K key);
+
+    /**
+     * Returns the key of the entry which should be evicted next. Only called while the cache
+     * contains at least one entry, and must return one of the keys currently in the cache. The
+     * cache reports the eviction through {@link #recordRemoval}.
+     */
+    @NonNull
+    K selectVictim();
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import java.util.Collection;
+
+/**
+ * A count-min sketch which estimates how often each key has been seen recently, using 4-bit
+ * counters packed sixteen to a {@code long}.
+ *
+ * <p>Every key is counted in four counters picked by independent hashes, and its estimated
+ * frequency is the smallest of them. Once the number of recorded events reaches ten times the
+ * table capacity, all counters are halved so that the sketch follows changes in popularity
+ * instead of remembering the whole history.
+ */
+final class FrequencySketch {
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = { 0x97CB3127, 0xB3A9E1D5, 0x6C9D0B2B, 0x3F8A54E3 };
+
+    private long[] mTable;
+    private int mSampleSize;
+    private int mSize;
+
+    FrequencySketch() {
+        mTable = ContainerHelpers.EMPTY_LONGS;
+    }
+
+    /**
+     * Sizes the sketch for roughly {@code maximumSize} distinct keys. When the sketch grows, the
+     * estimated frequencies of {@code residentKeys} are carried over and everything else is
+     * forgotten; shrinking is ignored.
+     */
+    void ensureCapacity(int maximumSize, Collection<?> residentKeys) {
+        final int length = OpenAddressing.idealCapacity(Math.max(maximumSize, 16));
+        if (length <= mTable.length) {
+            return;
+        }
+        final int[] frequencies = new int[residentKeys.size()];
+        int i = 0;
+        for (Object key : residentKeys) {
+            frequencies[i++] = frequency(key);
+        }
+        mTable = new long[length];
+        mSampleSize = 10 * length;
+        mSize = 0;
+        i = 0;
+        for (Object key : residentKeys) {
+            for (int count = frequencies[i++]; count > 0; count--) {
+                increment(key);
+            }
+        }
+    }
+
+    /** Returns the estimated number of occurrences of {@code key}, from 0 to 15. */
+    int frequency(Object key) {
+        if (mTable.length == 0) {
+            return 0;
+        }
+        final int hash = key.hashCode();
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, counterAt(indexOf(hash, i), offsetOf(hash, i)));
+        }
+        return frequency;
+    }
+
+    /**
+     * Records an occurrence of {@code key}. Only the counters currently holding the minimum are
+     * incremented, which limits the over-estimation caused by hash collisions.
+     */
+    void increment(Object key) {
+        if (mTable.length == 0) {
+            return;
+        }
+        final int hash = key.hashCode();
+        final int frequency = frequency(key);
+        if (frequency == MAX_COUNT) {
+            return;
+        }
+        for (int i = 0; i < SEEDS.length; i++) {
+            final int index = indexOf(hash, i);
+            final int offset = offsetOf(hash, i);
+            if (counterAt(index, offset) == frequency) {
+                mTable[index] += 1L << (offset << 2);
+            }
+        }
+        if (++mSize >= mSampleSize) {
+            reset();
+        }
+    }
+
+    /** Halves every counter. */
+    private void reset() {
+        final long[] table = mTable;
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        mSize >>>= 1;
+    }
+
+    private int counterAt(int index, int offset) {
+        return (int) ((mTable[index] >>> (offset << 2)) & 0xFL);
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * 0x9E3779B9;
+        h ^= h >>> 15;
+        return h & (mTable.length - 1);
+    }
+
+    private static int offsetOf(int hash, int row) {
+        int h = (hash + SEEDS[row]) * 0x85EBCA6B;
+        return (h >>> 28);
+    }
+}
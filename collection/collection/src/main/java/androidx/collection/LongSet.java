@@ -0,0 +1,279 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * LongSet is a set of longs using open addressing. Unlike an {@link ArraySet} of
+ * {@link Long}, membership tests, insertions and removals take constant expected time
+ * regardless of the number of elements, and no part of the API boxes its values.
+ *
+ * <p>Elements are stored densely in insertion order, so it is possible to iterate over them
+ * using {@link #valueAt(int)} with indices in the range <code>0...size()-1</code>. Removing an
+ * element moves the last element into its place, so indices are only stable as long as nothing
+ * is removed.</p>
+ *
+ * <p>{@link #contains(long)} never allocates, and {@link #add(long)} only does so when a new
+ * value is added to a full set. Small arrays are recycled between instances.</p>
+ */
+public class LongSet {
+    private int[] mTable;
+    private long[] mValues;
+    private int mSize;
+
+    /**
+     * Creates a new empty LongSet. No storage is allocated until the first value is added.
+     */
+    public LongSet() {
+        mTable = ContainerHelpers.EMPTY_INTS;
+        mValues = ContainerHelpers.EMPTY_LONGS;
+    }
+
+    /**
+     * Creates a new empty LongSet that will not require any additional memory allocation to store
+     * the specified number of values.
+     */
+    public LongSet(int initialCapacity) {
+        this();
+        if (initialCapacity > 0) {
+            allocArrays(OpenAddressing.idealCapacity(initialCapacity));
+        }
+    }
+
+    /**
+     * Creates a new LongSet with the values from the given LongSet.
+     */
+    public LongSet(@NonNull LongSet set) {
+        this(set.mSize);
+        addAll(set);
+    }
+
+    private void allocArrays(int capacity) {
+        mValues = OpenAddressing.allocLongs(capacity);
+        mTable = OpenAddressing.allocInts(capacity * 2);
+    }
+
+    private void growTo(int capacity) {
+        final long[] ovalues = mValues;
+        final int[] otable = mTable;
+        final int size = mSize;
+        allocArrays(capacity);
+        System.arraycopy(ovalues, 0, mValues, 0, size);
+        final int[] table = mTable;
+        final int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = OpenAddressing.hash(mValues[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        OpenAddressing.freeLongs(ovalues);
+        OpenAddressing.freeInts(otable);
+    }
+
+    /**
+     * Returns the slot holding {@code value}, or the empty slot where it would be inserted. Must
+     * only be called with a non-empty table.
+     */
+    private int slotOf(long value) {
+        final int[] table = mTable;
+        final long[] values = mValues;
+        final int mask = table.length - 1;
+        int slot = OpenAddressing.hash(value) & mask;
+        while (true) {
+            final int entry = table[slot];
+            if (entry == 0 || values[entry - 1] == value) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Ensure the set can hold at least <var>minimumCapacity</var> values without allocating.
+     */
+    public void ensureCapacity(int minimumCapacity) {
+        if (mValues.length < minimumCapacity) {
+            growTo(OpenAddressing.idealCapacity(minimumCapacity));
+        }
+    }
+
+    /**
+     * Returns the index for which {@link #valueAt} would return the specified value, or a
+     * negative number if the value is not in the set.
+     */
+    public int indexOf(long value) {
+        if (mSize == 0) {
+            return -1;
+        }
+        return mTable[slotOf(value)] - 1;
+    }
+
+    /** Returns true if the specified value is in the set. */
+    public boolean contains(long value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * Adds the specified value to the set.
+     *
+     * @return true if the value was added, false if it was already present.
+     */
+    public boolean add(long value) {
+        if (mTable.length == 0) {
+            allocArrays(OpenAddressing.BASE_CAPACITY);
+        }
+        int slot = slotOf(value);
+        if (mTable[slot] != 0) {
+            return false;
+        }
+        final int index = mSize;
+        if (index == mValues.length) {
+            growTo(index * 2);
+            slot = slotOf(value);
+        }
+        mValues[index] = value;
+        mTable[slot] = index + 1;
+        mSize = index + 1;
+        return true;
+    }
+
+    /**
+     * Adds all of the values in the {@code other} set to this set.
+     */
+    public void addAll(@NonNull LongSet other) {
+        ensureCapacity(mSize + other.mSize);
+        for (int i = 0; i < other.mSize; i++) {
+            add(other.mValues[i]);
+        }
+    }
+
+    /**
+     * Removes the specified value from the set, if it is present.
+     *
+     * @return true if the value was removed.
+     */
+    public boolean remove(long value) {
+        final int index = indexOf(value);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes the value at the given index. The last value in the set is moved into its place.
+     *
+     * @return the value that was stored at this index.
+     */
+    public long removeAt(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        final int[] table = mTable;
+        final long[] values = mValues;
+        final int mask = table.length - 1;
+        final long old = values[index];
+
+        // Backward-shift deletion: pull later entries of the probe sequence into the hole.
+        int hole = slotOf(old);
+        int slot = (hole + 1) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            final int ideal = OpenAddressing.hash(values[entry - 1]) & mask;
+            if (OpenAddressing.canShiftInto(hole, slot, ideal, mask)) {
+                table[hole] = entry;
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[hole] = 0;
+
+        final int last = mSize - 1;
+        if (index != last) {
+            final long lastValue = values[last];
+            table[slotOf(lastValue)] = index + 1;
+            values[index] = lastValue;
+        }
+        mSize = last;
+        return old;
+    }
+
+    /**
+     * Returns the number of values in this set.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Return true if size() is 0.
+     * @return true if size() is 0.
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, returns the value at that index.
+     */
+    public long valueAt(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mValues[index];
+    }
+
+    /**
+     * Removes all values from this set. The current storage is kept so that the set can be
+     * refilled without allocating.
+     */
+    public void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mTable, 0);
+            mSize = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation composes a string by iterating over its values.
+     */
+    @Override
+    public String toString() {
+        if (mSize <= 0) {
+            return "{}";
+        }
+
+        StringBuilder buffer = new StringBuilder(mSize * 20);
+        buffer.append('{');
+        for (int i = 0; i < mSize; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            buffer.append(mValues[i]);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+}
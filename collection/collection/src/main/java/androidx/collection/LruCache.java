@@ -29,9 +29,14 @@ import java.util.Map;
  * this implementation is still used; it does not try to switch to the
  * framework's implementation. See the framework SDK documentation for a class
  * overview.
+ *
+ * <p>By default the least recently used entry is evicted first. An {@link EvictionPolicy}, such
+ * as {@link WindowTinyLfuPolicy}, can be supplied to choose victims differently.
  */
 public class LruCache<K, V> {
     private final LinkedHashMap<K, V> map;
+    @Nullable
+    private final EvictionPolicy<K> policy;
 
     /** Size of this cache in units. Not necessarily the number of elements. */
     private int size;
@@ -54,6 +59,26 @@ public class LruCache<K, V> {
         }
         this.maxSize = maxSize;
         this.map = new LinkedHashMap<K, V>(0, 0.75f, true);
+        this.policy = null;
+    }
+
+    /**
+     * @param maxSize for caches that do not override {@link #sizeOf}, this is
+     *     the maximum number of entries in the cache. For all other caches,
+     *     this is the maximum sum of the sizes of the entries in this cache.
+     * @param policy decides which entries are evicted when the cache exceeds
+     *     {@code maxSize}. It must not be shared with another cache.
+     */
+    public LruCache(int maxSize, @NonNull EvictionPolicy<K> policy) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("maxSize <= 0");
+        }
+        if (policy == null) {
+            throw new NullPointerException("policy == null");
+        }
+        this.maxSize = maxSize;
+        this.map = new LinkedHashMap<K, V>(0, 0.75f, true);
+        this.policy = policy;
     }
 
     /**
@@ -89,9 +114,15 @@ public class LruCache<K, V> {
             mapValue = map.get(key);
             if (mapValue != null) {
                 hitCount++;
+                if (policy != null) {
+                    policy.recordAccess(key);
+                }
                 return mapValue;
             }
             missCount++;
+            if (policy != null) {
+                policy.recordMiss(key);
+            }
         }
 
         /*
@@ -115,6 +146,9 @@ public class LruCache<K, V> {
                 map.put(key, mapValue);
             } else {
                 size += safeSizeOf(key, createdValue);
+                if (policy != null) {
+                    policy.recordInsertion(key);
+                }
             }
         }
 
@@ -147,6 +181,13 @@ public class LruCache<K, V> {
             if (previous != null) {
                 size -= safeSizeOf(key, previous);
             }
+            if (policy != null) {
+                if (previous != null) {
+                    policy.recordAccess(key);
+                } else {
+                    policy.recordInsertion(key);
+                }
+            }
         }
 
         if (previous != null) {
@@ -178,10 +219,20 @@ public class LruCache<K, V> {
                     break;
                 }
 
-                Map.Entry<K, V> toEvict = map.entrySet().iterator().next();
-                key = toEvict.getKey();
-                value = toEvict.getValue();
-                map.remove(key);
+                if (policy != null) {
+                    key = policy.selectVictim();
+                    value = map.remove(key);
+                    if (value == null) {
+                        throw new IllegalStateException(policy.getClass().getName()
+                                + ".selectVictim() returned a key which is not cached: " + key);
+                    }
+                    policy.recordRemoval(key);
+                } else {
+                    Map.Entry<K, V> toEvict = map.entrySet().iterator().next();
+                    key = toEvict.getKey();
+                    value = toEvict.getValue();
+                    map.remove(key);
+                }
                 size -= safeSizeOf(key, value);
                 evictionCount++;
             }
@@ -206,6 +257,9 @@ public class LruCache<K, V> {
             previous = map.remove(key);
             if (previous != null) {
                 size -= safeSizeOf(key, previous);
+                if (policy != null) {
+                    policy.recordRemoval(key);
+                }
             }
         }
 
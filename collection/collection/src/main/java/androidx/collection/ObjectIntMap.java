@@ -0,0 +1,350 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * ObjectIntMap maps Objects to integers using open addressing. Unlike a
+ * {@code SimpleArrayMap<K, Integer>}, lookups, insertions and removals take constant expected
+ * time regardless of the number of mappings, and values are never boxed. Keys are compared
+ * with {@link Object#equals(Object)} and may be {@code null}.
+ *
+ * <p>Mappings are stored densely in insertion order, so it is possible to iterate over them
+ * using {@link #keyAt(int)} and {@link #valueAt(int)} with indices in the range
+ * <code>0...size()-1</code>. Removing a mapping moves the last mapping into its place, so
+ * indices are only stable as long as nothing is removed.</p>
+ *
+ * <p>{@link #get(Object)}, {@link #containsKey(Object)} and {@link #put(Object, int)} for an
+ * existing key never allocate. Storage only grows when a new key is added to a full map, and small
+ * arrays are recycled between instances.</p>
+ */
+public class ObjectIntMap<K> {
+    private int[] mTable;
+    private Object[] mKeys;
+    private int[] mValues;
+    private int mSize;
+
+    /**
+     * Creates a new ObjectIntMap containing no mappings. No storage is allocated until the first
+     * mapping is added.
+     */
+    public ObjectIntMap() {
+        mTable = ContainerHelpers.EMPTY_INTS;
+        mKeys = ContainerHelpers.EMPTY_OBJECTS;
+        mValues = ContainerHelpers.EMPTY_INTS;
+    }
+
+    /**
+     * Creates a new ObjectIntMap containing no mappings that will not require any additional
+     * memory allocation to store the specified number of mappings.
+     */
+    public ObjectIntMap(int initialCapacity) {
+        this();
+        if (initialCapacity > 0) {
+            allocArrays(OpenAddressing.idealCapacity(initialCapacity));
+        }
+    }
+
+    /**
+     * Creates a new ObjectIntMap with the mappings from the given ObjectIntMap.
+     */
+    public ObjectIntMap(@NonNull ObjectIntMap<? extends K> map) {
+        this(map.mSize);
+        putAll(map);
+    }
+
+    private void allocArrays(int capacity) {
+        mKeys = OpenAddressing.allocObjects(capacity);
+        mValues = OpenAddressing.allocInts(capacity);
+        mTable = OpenAddressing.allocInts(capacity * 2);
+    }
+
+    private void growTo(int capacity) {
+        final Object[] okeys = mKeys;
+        final int[] ovalues = mValues;
+        final int[] otable = mTable;
+        final int size = mSize;
+        allocArrays(capacity);
+        System.arraycopy(okeys, 0, mKeys, 0, size);
+        System.arraycopy(ovalues, 0, mValues, 0, size);
+        final int[] table = mTable;
+        final int mask = table.length - 1;
+        for (int i = 0; i < size; i++) {
+            int slot = OpenAddressing.hash(mKeys[i]) & mask;
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = i + 1;
+        }
+        OpenAddressing.freeObjects(okeys);
+        OpenAddressing.freeInts(ovalues);
+        OpenAddressing.freeInts(otable);
+    }
+
+    /**
+     * Returns the slot holding {@code key}, or the empty slot where it would be inserted. Must
+     * only be called with a non-empty table.
+     */
+    private int slotOf(@Nullable Object key) {
+        final int[] table = mTable;
+        final Object[] keys = mKeys;
+        final int mask = table.length - 1;
+        int slot = OpenAddressing.hash(key) & mask;
+        while (true) {
+            final int entry = table[slot];
+            if (entry == 0 || ContainerHelpers.equal(keys[entry - 1], key)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Ensure the map can hold at least <var>minimumCapacity</var> mappings without allocating.
+     */
+    public void ensureCapacity(int minimumCapacity) {
+        if (mKeys.length < minimumCapacity) {
+            growTo(OpenAddressing.idealCapacity(minimumCapacity));
+        }
+    }
+
+    /**
+     * Returns the index for which {@link #keyAt} would return the specified key, or a negative
+     * number if the specified key is not mapped.
+     */
+    public int indexOfKey(@Nullable Object key) {
+        if (mSize == 0) {
+            return -1;
+        }
+        return mTable[slotOf(key)] - 1;
+    }
+
+    /** Returns true if the specified key is mapped. */
+    public boolean containsKey(@Nullable Object key) {
+        return indexOfKey(key) >= 0;
+    }
+
+    /**
+     * Returns true if the specified value is mapped from any key. Beware that this is a linear
+     * search, unlike lookups by key.
+     */
+    public boolean containsValue(int value) {
+        for (int i = 0; i < mSize; i++) {
+            if (mValues[i] == value) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets the int mapped from the specified key, or <code>0</code> if no such mapping has been
+     * made.
+     */
+    public int get(@Nullable Object key) {
+        return get(key, 0);
+    }
+
+    /**
+     * Gets the int mapped from the specified key, or the specified value if no such mapping has
+     * been made.
+     */
+    public int get(@Nullable Object key, int valueIfKeyNotFound) {
+        final int index = indexOfKey(key);
+        return index >= 0 ? mValues[index] : valueIfKeyNotFound;
+    }
+
+    /**
+     * Adds a mapping from the specified key to the specified value, replacing the previous
+     * mapping from the specified key if there was one.
+     */
+    public void put(K key, int value) {
+        if (mTable.length == 0) {
+            allocArrays(OpenAddressing.BASE_CAPACITY);
+        }
+        int slot = slotOf(key);
+        final int entry = mTable[slot];
+        if (entry != 0) {
+            mValues[entry - 1] = value;
+            return;
+        }
+        final int index = mSize;
+        if (index == mKeys.length) {
+            growTo(index * 2);
+            slot = slotOf(key);
+        }
+        mKeys[index] = key;
+        mValues[index] = value;
+        mTable[slot] = index + 1;
+        mSize = index + 1;
+    }
+
+    /**
+     * Copies all of the mappings from the {@code other} map to this map.
+     */
+    public void putAll(@NonNull ObjectIntMap<? extends K> other) {
+        ensureCapacity(mSize + other.mSize);
+        for (int i = 0; i < other.mSize; i++) {
+            put(other.keyAt(i), other.mValues[i]);
+        }
+    }
+
+    /**
+     * Removes the mapping from the specified key, if there was any.
+     *
+     * @return true if a mapping was removed.
+     */
+    public boolean remove(@Nullable Object key) {
+        final int index = indexOfKey(key);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    /**
+     * Removes the mapping at the given index. The last mapping in the map is moved into its place.
+     */
+    public void removeAt(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        final int[] table = mTable;
+        final Object[] keys = mKeys;
+        final int mask = table.length - 1;
+
+        // Backward-shift deletion: pull later entries of the probe sequence into the hole.
+        int hole = slotOf(keys[index]);
+        int slot = (hole + 1) & mask;
+        int entry;
+        while ((entry = table[slot]) != 0) {
+            final int ideal = OpenAddressing.hash(keys[entry - 1]) & mask;
+            if (OpenAddressing.canShiftInto(hole, slot, ideal, mask)) {
+                table[hole] = entry;
+                hole = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        table[hole] = 0;
+
+        final int last = mSize - 1;
+        if (index != last) {
+            final Object lastKey = keys[last];
+            table[slotOf(lastKey)] = index + 1;
+            keys[index] = lastKey;
+            mValues[index] = mValues[last];
+        }
+        keys[last] = null;
+        mSize = last;
+    }
+
+    /**
+     * Returns the number of key-value mappings that this map currently stores.
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Return true if size() is 0.
+     * @return true if size() is 0.
+     */
+    public boolean isEmpty() {
+        return mSize == 0;
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, returns the key from the
+     * <code>index</code>th key-value mapping that this map stores.
+     */
+    @SuppressWarnings("unchecked")
+    public K keyAt(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return (K) mKeys[index];
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, returns the value from the
+     * <code>index</code>th key-value mapping that this map stores.
+     */
+    public int valueAt(int index) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        return mValues[index];
+    }
+
+    /**
+     * Given an index in the range <code>0...size()-1</code>, sets a new value for the
+     * <code>index</code>th key-value mapping that this map stores.
+     */
+    public void setValueAt(int index, int value) {
+        if (index >= mSize) {
+            throw new ArrayIndexOutOfBoundsException(index);
+        }
+        mValues[index] = value;
+    }
+
+    /**
+     * Removes all key-value mappings from this map. The current storage is kept so that the map
+     * can be refilled without allocating.
+     */
+    public void clear() {
+        if (mSize > 0) {
+            Arrays.fill(mTable, 0);
+            Arrays.fill(mKeys, 0, mSize, null);
+            mSize = 0;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>This implementation composes a string by iterating over its mappings.
+     */
+    @Override
+    public String toString() {
+        if (mSize <= 0) {
+            return "{}";
+        }
+
+        StringBuilder buffer = new StringBuilder(mSize * 28);
+        buffer.append('{');
+        for (int i = 0; i < mSize; i++) {
+            if (i > 0) {
+                buffer.append(", ");
+            }
+            Object key = mKeys[i];
+            if (key != this) {
+                buffer.append(key);
+            } else {
+                buffer.append("(this Map)");
+            }
+            buffer.append('=');
+            buffer.append(mValues[i]);
+        }
+        buffer.append('}');
+        return buffer.toString();
+    }
+}
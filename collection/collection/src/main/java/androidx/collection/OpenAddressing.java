@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import java.util.Arrays;
+
+/**
+ * Shared plumbing for the open addressing containers ({@link IntIntMap}, {@link IntObjectMap},
+ * {@link LongObjectMap}, {@link ObjectIntMap}, {@link IntSet} and {@link LongSet}).
+ *
+ * <p>All of those containers store their entries densely in parallel key/value arrays, in the
+ * same way as {@link SimpleArrayMap}, and find them through a separate power-of-two sized
+ * index table using linear probing. A table slot holds the dense index of its entry plus one, so
+ * that zero marks an empty slot and any key (including zero) can be stored. The index table is
+ * always at least twice the size of the dense arrays, which keeps the load factor at or below
+ * one half and guarantees that every probe sequence terminates on an empty slot.
+ *
+ * <p>Like the {@code mBaseCache}/{@code mTwiceBaseCache} pools in {@link SimpleArrayMap}, small
+ * arrays are recycled through a process-wide cache rather than being left for the garbage
+ * collector, since most of these containers never grow past a handful of entries.
+ */
+final class OpenAddressing {
+    private static final boolean DEBUG = false;
+    private static final String TAG = "OpenAddressing";
+
+    /**
+     * The minimum capacity of the dense arrays once anything has been added. The index table of
+     * such a container is {@code BASE_CAPACITY * 2} slots long.
+     */
+    static final int BASE_CAPACITY = 4;
+
+    /**
+     * Maximum length of an array which is kept in the caches. Anything bigger is simply dropped,
+     * so that a container which briefly grew large doesn't pin its memory forever.
+     */
+    private static final int MAX_CACHED_LENGTH = BASE_CAPACITY * 4;
+
+    /** Maximum number of arrays kept in each cache bucket. */
+    private static final int CACHE_SIZE = 10;
+
+    // One bucket per power-of-two length from 1 to MAX_CACHED_LENGTH, indexed by
+    // numberOfTrailingZeros(length).
+    private static final int BUCKET_COUNT = Integer.numberOfTrailingZeros(MAX_CACHED_LENGTH) + 1;
+
+    private static final int[][][] sIntCache = new int[BUCKET_COUNT][CACHE_SIZE][];
+    private static final int[] sIntCacheSize = new int[BUCKET_COUNT];
+    private static final long[][][] sLongCache = new long[BUCKET_COUNT][CACHE_SIZE][];
+    private static final int[] sLongCacheSize = new int[BUCKET_COUNT];
+    private static final Object[][][] sObjectCache = new Object[BUCKET_COUNT][CACHE_SIZE][];
+    private static final int[] sObjectCacheSize = new int[BUCKET_COUNT];
+
+    /** Spreads the bits of an int key so that sequential keys don't cluster in the table. */
+    static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /** Spreads the bits of a long key so that sequential keys don't cluster in the table. */
+    static int hash(long key) {
+        return hash((int) (key ^ (key >>> 32)));
+    }
+
+    /** Spreads the bits of an object key, treating {@code null} as hash code zero. */
+    static int hash(Object key) {
+        return key == null ? 0 : hash(key.hashCode());
+    }
+
+    /**
+     * Returns the dense capacity to use when a container needs room for at least {@code need}
+     * entries: the next power of two, but never less than {@link #BASE_CAPACITY}.
+     */
+    static int idealCapacity(int need) {
+        if (need <= BASE_CAPACITY) {
+            return BASE_CAPACITY;
+        }
+        if (need > (1 << 29)) {
+            throw new IllegalArgumentException("Capacity too large: " + need);
+        }
+        return Integer.highestOneBit(need - 1) << 1;
+    }
+
+    /**
+     * Returns true if the entry whose ideal slot is {@code ideal}, currently sitting in slot
+     * {@code slot}, may be moved back into the freed slot {@code hole} without breaking its probe
+     * sequence. This is the core of backward-shift deletion, which avoids tombstones entirely.
+     */
+    static boolean canShiftInto(int hole, int slot, int ideal, int mask) {
+        return ((slot - ideal) & mask) >= ((slot - hole) & mask);
+    }
+
+    @SuppressWarnings("ArrayToString")
+    static int[] allocInts(int length) {
+        if (length <= MAX_CACHED_LENGTH) {
+            final int bucket = Integer.numberOfTrailingZeros(length);
+            synchronized (OpenAddressing.class) {
+                if (sIntCacheSize[bucket] > 0) {
+                    final int index = --sIntCacheSize[bucket];
+                    final int[] array = sIntCache[bucket][index];
+                    sIntCache[bucket][index] = null;
+                    if (DEBUG) System.out.println(TAG + " Retrieving int[" + length + "] "
+                            + array + " now have " + sIntCacheSize[bucket] + " entries");
+                    return array;
+                }
+            }
+        }
+        return new int[length];
+    }
+
+    @SuppressWarnings("ArrayToString")
+    static void freeInts(int[] array) {
+        final int length = array.length;
+        if (length != 0 && length <= MAX_CACHED_LENGTH) {
+            final int bucket = Integer.numberOfTrailingZeros(length);
+            synchronized (OpenAddressing.class) {
+                if (sIntCacheSize[bucket] < CACHE_SIZE) {
+                    Arrays.fill(array, 0);
+                    sIntCache[bucket][sIntCacheSize[bucket]++] = array;
+                    if (DEBUG) System.out.println(TAG + " Storing int[" + length + "] "
+                            + array + " now have " + sIntCacheSize[bucket] + " entries");
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("ArrayToString")
+    static long[] allocLongs(int length) {
+        if (length <= MAX_CACHED_LENGTH) {
+            final int bucket = Integer.numberOfTrailingZeros(length);
+            synchronized (OpenAddressing.class) {
+                if (sLongCacheSize[bucket] > 0) {
+                    final int index = --sLongCacheSize[bucket];
+                    final long[] array = sLongCache[bucket][index];
+                    sLongCache[bucket][index] = null;
+                    if (DEBUG) System.out.println(TAG + " Retrieving long[" + length + "] "
+                            + array + " now have " + sLongCacheSize[bucket] + " entries");
+                    return array;
+                }
+            }
+        }
+        return new long[length];
+    }
+
+    @SuppressWarnings("ArrayToString")
+    static void freeLongs(long[] array) {
+        final int length = array.length;
+        if (length != 0 && length <= MAX_CACHED_LENGTH) {
+            final int bucket = Integer.numberOfTrailingZeros(length);
+            synchronized (OpenAddressing.class) {
+                if (sLongCacheSize[bucket] < CACHE_SIZE) {
+                    Arrays.fill(array, 0L);
+                    sLongCache[bucket][sLongCacheSize[bucket]++] = array;
+                    if (DEBUG) System.out.println(TAG + " Storing long[" + length + "] "
+                            + array + " now have " + sLongCacheSize[bucket] + " entries");
+                }
+            }
+        }
+    }
+
+    @SuppressWarnings("ArrayToString")
+    static Object[] allocObjects(int length) {
+        if (length <= MAX_CACHED_LENGTH) {
+            final int bucket = Integer.numberOfTrailingZeros(length);
+            synchronized (OpenAddressing.class) {
+                if (sObjectCacheSize[bucket] > 0) {
+                    final int index = --sObjectCacheSize[bucket];
+                    final Object[] array = sObjectCache[bucket][index];
+                    sObjectCache[bucket][index] = null;
+                    if (DEBUG) System.out.println(TAG + " Retrieving Object[" + length + "] "
+                            + array + " now have " + sObjectCacheSize[bucket] + " entries");
+                    return array;
+                }
+            }
+        }
+        return new Object[length];
+    }
+
+    @SuppressWarnings("ArrayToString")
+    static void freeObjects(Object[] array) {
+        final int length = array.length;
+        if (length != 0 && length <= MAX_CACHED_LENGTH) {
+            final int bucket = Integer.numberOfTrailingZeros(length);
+            synchronized (OpenAddressing.class) {
+                if (sObjectCacheSize[bucket] < CACHE_SIZE) {
+                    Arrays.fill(array, null);
+                    sObjectCache[bucket][sObjectCacheSize[bucket]++] = array;
+                    if (DEBUG) System.out.println(TAG + " Storing Object[" + length + "] "
+                            + array + " now have " + sObjectCacheSize[bucket] + " entries");
+                }
+            }
+        }
+    }
+
+    private OpenAddressing() {
+    }
+}
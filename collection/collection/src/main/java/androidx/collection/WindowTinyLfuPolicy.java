@@ -0,0 +1,220 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.HashMap;
+
+/**
+ * An {@link EvictionPolicy} implementing W-TinyLFU, which protects frequently used entries from
+ * being flushed out by a scan over many keys which are only used once.
+ *
+ * <p>New entries are admitted into a small LRU window, by default one percent of the cache. When
+ * the window overflows, its least recently used entry becomes a candidate for the main region
+ * and competes with the main region's own eviction victim: whichever of the two has been
+ * requested less often, as estimated by a count-min sketch, is evicted. The main region is a
+ * segmented LRU, where entries accessed again while on probation are promoted to a protected
+ * segment holding up to 80% of the main region.
+ *
+ * <p>Regions are measured in entries rather than in the units returned by
+ * {@link LruCache#sizeOf}.
+ *
+ * @param <K> the type of keys of the cache.
+ */
+public final class WindowTinyLfuPolicy<K> implements EvictionPolicy<K> {
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private static final int DEFAULT_WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    private final HashMap<K, Node<K>> mNodes = new HashMap<>();
+    private final FrequencySketch mSketch = new FrequencySketch();
+    private final int mWindowPercent;
+
+    // Sentinels of the circular queue of each region: head.mNext is the least recently used.
+    private final Node<K> mWindow = new Node<>(null, WINDOW);
+    private final Node<K> mProbation = new Node<>(null, PROBATION);
+    private final Node<K> mProtected = new Node<>(null, PROTECTED);
+    private final int[] mCounts = new int[3];
+
+    /**
+     * Creates a policy whose admission window holds one percent of the cache.
+     */
+    public WindowTinyLfuPolicy() {
+        this(DEFAULT_WINDOW_PERCENT);
+    }
+
+    /**
+     * @param windowPercent the share of the cache, in percent, given to the admission window.
+     *     Larger windows favour recency, smaller ones favour frequency.
+     */
+    public WindowTinyLfuPolicy(int windowPercent) {
+        if (windowPercent <= 0 || windowPercent >= 100) {
+            throw new IllegalArgumentException("windowPercent must be in the range 1..99");
+        }
+        mWindowPercent = windowPercent;
+    }
+
+    @Override
+    public void recordAccess(@NonNull K key) {
+        mSketch.increment(key);
+        final Node<K> node = mNodes.get(key);
+        if (node == null) {
+            return;
+        }
+        if (node.mRegion == PROBATION) {
+            moveTo(node, PROTECTED);
+            final int maxProtected = (mNodes.size() - windowSize()) * PROTECTED_PERCENT / 100;
+            while (mCounts[PROTECTED] > Math.max(1, maxProtected)) {
+                moveTo(eldest(PROTECTED), PROBATION);
+            }
+        } else {
+            moveTo(node, node.mRegion);
+        }
+    }
+
+    @Override
+    public void recordMiss(@NonNull K key) {
+        mSketch.increment(key);
+    }
+
+    @Override
+    public void recordInsertion(@NonNull K key) {
+        final Node<K> node = new Node<>(key, WINDOW);
+        final Node<K> previous = mNodes.put(key, node);
+        if (previous != null) {
+            unlink(previous);
+        }
+        mSketch.ensureCapacity(mNodes.size(), mNodes.keySet());
+        mSketch.increment(key);
+        linkLast(node);
+    }
+
+    @Override
+    public void recordRemoval(@NonNull K key) {
+        final Node<K> node = mNodes.remove(key);
+        if (node != null) {
+            unlink(node);
+        }
+    }
+
+    @NonNull
+    @Override
+    @SuppressWarnings("NullAway") // The cache only asks for a victim while it is not empty.
+    public K selectVictim() {
+        final int windowSize = windowSize();
+
+        // Entries added while the cache was filling up move to the main region for free, so that
+        // only the newest entry beyond the window's share has to earn its place.
+        while (mCounts[WINDOW] > windowSize + 1) {
+            moveTo(eldest(WINDOW), PROBATION);
+        }
+
+        final Node<K> victim = mCounts[PROBATION] > 0 ? eldest(PROBATION) : eldest(PROTECTED);
+        if (mCounts[WINDOW] > windowSize && victim != null) {
+            final Node<K> candidate = eldest(WINDOW);
+            if (mSketch.frequency(candidate.mKey) > mSketch.frequency(victim.mKey)) {
+                moveTo(candidate, PROBATION);
+                return victim.mKey;
+            }
+            return candidate.mKey;
+        }
+        return victim != null ? victim.mKey : eldest(WINDOW).mKey;
+    }
+
+    /**
+     * Returns the estimated number of recent requests for {@code key}, from 0 to 15.
+     */
+    public int frequency(@NonNull K key) {
+        return mSketch.frequency(key);
+    }
+
+    @Override
+    public String toString() {
+        return "WindowTinyLfuPolicy[window=" + mCounts[WINDOW] + ",probation="
+                + mCounts[PROBATION] + ",protected=" + mCounts[PROTECTED] + "]";
+    }
+
+    private int windowSize() {
+        return Math.max(1, mNodes.size() * mWindowPercent / 100);
+    }
+
+    @Nullable
+    private Node<K> eldest(int region) {
+        final Node<K> head = sentinel(region);
+        return head.mNext != head ? head.mNext : null;
+    }
+
+    private Node<K> sentinel(int region) {
+        switch (region) {
+            case WINDOW:
+                return mWindow;
+            case PROBATION:
+                return mProbation;
+            default:
+                return mProtected;
+        }
+    }
+
+    /** Moves {@code node} to the most recently used end of {@code region}. */
+    private void moveTo(Node<K> node, int region) {
+        unlink(node);
+        node.mRegion = region;
+        linkLast(node);
+    }
+
+    @SuppressWarnings("NullAway") // Sentinels always have both neighbours.
+    private void linkLast(Node<K> node) {
+        final Node<K> head = sentinel(node.mRegion);
+        final Node<K> last = head.mPrev;
+        node.mPrev = last;
+        node.mNext = head;
+        last.mNext = node;
+        head.mPrev = node;
+        mCounts[node.mRegion]++;
+    }
+
+    @SuppressWarnings("NullAway") // Linked nodes always have both neighbours.
+    private void unlink(Node<K> node) {
+        node.mPrev.mNext = node.mNext;
+        node.mNext.mPrev = node.mPrev;
+        node.mPrev = null;
+        node.mNext = null;
+        mCounts[node.mRegion]--;
+    }
+
+    private static final class Node<K> {
+        final K mKey;
+        int mRegion;
+        @Nullable Node<K> mPrev;
+        @Nullable Node<K> mNext;
+
+        @SuppressWarnings("NullAway") // Sentinels have no key.
+        Node(@Nullable K key, int region) {
+            mKey = key;
+            mRegion = region;
+            if (key == null) {
+                mPrev = this;
+                mNext = this;
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Replays recorded key streams against {@link LruCache} configurations and reports their hit
+ * ratios, so that cache sizes and eviction policies can be tuned offline.
+ *
+ * <p>A trace is a text file with one key per line, in request order. To compare plain LRU with
+ * {@link WindowTinyLfuPolicy} for a few cache sizes, run this class with the trace path followed
+ * by the sizes, for example {@code CacheTraceReplayer gallery.trace 100 1000 10000}.
+ */
+public final class CacheTraceReplayer {
+    /**
+     * Replays {@code trace} against {@code cache}, putting each missing key into the cache after
+     * the miss, and returns the fraction of requests which hit.
+     */
+    public static <K> double hitRatio(LruCache<K, K> cache, List<K> trace) {
+        final int hitsBefore = cache.hitCount();
+        for (int i = 0, size = trace.size(); i < size; i++) {
+            final K key = trace.get(i);
+            if (cache.get(key) == null) {
+                cache.put(key, key);
+            }
+        }
+        return trace.isEmpty() ? 0 : (double) (cache.hitCount() - hitsBefore) / trace.size();
+    }
+
+    /** Reads a trace file with one key per line, skipping blank lines. */
+    public static List<String> readTrace(String path) throws IOException {
+        final List<String> trace = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(path))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    trace.add(line);
+                }
+            }
+        }
+        return trace;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("usage: CacheTraceReplayer <trace file> <cache size>...");
+            System.exit(1);
+        }
+        final List<String> trace = readTrace(args[0]);
+        System.out.println(String.format(Locale.US, "%d requests", trace.size()));
+        System.out.println("size\tlru\tw-tinylfu");
+        for (int i = 1; i < args.length; i++) {
+            final int size = Integer.parseInt(args[i]);
+            final double lru = hitRatio(new LruCache<String, String>(size), trace);
+            final double tinyLfu = hitRatio(new LruCache<>(size,
+                    new WindowTinyLfuPolicy<String>()), trace);
+            System.out.println(String.format(Locale.US, "%d\t%.4f\t%.4f", size, lru, tinyLfu));
+        }
+    }
+
+    private CacheTraceReplayer() {
+    }
+}
@@ -0,0 +1,234 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+@RunWith(JUnit4.class)
+public class ConcurrentLruCacheTest {
+
+    @Test
+    public void testSingleSegmentEvictsLeastRecentlyUsed() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(3, 1);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals("A", cache.get("a"));
+        cache.put("d", "D"); // should evict b
+        assertSnapshot(cache, "c", "C", "a", "A", "d", "D");
+        assertEquals(1, cache.evictionCount());
+    }
+
+    @Test
+    public void testBufferedReadsKeepTheirOrder() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(3, 1);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        // Wrap the read buffer several times so that reads are replayed in batches.
+        for (int i = 0; i < 50; i++) {
+            cache.get("a");
+            cache.get("c");
+            cache.get("b");
+        }
+        cache.get("a");
+        cache.put("d", "D"); // should evict c
+        assertSnapshot(cache, "b", "B", "a", "A", "d", "D");
+    }
+
+    @Test
+    public void testStatistics() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(4, 4);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.get("b");
+        cache.get("c");
+        assertEquals(2, cache.putCount());
+        assertEquals(2, cache.hitCount());
+        assertEquals(1, cache.missCount());
+        assertEquals(0, cache.createCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void testSegmentCountNeverExceedsMaxSize() {
+        assertEquals(2, new ConcurrentLruCache<String, String>(3, 8).segmentCount());
+        assertEquals(8, new ConcurrentLruCache<String, String>(100, 7).segmentCount());
+        assertEquals(1, new ConcurrentLruCache<String, String>(100, 1).segmentCount());
+    }
+
+    @Test
+    public void testCreateOnCacheMiss() {
+        ConcurrentLruCache<String, String> cache = newCreatingCache();
+        assertEquals("created-aa", cache.get("aa"));
+        assertEquals("created-aa", cache.get("aa"));
+        assertEquals(1, cache.createCount());
+        assertEquals(1, cache.hitCount());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testConstructorDoesNotAllowZeroCacheSize() {
+        try {
+            new ConcurrentLruCache<String, String>(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testCannotPutNullValue() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(3);
+        try {
+            cache.put("a", null);
+            fail();
+        } catch (NullPointerException expected) {
+        }
+    }
+
+    @Test
+    public void testEntryRemovedCallbacks() {
+        List<String> log = new ArrayList<>();
+        ConcurrentLruCache<String, String> cache = newRemovalLogCache(log);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+        assertEquals(Collections.<String>emptyList(), log);
+        cache.put("b", "B2");
+        cache.put("d", "D");
+        cache.remove("c");
+        assertEquals(Arrays.asList("b=B>B2", "a=A", "c=C>null"), log);
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        assertEquals(Arrays.asList("b=B>B2", "a=A", "c=C>null", "b=B2", "d=D"), log);
+    }
+
+    @Test
+    public void testEvictionWithCustomSizes() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<String, String>(4, 1) {
+            @Override protected int sizeOf(String key, String value) {
+                return value.length();
+            }
+        };
+        cache.put("a", "AA");
+        cache.put("b", "B");
+        cache.put("c", "CC"); // should evict a
+        assertSnapshot(cache, "b", "B", "c", "CC");
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testResizeTrimsEverySegment() {
+        ConcurrentLruCache<Integer, String> cache = new ConcurrentLruCache<>(64, 4);
+        for (int i = 0; i < 64; i++) {
+            cache.put(i, "value" + i);
+        }
+        cache.resize(8);
+        assertEquals(8, cache.maxSize());
+        assertTrue(cache.size() <= 8);
+    }
+
+    @Test
+    public void testToString() {
+        ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(3, 1);
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("b");
+        assertEquals("ConcurrentLruCache[maxSize=3,segments=1,hits=1,misses=1,hitRate=50%]",
+                cache.toString());
+    }
+
+    @Test
+    public void testConcurrentAccessKeepsSizeWithinBounds() throws InterruptedException {
+        final int threadCount = 8;
+        final ConcurrentLruCache<Integer, Integer> cache = new ConcurrentLruCache<>(100, 4);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            final int seed = t;
+            new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 10_000; i++) {
+                            Integer key = (i * 31 + seed) % 500;
+                            if (cache.get(key) == null) {
+                                cache.put(key, key);
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }.start();
+        }
+        done.await();
+        assertNull(failure.get());
+        assertTrue(cache.size() <= 100);
+        assertEquals(cache.size(), cache.snapshot().size());
+        assertEquals(threadCount * 10_000, cache.hitCount() + cache.missCount());
+    }
+
+    private ConcurrentLruCache<String, String> newCreatingCache() {
+        return new ConcurrentLruCache<String, String>(3, 1) {
+            @Override protected String create(String key) {
+                return (key.length() > 1) ? ("created-" + key) : null;
+            }
+        };
+    }
+
+    private ConcurrentLruCache<String, String> newRemovalLogCache(final List<String> log) {
+        return new ConcurrentLruCache<String, String>(3, 1) {
+            @Override protected void entryRemoved(
+                    boolean evicted, String key, String oldValue, String newValue) {
+                String message = evicted
+                        ? (key + "=" + oldValue)
+                        : (key + "=" + oldValue + ">" + newValue);
+                log.add(message);
+            }
+        };
+    }
+
+    private static <T> void assertSnapshot(ConcurrentLruCache<T, T> cache, T... keysAndValues) {
+        List<T> actualKeysAndValues = new ArrayList<>();
+        for (Map.Entry<T, T> entry : cache.snapshot().entrySet()) {
+            actualKeysAndValues.add(entry.getKey());
+            actualKeysAndValues.add(entry.getValue());
+        }
+
+        // assert using lists because order is important for LRUs
+        assertEquals(Arrays.asList(keysAndValues), actualKeysAndValues);
+    }
+}
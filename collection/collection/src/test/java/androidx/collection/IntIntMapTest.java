@@ -0,0 +1,144 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class IntIntMapTest {
+    @Test
+    public void getReturnsZeroWhenAbsent() {
+        IntIntMap map = new IntIntMap();
+        assertEquals(0, map.get(1));
+        assertEquals(-1, map.get(1, -1));
+    }
+
+    @Test
+    public void putReplacesExistingValue() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 10);
+        map.put(1, 20);
+        assertEquals(1, map.size());
+        assertEquals(20, map.get(1));
+    }
+
+    @Test
+    public void zeroKeyIsSupported() {
+        IntIntMap map = new IntIntMap();
+        map.put(0, 5);
+        assertTrue(map.containsKey(0));
+        assertEquals(5, map.get(0, -1));
+        assertTrue(map.remove(0));
+        assertFalse(map.containsKey(0));
+    }
+
+    @Test
+    public void removeReturnsFalseWhenAbsent() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 1);
+        assertFalse(map.remove(2));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void removeMovesLastMappingIntoHole() {
+        IntIntMap map = new IntIntMap();
+        map.put(1, 10);
+        map.put(2, 20);
+        map.put(3, 30);
+        map.remove(1);
+        assertEquals(2, map.size());
+        assertEquals(3, map.keyAt(0));
+        assertEquals(30, map.valueAt(0));
+        assertEquals(0, map.indexOfKey(3));
+        assertEquals(2, map.keyAt(1));
+    }
+
+    @Test
+    public void clearKeepsMapUsable() {
+        IntIntMap map = new IntIntMap(8);
+        for (int i = 0; i < 8; i++) {
+            map.put(i, i);
+        }
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(3));
+        map.put(3, 4);
+        assertEquals(4, map.get(3));
+    }
+
+    @Test
+    public void putAllCopiesMappings() {
+        IntIntMap source = new IntIntMap();
+        source.put(1, 2);
+        source.put(3, 4);
+        IntIntMap map = new IntIntMap(source);
+        assertEquals(2, map.size());
+        assertEquals(2, map.get(1));
+        assertEquals(4, map.get(3));
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void valueAtOutOfBoundsThrows() {
+        IntIntMap map = new IntIntMap(10);
+        map.put(1, 1);
+        map.valueAt(1);
+    }
+
+    @Test
+    public void toStringListsMappings() {
+        IntIntMap map = new IntIntMap();
+        assertEquals("{}", map.toString());
+        map.put(1, 2);
+        map.put(3, 4);
+        assertEquals("{1=2, 3=4}", map.toString());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(0);
+        IntIntMap map = new IntIntMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(1_000) - 500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                int value = random.nextInt();
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey(), -1));
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals((int) expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+}
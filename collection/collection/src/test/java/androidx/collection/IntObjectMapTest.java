@@ -0,0 +1,103 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class IntObjectMapTest {
+    @Test
+    public void getOrDefaultPrefersStoredValue() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "1");
+        assertEquals("1", map.get(1, "2"));
+    }
+
+    @Test
+    public void getOrDefaultReturnsNullWhenNullStored() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, null);
+        assertTrue(map.containsKey(1));
+        assertNull(map.get(1, "1"));
+    }
+
+    @Test
+    public void putReturnsPreviousValue() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        assertNull(map.put(1, "1"));
+        assertEquals("1", map.put(1, "2"));
+        assertEquals("2", map.get(1));
+    }
+
+    @Test
+    public void removeReturnsRemovedValue() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(1, "1");
+        map.put(2, "2");
+        assertEquals("1", map.remove(1));
+        assertNull(map.remove(1));
+        assertFalse(map.containsKey(1));
+        assertEquals("2", map.valueAt(0));
+    }
+
+    @Test
+    public void indexOfValueUsesEquals() {
+        IntObjectMap<String> map = new IntObjectMap<>();
+        map.put(7, "seven");
+        assertEquals(0, map.indexOfValue(new String("seven")));
+        assertTrue(map.containsValue("seven"));
+        assertFalse(map.containsValue("eight"));
+    }
+
+    @Test
+    public void toStringHandlesSelfReference() {
+        IntObjectMap<Object> map = new IntObjectMap<>();
+        map.put(1, map);
+        assertEquals("{1=(this Map)}", map.toString());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(0);
+        IntObjectMap<String> map = new IntObjectMap<>();
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(1_000) - 500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "value" + random.nextInt();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+}
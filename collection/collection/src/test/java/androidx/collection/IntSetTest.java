@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class IntSetTest {
+    @Test
+    public void addReportsWhetherValueWasNew() {
+        IntSet set = new IntSet();
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(0));
+    }
+
+    @Test
+    public void removeAtMovesLastValueIntoHole() {
+        IntSet set = new IntSet();
+        set.add(1);
+        set.add(2);
+        set.add(3);
+        assertEquals(1, set.removeAt(0));
+        assertEquals(3, set.valueAt(0));
+        assertEquals(0, set.indexOf(3));
+        assertFalse(set.contains(1));
+    }
+
+    @Test
+    public void addAllMergesSets() {
+        IntSet first = new IntSet();
+        first.add(1);
+        first.add(2);
+        IntSet second = new IntSet();
+        second.add(2);
+        second.add(3);
+        first.addAll(second);
+        assertEquals(3, first.size());
+        assertTrue(first.contains(3));
+    }
+
+    @Test
+    public void randomOperationsMatchHashSet() {
+        Random random = new Random(0);
+        IntSet set = new IntSet();
+        Set<Integer> expected = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            int value = random.nextInt(1_000) - 500;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (int i = 0; i < set.size(); i++) {
+            assertTrue(expected.contains(set.valueAt(i)));
+        }
+    }
+}
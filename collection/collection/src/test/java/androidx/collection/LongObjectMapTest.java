@@ -0,0 +1,113 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class LongObjectMapTest {
+    @Test
+    public void getOrDefaultPrefersStoredValue() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "1");
+        assertEquals("1", map.get(1L, "2"));
+    }
+
+    @Test
+    public void getOrDefaultReturnsNullWhenNullStored() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, null);
+        assertTrue(map.containsKey(1L));
+        assertNull(map.get(1L, "1"));
+    }
+
+    @Test
+    public void putReturnsPreviousValue() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        assertNull(map.put(1L, "1"));
+        assertEquals("1", map.put(1L, "2"));
+        assertEquals("2", map.get(1L));
+    }
+
+    @Test
+    public void removeReturnsRemovedValue() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "1");
+        map.put(2L, "2");
+        assertEquals("1", map.remove(1L));
+        assertNull(map.remove(1L));
+        assertFalse(map.containsKey(1L));
+        assertEquals("2", map.valueAt(0));
+    }
+
+    @Test
+    public void indexOfValueUsesEquals() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(7L, "seven");
+        assertEquals(0, map.indexOfValue(new String("seven")));
+        assertTrue(map.containsValue("seven"));
+        assertFalse(map.containsValue("eight"));
+    }
+
+    @Test
+    public void keysDifferingInHighBitsAreDistinct() {
+        LongObjectMap<String> map = new LongObjectMap<>();
+        map.put(1L, "low");
+        map.put(1L | (1L << 40), "high");
+        assertEquals(2, map.size());
+        assertEquals("low", map.get(1L));
+        assertEquals("high", map.get(1L | (1L << 40)));
+    }
+
+    @Test
+    public void toStringHandlesSelfReference() {
+        LongObjectMap<Object> map = new LongObjectMap<>();
+        map.put(1L, map);
+        assertEquals("{1=(this Map)}", map.toString());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(0);
+        LongObjectMap<String> map = new LongObjectMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            long key = (random.nextInt(1_000) - 500) * 0x100000000L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                String value = "value" + random.nextInt();
+                assertEquals(expected.put(key, value), map.put(key, value));
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals(expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+@RunWith(JUnit4.class)
+public class LongSetTest {
+    @Test
+    public void addReportsWhetherValueWasNew() {
+        LongSet set = new LongSet();
+        assertTrue(set.add(0L));
+        assertFalse(set.add(0L));
+        assertEquals(1, set.size());
+        assertTrue(set.contains(0L));
+    }
+
+    @Test
+    public void removeAtMovesLastValueIntoHole() {
+        LongSet set = new LongSet();
+        set.add(1L);
+        set.add(2L);
+        set.add(3L);
+        assertEquals(1L, set.removeAt(0));
+        assertEquals(3L, set.valueAt(0));
+        assertEquals(0, set.indexOf(3L));
+        assertFalse(set.contains(1L));
+    }
+
+    @Test
+    public void addAllMergesSets() {
+        LongSet first = new LongSet();
+        first.add(1L);
+        first.add(2L);
+        LongSet second = new LongSet();
+        second.add(2L);
+        second.add(3L);
+        first.addAll(second);
+        assertEquals(3, first.size());
+        assertTrue(first.contains(3L));
+    }
+
+    @Test
+    public void randomOperationsMatchHashSet() {
+        Random random = new Random(0);
+        LongSet set = new LongSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long value = (random.nextInt(1_000) - 500) * 0x100000001L;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value));
+            } else {
+                assertEquals(expected.add(value), set.add(value));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+        for (int i = 0; i < set.size(); i++) {
+            assertTrue(expected.contains(set.valueAt(i)));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class ObjectIntMapTest {
+    @Test
+    public void keysAreComparedWithEquals() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        map.put("one", 1);
+        assertEquals(1, map.get(new String("one"), -1));
+    }
+
+    @Test
+    public void nullKeyIsSupported() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        map.put(null, 3);
+        assertTrue(map.containsKey(null));
+        assertEquals(3, map.get(null));
+        assertNull(map.keyAt(0));
+        assertTrue(map.remove(null));
+        assertFalse(map.containsKey(null));
+    }
+
+    @Test
+    public void collidingHashCodesAreDistinct() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        // "Aa" and "BB" share the same String.hashCode().
+        map.put("Aa", 1);
+        map.put("BB", 2);
+        assertEquals(1, map.get("Aa"));
+        assertEquals(2, map.get("BB"));
+        map.remove("Aa");
+        assertEquals(2, map.get("BB"));
+    }
+
+    @Test
+    public void toStringListsMappings() {
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        assertEquals("{a=1, b=2}", map.toString());
+    }
+
+    @Test
+    public void randomOperationsMatchHashMap() {
+        Random random = new Random(0);
+        ObjectIntMap<String> map = new ObjectIntMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            String key = "key" + random.nextInt(1_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key) != null, map.remove(key));
+            } else {
+                int value = random.nextInt();
+                expected.put(key, value);
+                map.put(key, value);
+            }
+            assertEquals(expected.size(), map.size());
+        }
+        for (int i = 0; i < map.size(); i++) {
+            assertEquals((int) expected.get(map.keyAt(i)), map.valueAt(i));
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.collection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+@RunWith(JUnit4.class)
+public class WindowTinyLfuPolicyTest {
+    @Test
+    public void scanDoesNotFlushHotEntries() {
+        LruCache<String, String> cache =
+                new LruCache<>(100, new WindowTinyLfuPolicy<String>());
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                put(cache, "hot" + i);
+            }
+        }
+        // The scan is three times the size of the cache, but short enough not to age the sketch.
+        for (int i = 0; i < 300; i++) {
+            put(cache, "scan" + i);
+        }
+        for (int i = 0; i < 50; i++) {
+            assertTrue("hot" + i + " was evicted", cache.snapshot().containsKey("hot" + i));
+        }
+        assertEquals(100, cache.size());
+    }
+
+    @Test
+    public void plainLruIsFlushedByScan() {
+        LruCache<String, String> cache = new LruCache<>(100);
+        for (int i = 0; i < 50; i++) {
+            put(cache, "hot" + i);
+        }
+        for (int i = 0; i < 300; i++) {
+            put(cache, "scan" + i);
+        }
+        assertFalse(cache.snapshot().containsKey("hot0"));
+    }
+
+    @Test
+    public void beatsLruOnLoopingScanWithHotSet() {
+        Random random = new Random(0);
+        List<Integer> trace = new ArrayList<>();
+        for (int i = 0; i < 50_000; i++) {
+            // 30% of requests go to 200 hot keys, the rest loop over 5000 cold ones.
+            trace.add(random.nextInt(10) < 3 ? random.nextInt(200) : 1_000 + i % 5_000);
+        }
+        double lru = CacheTraceReplayer.hitRatio(new LruCache<Integer, Integer>(250), trace);
+        double tinyLfu = CacheTraceReplayer.hitRatio(
+                new LruCache<>(250, new WindowTinyLfuPolicy<Integer>()), trace);
+        assertTrue("lru=" + lru + " tinyLfu=" + tinyLfu, tinyLfu > lru + 0.1);
+    }
+
+    @Test
+    public void evictionCallbacksReportVictims() {
+        final List<String> log = new ArrayList<>();
+        LruCache<String, String> cache =
+                new LruCache<String, String>(2, new WindowTinyLfuPolicy<String>()) {
+                    @Override
+                    protected void entryRemoved(boolean evicted, String key, String oldValue,
+                            String newValue) {
+                        log.add(key);
+                    }
+                };
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+        cache.get("a");
+        // b loses the duel against the frequently used a, so it is evicted rather than c.
+        cache.put("c", "C");
+        assertEquals(1, cache.evictionCount());
+        assertEquals(2, cache.size());
+        assertTrue(cache.snapshot().containsKey("a"));
+        assertEquals(Arrays.asList("b"), log);
+    }
+
+    @Test
+    public void removeAndEvictAllKeepPolicyInSync() {
+        LruCache<String, String> cache =
+                new LruCache<>(3, new WindowTinyLfuPolicy<String>());
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.remove("a");
+        cache.put("c", "C");
+        cache.put("d", "D");
+        cache.put("e", "E");
+        assertEquals(3, cache.size());
+        cache.evictAll();
+        assertEquals(0, cache.size());
+        cache.put("f", "F");
+        assertEquals("F", cache.get("f"));
+    }
+
+    @Test
+    public void frequencyCountsRequests() {
+        WindowTinyLfuPolicy<String> policy = new WindowTinyLfuPolicy<>();
+        LruCache<String, String> cache = new LruCache<>(10, policy);
+        cache.put("a", "A");
+        cache.get("a");
+        cache.get("a");
+        cache.get("b");
+        assertEquals(3, policy.frequency("a"));
+        assertEquals(1, policy.frequency("b"));
+        assertEquals(0, policy.frequency("c"));
+    }
+
+    @Test
+    public void windowPercentIsValidated() {
+        try {
+            new WindowTinyLfuPolicy<String>(0);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static void put(LruCache<String, String> cache, String key) {
+        if (cache.get(key) == null) {
+            cache.put(key, key);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.datastore.benchmark
+
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.datastore.core.DataStore
+import androidx.datastore.core.DataStoreFactory
+import androidx.datastore.core.DeltaLogConfig
+import androidx.test.filters.LargeTest
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.cancel
+import kotlinx.coroutines.runBlocking
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.io.File
+
+/**
+ * Measures updating a single entry of a large value, with the whole value rewritten on every
+ * update or with deltas appended to a log.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class DeltaLogBenchmark(private val useDeltaLog: Boolean) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private val scope = CoroutineScope(Dispatchers.IO + Job())
+
+    private lateinit var store: DataStore<Map<Int, Int>>
+
+    @Before
+    fun setUp() {
+        store = DataStoreFactory.create(
+            IntMapSerializer(),
+            scope = scope,
+            deltaLogConfig = if (useDeltaLog) DeltaLogConfig() else null
+        ) { File(tempFolder.root, "store") }
+        runBlocking {
+            store.updateData { (0 until ENTRY_COUNT).associateWith { it } }
+        }
+    }
+
+    @After
+    fun tearDown() {
+        scope.cancel()
+    }
+
+    @Test
+    fun updateSingleEntry() {
+        var i = 0
+        benchmarkRule.measureRepeated {
+            val key = i++ % ENTRY_COUNT
+            runBlocking {
+                store.updateData { it + (key to it.getValue(key) + 1) }
+            }
+        }
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "useDeltaLog={0}")
+        fun data() = listOf(false, true)
+
+        private const val ENTRY_COUNT = 16 * 1024
+    }
+}
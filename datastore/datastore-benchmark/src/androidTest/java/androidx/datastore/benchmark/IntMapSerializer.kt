@@ -0,0 +1,94 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.datastore.benchmark
+
+import androidx.datastore.core.DeltaSerializer
+import java.io.DataInputStream
+import java.io.DataOutputStream
+import java.io.EOFException
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * A [DeltaSerializer] for maps of ints, whose deltas only contain the changed entries.
+ */
+internal class IntMapSerializer : DeltaSerializer<Map<Int, Int>> {
+    override val defaultValue: Map<Int, Int> = emptyMap()
+
+    override fun readFrom(input: InputStream): Map<Int, Int> {
+        val data = DataInputStream(input)
+        val map = HashMap<Int, Int>()
+        try {
+            while (true) {
+                val key = data.readInt()
+                map[key] = data.readInt()
+            }
+        } catch (ex: EOFException) {
+            // Done.
+        }
+        return map
+    }
+
+    override fun writeTo(t: Map<Int, Int>, output: OutputStream) {
+        val data = DataOutputStream(output)
+        for ((key, value) in t) {
+            data.writeInt(key)
+            data.writeInt(value)
+        }
+        data.flush()
+    }
+
+    override fun writeDelta(
+        oldValue: Map<Int, Int>,
+        newValue: Map<Int, Int>,
+        output: OutputStream
+    ) {
+        val data = DataOutputStream(output)
+        for ((key, value) in newValue) {
+            if (oldValue[key] != value) {
+                data.writeBoolean(true)
+                data.writeInt(key)
+                data.writeInt(value)
+            }
+        }
+        for (key in oldValue.keys) {
+            if (key !in newValue) {
+                data.writeBoolean(false)
+                data.writeInt(key)
+            }
+        }
+        data.flush()
+    }
+
+    override fun applyDelta(base: Map<Int, Int>, input: InputStream): Map<Int, Int> {
+        val data = DataInputStream(input)
+        val map = HashMap(base)
+        while (true) {
+            val put = try {
+                data.readBoolean()
+            } catch (ex: EOFException) {
+                break
+            }
+            val key = data.readInt()
+            if (put) {
+                map[key] = data.readInt()
+            } else {
+                map.remove(key)
+            }
+        }
+        return map
+    }
+}
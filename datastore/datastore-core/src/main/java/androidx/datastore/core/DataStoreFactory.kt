@@ -44,6 +44,9 @@ public object DataStoreFactory {
      * @param migrations Migrations are run before any access to data can occur. Migrations must
      * be idempotent.
      * @param scope The scope in which IO operations and transform functions will execute.
+     * @param deltaLogConfig If set, updates are persisted by appending deltas to a log next to
+     * the file, which is compacted back into the file as configured. The serializer must
+     * implement [DeltaSerializer]. A file written with a log can still be read without one.
      * @param produceFile Function which returns the file that the new DataStore will act on. The
      * function must return the same path every time. No two instances of DataStore should act on
      * the same file at the same time.
@@ -54,6 +57,7 @@ public object DataStoreFactory {
         corruptionHandler: ReplaceFileCorruptionHandler<T>? = null,
         migrations: List<DataMigration<T>> = listOf(),
         scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+        deltaLogConfig: DeltaLogConfig? = null,
         produceFile: () -> File
     ): DataStore<T> =
         SingleProcessDataStore(
@@ -61,6 +65,7 @@ public object DataStoreFactory {
             serializer = serializer,
             corruptionHandler = corruptionHandler ?: NoOpCorruptionHandler(),
             initTasksList = listOf(DataMigrationInitializer.getInitializer(migrations)),
-            scope = scope
+            scope = scope,
+            deltaLogConfig = deltaLogConfig
         )
 }
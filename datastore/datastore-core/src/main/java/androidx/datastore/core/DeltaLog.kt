@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.BufferedInputStream
+import java.io.ByteArrayInputStream
+import java.io.ByteArrayOutputStream
+import java.io.DataInputStream
+import java.io.EOFException
+import java.io.File
+import java.io.FileOutputStream
+import java.io.IOException
+import java.io.InputStream
+import java.io.OutputStream
+import java.io.RandomAccessFile
+import java.nio.ByteBuffer
+import java.util.zip.CRC32
+import kotlin.random.Random
+
+/**
+ * The append-only log of deltas stored next to the snapshot file of a DataStore.
+ *
+ * Every snapshot written while a log is configured starts with a header holding a generation,
+ * a random number that changes whenever the snapshot is rewritten. The log starts with a header
+ * holding the generation of the snapshot it applies to, followed by records made of the payload
+ * length, the payload CRC32 and the payload written by [DeltaSerializer.writeDelta]. Every append
+ * is fsync'ed before the update is acknowledged.
+ *
+ * This keeps the crash guarantees of writing a scratch file and renaming it:
+ *  - a record torn by a crash fails its checksum and is dropped, together with anything after
+ *    it, so an update is either fully applied or not at all;
+ *  - when the snapshot is rewritten the log is deleted afterwards. A log surviving a crash in
+ *    between has the generation of the previous snapshot and is ignored, even if the new
+ *    snapshot has the same contents.
+ *
+ * A snapshot written without a log configured has no header, and any log next to it is ignored.
+ * Without a [config] the log is still applied when reading, so no update is lost when the log
+ * is turned off, but nothing is appended and snapshots are written without a header.
+ *
+ * Not thread safe, all calls must come from the DataStore actor.
+ */
+internal class DeltaLog<T>(
+    private val file: File,
+    private val serializer: DeltaSerializer<T>,
+    private val config: DeltaLogConfig?
+) {
+    private val logFile: File = File(file.absolutePath + LOG_SUFFIX)
+
+    /** The length of the snapshot the log applies to, or -1 if there is no valid snapshot. */
+    private var snapshotLength: Long = -1
+
+    /** The generation of the snapshot, or [NO_GENERATION] if it has no header. */
+    private var generation: Long = NO_GENERATION
+
+    /** The number of valid bytes in the log file, or 0 if there is no log. */
+    private var logLength: Long = 0
+
+    /**
+     * Reads the snapshot from [snapshot] and applies the deltas found in the log.
+     */
+    fun readFrom(snapshot: InputStream): T {
+        val stream = BufferedInputStream(snapshot)
+        generation = readSnapshotHeader(stream)
+        var value = serializer.readFrom(stream)
+        snapshotLength = file.length()
+        logLength = 0
+
+        if (!logFile.exists()) {
+            return value
+        }
+        val log = ByteBuffer.wrap(logFile.readBytes())
+        if (generation == NO_GENERATION ||
+            log.remaining() < LOG_HEADER_SIZE ||
+            log.int != LOG_MAGIC ||
+            log.long != generation
+        ) {
+            // Either the header was torn, or the log belongs to a previous snapshot and all its
+            // deltas are already part of the current one.
+            deleteLog()
+            return value
+        }
+
+        val crc = CRC32()
+        while (log.remaining() >= RECORD_HEADER_SIZE) {
+            val start = log.position()
+            val length = log.int
+            val checksum = log.int.toLong() and 0xFFFFFFFFL
+            if (length < 0 || length > log.remaining()) {
+                log.position(start)
+                break
+            }
+            crc.reset()
+            crc.update(log.array(), log.position(), length)
+            if (crc.value != checksum) {
+                log.position(start)
+                break
+            }
+            value = serializer.applyDelta(
+                value,
+                ByteArrayInputStream(log.array(), log.position(), length)
+            )
+            log.position(log.position() + length)
+        }
+        logLength = log.position().toLong()
+        if (log.position() < log.limit()) {
+            // Drop the record torn by a crash, so the next append starts on a record boundary.
+            RandomAccessFile(logFile, "rw").use { it.setLength(logLength) }
+        }
+        return value
+    }
+
+    /**
+     * Called when there is no snapshot on disk. Any log left behind is stale.
+     */
+    fun onSnapshotMissing() {
+        snapshotLength = -1
+        generation = NO_GENERATION
+        deleteLog()
+    }
+
+    /**
+     * Writes the header of a new snapshot to [stream], before its value. Nothing is written
+     * without a [config].
+     *
+     * @return the generation of the new snapshot, to pass to [onSnapshotWritten].
+     */
+    fun writeSnapshotHeader(stream: OutputStream): Long {
+        if (config == null) {
+            return NO_GENERATION
+        }
+        var newGeneration: Long
+        do {
+            newGeneration = Random.nextLong()
+        } while (newGeneration == generation || newGeneration == NO_GENERATION)
+        stream.write(
+            ByteBuffer.allocate(SNAPSHOT_HEADER_SIZE)
+                .putLong(SNAPSHOT_MAGIC)
+                .putLong(newGeneration)
+                .array()
+        )
+        return newGeneration
+    }
+
+    /**
+     * Called once a new snapshot has been durably written, which makes the log obsolete.
+     */
+    fun onSnapshotWritten(length: Long, newGeneration: Long) {
+        snapshotLength = length
+        generation = newGeneration
+        deleteLog()
+    }
+
+    /**
+     * Appends the delta between [oldValue] and [newValue] to the log.
+     *
+     * @return false if the delta was not written because the log should be compacted, in which
+     * case the caller must write a full snapshot instead.
+     */
+    fun tryAppend(oldValue: T, newValue: T): Boolean {
+        if (config == null || snapshotLength < 0 || generation == NO_GENERATION) {
+            return false
+        }
+
+        val delta = ByteArrayOutputStream()
+        serializer.writeDelta(oldValue, newValue, delta)
+        val headerSize = if (logLength == 0L) LOG_HEADER_SIZE else 0
+        val newLogLength = logLength + headerSize + RECORD_HEADER_SIZE + delta.size()
+        if (newLogLength > config.maxLogBytes ||
+            newLogLength > config.maxLogRatio * snapshotLength
+        ) {
+            return false
+        }
+
+        val payload = delta.toByteArray()
+        val crc = CRC32()
+        crc.update(payload)
+        val record = ByteBuffer.allocate(headerSize + RECORD_HEADER_SIZE + payload.size)
+        if (headerSize > 0) {
+            record.putInt(LOG_MAGIC).putLong(generation)
+        }
+        record.putInt(payload.size).putInt(crc.value.toInt()).put(payload)
+
+        try {
+            FileOutputStream(logFile, logLength > 0).use { stream ->
+                stream.write(record.array())
+                stream.fd.sync()
+            }
+        } catch (ex: IOException) {
+            // The log may end with a partial record now. Stop appending to it, the next update
+            // writes a full snapshot which discards the log.
+            snapshotLength = -1
+            throw ex
+        }
+        logLength = newLogLength
+        return true
+    }
+
+    private fun deleteLog() {
+        logLength = 0
+        if (logFile.exists()) {
+            // If this fails the header no longer matches the snapshot, so the log is ignored.
+            logFile.delete()
+        }
+    }
+
+    internal companion object {
+        const val LOG_SUFFIX = ".log"
+
+        private const val SNAPSHOT_MAGIC = 0x44534C4F47534E50 // "DSLOGSNP"
+        const val SNAPSHOT_HEADER_SIZE = 8 + 8
+        private const val NO_GENERATION = 0L
+        private const val LOG_MAGIC = 0x44534C47 // "DSLG"
+        private const val LOG_HEADER_SIZE = 4 + 8
+        private const val RECORD_HEADER_SIZE = 4 + 4
+
+        /**
+         * Reads the generation from the header of the snapshot, or leaves [stream] untouched and
+         * returns [NO_GENERATION] if the snapshot has no header. Snapshots are read through this
+         * even when no log is used, as the file may have been written with a log before.
+         */
+        fun readSnapshotHeader(stream: BufferedInputStream): Long {
+            stream.mark(SNAPSHOT_HEADER_SIZE)
+            val header = DataInputStream(stream)
+            try {
+                if (header.readLong() == SNAPSHOT_MAGIC) {
+                    return header.readLong()
+                }
+            } catch (ex: EOFException) {
+                // Too short to have a header.
+            }
+            stream.reset()
+            return NO_GENERATION
+        }
+    }
+}
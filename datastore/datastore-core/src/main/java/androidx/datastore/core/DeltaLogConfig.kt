@@ -0,0 +1,47 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+/**
+ * Configures the append-only log used to persist updates of a DataStore backed by a
+ * [DeltaSerializer].
+ *
+ * Each update appends the delta produced by [DeltaSerializer.writeDelta] to a log file next to
+ * the DataStore file. Once appending a delta would make the log larger than [maxLogBytes], or
+ * larger than [maxLogRatio] times the size of the last full snapshot, the whole value is written
+ * again instead and the log is discarded.
+ *
+ * @param maxLogBytes The maximum size of the log file in bytes.
+ * @param maxLogRatio The maximum size of the log file relative to the size of the snapshot.
+ */
+public class DeltaLogConfig @JvmOverloads constructor(
+    public val maxLogBytes: Long = DEFAULT_MAX_LOG_BYTES,
+    public val maxLogRatio: Float = DEFAULT_MAX_LOG_RATIO
+) {
+    init {
+        require(maxLogBytes > 0) { "maxLogBytes must be positive." }
+        require(maxLogRatio > 0) { "maxLogRatio must be positive." }
+    }
+
+    public companion object {
+        /** The default value of [maxLogBytes]. */
+        public const val DEFAULT_MAX_LOG_BYTES: Long = 1024 * 1024
+
+        /** The default value of [maxLogRatio]. */
+        public const val DEFAULT_MAX_LOG_RATIO: Float = 0.5f
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import java.io.InputStream
+import java.io.OutputStream
+
+/**
+ * A [Serializer] that can also describe the difference between two values, which lets DataStore
+ * persist updates by appending small deltas to a log instead of rewriting the whole value.
+ *
+ * Deltas are only used when DataStore is created with a [DeltaLogConfig]. DataStore takes care
+ * of framing, checksumming and compacting the deltas; the serializer only needs to encode and
+ * apply the changes themselves.
+ */
+public interface DeltaSerializer<T> : Serializer<T> {
+
+    /**
+     * Marshal the changes that turn [oldValue] into [newValue] to a stream. writeDelta should
+     * not close [output].
+     *
+     * @param oldValue the value currently persisted by DataStore
+     * @param newValue the value to persist
+     * @param output the OutputStream to serialize the delta to
+     */
+    public fun writeDelta(oldValue: T, newValue: T, output: OutputStream)
+
+    /**
+     * Unmarshal a delta written by [writeDelta] from a stream and apply it to [base].
+     *
+     * Throw [CorruptionException] if the delta can not be de-serialized.
+     *
+     * @param base the value the delta was computed against
+     * @param input the InputStream with exactly one delta to deserialize
+     * @return the value with the delta applied
+     */
+    public fun applyDelta(base: T, input: InputStream): T
+}
@@ -37,6 +37,7 @@ import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.sync.Mutex
 import kotlinx.coroutines.sync.withLock
 import kotlinx.coroutines.withContext
+import java.io.BufferedInputStream
 import java.io.File
 import java.io.FileInputStream
 import java.io.FileNotFoundException
@@ -70,9 +71,20 @@ internal class SingleProcessDataStore<T>(
      */
     initTasksList: List<suspend (api: InitializerApi<T>) -> Unit> = emptyList(),
     private val corruptionHandler: CorruptionHandler<T> = NoOpCorruptionHandler<T>(),
-    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob())
+    private val scope: CoroutineScope = CoroutineScope(Dispatchers.IO + SupervisorJob()),
+    /**
+     * If set, updates are appended as deltas to a log next to the file instead of rewriting the
+     * whole file. Requires [serializer] to be a [DeltaSerializer].
+     */
+    private val deltaLogConfig: DeltaLogConfig? = null
 ) : DataStore<T> {
 
+    init {
+        require(deltaLogConfig == null || serializer is DeltaSerializer<T>) {
+            "A DeltaLogConfig requires the serializer to implement DeltaSerializer."
+        }
+    }
+
     override val data: Flow<T> = flow {
         val curChannel = downstreamChannel()
         actor.offer(Message.Read(curChannel))
@@ -100,6 +112,15 @@ internal class SingleProcessDataStore<T>(
 
     private val file: File by lazy { produceFile() }
 
+    // Also used without a config, to read back a file which was written with a log before.
+    private val deltaLog: DeltaLog<T>? by lazy {
+        if (serializer is DeltaSerializer<T>) {
+            DeltaLog(file, serializer, deltaLogConfig)
+        } else {
+            null
+        }
+    }
+
     /**
      * The external facing channel. The data flow emits the values from this channel.
      *
@@ -246,12 +267,19 @@ internal class SingleProcessDataStore<T>(
     private suspend fun readData(): T {
         try {
             FileInputStream(file).use { stream ->
-                return serializer.readFrom(stream)
+                val log = deltaLog
+                if (log != null) {
+                    return log.readFrom(stream)
+                }
+                val bufferedStream = BufferedInputStream(stream)
+                DeltaLog.readSnapshotHeader(bufferedStream)
+                return serializer.readFrom(bufferedStream)
             }
         } catch (ex: FileNotFoundException) {
             if (file.exists()) {
                 throw ex
             }
+            deltaLog?.onSnapshotMissing()
             return serializer.defaultValue
         }
     }
@@ -277,12 +305,22 @@ internal class SingleProcessDataStore<T>(
         return if (curData == newData) {
             curData
         } else {
-            writeData(newData)
+            writeUpdate(curData, newData)
             updateDataChannel.offer(DataAndHash(newData, newData.hashCode()))
             newData
         }
     }
 
+    /**
+     * Persists [newData], appending the delta from [curData] to the log when one is configured
+     * and it does not need to be compacted yet.
+     */
+    private fun writeUpdate(curData: T, newData: T) {
+        if (deltaLog?.tryAppend(curData, newData) != true) {
+            writeData(newData)
+        }
+    }
+
     /**
      * Internal only to prevent creation of synthetic accessor function. Do not call this from
      * outside this class.
@@ -292,16 +330,23 @@ internal class SingleProcessDataStore<T>(
 
         val scratchFile = File(file.absolutePath + SCRATCH_SUFFIX)
         try {
-            FileOutputStream(scratchFile).use { stream ->
+            val log = deltaLog
+            var generation = 0L
+            val length = FileOutputStream(scratchFile).use { stream ->
+                if (log != null) {
+                    generation = log.writeSnapshotHeader(stream)
+                }
                 serializer.writeTo(newData, UncloseableOutputStream(stream))
                 stream.fd.sync()
                 // TODO(b/151635324): fsync the directory, otherwise a badly timed crash could
                 //  result in reverting to a previous state.
+                stream.channel.position()
             }
 
             if (!scratchFile.renameTo(file)) {
                 throw IOException("$scratchFile could not be renamed to $file")
             }
+            log?.onSnapshotWritten(length, generation)
         } catch (ex: IOException) {
             if (scratchFile.exists()) {
                 scratchFile.delete()
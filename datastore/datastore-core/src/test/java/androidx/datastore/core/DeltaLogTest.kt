@@ -0,0 +1,213 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import androidx.testutils.assertThrows
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.flow.first
+import kotlinx.coroutines.test.TestCoroutineDispatcher
+import kotlinx.coroutines.test.TestCoroutineScope
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.File
+import java.io.RandomAccessFile
+
+@kotlinx.coroutines.ExperimentalCoroutinesApi
+@kotlinx.coroutines.ObsoleteCoroutinesApi
+@kotlinx.coroutines.FlowPreview
+@RunWith(JUnit4::class)
+class DeltaLogTest {
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private lateinit var serializer: MapDeltaSerializer
+    private lateinit var testFile: File
+    private lateinit var logFile: File
+    private lateinit var dataStoreScope: TestCoroutineScope
+
+    @Before
+    fun setUp() {
+        serializer = MapDeltaSerializer()
+        testFile = File(tempFolder.root, "test_file")
+        logFile = File(testFile.absolutePath + DeltaLog.LOG_SUFFIX)
+        dataStoreScope = TestCoroutineScope(TestCoroutineDispatcher() + Job())
+    }
+
+    @After
+    fun cleanUp() {
+        dataStoreScope.cleanupTestCoroutines()
+    }
+
+    @Test
+    fun testUpdatesAreAppendedToLog() = runBlockingTest {
+        val store = newDataStore()
+        store.updateData { INITIAL_DATA }
+        val snapshotLength = testFile.length()
+        assertThat(logFile.exists()).isFalse()
+
+        store.updateData { it + (1 to -1) }
+        store.updateData { it - 2 }
+
+        assertThat(testFile.length()).isEqualTo(snapshotLength)
+        assertThat(logFile.exists()).isTrue()
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA + (1 to -1) - 2)
+    }
+
+    @Test
+    fun testLogIsCompactedPastMaxBytes() = runBlockingTest {
+        val store = newDataStore(DeltaLogConfig(maxLogBytes = 100))
+        store.updateData { INITIAL_DATA }
+
+        for (i in 0 until 10) {
+            store.updateData { it + (i to -i) }
+        }
+
+        assertThat(logFile.length()).isAtMost(100L)
+        assertThat(newDataStore().data.first())
+            .isEqualTo(INITIAL_DATA + (0 until 10).associateWith { -it })
+    }
+
+    @Test
+    fun testLogIsCompactedPastMaxRatio() = runBlockingTest {
+        val store = newDataStore(DeltaLogConfig(maxLogRatio = 0.001f))
+        store.updateData { INITIAL_DATA }
+
+        store.updateData { it + (1 to -1) }
+
+        assertThat(logFile.exists()).isFalse()
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA + (1 to -1))
+    }
+
+    @Test
+    fun testTornRecordIsDropped() = runBlockingTest {
+        val store = newDataStore()
+        store.updateData { INITIAL_DATA }
+        store.updateData { it + (1 to -1) }
+        store.updateData { it + (2 to -2) }
+
+        // Simulate a crash while appending the last delta.
+        RandomAccessFile(logFile, "rw").use { it.setLength(it.length() - 1) }
+
+        val newStore = newDataStore()
+        assertThat(newStore.data.first()).isEqualTo(INITIAL_DATA + (1 to -1))
+        newStore.updateData { it + (3 to -3) }
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA + (1 to -1) + (3 to -3))
+    }
+
+    @Test
+    fun testStaleLogIsIgnored() = runBlockingTest {
+        val store = newDataStore()
+        store.updateData { INITIAL_DATA }
+        store.updateData { it + (1 to -1) }
+        val staleLog = logFile.readBytes()
+
+        // Simulate a crash between writing a new snapshot and deleting the log.
+        newDataStore(DeltaLogConfig(maxLogBytes = 1)).updateData { it + (2 to -2) }
+        assertThat(logFile.exists()).isFalse()
+        logFile.writeBytes(staleLog)
+
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA + (1 to -1) + (2 to -2))
+    }
+
+    @Test
+    fun testStaleLogIsIgnoredForIdenticalSnapshot() = runBlockingTest {
+        val store = newDataStore()
+        store.updateData { INITIAL_DATA }
+        val snapshot = testFile.readBytes()
+        store.updateData { it + (1 to -1) }
+        val staleLog = logFile.readBytes()
+
+        // Compaction writes a snapshot with the same value as the one the log applies to.
+        newDataStore(DeltaLogConfig(maxLogBytes = 1)).updateData { it + (1 to 1) }
+        assertThat(testFile.readBytes().copyOfRange(DeltaLog.SNAPSHOT_HEADER_SIZE, snapshot.size))
+            .isEqualTo(snapshot.copyOfRange(DeltaLog.SNAPSHOT_HEADER_SIZE, snapshot.size))
+        // Simulate a crash between writing that snapshot and deleting the log.
+        logFile.writeBytes(staleLog)
+
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA)
+    }
+
+    @Test
+    fun testSnapshotWithoutHeaderIsRead() = runBlockingTest {
+        SingleProcessDataStore({ testFile }, serializer, scope = dataStoreScope)
+            .updateData { INITIAL_DATA }
+
+        val store = newDataStore()
+        assertThat(store.data.first()).isEqualTo(INITIAL_DATA)
+        store.updateData { it + (1 to -1) }
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA + (1 to -1))
+    }
+
+    @Test
+    fun testLogIsReadWithoutConfig() = runBlockingTest {
+        val store = newDataStore()
+        store.updateData { INITIAL_DATA }
+        store.updateData { it + (1 to -1) }
+        assertThat(logFile.exists()).isTrue()
+
+        val storeWithoutLog =
+            SingleProcessDataStore({ testFile }, serializer, scope = dataStoreScope)
+        assertThat(storeWithoutLog.data.first()).isEqualTo(INITIAL_DATA + (1 to -1))
+        storeWithoutLog.updateData { it + (2 to -2) }
+
+        assertThat(logFile.exists()).isFalse()
+        assertThat(newDataStore().data.first()).isEqualTo(INITIAL_DATA + (1 to -1) + (2 to -2))
+    }
+
+    @Test
+    fun testSnapshotWithHeaderIsReadWithoutDeltaSerializer() = runBlockingTest {
+        newDataStore().updateData { INITIAL_DATA }
+
+        val plainSerializer = object : Serializer<Map<Int, Int>> by serializer {}
+        val store = SingleProcessDataStore({ testFile }, plainSerializer, scope = dataStoreScope)
+        assertThat(store.data.first()).isEqualTo(INITIAL_DATA)
+    }
+
+    @Test
+    fun testRequiresDeltaSerializer() {
+        assertThrows<IllegalArgumentException> {
+            SingleProcessDataStore(
+                { testFile },
+                TestingSerializer(),
+                scope = dataStoreScope,
+                deltaLogConfig = DeltaLogConfig()
+            )
+        }
+    }
+
+    private fun newDataStore(
+        deltaLogConfig: DeltaLogConfig = DeltaLogConfig()
+    ): DataStore<Map<Int, Int>> {
+        return SingleProcessDataStore(
+            { testFile },
+            serializer,
+            scope = dataStoreScope,
+            deltaLogConfig = deltaLogConfig
+        )
+    }
+
+    private companion object {
+        val INITIAL_DATA = (0 until 1000).associateWith { it }
+    }
+}
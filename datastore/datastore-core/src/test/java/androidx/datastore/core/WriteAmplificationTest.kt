@@ -0,0 +1,90 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.datastore.core
+
+import com.google.common.truth.Truth.assertThat
+import kotlinx.coroutines.Job
+import kotlinx.coroutines.test.TestCoroutineDispatcher
+import kotlinx.coroutines.test.TestCoroutineScope
+import kotlinx.coroutines.test.runBlockingTest
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import java.io.File
+
+/**
+ * Checks the write amplification of updating a single entry of a large value, that is the
+ * number of bytes serialized to disk per byte that actually changed, with and without a
+ * [DeltaLogConfig]. The time taken by such updates is measured by DeltaLogBenchmark in
+ * datastore-benchmark.
+ */
+@kotlinx.coroutines.ExperimentalCoroutinesApi
+@kotlinx.coroutines.ObsoleteCoroutinesApi
+@kotlinx.coroutines.FlowPreview
+@RunWith(JUnit4::class)
+class WriteAmplificationTest {
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private lateinit var dataStoreScope: TestCoroutineScope
+
+    @Before
+    fun setUp() {
+        dataStoreScope = TestCoroutineScope(TestCoroutineDispatcher() + Job())
+    }
+
+    @After
+    fun cleanUp() {
+        dataStoreScope.cleanupTestCoroutines()
+    }
+
+    @Test
+    fun writeAmplification() = runBlockingTest {
+        val snapshotAmplification = measureWriteAmplification(null)
+        val logAmplification = measureWriteAmplification(DeltaLogConfig())
+        assertThat(logAmplification).isLessThan(snapshotAmplification / 10)
+    }
+
+    private suspend fun measureWriteAmplification(deltaLogConfig: DeltaLogConfig?): Double {
+        val serializer = MapDeltaSerializer()
+        val file = File(tempFolder.newFolder(), "store")
+        val store = SingleProcessDataStore(
+            { file },
+            serializer,
+            scope = dataStoreScope,
+            deltaLogConfig = deltaLogConfig
+        )
+        store.updateData { (0 until ENTRY_COUNT).associateWith { it } }
+        serializer.bytesWritten = 0
+
+        for (i in 0 until UPDATE_COUNT) {
+            store.updateData { it + (i to -i) }
+        }
+        // Each update changes one 8 byte entry.
+        return serializer.bytesWritten.toDouble() / (UPDATE_COUNT * ENTRY_SIZE)
+    }
+
+    private companion object {
+        const val ENTRY_COUNT = 16 * 1024
+        const val ENTRY_SIZE = 8
+        const val UPDATE_COUNT = 200
+    }
+}
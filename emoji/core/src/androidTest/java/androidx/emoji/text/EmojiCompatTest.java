@@ -399,13 +399,36 @@ public class EmojiCompatTest {
 
         processed = (Spannable) EmojiCompat.get().process(processed);
         assertThat(processed, hasEmojiCount(3));
-        // new spans should be new instances
+        // spans of the emojis that did not change should be kept
         final EmojiSpan[] newSpans = processed.getSpans(0, processed.length(), EmojiSpan.class);
         for (int i = 0; i < newSpans.length; i++) {
-            assertFalse(spanSet.contains(newSpans[i]));
+            assertTrue(spanSet.contains(newSpans[i]));
         }
     }
 
+    @Test
+    @SdkSuppress(minSdkVersion = 19)
+    public void testProcess_reprocess_replacesChangedEmoji() {
+        final Editable editable = new SpannableStringBuilder(new TestString(EMOJI_SINGLE_CODEPOINT)
+                .append(EMOJI_SINGLE_CODEPOINT)
+                .withPrefix().withSuffix().toString());
+        EmojiCompat.get().process(editable);
+        assertThat(editable, hasEmojiCount(2));
+        final EmojiSpan[] spans = editable.getSpans(0, editable.length(), EmojiSpan.class);
+        final int start = editable.getSpanStart(spans[1]);
+        final int end = editable.getSpanEnd(spans[1]);
+
+        // turn the second emoji into a flag
+        editable.replace(start, end, new TestString(EMOJI_FLAG).toString());
+        EmojiCompat.get().process(editable, start, start + EMOJI_FLAG.charCount());
+
+        assertThat(editable, hasEmojiCount(2));
+        assertThat(editable, hasEmojiAt(EMOJI_FLAG, start, start + EMOJI_FLAG.charCount()));
+        final EmojiSpan[] newSpans = editable.getSpans(0, editable.length(), EmojiSpan.class);
+        assertTrue(Arrays.asList(newSpans).contains(spans[0]));
+        assertFalse(Arrays.asList(newSpans).contains(spans[1]));
+    }
+
     @SuppressLint("Range")
     @Test(expected = IllegalArgumentException.class)
     public void testProcess_throwsException_withMaxEmojiSetToNegative() {
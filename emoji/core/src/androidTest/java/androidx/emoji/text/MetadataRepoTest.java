@@ -92,16 +92,43 @@ public class MetadataRepoTest {
         assertEquals(null, getNode(new int[]{1, 2, 3, 4, 5}));
     }
 
-    final EmojiMetadata getNode(final int[] codepoints) {
-        return getNode(mMetadataRepo.getRootNode(), codepoints, 0);
+    @Test
+    public void testPut_replacesSameCodePoints() {
+        final int[] codePoint = new int[]{1, 2};
+        final EmojiMetadata metadata1 = new TestEmojiMetadata(codePoint, 1);
+        final EmojiMetadata metadata2 = new TestEmojiMetadata(codePoint, 2);
+
+        mMetadataRepo.put(metadata1);
+        mMetadataRepo.put(metadata2);
+
+        assertSame(metadata2, getNode(codePoint));
+        assertEquals(3, mMetadataRepo.getTrie().getNodeCount());
     }
 
-    final EmojiMetadata getNode(MetadataRepo.Node node, final int[] codepoints, int start) {
-        if (codepoints.length < start) return null;
-        if (codepoints.length == start) return node.getData();
+    @Test
+    public void testPut_siblingsAreSorted() {
+        final int[][] codePoints = new int[][]{{5}, {3, 9}, {3, 1}, {4}, {1}, {3}};
+        final EmojiMetadata[] metadata = new EmojiMetadata[codePoints.length];
+        for (int i = 0; i < codePoints.length; i++) {
+            metadata[i] = new TestEmojiMetadata(codePoints[i], i);
+            mMetadataRepo.put(metadata[i]);
+        }
+
+        for (int i = 0; i < codePoints.length; i++) {
+            assertSame(metadata[i], getNode(codePoints[i]));
+        }
+        assertEquals(null, getNode(new int[]{2}));
+        assertEquals(null, getNode(new int[]{3, 5}));
+        assertEquals(null, getNode(new int[]{6}));
+    }
 
-        final MetadataRepo.Node childNode = node.get(codepoints[start]);
-        if (childNode == null) return null;
-        return getNode(childNode, codepoints, start + 1);
+    final EmojiMetadata getNode(final int[] codepoints) {
+        final EmojiTrie trie = mMetadataRepo.getTrie();
+        int node = EmojiTrie.ROOT;
+        for (int codepoint : codepoints) {
+            node = trie.getChild(node, codepoint);
+            if (node == EmojiTrie.NO_NODE) return null;
+        }
+        return trie.getData(node);
     }
 }
@@ -24,6 +24,7 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyObject;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -210,4 +211,38 @@ public class SpannableBuilderTest {
                 anyInt());
         verify(textWatcher, times(1)).afterTextChanged(any(Editable.class));
     }
+
+    @Test
+    public void testBatchEdit_notifiesOnlyChangedEmojiSpanRange() {
+        final EmojiSpan span1 = mock(EmojiSpan.class);
+        final EmojiSpan span2 = mock(EmojiSpan.class);
+        final SpannableBuilder spannable = new SpannableBuilder(mClass, "1234567890");
+        spannable.setSpan(mWatcher, 0, spannable.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        spannable.setSpan(span1, 2, 3, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        reset(mWatcher);
+
+        spannable.beginBatchEdit();
+        spannable.removeSpan(span1);
+        spannable.setSpan(span2, 4, 6, Spanned.SPAN_EXCLUSIVE_EXCLUSIVE);
+        spannable.endBatchEdit();
+
+        verify((SpanWatcher) mWatcher, never()).onSpanRemoved(any(Spannable.class),
+                same(span1), anyInt(), anyInt());
+        verify((SpanWatcher) mWatcher, never()).onSpanAdded(any(Spannable.class),
+                same(span2), anyInt(), anyInt());
+        verify(mWatcher, times(1)).onTextChanged(same(spannable), eq(2), eq(4), eq(4));
+    }
+
+    @Test
+    public void testBatchEdit_withoutEmojiSpanChanges_doesNotNotify() {
+        final SpannableBuilder spannable = new SpannableBuilder(mClass, "1234567890");
+        spannable.setSpan(mWatcher, 0, spannable.length(), Spanned.SPAN_INCLUSIVE_INCLUSIVE);
+        reset(mWatcher);
+
+        spannable.beginBatchEdit();
+        spannable.endBatchEdit();
+
+        verify(mWatcher, never()).onTextChanged(any(CharSequence.class), anyInt(), anyInt(),
+                anyInt());
+    }
 }
@@ -118,7 +118,7 @@ final class EmojiProcessor {
     }
 
     EmojiMetadata getEmojiMetadata(@NonNull final CharSequence charSequence) {
-        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+        final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
                 mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
         final int end = charSequence.length();
         int currentOffset = 0;
@@ -186,30 +186,39 @@ final class EmojiProcessor {
                 }
             }
 
+            // Existing spans in the range are reused when the same emoji is found at the same
+            // position again, the others are removed once the range is processed. This avoids
+            // replacing all the spans around every edit of a long text.
+            ExistingSpans existingSpans = null;
             if (spannable != null) {
                 final EmojiSpan[] spans = spannable.getSpans(start, end, EmojiSpan.class);
                 if (spans != null && spans.length > 0) {
-                    // remove existing spans, and realign the start, end according to spans
+                    existingSpans = new ExistingSpans(spannable, spans.length);
+                    // realign the start, end according to spans
                     // if start or end is in the middle of an emoji they should be aligned
                     final int length = spans.length;
                     for (int index = 0; index < length; index++) {
                         final EmojiSpan span = spans[index];
                         final int spanStart = spannable.getSpanStart(span);
                         final int spanEnd = spannable.getSpanEnd(span);
-                        // Remove span only when its spanStart is NOT equal to current end.
+                        // Replace span only when its spanStart is NOT equal to current end.
                         // During add operation an emoji at index 0 is added with 0-1 as start and
                         // end indices. Therefore if there are emoji spans at [0-1] and [1-2]
-                        // and end is 1, the span between 0-1 should be deleted, not 1-2.
+                        // and end is 1, the span between 0-1 should be replaced, not 1-2.
                         if (spanStart != end) {
-                            spannable.removeSpan(span);
+                            existingSpans.add(span, spanStart);
                         }
                         start = Math.min(spanStart, start);
                         end = Math.max(spanEnd, end);
                     }
+                    existingSpans.sort();
                 }
             }
 
             if (start == end || start >= charSequence.length()) {
+                if (existingSpans != null) {
+                    existingSpans.removeUnused();
+                }
                 return charSequence;
             }
 
@@ -217,10 +226,14 @@ final class EmojiProcessor {
             // expensive operation, do it only when maxEmojiCount is not unlimited.
             if (maxEmojiCount != EmojiCompat.EMOJI_COUNT_UNLIMITED && spannable != null) {
                 maxEmojiCount -= spannable.getSpans(0, spannable.length(), EmojiSpan.class).length;
+                if (existingSpans != null) {
+                    // these are either reused or removed
+                    maxEmojiCount += existingSpans.size();
+                }
             }
             // add new ones
             int addedCount = 0;
-            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getRootNode(),
+            final ProcessorSm sm = new ProcessorSm(mMetadataRepo.getTrie(),
                     mUseEmojiAsDefaultStyle, mEmojiAsDefaultStyleExceptions);
 
             int currentOffset = start;
@@ -249,7 +262,10 @@ final class EmojiProcessor {
                             if (spannable == null) {
                                 spannable = new SpannableString(charSequence);
                             }
-                            addEmoji(spannable, sm.getFlushMetadata(), start, currentOffset);
+                            if (existingSpans == null || !existingSpans.reuse(
+                                    sm.getFlushMetadata(), start, currentOffset)) {
+                                addEmoji(spannable, sm.getFlushMetadata(), start, currentOffset);
+                            }
                             addedCount++;
                         }
                         start = currentOffset;
@@ -267,10 +283,16 @@ final class EmojiProcessor {
                     if (spannable == null) {
                         spannable = new SpannableString(charSequence);
                     }
-                    addEmoji(spannable, sm.getCurrentMetadata(), start, currentOffset);
+                    if (existingSpans == null || !existingSpans.reuse(
+                            sm.getCurrentMetadata(), start, currentOffset)) {
+                        addEmoji(spannable, sm.getCurrentMetadata(), start, currentOffset);
+                    }
                     addedCount++;
                 }
             }
+            if (existingSpans != null) {
+                existingSpans.removeUnused();
+            }
             return spannable == null ? charSequence : spannable;
         } finally {
             if (isSpannableBuilder) {
@@ -465,6 +487,85 @@ final class EmojiProcessor {
         return metadata.getHasGlyph() == EmojiMetadata.HAS_GLYPH_EXISTS;
     }
 
+    /**
+     * EmojiSpans found in the range being processed. Emojis are found in increasing order of
+     * their start, so the spans are sorted by start and matched with a single cursor.
+     */
+    private static final class ExistingSpans {
+        private final Spannable mSpannable;
+        private final EmojiSpan[] mSpans;
+        private final int[] mStarts;
+        private int mSize;
+        private int mNext;
+
+        ExistingSpans(@NonNull final Spannable spannable, final int capacity) {
+            mSpannable = spannable;
+            mSpans = new EmojiSpan[capacity];
+            mStarts = new int[capacity];
+        }
+
+        void add(@NonNull final EmojiSpan span, final int start) {
+            mSpans[mSize] = span;
+            mStarts[mSize] = start;
+            mSize++;
+        }
+
+        int size() {
+            return mSize;
+        }
+
+        /**
+         * Sorts the spans by start.
+         */
+        void sort() {
+            if (mSize < 2) {
+                return;
+            }
+            final long[] keys = new long[mSize];
+            for (int i = 0; i < mSize; i++) {
+                keys[i] = ((long) mStarts[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+            final EmojiSpan[] spans = Arrays.copyOf(mSpans, mSize);
+            for (int i = 0; i < mSize; i++) {
+                final int index = (int) keys[i];
+                mSpans[i] = spans[index];
+                mStarts[i] = (int) (keys[i] >> 32);
+            }
+        }
+
+        /**
+         * Keeps the span that already covers the emoji between {@code start} and {@code end}.
+         *
+         * @return {@code true} if such a span exists, {@code false} if a new one has to be added
+         */
+        boolean reuse(final EmojiMetadata metadata, final int start, final int end) {
+            while (mNext < mSize && mStarts[mNext] < start) {
+                mNext++;
+            }
+            if (mNext < mSize && mStarts[mNext] == start) {
+                final EmojiSpan span = mSpans[mNext];
+                if (span.getMetadata() == metadata && mSpannable.getSpanEnd(span) == end) {
+                    mSpans[mNext] = null;
+                    mNext++;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Removes the spans that were not reused.
+         */
+        void removeUnused() {
+            for (int i = 0; i < mSize; i++) {
+                if (mSpans[i] != null) {
+                    mSpannable.removeSpan(mSpans[i]);
+                }
+            }
+        }
+    }
+
     /**
      * State machine for walking over the metadata trie.
      */
@@ -476,20 +577,20 @@ final class EmojiProcessor {
         private int mState = STATE_DEFAULT;
 
         /**
-         * Root of the trie
+         * The trie
          */
-        private final MetadataRepo.Node mRootNode;
+        private final EmojiTrie mTrie;
 
         /**
          * Pointer to the node after last codepoint.
          */
-        private MetadataRepo.Node mCurrentNode;
+        private int mCurrentNode = EmojiTrie.ROOT;
 
         /**
          * The node where ACTION_FLUSH is called. Required since after flush action is
          * returned mCurrentNode is reset to be the root.
          */
-        private MetadataRepo.Node mFlushNode;
+        private int mFlushNode = EmojiTrie.NO_NODE;
 
         /**
          * The code point that was checked.
@@ -511,10 +612,9 @@ final class EmojiProcessor {
          */
         private final int[] mEmojiAsDefaultStyleExceptions;
 
-        ProcessorSm(MetadataRepo.Node rootNode, boolean useEmojiAsDefaultStyle,
+        ProcessorSm(EmojiTrie trie, boolean useEmojiAsDefaultStyle,
                 int[] emojiAsDefaultStyleExceptions) {
-            mRootNode = rootNode;
-            mCurrentNode = rootNode;
+            mTrie = trie;
             mUseEmojiAsDefaultStyle = useEmojiAsDefaultStyle;
             mEmojiAsDefaultStyleExceptions = emojiAsDefaultStyleExceptions;
         }
@@ -522,10 +622,10 @@ final class EmojiProcessor {
         @Action
         int check(final int codePoint) {
             final int action;
-            MetadataRepo.Node node = mCurrentNode.get(codePoint);
+            final int node = mTrie.getChild(mCurrentNode, codePoint);
             switch (mState) {
                 case STATE_WALKING:
-                    if (node != null) {
+                    if (node != EmojiTrie.NO_NODE) {
                         mCurrentNode = node;
                         mCurrentDepth += 1;
                         action = ACTION_ADVANCE_END;
@@ -534,7 +634,7 @@ final class EmojiProcessor {
                             action = reset();
                         } else if (isEmojiStyle(codePoint)) {
                             action = ACTION_ADVANCE_END;
-                        } else if (mCurrentNode.getData() != null) {
+                        } else if (mTrie.getData(mCurrentNode) != null) {
                             if (mCurrentDepth == 1) {
                                 if (shouldUseEmojiPresentationStyleForSingleCodepoint()) {
                                     mFlushNode = mCurrentNode;
@@ -555,7 +655,7 @@ final class EmojiProcessor {
                     break;
                 case STATE_DEFAULT:
                 default:
-                    if (node == null) {
+                    if (node == EmojiTrie.NO_NODE) {
                         action = reset();
                     } else {
                         mState = STATE_WALKING;
@@ -573,7 +673,7 @@ final class EmojiProcessor {
         @Action
         private int reset() {
             mState = STATE_DEFAULT;
-            mCurrentNode = mRootNode;
+            mCurrentNode = EmojiTrie.ROOT;
             mCurrentDepth = 0;
             return ACTION_ADVANCE_BOTH;
         }
@@ -582,14 +682,14 @@ final class EmojiProcessor {
          * @return the metadata node when ACTION_FLUSH is returned
          */
         EmojiMetadata getFlushMetadata() {
-            return mFlushNode.getData();
+            return mTrie.getData(mFlushNode);
         }
 
         /**
          * @return current pointer to the metadata node in the trie
          */
         EmojiMetadata getCurrentMetadata() {
-            return mCurrentNode.getData();
+            return mTrie.getData(mCurrentNode);
         }
 
         /**
@@ -600,12 +700,12 @@ final class EmojiProcessor {
          * @return whether the current state requires an emoji to be added
          */
         boolean isInFlushableState() {
-            return mState == STATE_WALKING && mCurrentNode.getData() != null
+            return mState == STATE_WALKING && mTrie.getData(mCurrentNode) != null
                     && (mCurrentDepth > 1 || shouldUseEmojiPresentationStyleForSingleCodepoint());
         }
 
         private boolean shouldUseEmojiPresentationStyleForSingleCodepoint() {
-            if (mCurrentNode.getData().isDefaultEmoji()) {
+            if (mTrie.getData(mCurrentNode).isDefaultEmoji()) {
                 // The codepoint is emoji style by default.
                 return true;
             }
@@ -619,7 +719,7 @@ final class EmojiProcessor {
                 if (mEmojiAsDefaultStyleExceptions == null) {
                     return true;
                 }
-                final int codepoint = mCurrentNode.getData().getCodepointAt(0);
+                final int codepoint = mTrie.getData(mCurrentNode).getCodepointAt(0);
                 final int index = Arrays.binarySearch(mEmojiAsDefaultStyleExceptions, codepoint);
                 if (index < 0) {
                     // Index is negative, so the codepoint was not found in the array of exceptions.
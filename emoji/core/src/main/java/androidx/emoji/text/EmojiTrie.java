@@ -0,0 +1,249 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package androidx.emoji.text;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RequiresApi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable trie that maps emoji codepoint sequences to {@link EmojiMetadata}.
+ * <p>
+ * Nodes are indices into a few parallel arrays instead of objects, and the children of a node
+ * are stored next to each other sorted by codepoint. Walking the trie does not allocate and
+ * looking up a child is a binary search over a contiguous int array.
+ */
+@AnyThread
+@RequiresApi(19)
+final class EmojiTrie {
+    /**
+     * Index of the root node, which is empty.
+     */
+    static final int ROOT = 0;
+
+    /**
+     * Returned by {@link #getChild(int, int)} when there is no such child.
+     */
+    static final int NO_NODE = -1;
+
+    /**
+     * The codepoint leading to each node from its parent.
+     */
+    private final int[] mCodepoints;
+
+    /**
+     * Index of the first child of each node. Children are stored contiguously.
+     */
+    private final int[] mFirstChild;
+
+    /**
+     * Number of children of each node.
+     */
+    private final int[] mChildCount;
+
+    /**
+     * The metadata of the emoji ending at each node, or {@code null}.
+     */
+    private final EmojiMetadata[] mData;
+
+    private EmojiTrie(int[] codepoints, int[] firstChild, int[] childCount,
+            EmojiMetadata[] data) {
+        mCodepoints = codepoints;
+        mFirstChild = firstChild;
+        mChildCount = childCount;
+        mData = data;
+    }
+
+    /**
+     * Returns the child of {@code node} for the given codepoint, or {@link #NO_NODE}.
+     */
+    int getChild(final int node, final int codePoint) {
+        int low = mFirstChild[node];
+        int high = low + mChildCount[node] - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            final int midCodepoint = mCodepoints[mid];
+            if (midCodepoint < codePoint) {
+                low = mid + 1;
+            } else if (midCodepoint > codePoint) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return NO_NODE;
+    }
+
+    /**
+     * Returns the metadata of the emoji ending at {@code node}, or {@code null}.
+     */
+    @Nullable
+    EmojiMetadata getData(final int node) {
+        return mData[node];
+    }
+
+    /**
+     * Returns the number of nodes, including the root.
+     */
+    int getNodeCount() {
+        return mData.length;
+    }
+
+    /**
+     * Returns a trie with the emojis of this one and {@code metadata}, which replaces an emoji
+     * with the same codepoints.
+     */
+    @NonNull
+    EmojiTrie with(@NonNull final EmojiMetadata metadata) {
+        final List<EmojiMetadata> list = new ArrayList<>();
+        for (EmojiMetadata data : mData) {
+            if (data != null) {
+                list.add(data);
+            }
+        }
+        list.add(metadata);
+        return create(list);
+    }
+
+    /**
+     * Builds the trie of the given emojis. When several emojis have the same codepoints, the last
+     * one wins.
+     */
+    @NonNull
+    static EmojiTrie create(@NonNull final List<EmojiMetadata> metadataList) {
+        final int size = metadataList.size();
+        final Entry[] entries = new Entry[size];
+        // Upper bound of the number of nodes, the arrays are trimmed at the end.
+        int maxNodes = 1;
+        for (int i = 0; i < size; i++) {
+            final EmojiMetadata metadata = metadataList.get(i);
+            final int[] codepoints = new int[metadata.getCodepointsLength()];
+            for (int j = 0; j < codepoints.length; j++) {
+                codepoints[j] = metadata.getCodepointAt(j);
+            }
+            entries[i] = new Entry(codepoints, metadata);
+            maxNodes += codepoints.length;
+        }
+        // Stable, so the last of the emojis with equal codepoints stays last.
+        Arrays.sort(entries, ENTRY_COMPARATOR);
+
+        final Builder builder = new Builder(maxNodes);
+        builder.fill(entries, ROOT, 0, size, 0);
+        return builder.build();
+    }
+
+    /**
+     * Returns an empty trie.
+     */
+    @NonNull
+    static EmojiTrie empty() {
+        return create(Collections.<EmojiMetadata>emptyList());
+    }
+
+    private static final Comparator<Entry> ENTRY_COMPARATOR = new Comparator<Entry>() {
+        @Override
+        public int compare(Entry left, Entry right) {
+            final int length = Math.min(left.mCodepoints.length, right.mCodepoints.length);
+            for (int i = 0; i < length; i++) {
+                if (left.mCodepoints[i] != right.mCodepoints[i]) {
+                    return left.mCodepoints[i] < right.mCodepoints[i] ? -1 : 1;
+                }
+            }
+            return left.mCodepoints.length - right.mCodepoints.length;
+        }
+    };
+
+    private static final class Entry {
+        final int[] mCodepoints;
+        final EmojiMetadata mMetadata;
+
+        Entry(int[] codepoints, EmojiMetadata metadata) {
+            mCodepoints = codepoints;
+            mMetadata = metadata;
+        }
+    }
+
+    private static final class Builder {
+        private final int[] mCodepoints;
+        private final int[] mFirstChild;
+        private final int[] mChildCount;
+        private final EmojiMetadata[] mData;
+        private int mNodeCount = 1;
+
+        Builder(int maxNodes) {
+            mCodepoints = new int[maxNodes];
+            mFirstChild = new int[maxNodes];
+            mChildCount = new int[maxNodes];
+            mData = new EmojiMetadata[maxNodes];
+        }
+
+        /**
+         * Fills {@code node} from the sorted entries in [start, end), which all share the first
+         * {@code depth} codepoints.
+         */
+        void fill(Entry[] entries, int node, int start, int end, int depth) {
+            // Entries ending at this node are sorted first.
+            int childrenStart = start;
+            while (childrenStart < end && entries[childrenStart].mCodepoints.length == depth) {
+                mData[node] = entries[childrenStart].mMetadata;
+                childrenStart++;
+            }
+
+            // Allocate all the children next to each other before filling them.
+            final int firstChild = mNodeCount;
+            int i = childrenStart;
+            while (i < end) {
+                final int codepoint = entries[i].mCodepoints[depth];
+                mCodepoints[mNodeCount++] = codepoint;
+                i = skip(entries, i, end, depth, codepoint);
+            }
+            mFirstChild[node] = firstChild;
+            mChildCount[node] = mNodeCount - firstChild;
+
+            int child = firstChild;
+            i = childrenStart;
+            while (i < end) {
+                final int next = skip(entries, i, end, depth, mCodepoints[child]);
+                fill(entries, child, i, next, depth + 1);
+                child++;
+                i = next;
+            }
+        }
+
+        private static int skip(Entry[] entries, int start, int end, int depth, int codepoint) {
+            int i = start;
+            while (i < end && entries[i].mCodepoints[depth] == codepoint) {
+                i++;
+            }
+            return i;
+        }
+
+        EmojiTrie build() {
+            return new EmojiTrie(
+                    Arrays.copyOf(mCodepoints, mNodeCount),
+                    Arrays.copyOf(mFirstChild, mNodeCount),
+                    Arrays.copyOf(mChildCount, mNodeCount),
+                    Arrays.copyOf(mData, mNodeCount));
+        }
+    }
+}
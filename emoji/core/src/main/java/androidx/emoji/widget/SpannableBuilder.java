@@ -60,6 +60,18 @@ public final class SpannableBuilder extends SpannableStringBuilder {
      */
     private final List<WatcherWrapper> mWatchers = new ArrayList<>();
 
+    /**
+     * Number of nested batch edits.
+     */
+    private int mBatchEditCount;
+
+    /**
+     * Range of the EmojiSpans added or removed during the current batch edit, which DynamicLayout
+     * is told about once the batch edit ends. mDirtyStart is -1 if none changed.
+     */
+    private int mDirtyStart = -1;
+    private int mDirtyEnd = -1;
+
     /**
      * @hide
      */
@@ -136,6 +148,8 @@ public final class SpannableBuilder extends SpannableStringBuilder {
             final WatcherWrapper span = new WatcherWrapper(what);
             mWatchers.add(span);
             what = span;
+        } else if (mBatchEditCount > 0 && what instanceof EmojiSpan) {
+            markDirty(start, end);
         }
         super.setSpan(what, start, end, flags);
     }
@@ -173,6 +187,12 @@ public final class SpannableBuilder extends SpannableStringBuilder {
             }
         } else {
             watcher = null;
+            if (mBatchEditCount > 0 && what instanceof EmojiSpan) {
+                final int start = super.getSpanStart(what);
+                if (start >= 0) {
+                    markDirty(start, super.getSpanEnd(what));
+                }
+            }
         }
 
         super.removeSpan(what);
@@ -257,6 +277,7 @@ public final class SpannableBuilder extends SpannableStringBuilder {
      */
     @RestrictTo(LIBRARY_GROUP_PREFIX)
     public void beginBatchEdit() {
+        mBatchEditCount++;
         blockWatchers();
     }
 
@@ -266,7 +287,26 @@ public final class SpannableBuilder extends SpannableStringBuilder {
     @RestrictTo(LIBRARY_GROUP_PREFIX)
     public void endBatchEdit() {
         unblockwatchers();
-        fireWatchers();
+        mBatchEditCount--;
+        if (mBatchEditCount == 0 && mDirtyStart >= 0) {
+            final int start = mDirtyStart;
+            final int end = Math.min(mDirtyEnd, length());
+            mDirtyStart = -1;
+            mDirtyEnd = -1;
+            if (start < end) {
+                fireWatchers(start, end - start);
+            }
+        }
+    }
+
+    private void markDirty(int start, int end) {
+        if (mDirtyStart < 0) {
+            mDirtyStart = start;
+            mDirtyEnd = end;
+        } else {
+            mDirtyStart = Math.min(mDirtyStart, start);
+            mDirtyEnd = Math.max(mDirtyEnd, end);
+        }
     }
 
     /**
@@ -288,12 +328,12 @@ public final class SpannableBuilder extends SpannableStringBuilder {
     }
 
     /**
-     * Unblock all watcher wrapper events. Called by editing operations, namely
-     * {@link SpannableStringBuilder#replace(int, int, CharSequence)}.
+     * Notifies the watchers that the EmojiSpans between {@code start} and
+     * {@code start + count} changed, so that only this range is laid out again.
      */
-    private void fireWatchers() {
+    private void fireWatchers(int start, int count) {
         for (int i = 0; i < mWatchers.size(); i++) {
-            mWatchers.get(i).onTextChanged(this, 0, this.length(), this.length());
+            mWatchers.get(i).onTextChanged(this, start, count, count);
         }
     }
 
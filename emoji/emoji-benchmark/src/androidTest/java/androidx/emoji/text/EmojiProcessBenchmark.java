@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Shares the package of EmojiCompat to build the trie directly.
+package androidx.emoji.text;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.res.AssetManager;
+import android.text.Spanned;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link EmojiCompat#process(CharSequence)} on a long chat transcript and how long
+ * building the emoji trie from the metadata takes.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class EmojiProcessBenchmark {
+    public static final String FONT_FILE = "NotoColorEmojiCompat.ttf";
+    private static final int MESSAGES = 2000;
+
+    private static final int[][] EMOJIS = new int[][]{
+            // single codepoint
+            {0x1F3A2},
+            // with zero width joiners
+            {0x1F468, 0x200D, 0x2764, 0xFE0F, 0x200D, 0x1F48B, 0x200D, 0x1F468},
+            // gender
+            {0x26F9, 0xFE0F, 0x200D, 0x2640},
+            // flag
+            {0x1F1E8, 0x1F1E8},
+            // digit keycap
+            {0x0039, 0x20E3},
+            // skin modifier
+            {0x1F468, 0x1F3FE}};
+
+    private static MetadataRepo sMetadataRepo;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        AssetManager assetManager = ApplicationProvider.getApplicationContext().getAssets();
+        sMetadataRepo = MetadataRepo.create(assetManager, FONT_FILE);
+        EmojiCompat.reset(new BenchmarkConfig(sMetadataRepo).setReplaceAll(true));
+    }
+
+    @Test
+    public void process() {
+        final String transcript = createTranscript();
+        CharSequence result = null;
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            result = EmojiCompat.get().process(transcript);
+        }
+
+        assertTrue(result instanceof Spanned);
+        final Spanned spanned = (Spanned) result;
+        assertTrue(spanned.getSpans(0, spanned.length(), EmojiSpan.class).length >= MESSAGES);
+    }
+
+    @Test
+    public void createTrie() {
+        final int length = sMetadataRepo.getMetadataList().listLength();
+        final List<EmojiMetadata> metadata = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            metadata.add(new EmojiMetadata(sMetadataRepo, i));
+        }
+
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            EmojiTrie.create(metadata);
+        }
+    }
+
+    /**
+     * Returns messages made of some text and a couple of emojis, one per line.
+     */
+    public static String createTranscript() {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < MESSAGES; i++) {
+            builder.append("message ").append(i).append(": see you at the station ");
+            appendEmoji(builder, EMOJIS[i % EMOJIS.length]);
+            builder.append(" at ").append(i % 24).append(" o'clock ");
+            appendEmoji(builder, EMOJIS[(i * 7 + 3) % EMOJIS.length]);
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void appendEmoji(StringBuilder builder, int[] codepoints) {
+        for (int codepoint : codepoints) {
+            builder.appendCodePoint(codepoint);
+        }
+    }
+
+    /**
+     * Loads the metadata of the test font synchronously.
+     */
+    public static class BenchmarkConfig extends EmojiCompat.Config {
+        public BenchmarkConfig(@NonNull final MetadataRepo metadataRepo) {
+            super(new EmojiCompat.MetadataRepoLoader() {
+                @Override
+                public void load(@NonNull EmojiCompat.MetadataRepoLoaderCallback loaderCallback) {
+                    loaderCallback.onLoaded(metadataRepo);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Shares the package of EmojiEditableFactory to create the Editable used by EmojiEditText.
+package androidx.emoji.widget;
+
+import static org.junit.Assert.assertSame;
+
+import android.content.res.AssetManager;
+import android.text.Editable;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.emoji.text.EmojiCompat;
+import androidx.emoji.text.EmojiProcessBenchmark;
+import androidx.emoji.text.EmojiSpan;
+import androidx.emoji.text.MetadataRepo;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+/**
+ * Measures processing each keystroke the way {@link EmojiTextWatcher} does while typing in the
+ * middle of a long chat transcript.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class EmojiTypingBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    @BeforeClass
+    public static void setUpClass() throws IOException {
+        AssetManager assetManager = ApplicationProvider.getApplicationContext().getAssets();
+        MetadataRepo metadataRepo = MetadataRepo.create(assetManager,
+                EmojiProcessBenchmark.FONT_FILE);
+        EmojiCompat.reset(
+                new EmojiProcessBenchmark.BenchmarkConfig(metadataRepo).setReplaceAll(true));
+    }
+
+    @Test
+    public void typing() {
+        final Editable editable = EmojiEditableFactory.getInstance().newEditable(
+                EmojiProcessBenchmark.createTranscript());
+        EmojiCompat.get().process(editable);
+        final EmojiSpan[] spans = editable.getSpans(0, editable.length(), EmojiSpan.class);
+        // Types at the start of a message in the middle of the document.
+        final int position = editable.toString().indexOf('\n', editable.length() / 2) + 1;
+
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            // A keystroke and a backspace, so the document keeps the same size.
+            editable.insert(position, "a");
+            EmojiCompat.get().process(editable, position, position + 1);
+            editable.delete(position, position + 1);
+            EmojiCompat.get().process(editable, position, position);
+        }
+
+        // The spans outside of the edited range are kept.
+        final EmojiSpan[] result = editable.getSpans(0, editable.length(), EmojiSpan.class);
+        assertSame(spans[0], result[0]);
+        assertSame(spans[spans.length - 1], result[result.length - 1]);
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static org.junit.Assert.assertNull;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.exifinterface.benchmark.test.R;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Measures how long reading the tags of a corpus of JPEG, PNG, WebP and DNG files takes, both for
+ * all tags, for only the tags a media indexer needs, and for reading them with
+ * {@link ExifBatchReader}.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class ExifInterfaceBenchmark {
+    private static final int[] IMAGE_RESOURCES = new int[] {
+            R.raw.jpeg_with_exif_byte_order_ii, R.raw.jpeg_with_exif_byte_order_mm,
+            R.raw.jpeg_with_exif_with_xmp, R.raw.dng_with_exif_with_xmp,
+            R.raw.png_with_exif_byte_order_ii, R.raw.webp_with_exif};
+
+    private static final Set<String> INDEXED_TAGS = new HashSet<>(Arrays.asList(
+            ExifInterface.TAG_ORIENTATION, ExifInterface.TAG_DATETIME_ORIGINAL));
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private File[] mFiles;
+
+    @Before
+    public void setUp() throws IOException {
+        mFiles = new File[IMAGE_RESOURCES.length];
+        for (int i = 0; i < IMAGE_RESOURCES.length; i++) {
+            mFiles[i] = new File(getApplicationContext().getCacheDir(), "benchmark" + i);
+            InputStream in = getApplicationContext().getResources()
+                    .openRawResource(IMAGE_RESOURCES[i]);
+            OutputStream out = new FileOutputStream(mFiles[i]);
+            try {
+                byte[] buffer = new byte[8192];
+                int c;
+                while ((c = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, c);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (File file : mFiles) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void readAllTags() throws IOException {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (File file : mFiles) {
+                new ExifInterface(file).getAttributeInt(ExifInterface.TAG_ORIENTATION, 0);
+            }
+        }
+    }
+
+    @Test
+    public void readSelectedTags() throws IOException {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (File file : mFiles) {
+                new ExifInterface(file, INDEXED_TAGS)
+                        .getAttributeInt(ExifInterface.TAG_ORIENTATION, 0);
+            }
+        }
+    }
+
+    @Test
+    public void readSelectedTagsInBatch() throws InterruptedException {
+        final List<String> filenames = new ArrayList<>();
+        for (File file : mFiles) {
+            filenames.add(file.getAbsolutePath());
+        }
+        final int threads = Runtime.getRuntime().availableProcessors();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            final ExifBatchReader reader = new ExifBatchReader(executor, threads, INDEXED_TAGS);
+            // Exceptions thrown by the callback are only logged by the reader.
+            final AtomicReference<IOException> error = new AtomicReference<>();
+            final BenchmarkState state = mBenchmarkRule.getState();
+            while (state.keepRunning()) {
+                final CountDownLatch completed = new CountDownLatch(1);
+                reader.readFiles(filenames, new ExifBatchReader.Callback() {
+                    @Override
+                    public void onResult(int index, @NonNull ExifInterface exifInterface) {
+                        exifInterface.getAttributeInt(ExifInterface.TAG_ORIENTATION, 0);
+                    }
+
+                    @Override
+                    public void onError(int index, @NonNull IOException exception) {
+                        error.set(exception);
+                    }
+
+                    @Override
+                    public void onComplete() {
+                        completed.countDown();
+                    }
+                });
+                completed.await();
+            }
+            assertNull(error.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import static androidx.test.core.app.ApplicationProvider.getApplicationContext;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import androidx.exifinterface.test.R;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+@RunWith(AndroidJUnit4.class)
+public class ExifBatchReaderTest {
+    private static final int[] IMAGE_RESOURCES = new int[] {
+            R.raw.jpeg_with_exif_byte_order_ii, R.raw.jpeg_with_exif_byte_order_mm,
+            R.raw.jpeg_with_exif_with_xmp, R.raw.dng_with_exif_with_xmp,
+            R.raw.png_with_exif_byte_order_ii, R.raw.webp_with_exif};
+    private static final Set<String> TAGS = new HashSet<>(Arrays.asList(
+            ExifInterface.TAG_ORIENTATION, ExifInterface.TAG_DATETIME,
+            ExifInterface.TAG_GPS_LATITUDE, ExifInterface.TAG_IMAGE_WIDTH));
+
+    private final List<String> mFilenames = new ArrayList<>();
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() throws IOException {
+        for (int i = 0; i < IMAGE_RESOURCES.length; i++) {
+            File file = new File(getApplicationContext().getCacheDir(), "batch" + i);
+            InputStream in = getApplicationContext().getResources()
+                    .openRawResource(IMAGE_RESOURCES[i]);
+            OutputStream out = new FileOutputStream(file);
+            try {
+                byte[] buffer = new byte[8192];
+                int c;
+                while ((c = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, c);
+                }
+            } finally {
+                in.close();
+                out.close();
+            }
+            mFilenames.add(file.getAbsolutePath());
+        }
+        mExecutor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+        for (String filename : mFilenames) {
+            new File(filename).delete();
+        }
+    }
+
+    @Test
+    @MediumTest
+    public void testReadFiles() throws Exception {
+        // Read every file a few times so that the buffers are reused.
+        List<String> filenames = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            filenames.addAll(mFilenames);
+        }
+        ResultCallback callback = new ResultCallback();
+        new ExifBatchReader(mExecutor, 3, TAGS).readFiles(filenames, callback);
+        callback.await();
+
+        assertEquals(filenames.size(), callback.mResults.size());
+        assertTrue(callback.mErrors.isEmpty());
+        for (int i = 0; i < filenames.size(); i++) {
+            ExifInterface expected = new ExifInterface(filenames.get(i));
+            for (String tag : TAGS) {
+                assertEquals(filenames.get(i) + ": " + tag, expected.getAttribute(tag),
+                        callback.mResults.get(i).getAttribute(tag));
+            }
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testReadFiles_reportsErrors() throws Exception {
+        List<String> filenames = Arrays.asList(mFilenames.get(0),
+                new File(getApplicationContext().getCacheDir(), "missing").getAbsolutePath());
+        ResultCallback callback = new ResultCallback();
+        new ExifBatchReader(mExecutor, 2).readFiles(filenames, callback);
+        callback.await();
+
+        assertEquals(Collections.singleton(0), callback.mResults.keySet());
+        assertEquals(Collections.singleton(1), callback.mErrors.keySet());
+    }
+
+    @Test
+    @SmallTest
+    public void testReadFileDescriptors_reportsRuntimeExceptions() throws Exception {
+        FileInputStream in = new FileInputStream(mFilenames.get(0));
+        try {
+            // A null file descriptor makes ExifInterface throw a NullPointerException.
+            List<FileDescriptor> fileDescriptors = Arrays.asList(null, in.getFD());
+            ResultCallback callback = new ResultCallback();
+            new ExifBatchReader(mExecutor, 1).readFileDescriptors(fileDescriptors, callback);
+            callback.await();
+
+            assertEquals(Collections.singleton(1), callback.mResults.keySet());
+            assertEquals(Collections.singleton(0), callback.mErrors.keySet());
+        } finally {
+            in.close();
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testReadFiles_emptyList() throws Exception {
+        ResultCallback callback = new ResultCallback();
+        new ExifBatchReader(mExecutor, 2).readFiles(Collections.<String>emptyList(), callback);
+        callback.await();
+
+        assertTrue(callback.mResults.isEmpty());
+    }
+
+    @Test
+    @SmallTest
+    public void testCancel() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        ExifBatchReader reader = new ExifBatchReader(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                tasks.add(command);
+            }
+        }, 2, TAGS);
+        ResultCallback callback = new ResultCallback();
+        ExifBatchReader.Batch batch = reader.readFiles(mFilenames, callback);
+        batch.cancel();
+        for (Runnable task : tasks) {
+            task.run();
+        }
+        callback.await();
+
+        assertTrue(batch.isCancelled());
+        assertTrue(callback.mResults.isEmpty());
+    }
+
+    @Test
+    @SmallTest
+    public void testReadFiles_continuesAfterCallbackException() throws Exception {
+        ResultCallback callback = new ResultCallback() {
+            @Override
+            public void onResult(int index, @NonNull ExifInterface exifInterface) {
+                super.onResult(index, exifInterface);
+                throw new IllegalStateException();
+            }
+        };
+        new ExifBatchReader(mExecutor, 1, TAGS).readFiles(mFilenames, callback);
+        callback.await();
+
+        assertEquals(mFilenames.size(), callback.mResults.size());
+    }
+
+    @Test
+    @SmallTest
+    public void testReadFiles_completesIfExecutorRejectsTasks() throws Exception {
+        final List<Runnable> tasks = new ArrayList<>();
+        ExifBatchReader reader = new ExifBatchReader(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                if (!tasks.isEmpty()) {
+                    throw new RejectedExecutionException();
+                }
+                tasks.add(command);
+            }
+        }, 3, TAGS);
+        ResultCallback callback = new ResultCallback();
+        reader.readFiles(mFilenames, callback);
+        tasks.get(0).run();
+        callback.await();
+
+        assertEquals(mFilenames.size(), callback.mResults.size());
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    @SmallTest
+    public void testReadFiles_throwsIfExecutorRejectsAllTasks() {
+        new ExifBatchReader(new Executor() {
+            @Override
+            public void execute(@NonNull Runnable command) {
+                throw new RejectedExecutionException();
+            }
+        }, 2).readFiles(mFilenames, new ResultCallback());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SmallTest
+    public void testInvalidParallelism() {
+        new ExifBatchReader(mExecutor, 0);
+    }
+
+    private static class ResultCallback implements ExifBatchReader.Callback {
+        final ConcurrentHashMap<Integer, ExifInterface> mResults = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<Integer, IOException> mErrors = new ConcurrentHashMap<>();
+        private final CountDownLatch mCompleted = new CountDownLatch(1);
+
+        @Override
+        public void onResult(int index, @NonNull ExifInterface exifInterface) {
+            mResults.put(index, exifInterface);
+        }
+
+        @Override
+        public void onError(int index, @NonNull IOException exception) {
+            mErrors.put(index, exception);
+        }
+
+        @Override
+        public void onComplete() {
+            mCompleted.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(mCompleted.await(30, TimeUnit.SECONDS));
+        }
+    }
+}
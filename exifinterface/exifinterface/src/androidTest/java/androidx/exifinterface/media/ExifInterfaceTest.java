@@ -63,8 +63,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -801,6 +805,133 @@ public class ExifInterfaceTest {
         assertEquals(isoValue, exif.getAttribute(newTag));
     }
 
+    @Test
+    @LargeTest
+    public void testReadSelectedTags() throws IOException {
+        final Set<String> tags = new HashSet<>(Arrays.asList(ExifInterface.TAG_ORIENTATION,
+                ExifInterface.TAG_DATETIME, ExifInterface.TAG_GPS_LATITUDE,
+                ExifInterface.TAG_IMAGE_WIDTH, ExifInterface.TAG_XMP));
+        for (String fileName : IMAGE_FILENAMES) {
+            File imageFile = getFileFromExternalDir(fileName);
+            ExifInterface expected = new ExifInterface(imageFile);
+
+            // Creates via file.
+            assertAttributesEqual(fileName, tags, expected, new ExifInterface(imageFile, tags));
+
+            // Creates via InputStream.
+            InputStream in = null;
+            try {
+                in = new BufferedInputStream(new FileInputStream(imageFile));
+                assertAttributesEqual(fileName, tags, expected, new ExifInterface(in, tags));
+            } finally {
+                closeQuietly(in);
+            }
+
+            // Creates via FileDescriptor.
+            if (Build.VERSION.SDK_INT >= 21) {
+                FileDescriptor fd = null;
+                try {
+                    fd = Os.open(imageFile.getAbsolutePath(), OsConstants.O_RDONLY,
+                            OsConstants.S_IRWXU);
+                    assertAttributesEqual(fileName, tags, expected, new ExifInterface(fd, tags));
+                } catch (Exception e) {
+                    throw new IOException("Failed to open file descriptor", e);
+                } finally {
+                    closeQuietly(fd);
+                }
+            }
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testReadSelectedTags_doesNotReadOtherTags() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        ExifInterface exifInterface = new ExifInterface(imageFile,
+                Collections.singleton(ExifInterface.TAG_ORIENTATION));
+        assertNotNull(new ExifInterface(imageFile).getAttribute(ExifInterface.TAG_EXIF_VERSION));
+        assertNull(exifInterface.getAttribute(ExifInterface.TAG_EXIF_VERSION));
+    }
+
+    @Test(expected = IOException.class)
+    @SmallTest
+    public void testReadSelectedTags_saveAttributesThrowsException() throws IOException {
+        File imageFile = getFileFromExternalDir(JPEG_WITH_EXIF_BYTE_ORDER_II);
+        ExifInterface exifInterface = new ExifInterface(imageFile,
+                Collections.singleton(ExifInterface.TAG_ORIENTATION));
+        exifInterface.setAttribute(ExifInterface.TAG_ORIENTATION, "1");
+        exifInterface.saveAttributes();
+    }
+
+    @Test
+    @LargeTest
+    public void testSaveAttributes_rewritesExifDataInPlace() throws IOException {
+        for (String fileName : new String[] {JPEG_WITH_EXIF_BYTE_ORDER_II,
+                PNG_WITH_EXIF_BYTE_ORDER_II, WEBP_WITH_EXIF}) {
+            File imageFile = copyToTempFile(fileName);
+            ExifInterface exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+            exifInterface.setAttribute(ExifInterface.TAG_MAKE, "abc");
+            exifInterface.saveAttributes();
+            final long length = imageFile.length();
+            final byte[] thumbnail = new ExifInterface(imageFile.getAbsolutePath()).getThumbnail();
+
+            // A value of the same length fits into the existing Exif data.
+            exifInterface.setAttribute(ExifInterface.TAG_MAKE, "xyz");
+            exifInterface.saveAttributes();
+            assertEquals(fileName, length, imageFile.length());
+
+            exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+            assertEquals(fileName, "xyz", exifInterface.getAttribute(ExifInterface.TAG_MAKE));
+            assertTrue(fileName, Arrays.equals(thumbnail, exifInterface.getThumbnail()));
+        }
+    }
+
+    @Test
+    @LargeTest
+    public void testSaveAttributes_withExifPadding() throws IOException {
+        final StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            description.append((char) ('a' + i % 26));
+        }
+        for (String fileName : new String[] {JPEG_WITH_EXIF_BYTE_ORDER_MM,
+                PNG_WITHOUT_EXIF, WEBP_WITHOUT_EXIF}) {
+            File imageFile = copyToTempFile(fileName);
+            final long originalLength = imageFile.length();
+            ExifInterface exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+            exifInterface.setExifPaddingLength(4096);
+            exifInterface.setAttribute(ExifInterface.TAG_MAKE, "abc");
+            exifInterface.saveAttributes();
+            final long length = imageFile.length();
+            assertTrue(fileName, length >= originalLength + 4096);
+
+            // The longer value is written into the reserved space.
+            exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+            exifInterface.setAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION,
+                    description.toString());
+            exifInterface.saveAttributes();
+            assertEquals(fileName, length, imageFile.length());
+
+            exifInterface = new ExifInterface(imageFile.getAbsolutePath());
+            assertEquals(fileName, "abc", exifInterface.getAttribute(ExifInterface.TAG_MAKE));
+            assertEquals(fileName, description.toString(),
+                    exifInterface.getAttribute(ExifInterface.TAG_IMAGE_DESCRIPTION));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SmallTest
+    public void testSetExifPaddingLength_negativeLength() throws IOException {
+        createTestExifInterface().setExifPaddingLength(-1);
+    }
+
+    private void assertAttributesEqual(String fileName, Set<String> tags, ExifInterface expected,
+            ExifInterface actual) {
+        for (String tag : tags) {
+            assertEquals(fileName + ": " + tag, expected.getAttribute(tag),
+                    actual.getAttribute(tag));
+        }
+    }
+
     private void printExifTagsAndValues(String fileName, ExifInterface exifInterface) {
         // Prints thumbnail information.
         if (exifInterface.hasThumbnail()) {
@@ -1242,6 +1373,22 @@ public class ExifInterfaceTest {
         assertNull(exif.getAttribute(ExifInterface.TAG_GPS_LONGITUDE_REF));
     }
 
+    private File copyToTempFile(String fileName) throws IOException {
+        File imageFile = File.createTempFile(TEST_TEMP_FILE_NAME, fileName);
+        imageFile.deleteOnExit();
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            in = new FileInputStream(getFileFromExternalDir(fileName));
+            out = new FileOutputStream(imageFile);
+            copy(in, out);
+        } finally {
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+        return imageFile;
+    }
+
     private ExifInterface createTestExifInterface() throws IOException {
         File image = File.createTempFile(TEST_TEMP_FILE_NAME, ".jpg");
         image.deleteOnExit();
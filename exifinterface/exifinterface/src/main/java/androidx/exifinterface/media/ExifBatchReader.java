@@ -0,0 +1,270 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.exifinterface.media;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.io.FileDescriptor;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the Exif tags of many image files in parallel, e.g. to index a media collection.
+ * <p>
+ * The files are read by a number of tasks that run on the given {@link Executor}. Each task reads
+ * one file after another with the same buffer, so that the cost of setting up a reader is not
+ * paid for every file. The result for each file is passed to the {@link Callback} as soon as it
+ * has been read, which means that results can arrive in any order and on multiple threads at the
+ * same time. An exception thrown by the callback for one file is logged, and doesn't stop the
+ * other files from being read.
+ * <p>
+ * The following example reads the orientation and date of a list of files on four threads:
+ * <pre>
+ * ExifBatchReader reader = new ExifBatchReader(Executors.newFixedThreadPool(4), 4,
+ *         new HashSet&lt;&gt;(Arrays.asList(ExifInterface.TAG_ORIENTATION,
+ *                 ExifInterface.TAG_DATETIME_ORIGINAL)));
+ * reader.readFiles(filenames, new ExifBatchReader.Callback() {
+ *     public void onResult(int index, ExifInterface exifInterface) {
+ *         // Store the tags of filenames.get(index).
+ *     }
+ *     ...
+ * });
+ * </pre>
+ */
+public final class ExifBatchReader {
+    private static final String TAG = "ExifBatchReader";
+    private static final int READ_BUFFER_SIZE = 8192;
+
+    /**
+     * Receives the results of a batch. All methods can be called on any of the threads of the
+     * executor, and {@link #onResult} and {@link #onError} can be called concurrently.
+     */
+    public interface Callback {
+        /**
+         * Called when the tags of a file have been read.
+         *
+         * @param index the index of the file in the list that was given to the reader
+         * @param exifInterface the tags of the file
+         */
+        void onResult(int index, @NonNull ExifInterface exifInterface);
+
+        /**
+         * Called when a file could not be read.
+         *
+         * @param index the index of the file in the list that was given to the reader
+         * @param exception the reason why the file could not be read, which wraps the
+         *                  {@link RuntimeException} thrown by the parser for malformed files
+         */
+        void onError(int index, @NonNull IOException exception);
+
+        /**
+         * Called once after the results of all files have been passed to the callback, or after
+         * the batch has been cancelled.
+         */
+        void onComplete();
+    }
+
+    /**
+     * A batch that is being read.
+     */
+    public static final class Batch {
+        final AtomicBoolean mCancelled = new AtomicBoolean();
+
+        Batch() {
+        }
+
+        /**
+         * Stops reading the files of this batch. Files that are already being read are still
+         * passed to the callback.
+         */
+        public void cancel() {
+            mCancelled.set(true);
+        }
+
+        /**
+         * Returns whether {@link #cancel()} has been called.
+         */
+        public boolean isCancelled() {
+            return mCancelled.get();
+        }
+    }
+
+    private final Executor mExecutor;
+    private final int mParallelism;
+    private final Set<String> mTagsToRead;
+
+    /**
+     * Creates a reader that reads all tags of the files.
+     *
+     * @param executor the executor to read the files on
+     * @param parallelism the maximum number of files that are read at the same time, which
+     *                    should not be larger than the number of threads of the executor
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public ExifBatchReader(@NonNull Executor executor, int parallelism) {
+        mExecutor = checkExecutor(executor);
+        mParallelism = checkParallelism(parallelism);
+        mTagsToRead = null;
+    }
+
+    /**
+     * Creates a reader that reads only the given tags of the files. See
+     * {@link ExifInterface#ExifInterface(java.io.File, Set)}.
+     *
+     * @param executor the executor to read the files on
+     * @param parallelism the maximum number of files that are read at the same time, which
+     *                    should not be larger than the number of threads of the executor
+     * @param tags the names of the tags to read, e.g. {@link ExifInterface#TAG_ORIENTATION}
+     * @throws IllegalArgumentException if parallelism is less than 1
+     */
+    public ExifBatchReader(@NonNull Executor executor, int parallelism,
+            @NonNull Set<String> tags) {
+        mExecutor = checkExecutor(executor);
+        mParallelism = checkParallelism(parallelism);
+        // The same set is used by all files, so make sure that it is not modified.
+        mTagsToRead = Collections.unmodifiableSet(ExifInterface.getTagsToRead(tags));
+    }
+
+    private static Executor checkExecutor(Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor cannot be null");
+        }
+        return executor;
+    }
+
+    private static int checkParallelism(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1");
+        }
+        return parallelism;
+    }
+
+    /**
+     * Reads the tags of the given image files.
+     *
+     * @param filenames the names of the files
+     * @param callback the callback to pass the results to
+     * @return the batch, which can be used to cancel reading the files
+     * @throws RejectedExecutionException if the executor doesn't accept any task
+     */
+    @NonNull
+    public Batch readFiles(@NonNull List<String> filenames, @NonNull Callback callback) {
+        return read(new ArrayList<Object>(filenames), callback);
+    }
+
+    /**
+     * Reads the tags of the given image file descriptors. The offsets of the file descriptors are
+     * not rewound, see {@link ExifInterface#ExifInterface(FileDescriptor)}. Developers should
+     * close the file descriptors after {@link Callback#onComplete()} has been called.
+     *
+     * @param fileDescriptors the file descriptors
+     * @param callback the callback to pass the results to
+     * @return the batch, which can be used to cancel reading the files
+     * @throws RejectedExecutionException if the executor doesn't accept any task
+     */
+    @NonNull
+    public Batch readFileDescriptors(@NonNull List<FileDescriptor> fileDescriptors,
+            @NonNull Callback callback) {
+        return read(new ArrayList<Object>(fileDescriptors), callback);
+    }
+
+    private Batch read(final List<Object> files, final Callback callback) {
+        if (callback == null) {
+            throw new NullPointerException("callback cannot be null");
+        }
+        final Batch batch = new Batch();
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final int taskCount = Math.max(1, Math.min(mParallelism, files.size()));
+        final AtomicInteger remainingTasks = new AtomicInteger(taskCount);
+        for (int i = 0; i < taskCount; i++) {
+            try {
+                mExecutor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            readNextFiles(files, nextIndex, batch, callback);
+                        } finally {
+                            if (remainingTasks.decrementAndGet() == 0) {
+                                callback.onComplete();
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                if (i == 0) {
+                    throw e;
+                }
+                // The tasks that were accepted read the remaining files as well.
+                if (remainingTasks.addAndGet(i - taskCount) == 0) {
+                    callback.onComplete();
+                }
+                break;
+            }
+        }
+        return batch;
+    }
+
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void readNextFiles(List<Object> files, AtomicInteger nextIndex, Batch batch,
+            Callback callback) {
+        // A direct buffer is read into by the file channel without an intermediate copy.
+        final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+        int index;
+        while (!batch.isCancelled() && (index = nextIndex.getAndIncrement()) < files.size()) {
+            final Object file = files.get(index);
+            final ExifInterface exifInterface;
+            try {
+                if (file instanceof String) {
+                    exifInterface = new ExifInterface((String) file, mTagsToRead, readBuffer);
+                } else {
+                    exifInterface = new ExifInterface((FileDescriptor) file, mTagsToRead,
+                            readBuffer);
+                }
+            } catch (IOException e) {
+                reportError(callback, index, e);
+                continue;
+            } catch (RuntimeException e) {
+                // Malformed files can make the parser throw unchecked exceptions.
+                reportError(callback, index, new IOException(e));
+                continue;
+            }
+            try {
+                callback.onResult(index, exifInterface);
+            } catch (RuntimeException e) {
+                Log.e(TAG, "Callback failed for the result of file " + index, e);
+            }
+        }
+    }
+
+    private static void reportError(Callback callback, int index, IOException exception) {
+        try {
+            callback.onError(index, exception);
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Callback failed for the error of file " + index, e);
+        }
+    }
+}
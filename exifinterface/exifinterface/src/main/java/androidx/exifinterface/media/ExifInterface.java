@@ -51,10 +51,12 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.text.ParsePosition;
 import java.text.SimpleDateFormat;
@@ -3796,6 +3798,16 @@ public class ExifInterface {
     private static final HashSet<String> sTagSetForCompatibility = new HashSet<>(Arrays.asList(
             TAG_F_NUMBER, TAG_DIGITAL_ZOOM_RATIO, TAG_EXPOSURE_TIME, TAG_SUBJECT_DISTANCE,
             TAG_GPS_TIMESTAMP));
+    // Tags that are always read, even when only some tags are requested, since they are needed
+    // for parsing the image data or for locating the thumbnail.
+    private static final HashSet<String> sTagSetForParsing = new HashSet<>(Arrays.asList(
+            TAG_IMAGE_WIDTH, TAG_IMAGE_LENGTH, TAG_BITS_PER_SAMPLE, TAG_COMPRESSION,
+            TAG_PHOTOMETRIC_INTERPRETATION, TAG_STRIP_OFFSETS, TAG_STRIP_BYTE_COUNTS,
+            TAG_JPEG_INTERCHANGE_FORMAT, TAG_JPEG_INTERCHANGE_FORMAT_LENGTH, TAG_MAKE, TAG_MODEL,
+            TAG_MAKER_NOTE, TAG_DNG_VERSION, TAG_DEFAULT_CROP_SIZE, TAG_PIXEL_X_DIMENSION,
+            TAG_PIXEL_Y_DIMENSION, TAG_RW2_SENSOR_TOP_BORDER, TAG_RW2_SENSOR_LEFT_BORDER,
+            TAG_RW2_SENSOR_BOTTOM_BORDER, TAG_RW2_SENSOR_RIGHT_BORDER, TAG_RW2_ISO,
+            TAG_RW2_JPG_FROM_RAW));
     // Mappings from tag number to IFD type for pointer tags.
     @SuppressWarnings("unchecked")
     private static final HashMap<Integer, Integer> sExifPointerTagMap = new HashMap();
@@ -3881,6 +3893,10 @@ public class ExifInterface {
     private AssetManager.AssetInputStream mAssetInputStream;
     private int mMimeType;
     private boolean mIsExifDataOnly;
+    // Tags to read from the image data, or null to read all of them.
+    private Set<String> mRequestedTags;
+    // Buffer to read the file with, which is reused across files by ExifBatchReader.
+    private ByteBuffer mReadBuffer;
     @SuppressWarnings("unchecked")
     private final HashMap<String, ExifAttribute>[] mAttributes = new HashMap[EXIF_TAGS.length];
     private Set<Integer> mAttributesOffsets = new HashSet<>(EXIF_TAGS.length);
@@ -3895,6 +3911,11 @@ public class ExifInterface {
     private int mThumbnailCompression;
     // Used to indicate offset from the start of the original input stream to EXIF data
     private int mOffsetToExifData;
+    // Length of the area that holds the EXIF data, including any padding after it. The EXIF data
+    // can be rewritten in place if the new data is not longer than this.
+    private int mExifDataLength;
+    // Number of bytes to reserve after the EXIF data when the whole file is rewritten.
+    private int mExifPaddingLength;
     private int mOrfMakerNoteOffset;
     private int mOrfThumbnailOffset;
     private int mOrfThumbnailLength;
@@ -3960,34 +3981,7 @@ public class ExifInterface {
         if (fileDescriptor == null) {
             throw new NullPointerException("fileDescriptor cannot be null");
         }
-        mAssetInputStream = null;
-        mFilename = null;
-
-        boolean isFdDuped = false;
-        if (Build.VERSION.SDK_INT >= 21 && isSeekableFD(fileDescriptor)) {
-            mSeekableFileDescriptor = fileDescriptor;
-            // Keep the original file descriptor in order to save attributes when it's seekable.
-            // Otherwise, just close the given file descriptor after reading it because the save
-            // feature won't be working.
-            try {
-                fileDescriptor = Os.dup(fileDescriptor);
-                isFdDuped = true;
-            } catch (Exception e) {
-                throw new IOException("Failed to duplicate file descriptor", e);
-            }
-        } else {
-            mSeekableFileDescriptor = null;
-        }
-        FileInputStream in = null;
-        try {
-            in = new FileInputStream(fileDescriptor);
-            loadAttributes(in);
-        } finally {
-            closeQuietly(in);
-            if (isFdDuped) {
-                closeFileDescriptor(fileDescriptor);
-            }
-        }
+        initForFileDescriptor(fileDescriptor);
     }
 
     /**
@@ -4020,32 +4014,125 @@ public class ExifInterface {
         if (inputStream == null) {
             throw new NullPointerException("inputStream cannot be null");
         }
-        mFilename = null;
+        initForInputStream(inputStream, streamType);
+    }
 
-        boolean shouldBeExifDataOnly = (streamType == STREAM_TYPE_EXIF_DATA_ONLY);
-        if (shouldBeExifDataOnly) {
-            inputStream = new BufferedInputStream(inputStream, SIGNATURE_CHECK_SIZE);
-            if (!isExifDataOnly((BufferedInputStream) inputStream)) {
-                Log.w(TAG, "Given data does not follow the structure of an Exif-only data.");
-                return;
-            }
-            mIsExifDataOnly = true;
-            mAssetInputStream = null;
-            mSeekableFileDescriptor = null;
-        } else {
-            if (inputStream instanceof AssetManager.AssetInputStream) {
-                mAssetInputStream = (AssetManager.AssetInputStream) inputStream;
-                mSeekableFileDescriptor = null;
-            } else if (inputStream instanceof FileInputStream
-                    && isSeekableFD(((FileInputStream) inputStream).getFD())) {
-                mAssetInputStream = null;
-                mSeekableFileDescriptor = ((FileInputStream) inputStream).getFD();
-            } else {
-                mAssetInputStream = null;
-                mSeekableFileDescriptor = null;
-            }
+    /**
+     * Reads only the given Exif tags from the specified image file.
+     * <p>
+     * Only the tag groups that may contain the given tags are parsed and the values of the other
+     * tags are skipped, which is faster than reading all tags when only a few of them are needed.
+     * Parsing JPEG data stops as soon as all the given tags are found. Other tags, including the
+     * ones used by methods such as {@link #getLatLong()} or {@link #getDateTime()}, may not be
+     * available unless they are also given. Saving attributes is not supported.
+     *
+     * @param file the file of the image data
+     * @param tags the names of the tags to read, e.g. {@link #TAG_ORIENTATION}
+     * @throws NullPointerException if file or tags is null
+     * @throws IOException if an I/O error occurs while retrieving file descriptor via
+     *         {@link FileInputStream#getFD()}.
+     */
+    public ExifInterface(@NonNull File file, @NonNull Set<String> tags) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file cannot be null");
+        }
+        setRequestedTags(tags);
+        initForFilename(file.getAbsolutePath());
+    }
+
+    /**
+     * Reads only the given Exif tags from the specified image file. See
+     * {@link #ExifInterface(File, Set)}.
+     *
+     * @param filename the name of the file of the image data
+     * @param tags the names of the tags to read, e.g. {@link #TAG_ORIENTATION}
+     * @throws NullPointerException if file name or tags is null
+     * @throws IOException if an I/O error occurs while retrieving file descriptor via
+     *         {@link FileInputStream#getFD()}.
+     */
+    public ExifInterface(@NonNull String filename, @NonNull Set<String> tags) throws IOException {
+        if (filename == null) {
+            throw new NullPointerException("filename cannot be null");
+        }
+        setRequestedTags(tags);
+        initForFilename(filename);
+    }
+
+    /**
+     * Reads only the given Exif tags from the specified image file descriptor. See
+     * {@link #ExifInterface(File, Set)}. This constructor will not rewind the offset of the given
+     * file descriptor. Developers should close the file descriptor after use.
+     *
+     * @param fileDescriptor the file descriptor of the image data
+     * @param tags the names of the tags to read, e.g. {@link #TAG_ORIENTATION}
+     * @throws NullPointerException if file descriptor or tags is null
+     * @throws IOException if an error occurs while duplicating the file descriptor via
+     *         {@link Os#dup(FileDescriptor)}.
+     */
+    public ExifInterface(@NonNull FileDescriptor fileDescriptor, @NonNull Set<String> tags)
+            throws IOException {
+        if (fileDescriptor == null) {
+            throw new NullPointerException("fileDescriptor cannot be null");
+        }
+        setRequestedTags(tags);
+        initForFileDescriptor(fileDescriptor);
+    }
+
+    /**
+     * Reads only the given Exif tags from the specified image input stream. See
+     * {@link #ExifInterface(File, Set)}. The given input stream will proceed from its current
+     * position. Developers should close the input stream after use. This constructor is not
+     * intended to be used with an input stream that performs any networking operations.
+     *
+     * @param inputStream the input stream that contains the image data
+     * @param tags the names of the tags to read, e.g. {@link #TAG_ORIENTATION}
+     * @throws NullPointerException if the input stream or tags is null
+     * @throws IOException if an I/O error occurs while retrieving file descriptor via
+     *         {@link FileInputStream#getFD()}.
+     */
+    public ExifInterface(@NonNull InputStream inputStream, @NonNull Set<String> tags)
+            throws IOException {
+        if (inputStream == null) {
+            throw new NullPointerException("inputStream cannot be null");
+        }
+        setRequestedTags(tags);
+        initForInputStream(inputStream, STREAM_TYPE_FULL_IMAGE_DATA);
+    }
+
+    /**
+     * Reads the given tags from the specified image file with the given buffer, which can be
+     * reused once this returns. Used by {@link ExifBatchReader}.
+     *
+     * @param tagsToRead the tags returned by {@link #getTagsToRead(Set)}, or {@code null} to read
+     *                   all tags
+     */
+    ExifInterface(@NonNull String filename, @Nullable Set<String> tagsToRead,
+            @NonNull ByteBuffer readBuffer) throws IOException {
+        mRequestedTags = tagsToRead;
+        mReadBuffer = readBuffer;
+        try {
+            initForFilename(filename);
+        } finally {
+            mReadBuffer = null;
+        }
+    }
+
+    /**
+     * Reads the given tags from the specified image file descriptor with the given buffer, which
+     * can be reused once this returns. Used by {@link ExifBatchReader}.
+     *
+     * @param tagsToRead the tags returned by {@link #getTagsToRead(Set)}, or {@code null} to read
+     *                   all tags
+     */
+    ExifInterface(@NonNull FileDescriptor fileDescriptor, @Nullable Set<String> tagsToRead,
+            @NonNull ByteBuffer readBuffer) throws IOException {
+        mRequestedTags = tagsToRead;
+        mReadBuffer = readBuffer;
+        try {
+            initForFileDescriptor(fileDescriptor);
+        } finally {
+            mReadBuffer = null;
         }
-        loadAttributes(inputStream);
     }
 
     /**
@@ -4573,8 +4660,15 @@ public class ExifInterface {
 
             // Check file type
             if (!mIsExifDataOnly) {
-                in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
-                mMimeType = getMimeType((BufferedInputStream) in);
+                if (mSeekableFileDescriptor != null && in instanceof FileInputStream) {
+                    // Seek within the file instead of buffering all the data that is read, in
+                    // case an earlier position has to be read again.
+                    in = new SeekableFileInputStream(((FileInputStream) in).getChannel(),
+                            mReadBuffer);
+                } else {
+                    in = new BufferedInputStream(in, SIGNATURE_CHECK_SIZE);
+                }
+                mMimeType = getMimeType(in);
             }
 
             // Create byte-ordered input stream
@@ -4702,6 +4796,10 @@ public class ExifInterface {
             throw new IOException(
                     "ExifInterface does not support saving attributes for the current input.");
         }
+        if (mRequestedTags != null) {
+            throw new IOException("ExifInterface does not support saving attributes when only "
+                    + "some of the tags were read.");
+        }
 
         // Remember the fact that we've changed the file on disk from what was
         // originally parsed, meaning we can't answer range questions
@@ -4710,6 +4808,12 @@ public class ExifInterface {
         // Keep the thumbnail in memory
         mThumbnailBytes = getThumbnail();
 
+        if (saveAttributesInPlace()) {
+            // Discard the thumbnail in memory
+            mThumbnailBytes = null;
+            return;
+        }
+
         FileInputStream in = null;
         FileOutputStream out = null;
         File tempFile = null;
@@ -4740,6 +4844,9 @@ public class ExifInterface {
         BufferedInputStream bufferedIn = null;
         BufferedOutputStream bufferedOut = null;
         boolean shouldKeepTempFile = false;
+        // The location of the EXIF data is updated while saving the new file.
+        final int offsetToExifData = mOffsetToExifData;
+        final int exifDataLength = mExifDataLength;
         try {
             // Save the new file.
             in = new FileInputStream(tempFile);
@@ -4763,6 +4870,8 @@ public class ExifInterface {
                 saveWebpAttributes(bufferedIn, bufferedOut);
             }
         } catch (Exception e) {
+            mOffsetToExifData = offsetToExifData;
+            mExifDataLength = exifDataLength;
             try {
                 // Restore original file
                 in = new FileInputStream(tempFile);
@@ -4798,6 +4907,102 @@ public class ExifInterface {
         mThumbnailBytes = null;
     }
 
+    /**
+     * Sets the number of bytes to reserve after the Exif data when {@link #saveAttributes()} has
+     * to rewrite the whole file. Later changes whose Exif data fits into the reserved space are
+     * then written without copying the rest of the file. The default is 0.
+     * <p>
+     * For JPEG files, the padding is limited by the maximum size of the Exif segment, which is
+     * 64 KB.
+     *
+     * @param paddingLength the number of bytes to reserve
+     * @throws IllegalArgumentException if the padding length is negative
+     */
+    public void setExifPaddingLength(int paddingLength) {
+        if (paddingLength < 0) {
+            throw new IllegalArgumentException("paddingLength shouldn't be negative");
+        }
+        mExifPaddingLength = paddingLength;
+    }
+
+    /**
+     * Overwrites the Exif data of the file if the new data is not longer than the area used by
+     * the current one, which avoids copying the whole file. The rest of the area is filled with
+     * zeros.
+     *
+     * @return {@code true} if the Exif data was written, {@code false} if the whole file has to be
+     *         rewritten
+     */
+    private boolean saveAttributesInPlace() throws IOException {
+        if (mOffsetToExifData == 0 || mExifDataLength == 0) {
+            return false;
+        }
+
+        // XMP data from a separate marker stays in its own segment, see saveJpegAttributes().
+        ExifAttribute xmpAttribute = null;
+        if (mMimeType == IMAGE_TYPE_JPEG && getAttribute(TAG_XMP) != null
+                && mXmpIsFromSeparateMarker) {
+            xmpAttribute = mAttributes[IFD_TYPE_PRIMARY].remove(TAG_XMP);
+        }
+        ByteArrayOutputStream exifByteArrayOutputStream = new ByteArrayOutputStream();
+        int totalSize;
+        try {
+            totalSize = writeExifSegment(new ByteOrderedDataOutputStream(
+                    exifByteArrayOutputStream, ByteOrder.BIG_ENDIAN), /* paddingLength= */ 0);
+        } finally {
+            if (xmpAttribute != null) {
+                mAttributes[IFD_TYPE_PRIMARY].put(TAG_XMP, xmpAttribute);
+            }
+        }
+        // The Exif data is preceded by the APP1 length and identifier for JPEG, or by the chunk
+        // length and type for PNG and WebP, which are not changed.
+        final int headerLength = 8;
+        final int exifLength = mMimeType == IMAGE_TYPE_JPEG ? totalSize - headerLength : totalSize;
+        if (exifLength > mExifDataLength) {
+            if (DEBUG) {
+                Log.d(TAG, "Rewriting the file since the new Exif data is longer ("
+                        + exifLength + ") than the current one (" + mExifDataLength + ")");
+            }
+            return false;
+        }
+
+        final boolean hasCrc = mMimeType == IMAGE_TYPE_PNG;
+        final byte[] data = new byte[mExifDataLength + (hasCrc ? PNG_CHUNK_CRC_BYTE_LENGTH : 0)];
+        System.arraycopy(exifByteArrayOutputStream.toByteArray(), headerLength, data, 0,
+                exifLength);
+        if (hasCrc) {
+            CRC32 crc = new CRC32();
+            crc.update(PNG_CHUNK_TYPE_EXIF);
+            crc.update(data, 0, mExifDataLength);
+            ByteBuffer.wrap(data, mExifDataLength, PNG_CHUNK_CRC_BYTE_LENGTH)
+                    .putInt((int) crc.getValue());
+        }
+
+        RandomAccessFile file = null;
+        FileOutputStream out = null;
+        try {
+            if (mFilename != null) {
+                file = new RandomAccessFile(mFilename, "rw");
+                file.seek(mOffsetToExifData);
+                file.write(data);
+            } else {
+                // mSeekableFileDescriptor will be non-null only for SDK_INT >= 21, but this check
+                // is needed to prevent calling Os.lseek at runtime for SDK < 21.
+                if (Build.VERSION.SDK_INT >= 21) {
+                    Os.lseek(mSeekableFileDescriptor, mOffsetToExifData, OsConstants.SEEK_SET);
+                    out = new FileOutputStream(mSeekableFileDescriptor);
+                    out.write(data);
+                }
+            }
+        } catch (Exception e) {
+            throw new IOException("Failed to write Exif data in place", e);
+        } finally {
+            closeQuietly(file);
+            closeQuietly(out);
+        }
+        return true;
+    }
+
     /**
      * Returns true if the image file has a thumbnail.
      */
@@ -5272,6 +5477,92 @@ public class ExifInterface {
         }
     }
 
+    private void setRequestedTags(Set<String> tags) {
+        mRequestedTags = getTagsToRead(tags);
+    }
+
+    /**
+     * Returns the set of tags to read for the given requested tags, which also contains the tags
+     * that the requested ones depend on.
+     */
+    static Set<String> getTagsToRead(Set<String> tags) {
+        if (tags == null) {
+            throw new NullPointerException("tags cannot be null");
+        }
+        Set<String> tagsToRead = new HashSet<>(tags);
+        // Maintain compatibility, see getExifAttribute().
+        if (tagsToRead.contains(TAG_ISO_SPEED_RATINGS)) {
+            tagsToRead.add(TAG_PHOTOGRAPHIC_SENSITIVITY);
+        }
+        // The value of DATETIME_ORIGINAL is used when there is no DATETIME tag, see
+        // addDefaultValuesForCompatibility().
+        if (tagsToRead.contains(TAG_DATETIME)) {
+            tagsToRead.add(TAG_DATETIME_ORIGINAL);
+        }
+        return tagsToRead;
+    }
+
+    private void initForFileDescriptor(FileDescriptor fileDescriptor) throws IOException {
+        mAssetInputStream = null;
+        mFilename = null;
+
+        boolean isFdDuped = false;
+        if (Build.VERSION.SDK_INT >= 21 && isSeekableFD(fileDescriptor)) {
+            mSeekableFileDescriptor = fileDescriptor;
+            // Keep the original file descriptor in order to save attributes when it's seekable.
+            // Otherwise, just close the given file descriptor after reading it because the save
+            // feature won't be working.
+            try {
+                fileDescriptor = Os.dup(fileDescriptor);
+                isFdDuped = true;
+            } catch (Exception e) {
+                throw new IOException("Failed to duplicate file descriptor", e);
+            }
+        } else {
+            mSeekableFileDescriptor = null;
+        }
+        FileInputStream in = null;
+        try {
+            in = new FileInputStream(fileDescriptor);
+            loadAttributes(in);
+        } finally {
+            closeQuietly(in);
+            if (isFdDuped) {
+                closeFileDescriptor(fileDescriptor);
+            }
+        }
+    }
+
+    private void initForInputStream(InputStream inputStream, int streamType)
+            throws IOException {
+        mFilename = null;
+
+        boolean shouldBeExifDataOnly = (streamType == STREAM_TYPE_EXIF_DATA_ONLY);
+        if (shouldBeExifDataOnly) {
+            inputStream = new BufferedInputStream(inputStream, SIGNATURE_CHECK_SIZE);
+            if (!isExifDataOnly((BufferedInputStream) inputStream)) {
+                Log.w(TAG, "Given data does not follow the structure of an Exif-only data.");
+                return;
+            }
+            mIsExifDataOnly = true;
+            mAssetInputStream = null;
+            mSeekableFileDescriptor = null;
+        } else {
+            if (inputStream instanceof AssetManager.AssetInputStream) {
+                mAssetInputStream = (AssetManager.AssetInputStream) inputStream;
+                mSeekableFileDescriptor = null;
+            } else if (inputStream instanceof FileInputStream
+                    && isSeekableFD(((FileInputStream) inputStream).getFD())) {
+                mAssetInputStream = null;
+                mSeekableFileDescriptor = ((FileInputStream) inputStream).getFD();
+            } else {
+                mAssetInputStream = null;
+                mSeekableFileDescriptor = null;
+            }
+        }
+        loadAttributes(inputStream);
+    }
+
     private void initForFilename(String filename) throws IOException {
         if (filename == null) {
             throw new NullPointerException("filename cannot be null");
@@ -5332,7 +5623,7 @@ public class ExifInterface {
     }
 
     // Checks the type of image file
-    private int getMimeType(BufferedInputStream in) throws IOException {
+    private int getMimeType(InputStream in) throws IOException {
         // TODO (b/142218289): Need to handle case where input stream does not support mark
         in.mark(SIGNATURE_CHECK_SIZE);
         byte[] signatureCheckBytes = new byte[SIGNATURE_CHECK_SIZE];
@@ -5585,6 +5876,7 @@ public class ExifInterface {
         in.setByteOrder(ByteOrder.BIG_ENDIAN);
 
         int bytesRead = 0;
+        boolean hasImageSize = false;
 
         byte marker;
         if ((marker = in.readByte()) != MARKER) {
@@ -5636,10 +5928,12 @@ public class ExifInterface {
                         mOffsetToExifData = offsetToJpeg
                                 + /* offset to EXIF from JPEG start */ start
                                 + IDENTIFIER_EXIF_APP1.length;
+                        mExifDataLength = value.length;
                         readExifSegment(value, imageType);
 
                         setThumbnailData(new ByteOrderedDataInputStream(value));
-                    } else if (startsWith(bytes, IDENTIFIER_XMP_APP1)) {
+                    } else if (startsWith(bytes, IDENTIFIER_XMP_APP1)
+                            && shouldReadAttribute(IFD_TYPE_PRIMARY, TAG_XMP)) {
                         // See XMP Specification Part 3: Storage in Files, 1.1.3 JPEG, Table 6
                         final int offset = start + IDENTIFIER_XMP_APP1.length;
                         final byte[] value = Arrays.copyOfRange(bytes,
@@ -5661,7 +5955,8 @@ public class ExifInterface {
                         throw new IOException("Invalid exif");
                     }
                     length = 0;
-                    if (getAttribute(TAG_USER_COMMENT) == null) {
+                    if (getAttribute(TAG_USER_COMMENT) == null
+                            && shouldReadAttribute(IFD_TYPE_EXIF, TAG_USER_COMMENT)) {
                         mAttributes[IFD_TYPE_EXIF].put(TAG_USER_COMMENT, ExifAttribute.createString(
                                 new String(bytes, ASCII)));
                     }
@@ -5688,6 +5983,7 @@ public class ExifInterface {
                             in.readUnsignedShort(), mExifByteOrder));
                     mAttributes[imageType].put(TAG_IMAGE_WIDTH, ExifAttribute.createULong(
                             in.readUnsignedShort(), mExifByteOrder));
+                    hasImageSize = true;
                     length -= 5;
                     break;
                 }
@@ -5703,6 +5999,17 @@ public class ExifInterface {
                 throw new IOException("Invalid JPEG segment");
             }
             bytesRead += length;
+
+            // The image size in the EXIF data can be different from the one in the SOFx segment,
+            // so the latter is always needed if the image size is requested.
+            if (imageType == IFD_TYPE_PRIMARY && hasAllRequestedAttributes()
+                    && (hasImageSize || (!mRequestedTags.contains(TAG_IMAGE_WIDTH)
+                    && !mRequestedTags.contains(TAG_IMAGE_LENGTH)))) {
+                if (DEBUG) {
+                    Log.d(TAG, "Stop reading JPEG segments since all requested tags are found");
+                }
+                break;
+            }
         }
         // Restore original byte order
         in.setByteOrder(mExifByteOrder);
@@ -6185,6 +6492,7 @@ public class ExifInterface {
                     }
                     // Save offset to EXIF data for handling thumbnail and attribute offsets.
                     mOffsetToExifData = bytesRead;
+                    mExifDataLength = length;
                     readExifSegment(data, IFD_TYPE_PRIMARY);
                     validateImages();
 
@@ -6256,6 +6564,7 @@ public class ExifInterface {
                     }
                     // Save offset to EXIF data for handling thumbnail and attribute offsets.
                     mOffsetToExifData = bytesRead;
+                    mExifDataLength = chunkSize;
                     readExifSegment(payload, IFD_TYPE_PRIMARY);
 
                     setThumbnailData(new ByteOrderedDataInputStream(payload));
@@ -6318,7 +6627,10 @@ public class ExifInterface {
         // Write EXIF APP1 segment
         dataOutputStream.writeByte(MARKER);
         dataOutputStream.writeByte(MARKER_APP1);
-        writeExifSegment(dataOutputStream);
+        int totalSize = writeExifSegment(dataOutputStream);
+        mOffsetToExifData = 2 /* SOI marker */ + 2 /* APP1 marker */ + 2 /* APP1 length */
+                + IDENTIFIER_EXIF_APP1.length;
+        mExifDataLength = totalSize - 2 /* APP1 length */ - IDENTIFIER_EXIF_APP1.length;
 
         // Re-add previously removed XMP data.
         if (xmpAttribute != null) {
@@ -6417,12 +6729,16 @@ public class ExifInterface {
         //   1) if EXIF chunk did not exist in the original file, it will be stored right after the
         //      first chunk,
         //   2) if EXIF chunk existed in the original file, it will be stored in the same location.
+        int offsetToExifData = mOffsetToExifData;
         if (mOffsetToExifData == 0) {
             // Copy IHDR chunk bytes
             int ihdrChunkLength = dataInputStream.readInt();
             dataOutputStream.writeInt(ihdrChunkLength);
             copy(dataInputStream, dataOutputStream, PNG_CHUNK_TYPE_BYTE_LENGTH
                     + ihdrChunkLength + PNG_CHUNK_CRC_BYTE_LENGTH);
+            offsetToExifData = PNG_SIGNATURE.length + 4 /* IHDR chunk length bytes */
+                    + PNG_CHUNK_TYPE_BYTE_LENGTH + ihdrChunkLength + PNG_CHUNK_CRC_BYTE_LENGTH
+                    + 4 /* PNG EXIF chunk length bytes */ + PNG_CHUNK_TYPE_BYTE_LENGTH;
         } else {
             // Copy up until the point where EXIF chunk length information is stored.
             int copyLength = mOffsetToExifData - PNG_SIGNATURE.length
@@ -6447,7 +6763,8 @@ public class ExifInterface {
                             ByteOrder.BIG_ENDIAN);
 
             // Store Exif data in separate byte array
-            writeExifSegment(exifDataOutputStream);
+            mExifDataLength = writeExifSegment(exifDataOutputStream);
+            mOffsetToExifData = offsetToExifData;
             byte[] exifBytes =
                     ((ByteArrayOutputStream) exifDataOutputStream.mOutputStream).toByteArray();
 
@@ -6537,7 +6854,7 @@ public class ExifInterface {
                 totalInputStream.skipBytes(exifChunkLength);
 
                 // Write new EXIF chunk to output stream
-                writeExifSegment(nonHeaderOutputStream);
+                writeWebpExifChunk(nonHeaderByteArrayOutputStream, nonHeaderOutputStream);
             } else {
                 // EXIF chunk does not exist in the original file
                 byte[] firstChunkType = new byte[WEBP_CHUNK_TYPE_BYTE_LENGTH];
@@ -6581,7 +6898,8 @@ public class ExifInterface {
                             int read = inputStream.read(type);
                             if (!Arrays.equals(type, WEBP_CHUNK_TYPE_ANMF)) {
                                 // Either we have reached EOF or the start of a non-ANMF chunk
-                                writeExifSegment(nonHeaderOutputStream);
+                                writeWebpExifChunk(nonHeaderByteArrayOutputStream,
+                                        nonHeaderOutputStream);
                                 break;
                             }
                             copyWebPChunk(totalInputStream, nonHeaderOutputStream, type);
@@ -6590,7 +6908,7 @@ public class ExifInterface {
                         // Skip until we find the VP8 or VP8L chunk
                         copyChunksUpToGivenChunkType(totalInputStream, nonHeaderOutputStream,
                                 WEBP_CHUNK_TYPE_VP8, WEBP_CHUNK_TYPE_VP8L);
-                        writeExifSegment(nonHeaderOutputStream);
+                        writeWebpExifChunk(nonHeaderByteArrayOutputStream, nonHeaderOutputStream);
                     }
                 } else if (Arrays.equals(firstChunkType, WEBP_CHUNK_TYPE_VP8)
                         || Arrays.equals(firstChunkType, WEBP_CHUNK_TYPE_VP8L)) {
@@ -6677,7 +6995,7 @@ public class ExifInterface {
                     copy(totalInputStream, nonHeaderOutputStream, bytesToRead);
 
                     // Write EXIF chunk
-                    writeExifSegment(nonHeaderOutputStream);
+                    writeWebpExifChunk(nonHeaderByteArrayOutputStream, nonHeaderOutputStream);
                 }
             }
 
@@ -6696,6 +7014,17 @@ public class ExifInterface {
         }
     }
 
+    // Writes the EXIF chunk after the data written so far following the WebP header, and
+    // remembers the location of its EXIF data.
+    private void writeWebpExifChunk(ByteArrayOutputStream nonHeaderByteArrayOutputStream,
+            ByteOrderedDataOutputStream nonHeaderOutputStream) throws IOException {
+        final int offsetToExifData = WEBP_SIGNATURE_1.length + WEBP_FILE_SIZE_BYTE_LENGTH
+                + WEBP_SIGNATURE_2.length + nonHeaderByteArrayOutputStream.size()
+                + WEBP_CHUNK_TYPE_BYTE_LENGTH + WEBP_CHUNK_SIZE_BYTE_LENGTH;
+        mExifDataLength = writeExifSegment(nonHeaderOutputStream);
+        mOffsetToExifData = offsetToExifData;
+    }
+
     private void copyChunksUpToGivenChunkType(ByteOrderedDataInputStream inputStream,
             ByteOrderedDataOutputStream outputStream, byte[] firstGivenType,
             byte[] secondGivenType) throws IOException {
@@ -6736,6 +7065,51 @@ public class ExifInterface {
         readImageFileDirectory(dataInputStream, imageType);
     }
 
+    /**
+     * Returns whether the value of the given tag should be read from the given IFD, which is
+     * {@code false} when only other tags are requested.
+     */
+    private boolean shouldReadAttribute(@IfdType int ifdType, String tag) {
+        if (mRequestedTags == null || ifdType > IFD_TYPE_INTEROPERABILITY) {
+            // Thumbnail, preview and maker note IFDs are needed for parsing the image data.
+            return true;
+        }
+        return mRequestedTags.contains(tag) || sTagSetForParsing.contains(tag);
+    }
+
+    /**
+     * Returns whether the given IFD has to be read, which is {@code false} for GPS and
+     * interoperability IFDs when none of their tags are requested.
+     */
+    private boolean shouldReadImageFileDirectory(@IfdType int ifdType) {
+        if (mRequestedTags == null
+                || (ifdType != IFD_TYPE_GPS && ifdType != IFD_TYPE_INTEROPERABILITY)) {
+            return true;
+        }
+        for (ExifTag tag : EXIF_TAGS[ifdType]) {
+            if (mRequestedTags.contains(tag.name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether only some tags are requested and all of them have been read, in which case
+     * the rest of the image data does not need to be parsed.
+     */
+    private boolean hasAllRequestedAttributes() {
+        if (mRequestedTags == null) {
+            return false;
+        }
+        for (String tag : mRequestedTags) {
+            if (getExifAttribute(tag) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     private void addDefaultValuesForCompatibility() {
         // If DATETIME tag has no value, then set the value to DATETIME_ORIGINAL tag's.
         String valueOfDateTimeOriginal = getAttribute(TAG_DATETIME_ORIGINAL);
@@ -6877,7 +7251,8 @@ public class ExifInterface {
                     valid = true;
                 }
             }
-            if (!valid) {
+            if (!valid || (!shouldReadAttribute(ifdType, tag.name)
+                    && !sExifPointerTagMap.containsKey(tagNumber))) {
                 dataInputStream.seek(nextEntryOffset);
                 continue;
             }
@@ -6965,7 +7340,12 @@ public class ExifInterface {
                 // 1. Exists within the boundaries of the input stream
                 // 2. Does not point to a previously read IFD.
                 if (offset > 0L && offset < dataInputStream.mLength) {
-                    if (!mAttributesOffsets.contains((int) offset)) {
+                    if (!shouldReadImageFileDirectory(nextIfdType)) {
+                        if (DEBUG) {
+                            Log.d(TAG, "Skip jump into the IFD since none of its tags are "
+                                    + "requested: IfdType " + nextIfdType);
+                        }
+                    } else if (!mAttributesOffsets.contains((int) offset)) {
                         dataInputStream.seek(offset);
                         readImageFileDirectory(dataInputStream, nextIfdType);
                     } else {
@@ -7400,6 +7780,12 @@ public class ExifInterface {
 
     // Writes an Exif segment into the given output stream.
     private int writeExifSegment(ByteOrderedDataOutputStream dataOutputStream) throws IOException {
+        return writeExifSegment(dataOutputStream, mExifPaddingLength);
+    }
+
+    // Writes an Exif segment followed by the given number of zeros into the given output stream.
+    private int writeExifSegment(ByteOrderedDataOutputStream dataOutputStream, int paddingLength)
+            throws IOException {
         // The following variables are for calculating each IFD tag group size in bytes.
         int[] ifdOffsets = new int[EXIF_TAGS.length];
         int[] ifdDataSizes = new int[EXIF_TAGS.length];
@@ -7474,6 +7860,11 @@ public class ExifInterface {
             mThumbnailOffset = thumbnailOffset;
             position += mThumbnailLength;
         }
+        if (mMimeType == IMAGE_TYPE_JPEG) {
+            // The APP1 segment including its length and identifier can't be longer than 0xFFFF.
+            paddingLength = Math.max(0, Math.min(paddingLength, 0xFFFF - 8 - position));
+        }
+        position += paddingLength;
 
         int totalSize = position;
         if (mMimeType == IMAGE_TYPE_JPEG) {
@@ -7585,6 +7976,11 @@ public class ExifInterface {
             dataOutputStream.write(getThumbnailBytes());
         }
 
+        // Write padding
+        if (paddingLength > 0) {
+            dataOutputStream.write(new byte[paddingLength]);
+        }
+
         // For WebP files, add a single padding byte at end if chunk size is odd
         if (mMimeType == IMAGE_TYPE_WEBP && totalSize % 2 == 1) {
             dataOutputStream.writeByte(0);
@@ -7678,6 +8074,123 @@ public class ExifInterface {
         return new Pair<>(IFD_FORMAT_STRING, -1);
     }
 
+    // An input stream that reads a file through its channel. Marking a position is free and
+    // resetting seeks back to it, so that no data needs to be kept for reading it again.
+    private static class SeekableFileInputStream extends InputStream {
+        private static final int BUFFER_SIZE = 8192;
+
+        private final FileChannel mChannel;
+        private final ByteBuffer mBuffer;
+        // Position of the channel, which is only moved by this stream.
+        private long mChannelPosition;
+        private long mMarkPosition;
+
+        SeekableFileInputStream(FileChannel channel, @Nullable ByteBuffer buffer)
+                throws IOException {
+            mChannel = channel;
+            mBuffer = buffer != null ? buffer : ByteBuffer.allocate(BUFFER_SIZE);
+            mBuffer.limit(0);
+            mChannelPosition = channel.position();
+            mMarkPosition = mChannelPosition;
+        }
+
+        private long position() {
+            return mChannelPosition - mBuffer.remaining();
+        }
+
+        private void seek(long position) throws IOException {
+            mBuffer.limit(0);
+            mChannel.position(position);
+            mChannelPosition = position;
+        }
+
+        private boolean fill() throws IOException {
+            mBuffer.clear();
+            int read = mChannel.read(mBuffer);
+            mBuffer.flip();
+            if (read <= 0) {
+                return false;
+            }
+            mChannelPosition += read;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!mBuffer.hasRemaining() && !fill()) {
+                return -1;
+            }
+            return mBuffer.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            // Read as much as possible like BufferedInputStream, since the parser expects it.
+            int total = 0;
+            while (total < len) {
+                if (!mBuffer.hasRemaining()) {
+                    if (len - total >= BUFFER_SIZE) {
+                        // Read large amounts of data directly.
+                        int read = mChannel.read(ByteBuffer.wrap(b, off + total, len - total));
+                        if (read <= 0) {
+                            break;
+                        }
+                        mChannelPosition += read;
+                        total += read;
+                        continue;
+                    }
+                    if (!fill()) {
+                        break;
+                    }
+                }
+                int count = Math.min(len - total, mBuffer.remaining());
+                mBuffer.get(b, off + total, count);
+                total += count;
+            }
+            return total == 0 && len > 0 ? -1 : total;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            if (n <= mBuffer.remaining()) {
+                mBuffer.position(mBuffer.position() + (int) n);
+                return n;
+            }
+            long position = position();
+            long target = Math.min(position + n, mChannel.size());
+            seek(target);
+            return target - position;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(Integer.MAX_VALUE, Math.max(0, mChannel.size() - position()));
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public synchronized void mark(int readLimit) {
+            mMarkPosition = position();
+        }
+
+        @Override
+        public synchronized void reset() throws IOException {
+            seek(mMarkPosition);
+        }
+
+        @Override
+        public void close() {
+            // The file is closed by the owner of the channel.
+        }
+    }
+
     // An input stream to parse EXIF data area, which can be written in either little or big endian
     // order.
     private static class ByteOrderedDataInputStream extends InputStream implements DataInput {
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor
+
+import com.google.common.truth.Truth.assertThat
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+
+/**
+ * Tests that processing archives in parallel gives the same results as the serial processing.
+ */
+class ParallelProcessorTest {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    @Test
+    fun parallelOutput_isIdenticalToSerialOutput() {
+        val libraries = SyntheticLibraries.createLibraries(
+            tempFolder.newFolder("input"), count = 12, classesPerLibrary = 20
+        )
+
+        val serial = runProcessor(libraries, "serial", parallelism = 1)
+        val parallel = runProcessor(libraries, "parallel", parallelism = 4)
+
+        assertThat(parallel.numberOfLibsModified).isEqualTo(libraries.size)
+        assertThat(parallel.numberOfLibsModified).isEqualTo(serial.numberOfLibsModified)
+        assertThat(parallel.librariesMap.keys).containsExactlyElementsIn(serial.librariesMap.keys)
+            .inOrder()
+        libraries.forEach {
+            val serialFile = serial.librariesMap.getValue(it)!!
+            val parallelFile = parallel.librariesMap.getValue(it)!!
+            assertThat(parallelFile.name).isEqualTo(serialFile.name)
+            assertThat(parallelFile.readBytes()).isEqualTo(serialFile.readBytes())
+        }
+    }
+
+    @Test
+    fun parallelOutput_unmodifiedLibrariesAreCopied() {
+        val libraries = SyntheticLibraries.createLibraries(
+            tempFolder.newFolder("input"), count = 6, classesPerLibrary = 5,
+            referencedType = "com/example/Unrelated"
+        )
+
+        val result = runProcessor(libraries, "parallel", parallelism = 3)
+
+        assertThat(result.numberOfLibsModified).isEqualTo(0)
+        libraries.forEach {
+            assertThat(result.librariesMap.getValue(it)!!.readBytes()).isEqualTo(it.readBytes())
+        }
+    }
+
+    @Test
+    fun parallelErrors_areCountedAcrossAllLibraries() {
+        val libraries = SyntheticLibraries.createLibraries(
+            tempFolder.newFolder("input"), count = 8, classesPerLibrary = 10,
+            referencedType = SyntheticLibraries.MISSING_SUPPORT_TYPE
+        )
+
+        val serialError = runProcessorForError(libraries, "serial", parallelism = 1)
+        val parallelError = runProcessorForError(libraries, "parallel", parallelism = 4)
+
+        assertThat(serialError).isInstanceOf(IllegalArgumentException::class.java)
+        assertThat(parallelError).isInstanceOf(IllegalArgumentException::class.java)
+        assertThat(parallelError.message).isEqualTo(serialError.message)
+    }
+
+    @Test
+    fun parallelSignatureDetection_reportsLibrariesInInputOrder() {
+        val libraries = SyntheticLibraries.createLibraries(
+            tempFolder.newFolder("input"), count = 8, classesPerLibrary = 5, signed = true
+        )
+
+        val serialError = runProcessorForError(libraries, "serial", parallelism = 1)
+        val parallelError = runProcessorForError(libraries, "parallel", parallelism = 4)
+
+        assertThat(serialError).isInstanceOf(SignatureFilesFoundJetifierException::class.java)
+        assertThat(parallelError).isInstanceOf(SignatureFilesFoundJetifierException::class.java)
+        assertThat(parallelError.message).isEqualTo(serialError.message)
+    }
+
+    @Test(expected = IllegalArgumentException::class)
+    fun parallelism_mustBePositive() {
+        Processor.createProcessor5(config = SyntheticLibraries.config, parallelism = 0)
+    }
+
+    private fun runProcessor(
+        libraries: List<File>,
+        outputDirName: String,
+        parallelism: Int,
+        useFallbackIfTypeIsMissing: Boolean = true
+    ): TransformationResult {
+        val outputDir = tempFolder.newFolder(outputDirName)
+        val processor = Processor.createProcessor5(
+            config = SyntheticLibraries.config,
+            useFallbackIfTypeIsMissing = useFallbackIfTypeIsMissing,
+            parallelism = parallelism
+        )
+        return processor.transform2(
+            input = libraries.map { FileMapping(it, File(outputDir, it.name)) }.toSet()
+        )
+    }
+
+    private fun runProcessorForError(
+        libraries: List<File>,
+        outputDirName: String,
+        parallelism: Int
+    ): Exception {
+        try {
+            runProcessor(
+                libraries, outputDirName, parallelism, useFallbackIfTypeIsMissing = false
+            )
+        } catch (e: Exception) {
+            return e
+        }
+        throw AssertionError("Expected the transformation to fail")
+    }
+}
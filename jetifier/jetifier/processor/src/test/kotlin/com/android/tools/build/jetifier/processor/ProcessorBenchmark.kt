@@ -0,0 +1,109 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor
+
+import com.android.tools.build.jetifier.core.utils.Log
+import com.android.tools.build.jetifier.core.utils.LogLevel
+import com.google.common.truth.Truth.assertThat
+import org.junit.After
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.rules.TemporaryFolder
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+/**
+ * Measures how long the [Processor] takes to jetify a synthetic corpus of libraries serially and
+ * with increasing parallelism, and checks that every run produces the same archives.
+ *
+ * The corpus is kept small so the test stays fast; raise [LIBRARIES_COUNT] and
+ * [CLASSES_PER_LIBRARY] to get more stable numbers when working on performance.
+ */
+class ProcessorBenchmark {
+
+    @get:Rule
+    val tempFolder = TemporaryFolder()
+
+    private var previousLogLevel = LogLevel.WARNING
+
+    @Before
+    fun setUp() {
+        previousLogLevel = Log.currentLevel
+        Log.currentLevel = LogLevel.ERROR
+    }
+
+    @After
+    fun tearDown() {
+        Log.currentLevel = previousLogLevel
+    }
+
+    @Test
+    fun transformCorpus() {
+        val libraries = SyntheticLibraries.createLibraries(
+            tempFolder.newFolder("input"),
+            count = LIBRARIES_COUNT,
+            classesPerLibrary = CLASSES_PER_LIBRARY
+        )
+        val parallelismLevels = listOf(1, 2, 4, Runtime.getRuntime().availableProcessors())
+            .distinct()
+
+        // Warm up the JIT so the first measured configuration is not penalized.
+        measure(libraries, parallelism = 1, run = -1)
+
+        var expected: List<ByteArray>? = null
+        parallelismLevels.forEach { parallelism ->
+            val timesMs = (0 until RUNS).map { run ->
+                val start = System.nanoTime()
+                val outputs = measure(libraries, parallelism, run)
+                val elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)
+
+                val bytes = outputs.map { it.readBytes() }
+                if (expected == null) {
+                    expected = bytes
+                } else {
+                    bytes.forEachIndexed { i, it -> assertThat(it).isEqualTo(expected!![i]) }
+                }
+                elapsed
+            }.sorted()
+
+            println(
+                "ProcessorBenchmark: libraries=$LIBRARIES_COUNT " +
+                    "classesPerLibrary=$CLASSES_PER_LIBRARY parallelism=$parallelism " +
+                    "min=${timesMs.first()}ms median=${timesMs[timesMs.size / 2]}ms"
+            )
+        }
+    }
+
+    private fun measure(libraries: List<File>, parallelism: Int, run: Int): List<File> {
+        val outputDir = tempFolder.newFolder("output-$parallelism-$run")
+        val processor = Processor.createProcessor5(
+            config = SyntheticLibraries.config,
+            parallelism = parallelism
+        )
+        val result = processor.transform2(
+            input = libraries.map { FileMapping(it, File(outputDir, it.name)) }.toSet()
+        )
+        return libraries.map { result.librariesMap.getValue(it)!! }
+    }
+
+    companion object {
+        private const val LIBRARIES_COUNT = 32
+        private const val CLASSES_PER_LIBRARY = 200
+        private const val RUNS = 3
+    }
+}
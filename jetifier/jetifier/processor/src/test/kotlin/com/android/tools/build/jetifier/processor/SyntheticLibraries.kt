@@ -0,0 +1,122 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.android.tools.build.jetifier.processor
+
+import com.android.tools.build.jetifier.core.config.Config
+import com.android.tools.build.jetifier.core.rule.RewriteRulesMap
+import com.android.tools.build.jetifier.core.type.JavaType
+import com.android.tools.build.jetifier.core.type.TypesMap
+import com.android.tools.build.jetifier.processor.archive.Archive
+import com.android.tools.build.jetifier.processor.archive.ArchiveFile
+import com.android.tools.build.jetifier.processor.archive.ArchiveItem
+import org.objectweb.asm.ClassWriter
+import org.objectweb.asm.Opcodes
+import java.io.File
+import java.nio.file.Paths
+import java.nio.file.attribute.FileTime
+
+/**
+ * Generates a corpus of libraries referencing the support library, to exercise the [Processor]
+ * over many archives at once.
+ */
+object SyntheticLibraries {
+
+    const val SUPPORT_TYPE = "android/support/v7/preference/Preference"
+    const val MISSING_SUPPORT_TYPE = "android/support/v7/preference/MissingPreference"
+
+    private val fixedTime = FileTime.fromMillis(1_000_000_000L)
+
+    val config = Config.fromOptional(
+        restrictToPackagePrefixes = setOf("android/support/v7/preference"),
+        rulesMap = RewriteRulesMap(),
+        slRules = listOf(),
+        pomRewriteRules = setOf(),
+        typesMap = TypesMap(
+            JavaType(SUPPORT_TYPE) to JavaType("androidx/preference/Preference")
+        )
+    )
+
+    /**
+     * Writes [count] libraries into [dir]. Every library contains [classesPerLibrary] classes
+     * referencing [referencedType], a layout and a nested jar with a few more classes.
+     */
+    fun createLibraries(
+        dir: File,
+        count: Int,
+        classesPerLibrary: Int,
+        referencedType: String = SUPPORT_TYPE,
+        signed: Boolean = false
+    ): List<File> {
+        return (0 until count).map { i ->
+            val files = mutableListOf<ArchiveItem>()
+            files.addAll(createClasses("com/example/lib$i", classesPerLibrary, referencedType))
+            files.add(
+                ArchiveFile(
+                    Paths.get("res/layout/layout$i.xml"),
+                    ("<?xml version=\"1.0\" encoding=\"utf-8\"?>\n" +
+                        "<${referencedType.replace('/', '.')}/>").toByteArray(),
+                    fixedTime
+                )
+            )
+            files.add(
+                Archive(
+                    Paths.get("libs/nested$i.jar"),
+                    createClasses("com/example/nested$i", 3, referencedType),
+                    fixedTime
+                )
+            )
+            if (signed) {
+                files.add(
+                    ArchiveFile(Paths.get("META-INF/CERT.SF"), ByteArray(16), fixedTime)
+                )
+                files.add(
+                    ArchiveFile(Paths.get("META-INF/CERT.RSA"), ByteArray(16), fixedTime)
+                )
+            }
+
+            val archive = Archive(Paths.get("lib$i.jar"), files)
+            archive.writeSelfToFile(File(dir, "lib$i.jar").toPath())
+        }
+    }
+
+    private fun createClasses(
+        packageName: String,
+        count: Int,
+        referencedType: String
+    ): List<ArchiveFile> {
+        return (0 until count).map { i ->
+            val className = "$packageName/Class$i"
+            val writer = ClassWriter(0 /* flags */)
+            writer.visit(
+                Opcodes.V1_7, Opcodes.ACC_PUBLIC, className, null, "java/lang/Object", null
+            )
+            writer.visitField(
+                Opcodes.ACC_PRIVATE, "preference", "L$referencedType;", null, null
+            ).visitEnd()
+            val method = writer.visitMethod(
+                Opcodes.ACC_PUBLIC, "update", "(L$referencedType;)L$referencedType;", null, null
+            )
+            method.visitCode()
+            method.visitVarInsn(Opcodes.ALOAD, 1)
+            method.visitInsn(Opcodes.ARETURN)
+            method.visitMaxs(1, 2)
+            method.visitEnd()
+            writer.visitEnd()
+            ArchiveFile(Paths.get("$className.class"), writer.toByteArray(), fixedTime)
+        }
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+// Shares the package of Lifecycling to create the adapters without a lifecycle.
+package androidx.lifecycle;
+
+import static androidx.lifecycle.Lifecycling.lifecycleEventObserver;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures how long {@link Lifecycling} takes to create the adapter of an observer with the
+ * {@link GeneratedAdapterRegistry} generated for this module and with the reflective lookup of the
+ * generated adapter. The reflective lookup is cached per class, so this is the cost paid for every
+ * observer added to a lifecycle.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class LifecyclingBenchmark {
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final BenchmarkObserver mObserver = new BenchmarkObserver();
+
+    @After
+    public void tearDown() {
+        // Only the registry of this module is ever installed.
+        Lifecycling.sAdapterRegistries.clear();
+    }
+
+    @Test
+    public void createAdapter_reflective() {
+        assertThat(lifecycleEventObserver(mObserver),
+                instanceOf(SingleGeneratedAdapterObserver.class));
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            lifecycleEventObserver(mObserver);
+        }
+    }
+
+    @Test
+    public void createAdapter_registry() {
+        BenchmarkObserverRegistry.install();
+        assertThat(lifecycleEventObserver(mObserver),
+                instanceOf(SingleGeneratedAdapterObserver.class));
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            lifecycleEventObserver(mObserver);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.RestrictTo;
+
+/**
+ * Creates the {@link GeneratedAdapter}s of all the observers of a module without reflection.
+ * <p>
+ * Implementations are generated by the lifecycle compiler when the
+ * {@code lifecycle.observerRegistry} option is set, and registered with
+ * {@link Lifecycling#registerAdapterRegistry(GeneratedAdapterRegistry)}.
+ *
+ * @hide
+ */
+@RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
+public interface GeneratedAdapterRegistry {
+
+    /**
+     * Creates the adapter of the given observer.
+     *
+     * @param observer The observer to create the adapter for
+     * @return The adapter, or {@code null} if the class of the observer is not part of this
+     * registry
+     */
+    @Nullable
+    GeneratedAdapter createAdapter(@NonNull Object observer);
+}
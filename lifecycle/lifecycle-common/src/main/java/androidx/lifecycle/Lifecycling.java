@@ -27,6 +27,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Internal class to handle lifecycle conversion etc.
@@ -42,6 +43,8 @@ public class Lifecycling {
     private static Map<Class<?>, Integer> sCallbackCache = new HashMap<>();
     private static Map<Class<?>, List<Constructor<? extends GeneratedAdapter>>> sClassToAdapters =
             new HashMap<>();
+    static final CopyOnWriteArrayList<GeneratedAdapterRegistry> sAdapterRegistries =
+            new CopyOnWriteArrayList<>();
 
     // Left for binary compatibility when lifecycle-common goes up 2.1 as transitive dep
     // but lifecycle-runtime stays 2.0
@@ -79,6 +82,13 @@ public class Lifecycling {
             return (LifecycleEventObserver) object;
         }
 
+        for (GeneratedAdapterRegistry registry : sAdapterRegistries) {
+            GeneratedAdapter generatedAdapter = registry.createAdapter(object);
+            if (generatedAdapter != null) {
+                return new SingleGeneratedAdapterObserver(generatedAdapter);
+            }
+        }
+
         final Class<?> klass = object.getClass();
         int type = getObserverConstructorType(klass);
         if (type == GENERATED_CALLBACK) {
@@ -98,6 +108,14 @@ public class Lifecycling {
         return new ReflectiveGenericLifecycleObserver(object);
     }
 
+    /**
+     * Registers a registry of generated adapters, which is consulted before looking up the
+     * adapters by reflection.
+     */
+    public static void registerAdapterRegistry(@NonNull GeneratedAdapterRegistry registry) {
+        sAdapterRegistries.addIfAbsent(registry);
+    }
+
     private static GeneratedAdapter createGeneratedAdapter(
             Constructor<? extends GeneratedAdapter> constructor, Object object) {
         //noinspection TryWithIdenticalCatches
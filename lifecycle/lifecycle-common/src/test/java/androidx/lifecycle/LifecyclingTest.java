@@ -21,6 +21,7 @@ import static androidx.lifecycle.Lifecycling.lifecycleEventObserver;
 
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
 import static org.hamcrest.MatcherAssert.assertThat;
 
 import androidx.annotation.NonNull;
@@ -32,6 +33,8 @@ import androidx.lifecycle.observers.DerivedWithOverridenMethodsWithLfAnnotation;
 import androidx.lifecycle.observers.InterfaceImpl1;
 import androidx.lifecycle.observers.InterfaceImpl2;
 import androidx.lifecycle.observers.InterfaceImpl3;
+import androidx.lifecycle.observers.ObserversRegistry;
+import androidx.lifecycle.observers.RegisteredObserver;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -191,6 +194,48 @@ public class LifecyclingTest {
         callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_DESTROY);
     }
 
+    @Test
+    public void adapterRegistry() {
+        ObserversRegistry registry = new ObserversRegistry();
+        Lifecycling.registerAdapterRegistry(registry);
+        try {
+            RegisteredObserver observer = new RegisteredObserver();
+            LifecycleEventObserver callback = lifecycleEventObserver(observer);
+            assertThat(callback, instanceOf(SingleGeneratedAdapterObserver.class));
+            callback.onStateChanged(new DefaultLifecycleOwner(), Lifecycle.Event.ON_CREATE);
+            assertThat(observer.createCount, is(1));
+        } finally {
+            Lifecycling.sAdapterRegistries.remove(registry);
+        }
+    }
+
+    @Test
+    public void adapterRegistryRegisteredOnce() {
+        ObserversRegistry registry = new ObserversRegistry();
+        Lifecycling.registerAdapterRegistry(registry);
+        Lifecycling.registerAdapterRegistry(registry);
+        try {
+            assertThat(Lifecycling.sAdapterRegistries.size(), is(1));
+            assertThat(Lifecycling.sAdapterRegistries.get(0),
+                    sameInstance((GeneratedAdapterRegistry) registry));
+        } finally {
+            Lifecycling.sAdapterRegistries.remove(registry);
+        }
+    }
+
+    @Test
+    public void adapterRegistryFallsBackToReflection() {
+        ObserversRegistry registry = new ObserversRegistry();
+        Lifecycling.registerAdapterRegistry(registry);
+        try {
+            assertThat(lifecycleEventObserver(new DerivedWithNewMethods()),
+                    instanceOf(ReflectiveGenericLifecycleObserver.class));
+            assertThat(lifecycleEventObserver(new DerivedWithNoNewMethods()),
+                    instanceOf(SingleGeneratedAdapterObserver.class));
+        } finally {
+            Lifecycling.sAdapterRegistries.remove(registry);
+        }
+    }
 
     static class DefaultLifecycleOwner implements LifecycleOwner {
         @NonNull
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.lifecycle.observers;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterRegistry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Same as the registry generated by the lifecycle compiler for {@link RegisteredObserver}.
+ */
+public final class ObserversRegistry implements GeneratedAdapterRegistry {
+
+    private final Map<Class<?>, Integer> mIndex = new HashMap<>();
+
+    public ObserversRegistry() {
+        mIndex.put(RegisteredObserver.class, 0);
+    }
+
+    @Override
+    public GeneratedAdapter createAdapter(Object observer) {
+        Integer index = mIndex.get(observer.getClass());
+        if (index == null) {
+            return null;
+        }
+        switch (index) {
+            case 0:
+                return new RegisteredObserver_LifecycleAdapter((RegisteredObserver) observer);
+            default:
+                return null;
+        }
+    }
+}
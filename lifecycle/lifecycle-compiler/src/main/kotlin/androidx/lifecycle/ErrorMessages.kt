@@ -36,6 +36,8 @@ object ErrorMessages {
     const val INVALID_ENCLOSING_ELEMENT =
         "Parent of OnLifecycleEvent should be a class or interface"
     const val INVALID_ANNOTATED_ELEMENT = "OnLifecycleEvent can only be added to methods"
+    const val INVALID_OBSERVER_REGISTRY = "lifecycle.observerRegistry must be the fully " +
+        "qualified name of a class in a named package"
 
     fun failedToGenerateAdapter(type: TypeElement, failureReason: EventMethod) =
         """
@@ -21,19 +21,66 @@ import javax.annotation.processing.RoundEnvironment
 import javax.annotation.processing.SupportedAnnotationTypes
 import javax.lang.model.SourceVersion
 import javax.lang.model.element.TypeElement
+import javax.tools.Diagnostic
 
 @SupportedAnnotationTypes("androidx.lifecycle.OnLifecycleEvent")
 class LifecycleProcessor : AbstractProcessor() {
+    // observers of all the rounds, written to the registry once they are all known
+    private val registryObservers = mutableListOf<TypeElement>()
+    private var registryWritten = false
+
     override fun process(
         annotations: MutableSet<out TypeElement>,
         roundEnv: RoundEnvironment
     ): Boolean {
         val input = collectAndVerifyInput(processingEnv, roundEnv)
-        writeModels(transformToOutput(processingEnv, input), processingEnv)
+        val adapters = transformToOutput(processingEnv, input)
+        writeModels(adapters, processingEnv)
+
+        val registryName = processingEnv.options[OBSERVER_REGISTRY_OPTION]
+        if (registryName != null && !registryWritten) {
+            if (!SourceVersion.isName(registryName) || !registryName.contains('.')) {
+                processingEnv.messager.printMessage(
+                    Diagnostic.Kind.ERROR,
+                    ErrorMessages.INVALID_OBSERVER_REGISTRY
+                )
+                registryWritten = true
+                return true
+            }
+            registryObservers.addAll(adapters.map { it.type })
+            // Adapters written in this round trigger another one, so the registry is written in
+            // the first round without new observers and is still part of the compilation.
+            if (adapters.isEmpty() && !roundEnv.errorRaised()) {
+                writeRegistry(registryName, registryObservers, processingEnv)
+                registryWritten = true
+            }
+        }
         return true
     }
 
     override fun getSupportedSourceVersion(): SourceVersion {
         return SourceVersion.latest()
     }
+
+    override fun getSupportedOptions(): MutableSet<String> {
+        // The registry depends on all the observers of the module, which makes the processor
+        // aggregating when it is generated.
+        val incrementalType = if (processingEnv.options.containsKey(OBSERVER_REGISTRY_OPTION)) {
+            GRADLE_AGGREGATING_OPTION
+        } else {
+            GRADLE_ISOLATING_OPTION
+        }
+        return mutableSetOf(OBSERVER_REGISTRY_OPTION, incrementalType)
+    }
+
+    companion object {
+        /**
+         * The fully qualified name of the [GeneratedAdapterRegistry] to generate for the observers
+         * of the module. No registry is generated if the option is not set.
+         */
+        const val OBSERVER_REGISTRY_OPTION = "lifecycle.observerRegistry"
+
+        private const val GRADLE_AGGREGATING_OPTION = "org.gradle.annotation.processing.aggregating"
+        private const val GRADLE_ISOLATING_OPTION = "org.gradle.annotation.processing.isolating"
+    }
 }
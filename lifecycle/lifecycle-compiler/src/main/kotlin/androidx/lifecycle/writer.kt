@@ -25,9 +25,12 @@ import com.squareup.javapoet.FieldSpec
 import com.squareup.javapoet.JavaFile
 import com.squareup.javapoet.MethodSpec
 import com.squareup.javapoet.ParameterSpec
+import com.squareup.javapoet.ParameterizedTypeName
 import com.squareup.javapoet.TypeName
 import com.squareup.javapoet.TypeSpec
+import com.squareup.javapoet.WildcardTypeName
 import javax.annotation.processing.ProcessingEnvironment
+import javax.lang.model.element.ElementKind
 import javax.lang.model.element.Modifier
 import javax.lang.model.element.TypeElement
 import javax.tools.StandardLocation
@@ -59,6 +62,19 @@ private val METHODS_LOGGER: ParameterSpec = ParameterSpec.builder(
 
 private const val HAS_LOGGER_VAR = "hasLogger"
 
+private val OBSERVER_PARAM: ParameterSpec = ParameterSpec.builder(
+    TypeName.OBJECT, "observer"
+).build()
+private val INDEX_PARAM: ParameterSpec = ParameterSpec.builder(TypeName.INT, "index").build()
+private val INDEX_MAP_TYPE: TypeName = ParameterizedTypeName.get(
+    ClassName.get(Map::class.java),
+    ParameterizedTypeName.get(
+        ClassName.get(Class::class.java),
+        WildcardTypeName.subtypeOf(TypeName.OBJECT)
+    ),
+    TypeName.INT.box()
+)
+
 private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnvironment) {
     val receiverField: FieldSpec = FieldSpec.builder(
         ClassName.get(adapter.type), "mReceiver",
@@ -138,6 +154,144 @@ private fun writeAdapter(adapter: AdapterClass, processingEnv: ProcessingEnviron
     generateKeepRule(adapter.type, processingEnv)
 }
 
+/**
+ * Writes the [GeneratedAdapterRegistry] named [registryName] for the given observers.
+ *
+ * Observers and their adapters may be package private, so the registry delegates to a helper
+ * generated in every package, which indexes the observer classes and creates their adapters
+ * without reflection.
+ *
+ * Observers that can't have an instance of their own class (interfaces, abstract classes) or
+ * that are in the unnamed package are left out, Lifecycling still finds them by reflection.
+ */
+fun writeRegistry(
+    registryName: String,
+    observers: List<TypeElement>,
+    processingEnv: ProcessingEnvironment
+) {
+    val registryClass = ClassName.bestGuess(registryName)
+    val helperName = registryName.replace('.', '_') + "_Adapters"
+    val observersByPackage = observers
+        .filter { type ->
+            type.kind == ElementKind.CLASS && Modifier.ABSTRACT !in type.modifiers &&
+                !type.getPackage().isUnnamed
+        }
+        .sortedBy { it.qualifiedName.toString() }
+        .groupBy { it.getPackageQName() }
+        .toSortedMap()
+
+    val indexField = FieldSpec.builder(INDEX_MAP_TYPE, "mIndex", Modifier.PRIVATE, Modifier.FINAL)
+        .initializer("new $T<>()", HashMap::class.java)
+        .build()
+    val constructor = MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE)
+    val createAdapter = MethodSpec.methodBuilder("createAdapter")
+        .returns(GeneratedAdapter::class.java)
+        .addParameter(OBSERVER_PARAM)
+        .addModifiers(Modifier.PUBLIC)
+        .addAnnotation(Override::class.java)
+        .addStatement(
+            "$T $N = $N.get($N.getClass())", TypeName.INT.box(), INDEX_PARAM, indexField,
+            OBSERVER_PARAM
+        )
+        .beginControlFlow("if ($N == null)", INDEX_PARAM)
+        .addStatement("return null")
+        .endControlFlow()
+
+    var first = 0
+    observersByPackage.forEach { (packageName, types) ->
+        val helperClass = ClassName.get(packageName, helperName)
+        writeRegistryHelper(helperClass, types, processingEnv)
+        constructor.addStatement("$T.index($N, $L)", helperClass, indexField, first)
+        val end = first + types.size
+        createAdapter.beginControlFlow("if ($N < $L)", INDEX_PARAM, end)
+        if (first == 0) {
+            createAdapter.addStatement(
+                "return $T.createAdapter($N, $N)", helperClass, INDEX_PARAM, OBSERVER_PARAM
+            )
+        } else {
+            createAdapter.addStatement(
+                "return $T.createAdapter($N - $L, $N)", helperClass, INDEX_PARAM, first,
+                OBSERVER_PARAM
+            )
+        }
+        createAdapter.endControlFlow()
+        first = end
+    }
+    createAdapter.addStatement("return null")
+
+    val instanceField = FieldSpec.builder(
+        registryClass, "sInstance", Modifier.PRIVATE, Modifier.STATIC, Modifier.FINAL
+    ).initializer("new $T()", registryClass).build()
+    val install = MethodSpec.methodBuilder("install")
+        .addJavadoc("Registers this registry, so the adapters are created without reflection.\n")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addStatement("$T.registerAdapterRegistry($N)", Lifecycling::class.java, instanceField)
+        .build()
+
+    val registryTypeSpecBuilder = TypeSpec.classBuilder(registryClass)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addSuperinterface(ClassName.get(GeneratedAdapterRegistry::class.java))
+        .addField(instanceField)
+        .addField(indexField)
+        .addMethod(constructor.build())
+        .addMethod(createAdapter.build())
+        .addMethod(install)
+    observers.forEach { registryTypeSpecBuilder.addOriginatingElement(it) }
+
+    addGeneratedAnnotationIfAvailable(registryTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(registryClass.packageName(), registryTypeSpecBuilder.build())
+        .build().writeTo(processingEnv.filer)
+}
+
+private fun writeRegistryHelper(
+    helperClass: ClassName,
+    observers: List<TypeElement>,
+    processingEnv: ProcessingEnvironment
+) {
+    val indexParam = ParameterSpec.builder(INDEX_MAP_TYPE, "index").build()
+    val firstParam = ParameterSpec.builder(TypeName.INT, "first").build()
+    val index = MethodSpec.methodBuilder("index")
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(indexParam)
+        .addParameter(firstParam)
+    val createAdapter = MethodSpec.methodBuilder("createAdapter")
+        .returns(GeneratedAdapter::class.java)
+        .addModifiers(Modifier.PUBLIC, Modifier.STATIC)
+        .addParameter(INDEX_PARAM)
+        .addParameter(OBSERVER_PARAM)
+        .beginControlFlow("switch ($N)", INDEX_PARAM)
+
+    observers.forEachIndexed { i, type ->
+        val observerClass = ClassName.get(type)
+        val adapterClass = ClassName.get(type.getPackageQName(), getAdapterName(type))
+        if (i == 0) {
+            index.addStatement("$N.put($T.class, $N)", indexParam, observerClass, firstParam)
+        } else {
+            index.addStatement(
+                "$N.put($T.class, $N + $L)", indexParam, observerClass, firstParam, i
+            )
+        }
+        createAdapter.addCode(
+            "case $L:\n$>return new $T(($T) $N);\n$<", i, adapterClass, observerClass,
+            OBSERVER_PARAM
+        )
+    }
+    createAdapter.addCode("default:\n$>return null;\n$<").endControlFlow()
+
+    val helperTypeSpecBuilder = TypeSpec.classBuilder(helperClass)
+        .addModifiers(Modifier.PUBLIC, Modifier.FINAL)
+        .addMethod(MethodSpec.constructorBuilder().addModifiers(Modifier.PRIVATE).build())
+        .addMethod(index.build())
+        .addMethod(createAdapter.build())
+    observers.forEach { helperTypeSpecBuilder.addOriginatingElement(it) }
+
+    addGeneratedAnnotationIfAvailable(helperTypeSpecBuilder, processingEnv)
+
+    JavaFile.builder(helperClass.packageName(), helperTypeSpecBuilder.build())
+        .build().writeTo(processingEnv.filer)
+}
+
 private fun addGeneratedAnnotationIfAvailable(
     adapterTypeSpecBuilder: TypeSpec.Builder,
     processingEnv: ProcessingEnvironment
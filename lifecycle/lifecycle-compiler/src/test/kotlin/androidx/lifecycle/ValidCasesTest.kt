@@ -114,6 +114,31 @@ class ValidCasesTest {
             .and().generatesProGuardRule("bar.DifferentPackagesDerived2.pro")
     }
 
+    @Test
+    fun testObserverRegistry() {
+        JavaSourcesSubject.assertThat(
+            load("foo.DifferentPackagesBase1", ""),
+            load("bar.DifferentPackagesDerived1", "")
+        )
+            .withCompilerOptions("-Alifecycle.observerRegistry=test.ObserverRegistry")
+            .processedWith(LifecycleProcessor())
+            .compilesWithoutError().and().generatesSources(
+                load("foo.DifferentPackagesBase1_LifecycleAdapter", "expected"),
+                load("bar.DifferentPackagesDerived1_LifecycleAdapter", "expected"),
+                load("test.ObserverRegistry", "expected/registry/test"),
+                load("foo.test_ObserverRegistry_Adapters", "expected/registry/foo"),
+                load("bar.test_ObserverRegistry_Adapters", "expected/registry/bar")
+            )
+    }
+
+    @Test
+    fun testObserverRegistryInUnnamedPackage() {
+        JavaSourcesSubject.assertThat(load("foo.OnAnyMethod", ""))
+            .withCompilerOptions("-Alifecycle.observerRegistry=ObserverRegistry")
+            .processedWith(LifecycleProcessor())
+            .failsToCompile().withErrorContaining(ErrorMessages.INVALID_OBSERVER_REGISTRY)
+    }
+
     private fun <T> CompileTester.GeneratedPredicateClause<T>.generatesProGuardRule(name: String):
         CompileTester.SuccessfulFileClause<T> {
             return generatesFileNamed(StandardLocation.CLASS_OUTPUT, "", "META-INF/proguard/$name")
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package foo;
+
+import androidx.lifecycle.GeneratedAdapter;
+import java.lang.Class;
+import java.lang.Integer;
+import java.lang.Object;
+import java.util.Map;
+import javax.annotation.Generated;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class test_ObserverRegistry_Adapters {
+  private test_ObserverRegistry_Adapters() {
+  }
+
+  public static void index(Map<Class<?>, Integer> index, int first) {
+    index.put(DifferentPackagesBase1.class, first);
+  }
+
+  public static GeneratedAdapter createAdapter(int index, Object observer) {
+    switch (index) {
+      case 0:
+        return new DifferentPackagesBase1_LifecycleAdapter((DifferentPackagesBase1) observer);
+      default:
+        return null;
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright (C) 2017 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package test;
+
+import androidx.lifecycle.GeneratedAdapter;
+import androidx.lifecycle.GeneratedAdapterRegistry;
+import androidx.lifecycle.Lifecycling;
+import bar.test_ObserverRegistry_Adapters;
+import java.lang.Class;
+import java.lang.Integer;
+import java.lang.Object;
+import java.lang.Override;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.Generated;
+
+@Generated("androidx.lifecycle.LifecycleProcessor")
+public final class ObserverRegistry implements GeneratedAdapterRegistry {
+  private static final ObserverRegistry sInstance = new ObserverRegistry();
+
+  private final Map<Class<?>, Integer> mIndex = new HashMap<>();
+
+  private ObserverRegistry() {
+    test_ObserverRegistry_Adapters.index(mIndex, 0);
+    foo.test_ObserverRegistry_Adapters.index(mIndex, 1);
+  }
+
+  @Override
+  public GeneratedAdapter createAdapter(Object observer) {
+    Integer index = mIndex.get(observer.getClass());
+    if (index == null) {
+      return null;
+    }
+    if (index < 1) {
+      return test_ObserverRegistry_Adapters.createAdapter(index, observer);
+    }
+    if (index < 2) {
+      return foo.test_ObserverRegistry_Adapters.createAdapter(index - 1, observer);
+    }
+    return null;
+  }
+
+  /**
+   * Registers this registry, so the adapters are created without reflection.
+   */
+  public static void install() {
+    Lifecycling.registerAdapterRegistry(sInstance);
+  }
+}
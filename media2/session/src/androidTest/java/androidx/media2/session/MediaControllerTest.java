@@ -68,6 +68,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
@@ -331,6 +332,43 @@ public class MediaControllerTest extends MediaSessionTestBase {
         TestUtils.assertMetadataEquals(testMetadata, controller.getPlaylistMetadata());
     }
 
+    @Test
+    public void getPlaylist_afterMissedPlaylistChanges_requestsWholePlaylistOnce()
+            throws InterruptedException {
+        final List<MediaItem> testList = TestUtils.createMediaItems(10);
+        final AtomicReference<List<MediaItem>> listFromCallback = new AtomicReference<>();
+        final AtomicReference<CountDownLatch> latch =
+                new AtomicReference<>(new CountDownLatch(1));
+        final ControllerCallback callback = new ControllerCallback() {
+            @Override
+            public void onPlaylistChanged(@NonNull MediaController controller,
+                    List<MediaItem> playlist, MediaMetadata metadata) {
+                listFromCallback.set(playlist);
+                latch.get().countDown();
+            }
+        };
+        MediaController controller = createController(mSession.getToken(), true, null, callback);
+        mPlayer.mPlaylist = testList;
+        mPlayer.notifyPlaylistChanged();
+        assertTrue(latch.get().await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+
+        // Changes from an unknown playlist version can't be applied, so the controller requests
+        // the whole playlist, only once for both changes.
+        final List<MediaItem> newTestList = TestUtils.createMediaItems(5);
+        mPlayer.mPlaylist = newTestList;
+        latch.set(new CountDownLatch(2));
+        MediaControllerImplBase impl = (MediaControllerImplBase) controller.getImpl();
+        for (int i = 0; i < 2; i++) {
+            impl.notifyPlaylistChangesApplied(1000 + i, 1001 + i,
+                    Collections.singletonList(PlaylistChange.remove(0)), null, -1, -1, -1);
+        }
+
+        assertFalse(latch.get().await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        assertEquals(1, latch.get().getCount());
+        TestUtils.assertMediaItemListEquals(newTestList, listFromCallback.get());
+        TestUtils.assertMediaItemListEquals(newTestList, controller.getPlaylist());
+    }
+
     /**
      * This also tests {@link ControllerCallback#onPlaylistChanged(
      * MediaController, List, MediaMetadata)}.
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import android.os.Parcel;
+
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.media2.common.MediaParcelUtils;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.SmallTest;
+import androidx.versionedparcelable.ParcelImpl;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Tests {@link PlaylistChange}.
+ */
+@RunWith(AndroidJUnit4.class)
+@SmallTest
+public class PlaylistChangeTest extends MediaTestBase {
+    @Test
+    public void diff_unchangedPlaylist_hasNoChanges() {
+        List<MediaItem> playlist = createPlaylist(10);
+
+        List<PlaylistChange> changes = PlaylistChange.diff(playlist, getMetadataList(playlist),
+                new ArrayList<>(playlist));
+
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void diff_insertAndRemove() {
+        List<MediaItem> oldPlaylist = createPlaylist(10);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(3, TestUtils.createMediaItem("inserted"));
+        newPlaylist.remove(8);
+
+        assertDiffApplies(oldPlaylist, newPlaylist);
+    }
+
+    @Test
+    public void diff_movedItem_isSingleMove() {
+        List<MediaItem> oldPlaylist = createPlaylist(1000);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.add(10, newPlaylist.remove(900));
+
+        List<PlaylistChange> changes = assertDiffApplies(oldPlaylist, newPlaylist);
+
+        assertEquals(1, changes.size());
+        assertEquals(PlaylistChange.TYPE_MOVE, changes.get(0).getType());
+        assertEquals(900, changes.get(0).getIndex());
+        assertEquals(10, changes.get(0).getToIndex());
+    }
+
+    @Test
+    public void diff_updatedMetadata_isReplace() {
+        List<MediaItem> oldPlaylist = createPlaylist(10);
+        List<MediaMetadata> oldMetadataList = getMetadataList(oldPlaylist);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        newPlaylist.get(5).setMetadata(TestUtils.createMetadata("item_5", 1000));
+
+        List<PlaylistChange> changes = PlaylistChange.diff(oldPlaylist, oldMetadataList,
+                newPlaylist);
+
+        assertEquals(1, changes.size());
+        assertEquals(PlaylistChange.TYPE_REPLACE, changes.get(0).getType());
+        assertEquals(5, changes.get(0).getIndex());
+    }
+
+    @Test
+    public void diff_manyChanges_returnsNull() {
+        List<MediaItem> oldPlaylist = createPlaylist(10);
+        List<MediaItem> newPlaylist = new ArrayList<>(oldPlaylist);
+        Collections.reverse(newPlaylist);
+
+        assertNull(PlaylistChange.diff(oldPlaylist, getMetadataList(oldPlaylist), newPlaylist));
+    }
+
+    @Test
+    public void apply_changeOutOfBounds_returnsNull() {
+        List<MediaItem> playlist = createPlaylist(3);
+
+        assertNull(PlaylistChange.apply(playlist,
+                Collections.singletonList(PlaylistChange.remove(3))));
+        assertNull(PlaylistChange.apply(playlist,
+                Collections.singletonList(PlaylistChange.move(0, 3))));
+    }
+
+    @Test
+    public void parceling() {
+        MediaItem item = TestUtils.createMediaItem("inserted");
+        PlaylistChange change = writeToParcelAndCreatePlaylistChange(
+                PlaylistChange.insert(2, item));
+
+        assertEquals(PlaylistChange.TYPE_INSERT, change.getType());
+        assertEquals(2, change.getIndex());
+        TestUtils.assertMediaItemEquals(item, change.getItem());
+    }
+
+    private static List<PlaylistChange> assertDiffApplies(List<MediaItem> oldPlaylist,
+            List<MediaItem> newPlaylist) {
+        List<PlaylistChange> changes = PlaylistChange.diff(oldPlaylist,
+                getMetadataList(oldPlaylist), newPlaylist);
+        List<PlaylistChange> parceledChanges = new ArrayList<>();
+        for (PlaylistChange change : changes) {
+            parceledChanges.add(writeToParcelAndCreatePlaylistChange(change));
+        }
+        TestUtils.assertMediaItemListEquals(newPlaylist,
+                PlaylistChange.apply(oldPlaylist, parceledChanges));
+        return changes;
+    }
+
+    private static List<MediaItem> createPlaylist(int size) {
+        List<MediaItem> playlist = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            playlist.add(TestUtils.createMediaItem("item_" + i));
+        }
+        return playlist;
+    }
+
+    private static List<MediaMetadata> getMetadataList(List<MediaItem> playlist) {
+        List<MediaMetadata> metadataList = new ArrayList<>();
+        for (MediaItem item : playlist) {
+            metadataList.add(item.getMetadata());
+        }
+        return metadataList;
+    }
+
+    private static PlaylistChange writeToParcelAndCreatePlaylistChange(PlaylistChange change) {
+        ParcelImpl parcelImpl = MediaParcelUtils.toParcelable(change);
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcelImpl.writeToParcel(parcel, 0);
+            parcel.setDataPosition(0);
+            ParcelImpl newParcelImpl = ParcelImpl.CREATOR.createFromParcel(parcel);
+            return MediaParcelUtils.fromParcelable(newParcelImpl);
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
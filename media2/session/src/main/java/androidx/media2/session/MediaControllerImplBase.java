@@ -22,6 +22,7 @@ import static androidx.media2.common.SessionPlayer.UNKNOWN_TIME;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_CUSTOM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_ADD_PLAYLIST_ITEM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_DESELECT_TRACK;
+import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_MOVE_PLAYLIST_ITEM;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_PAUSE;
 import static androidx.media2.session.SessionCommand.COMMAND_CODE_PLAYER_PLAY;
@@ -104,6 +105,9 @@ class MediaControllerImplBase implements MediaControllerImpl {
     static final String TAG = "MC2ImplBase";
     static final boolean DEBUG = Log.isLoggable(TAG, Log.DEBUG);
 
+    // Version of the playlist before the session has sent one with a version.
+    private static final int PLAYLIST_VERSION_UNKNOWN = -1;
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     final MediaController mInstance;
     private final Context mContext;
@@ -124,6 +128,11 @@ class MediaControllerImplBase implements MediaControllerImpl {
     @GuardedBy("mLock")
     private List<MediaItem> mPlaylist;
     @GuardedBy("mLock")
+    private int mPlaylistVersion = PLAYLIST_VERSION_UNKNOWN;
+    // Whether the whole playlist has been requested and not received yet.
+    @GuardedBy("mLock")
+    private boolean mPlaylistSyncRequested;
+    @GuardedBy("mLock")
     private MediaMetadata mPlaylistMetadata;
     @GuardedBy("mLock")
     private @RepeatMode int mRepeatMode;
@@ -988,6 +997,68 @@ class MediaControllerImplBase implements MediaControllerImpl {
         });
     }
 
+    void notifyPlaylistSynced(int playlistVersion, final List<MediaItem> playlist,
+            final MediaMetadata metadata, int currentMediaItemIndex, int previousMediaItemIndex,
+            int nextMediaItemIndex) {
+        synchronized (mLock) {
+            mPlaylistVersion = playlistVersion;
+            mPlaylistSyncRequested = false;
+        }
+        notifyPlaylistChanges(playlist, metadata, currentMediaItemIndex, previousMediaItemIndex,
+                nextMediaItemIndex);
+    }
+
+    void notifyPlaylistChangesApplied(int fromPlaylistVersion, int toPlaylistVersion,
+            List<PlaylistChange> changes, final MediaMetadata metadata, int currentMediaItemIndex,
+            int previousMediaItemIndex, int nextMediaItemIndex) {
+        List<MediaItem> playlist = null;
+        boolean requestSync = false;
+        synchronized (mLock) {
+            if (mPlaylist != null && mPlaylistVersion == fromPlaylistVersion) {
+                playlist = PlaylistChange.apply(mPlaylist, changes);
+            }
+            if (playlist != null) {
+                mPlaylistVersion = toPlaylistVersion;
+            } else {
+                mPlaylistVersion = PLAYLIST_VERSION_UNKNOWN;
+                // Changes which arrive before the whole playlist can't be applied either, but
+                // the playlist only needs to be requested once.
+                requestSync = !mPlaylistSyncRequested;
+                mPlaylistSyncRequested = true;
+            }
+        }
+        if (playlist == null) {
+            // Missed a change or a full playlist, so the changes cannot be applied.
+            if (requestSync) {
+                if (DEBUG) {
+                    Log.d(TAG, "Cannot apply playlist changes from version "
+                            + fromPlaylistVersion + ", requesting the whole playlist");
+                }
+                requestPlaylistSync();
+            }
+            return;
+        }
+        notifyPlaylistChanges(playlist, metadata, currentMediaItemIndex, previousMediaItemIndex,
+                nextMediaItemIndex);
+    }
+
+    private void requestPlaylistSync() {
+        final IMediaSession iSession = getSessionInterfaceIfAble(COMMAND_CODE_PLAYER_GET_PLAYLIST);
+        if (iSession != null) {
+            int seq = mSequencedFutureManager.obtainNextSequenceNumber();
+            try {
+                iSession.requestPlaylistSync(mControllerStub, seq);
+                return;
+            } catch (RemoteException e) {
+                Log.w(TAG, "Cannot connect to the service or the session is gone", e);
+            }
+        }
+        synchronized (mLock) {
+            // Nothing will answer the request, so let the next changes request it again.
+            mPlaylistSyncRequested = false;
+        }
+    }
+
     void notifyPlaylistMetadataChanges(final MediaMetadata metadata) {
         synchronized (mLock) {
             mPlaylistMetadata = metadata;
@@ -160,6 +160,49 @@ class MediaControllerStub extends IMediaController.Stub {
         });
     }
 
+    @Override
+    public void onPlaylistSynced(int seq, final int playlistVersion,
+            final ParcelImplListSlice listSlice, final ParcelImpl metadata, final int currentIdx,
+            final int previousIdx, final int nextIdx) {
+        if (metadata == null) {
+            return;
+        }
+        dispatchControllerTask(new ControllerTask() {
+            @Override
+            public void run(MediaControllerImplBase controller) {
+                List<MediaItem> playlist =
+                        MediaUtils.convertParcelImplListSliceToMediaItemList(listSlice);
+                controller.notifyPlaylistSynced(playlistVersion, playlist,
+                        (MediaMetadata) MediaParcelUtils.fromParcelable(metadata), currentIdx,
+                        previousIdx, nextIdx);
+            }
+        });
+    }
+
+    @Override
+    public void onPlaylistChangesApplied(int seq, final int fromPlaylistVersion,
+            final int toPlaylistVersion, final ParcelImplListSlice changes,
+            final ParcelImpl metadata, final int currentIdx, final int previousIdx,
+            final int nextIdx) {
+        if (changes == null || metadata == null) {
+            return;
+        }
+        dispatchControllerTask(new ControllerTask() {
+            @Override
+            public void run(MediaControllerImplBase controller) {
+                List<ParcelImpl> parcelImplList = changes.getList();
+                List<PlaylistChange> changeList = new ArrayList<>();
+                for (int i = 0; i < parcelImplList.size(); i++) {
+                    changeList.add((PlaylistChange) MediaParcelUtils.fromParcelable(
+                            parcelImplList.get(i)));
+                }
+                controller.notifyPlaylistChangesApplied(fromPlaylistVersion, toPlaylistVersion,
+                        changeList, (MediaMetadata) MediaParcelUtils.fromParcelable(metadata),
+                        currentIdx, previousIdx, nextIdx);
+            }
+        });
+    }
+
     @Override
     public void onPlaylistMetadataChanged(int seq, final ParcelImpl metadata)
             throws RuntimeException {
@@ -857,7 +857,6 @@ public class MediaSession implements Closeable {
      * Information of a controller.
      */
     public static final class ControllerInfo {
-        @SuppressWarnings("UnusedVariable")
         private final int mControllerVersion;
         private final RemoteUserInfo mRemoteUserInfo;
         private final boolean mIsTrusted;
@@ -893,6 +892,10 @@ public class MediaSession implements Closeable {
             return mRemoteUserInfo;
         }
 
+        int getControllerVersion() {
+            return mControllerVersion;
+        }
+
         /**
          * Gets the package name. Can be
          * {@link androidx.media.MediaSessionManager.RemoteUserInfo#LEGACY_CONTROLLER} for
@@ -36,6 +36,7 @@ import android.util.Log;
 import android.util.SparseArray;
 import android.view.Surface;
 
+import androidx.annotation.GuardedBy;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.core.util.ObjectsCompat;
@@ -43,6 +44,7 @@ import androidx.media.MediaSessionManager;
 import androidx.media2.common.MediaItem;
 import androidx.media2.common.MediaMetadata;
 import androidx.media2.common.MediaParcelUtils;
+import androidx.media2.common.ParcelImplListSlice;
 import androidx.media2.common.Rating;
 import androidx.media2.common.SessionPlayer.PlayerResult;
 import androidx.media2.common.SessionPlayer.TrackInfo;
@@ -858,6 +860,45 @@ class MediaSessionStub extends IMediaSession.Stub {
                 });
     }
 
+    @Override
+    public void requestPlaylistSync(IMediaController caller, int seq) {
+        if (caller == null) {
+            return;
+        }
+        final long token = Binder.clearCallingIdentity();
+        try {
+            final ControllerInfo controller = mConnectedControllersManager.getController(
+                    caller.asBinder());
+            if (mSessionImpl.isClosed() || controller == null
+                    || !(controller.getControllerCb() instanceof Controller2Cb)) {
+                return;
+            }
+            mSessionImpl.getCallbackExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    SequencedFutureManager manager =
+                            mConnectedControllersManager.getSequencedFutureManager(controller);
+                    if (manager == null || !mConnectedControllersManager.isAllowedCommand(
+                            controller, SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST)) {
+                        return;
+                    }
+                    try {
+                        ((Controller2Cb) controller.getControllerCb()).syncPlaylist(
+                                manager.obtainNextSequenceNumber(), mSessionImpl.getPlaylist(),
+                                mSessionImpl.getPlaylistMetadata(),
+                                mSessionImpl.getCurrentMediaItemIndex(),
+                                mSessionImpl.getPreviousMediaItemIndex(),
+                                mSessionImpl.getNextMediaItemIndex());
+                    } catch (RemoteException e) {
+                        Log.w(TAG, "Exception in " + controller.toString(), e);
+                    }
+                }
+            });
+        } finally {
+            Binder.restoreCallingIdentity(token);
+        }
+    }
+
     @Override
     public void skipToPlaylistItem(IMediaController caller, int seq, final int index) {
         if (caller == null) {
@@ -1178,6 +1219,16 @@ class MediaSessionStub extends IMediaSession.Stub {
         // TODO: Drop 'Callback' from the name.
         private final IMediaController mIControllerCallback;
 
+        private final Object mPlaylistLock = new Object();
+        // Playlist and the metadata of its items that was last sent to the controller, or
+        // null if the next playlist should be sent as a whole.
+        @GuardedBy("mPlaylistLock")
+        private List<MediaItem> mSentPlaylist;
+        @GuardedBy("mPlaylistLock")
+        private List<MediaMetadata> mSentMetadataList;
+        @GuardedBy("mPlaylistLock")
+        private int mPlaylistVersion;
+
         Controller2Cb(@NonNull IMediaController callback) {
             mIControllerCallback = callback;
         }
@@ -1271,16 +1322,87 @@ class MediaSessionStub extends IMediaSession.Stub {
                     getCallbackBinder());
             if (mConnectedControllersManager.isAllowedCommand(controller,
                     SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST)) {
-                mIControllerCallback.onPlaylistChanged(seq,
-                        MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
-                        MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx, nextIdx);
-            } else if (mConnectedControllersManager.isAllowedCommand(controller,
+                if (controller.getControllerVersion() >= MediaUtils.VERSION_1) {
+                    sendPlaylist(seq, playlist, metadata, currentIdx, previousIdx, nextIdx,
+                            false);
+                } else {
+                    mIControllerCallback.onPlaylistChanged(seq,
+                            MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
+                            MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx,
+                            nextIdx);
+                }
+                return;
+            }
+            synchronized (mPlaylistLock) {
+                // Send the whole playlist once the controller is allowed to get it again.
+                mSentPlaylist = null;
+                mSentMetadataList = null;
+            }
+            if (mConnectedControllersManager.isAllowedCommand(controller,
                     SessionCommand.COMMAND_CODE_PLAYER_GET_PLAYLIST_METADATA)) {
                 mIControllerCallback.onPlaylistMetadataChanged(seq,
                         MediaParcelUtils.toParcelable(metadata));
             }
         }
 
+        /**
+         * Sends the playlist as a whole, regardless of what was sent before. Called when the
+         * controller has failed to apply the changes of the playlist.
+         */
+        void syncPlaylist(int seq, @Nullable List<MediaItem> playlist,
+                MediaMetadata metadata, int currentIdx, int previousIdx, int nextIdx)
+                throws RemoteException {
+            sendPlaylist(seq, playlist, metadata, currentIdx, previousIdx, nextIdx, true);
+        }
+
+        // Sends only the changes since the last playlist that was sent if possible, with the
+        // playlist versions that the controller uses to check that it can apply them.
+        private void sendPlaylist(int seq, @Nullable List<MediaItem> playlist,
+                MediaMetadata metadata, int currentIdx, int previousIdx, int nextIdx,
+                boolean forceSync) throws RemoteException {
+            synchronized (mPlaylistLock) {
+                List<PlaylistChange> changes = null;
+                if (!forceSync && mSentPlaylist != null && playlist != null
+                        && !playlist.contains(null)) {
+                    changes = PlaylistChange.diff(mSentPlaylist, mSentMetadataList, playlist);
+                }
+                final int fromVersion = mPlaylistVersion;
+                final int toVersion = ++mPlaylistVersion;
+                updateSentPlaylistLocked(playlist);
+                if (changes != null) {
+                    mIControllerCallback.onPlaylistChangesApplied(seq, fromVersion, toVersion,
+                            new ParcelImplListSlice(MediaParcelUtils.toParcelableList(changes)),
+                            MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx,
+                            nextIdx);
+                } else {
+                    mIControllerCallback.onPlaylistSynced(seq, toVersion,
+                            MediaUtils.convertMediaItemListToParcelImplListSlice(playlist),
+                            MediaParcelUtils.toParcelable(metadata), currentIdx, previousIdx,
+                            nextIdx);
+                }
+            }
+        }
+
+        @GuardedBy("mPlaylistLock")
+        private void updateSentPlaylistLocked(@Nullable List<MediaItem> playlist) {
+            mSentPlaylist = null;
+            mSentMetadataList = null;
+            if (playlist == null) {
+                return;
+            }
+            final List<MediaMetadata> metadataList = new ArrayList<>(playlist.size());
+            for (int i = 0; i < playlist.size(); i++) {
+                final MediaItem item = playlist.get(i);
+                if (item == null) {
+                    // Null items aren't sent, so indices wouldn't match on the controller.
+                    return;
+                }
+                metadataList.add(item.getMetadata());
+            }
+            mSentPlaylist = new ArrayList<>(playlist);
+            mSentMetadataList = metadataList;
+        }
+
         @Override
         void onPlaylistMetadataChanged(int seq, MediaMetadata metadata) throws RemoteException {
             ControllerInfo controller = mConnectedControllersManager.getController(
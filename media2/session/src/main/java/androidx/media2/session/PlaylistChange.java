@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.media2.session;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.media2.common.MediaItem;
+import androidx.media2.common.MediaMetadata;
+import androidx.versionedparcelable.ParcelField;
+import androidx.versionedparcelable.VersionedParcelable;
+import androidx.versionedparcelable.VersionedParcelize;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A single change of a playlist, which is sent from {@link MediaSession} to
+ * {@link MediaController} instead of the whole playlist when only a few items have changed.
+ * <p>
+ * Changes are computed with {@link #diff(List, List, List)} and applied in order with
+ * {@link #apply(List, List)}. Only controllers of {@link MediaUtils#VERSION_1} or later receive
+ * changes.
+ * <p>
+ * All fields here are effectively final. Do not modify.
+ */
+@VersionedParcelize
+class PlaylistChange implements VersionedParcelable {
+    // Inserts mItem at mIndex.
+    static final int TYPE_INSERT = 0;
+    // Removes the item at mIndex.
+    static final int TYPE_REMOVE = 1;
+    // Moves the item at mIndex to mToIndex, as SessionPlayer#movePlaylistItem(int, int) does.
+    static final int TYPE_MOVE = 2;
+    // Replaces the item at mIndex with mItem.
+    static final int TYPE_REPLACE = 3;
+
+    @ParcelField(0)
+    int mType;
+    @ParcelField(1)
+    int mIndex;
+    @ParcelField(2)
+    int mToIndex;
+    @ParcelField(3)
+    MediaItem mItem;
+
+    // For versioned parcelable.
+    PlaylistChange() {
+        // no-op
+    }
+
+    private PlaylistChange(int type, int index, int toIndex, @Nullable MediaItem item) {
+        mType = type;
+        mIndex = index;
+        mToIndex = toIndex;
+        mItem = MediaUtils.upcastForPreparceling(item);
+    }
+
+    static PlaylistChange insert(int index, @NonNull MediaItem item) {
+        return new PlaylistChange(TYPE_INSERT, index, index, item);
+    }
+
+    static PlaylistChange remove(int index) {
+        return new PlaylistChange(TYPE_REMOVE, index, index, null);
+    }
+
+    static PlaylistChange move(int fromIndex, int toIndex) {
+        return new PlaylistChange(TYPE_MOVE, fromIndex, toIndex, null);
+    }
+
+    static PlaylistChange replace(int index, @NonNull MediaItem item) {
+        return new PlaylistChange(TYPE_REPLACE, index, index, item);
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public int getIndex() {
+        return mIndex;
+    }
+
+    public int getToIndex() {
+        return mToIndex;
+    }
+
+    @Nullable
+    public MediaItem getItem() {
+        return mItem;
+    }
+
+    /**
+     * Computes the changes that turn the old playlist into the new one. An item is considered
+     * unchanged if it's the same instance with the same metadata instance as before, so updating
+     * the metadata of an item is sent as a replacement.
+     * <p>
+     * Only the range between the common prefix and suffix of both playlists is compared. A single
+     * moved item is detected as such, and anything else in the range is sent as replacements
+     * followed by insertions or removals.
+     *
+     * @param oldPlaylist the playlist which was sent before
+     * @param oldMetadataList the metadata of each item of the old playlist when it was sent
+     * @param newPlaylist the new playlist, which shouldn't contain {@code null}
+     * @return the changes, or {@code null} if there are so many that the whole playlist should be
+     *         sent instead
+     */
+    @Nullable
+    static List<PlaylistChange> diff(@NonNull List<MediaItem> oldPlaylist,
+            @NonNull List<MediaMetadata> oldMetadataList, @NonNull List<MediaItem> newPlaylist) {
+        final int oldSize = oldPlaylist.size();
+        final int newSize = newPlaylist.size();
+
+        int start = 0;
+        while (start < oldSize && start < newSize
+                && isSameItem(oldPlaylist, oldMetadataList, start, newPlaylist, start)) {
+            start++;
+        }
+        int end = 0;
+        while (end < oldSize - start && end < newSize - start
+                && isSameItem(oldPlaylist, oldMetadataList, oldSize - 1 - end,
+                        newPlaylist, newSize - 1 - end)) {
+            end++;
+        }
+        final int oldCount = oldSize - start - end;
+        final int newCount = newSize - start - end;
+        if (oldCount == 0 && newCount == 0) {
+            return Collections.emptyList();
+        }
+
+        if (oldCount == newCount && oldCount >= 2) {
+            final int last = start + oldCount - 1;
+            if (isSameItem(oldPlaylist, oldMetadataList, start, newPlaylist, last)
+                    && isSameRange(oldPlaylist, oldMetadataList, start + 1, newPlaylist, start,
+                            oldCount - 1)) {
+                return Collections.singletonList(move(start, last));
+            }
+            if (isSameItem(oldPlaylist, oldMetadataList, last, newPlaylist, start)
+                    && isSameRange(oldPlaylist, oldMetadataList, start, newPlaylist, start + 1,
+                            oldCount - 1)) {
+                return Collections.singletonList(move(last, start));
+            }
+        }
+
+        // Sending more than half of the playlist as changes isn't worth it.
+        if (Math.max(oldCount, newCount) > newSize / 2) {
+            return null;
+        }
+        final List<PlaylistChange> changes = new ArrayList<>();
+        final int replaceCount = Math.min(oldCount, newCount);
+        for (int i = 0; i < replaceCount; i++) {
+            changes.add(replace(start + i, newPlaylist.get(start + i)));
+        }
+        for (int i = replaceCount; i < oldCount; i++) {
+            changes.add(remove(start + replaceCount));
+        }
+        for (int i = replaceCount; i < newCount; i++) {
+            changes.add(insert(start + i, newPlaylist.get(start + i)));
+        }
+        return changes;
+    }
+
+    /**
+     * Applies the changes in order to a copy of the playlist.
+     *
+     * @return the changed playlist, or {@code null} if a change doesn't fit the playlist
+     */
+    @Nullable
+    static List<MediaItem> apply(@NonNull List<MediaItem> playlist,
+            @NonNull List<PlaylistChange> changes) {
+        final List<MediaItem> result = new ArrayList<>(playlist);
+        for (int i = 0; i < changes.size(); i++) {
+            final PlaylistChange change = changes.get(i);
+            if (change == null) {
+                return null;
+            }
+            final int index = change.getIndex();
+            final int size = result.size();
+            switch (change.getType()) {
+                case TYPE_INSERT:
+                    if (index < 0 || index > size || change.getItem() == null) {
+                        return null;
+                    }
+                    result.add(index, change.getItem());
+                    break;
+                case TYPE_REMOVE:
+                    if (index < 0 || index >= size) {
+                        return null;
+                    }
+                    result.remove(index);
+                    break;
+                case TYPE_MOVE:
+                    final int toIndex = change.getToIndex();
+                    if (index < 0 || index >= size || toIndex < 0 || toIndex >= size) {
+                        return null;
+                    }
+                    result.add(toIndex, result.remove(index));
+                    break;
+                case TYPE_REPLACE:
+                    if (index < 0 || index >= size || change.getItem() == null) {
+                        return null;
+                    }
+                    result.set(index, change.getItem());
+                    break;
+                default:
+                    return null;
+            }
+        }
+        return result;
+    }
+
+    private static boolean isSameItem(List<MediaItem> oldPlaylist,
+            List<MediaMetadata> oldMetadataList, int oldIndex, List<MediaItem> newPlaylist,
+            int newIndex) {
+        final MediaItem item = newPlaylist.get(newIndex);
+        return oldPlaylist.get(oldIndex) == item
+                && oldMetadataList.get(oldIndex) == item.getMetadata();
+    }
+
+    private static boolean isSameRange(List<MediaItem> oldPlaylist,
+            List<MediaMetadata> oldMetadataList, int oldStart, List<MediaItem> newPlaylist,
+            int newStart, int count) {
+        for (int i = 0; i < count; i++) {
+            if (!isSameItem(oldPlaylist, oldMetadataList, oldStart + i, newPlaylist,
+                    newStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
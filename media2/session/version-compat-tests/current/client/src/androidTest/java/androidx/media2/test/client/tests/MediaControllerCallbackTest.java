@@ -677,6 +677,67 @@ public class MediaControllerCallbackTest extends MediaSessionTestBase {
         assertEquals(listFromCallback.get(), controller.getPlaylist());
     }
 
+    @Test
+    public void onPlaylistChanged_movedItem() throws InterruptedException {
+        final int listSize = 10;
+        final AtomicReference<List<MediaItem>> listFromCallback = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(2);
+        final MediaController.ControllerCallback callback =
+                new MediaController.ControllerCallback() {
+                    @Override
+                    public void onPlaylistChanged(@NonNull MediaController controller,
+                            List<MediaItem> playlist, MediaMetadata metadata) {
+                        listFromCallback.set(playlist);
+                        latch.countDown();
+                    }
+                };
+        MediaController controller = createController(mRemoteSession2.getToken(), true, null,
+                callback);
+        RemoteMediaSession.RemoteMockPlayer player = mRemoteSession2.getMockPlayer();
+        player.createAndSetFakePlaylist(listSize);
+        player.notifyPlaylistChanged();
+        player.moveFakePlaylistItem(8, 2);
+        player.notifyPlaylistChanged();
+
+        assertTrue(latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        List<String> expectedMediaIds = getFakeMediaIds(listSize);
+        expectedMediaIds.add(2, expectedMediaIds.remove(8));
+        assertMediaIds(expectedMediaIds, listFromCallback.get());
+        assertMediaIds(expectedMediaIds, controller.getPlaylist());
+    }
+
+    @Test
+    public void onPlaylistChanged_insertedItems() throws InterruptedException {
+        final int listSize = 10;
+        final AtomicReference<List<MediaItem>> listFromCallback = new AtomicReference<>();
+        final CountDownLatch latch = new CountDownLatch(3);
+        final MediaController.ControllerCallback callback =
+                new MediaController.ControllerCallback() {
+                    @Override
+                    public void onPlaylistChanged(@NonNull MediaController controller,
+                            List<MediaItem> playlist, MediaMetadata metadata) {
+                        listFromCallback.set(playlist);
+                        latch.countDown();
+                    }
+                };
+        MediaController controller = createController(mRemoteSession2.getToken(), true, null,
+                callback);
+        RemoteMediaSession.RemoteMockPlayer player = mRemoteSession2.getMockPlayer();
+        player.createAndSetFakePlaylist(listSize);
+        player.notifyPlaylistChanged();
+        player.addFakePlaylistItem(3, "inserted1");
+        player.notifyPlaylistChanged();
+        player.addFakePlaylistItem(listSize + 1, "inserted2");
+        player.notifyPlaylistChanged();
+
+        assertTrue(latch.await(TIMEOUT_MS, TimeUnit.MILLISECONDS));
+        List<String> expectedMediaIds = getFakeMediaIds(listSize);
+        expectedMediaIds.add(3, "inserted1");
+        expectedMediaIds.add("inserted2");
+        assertMediaIds(expectedMediaIds, listFromCallback.get());
+        assertMediaIds(expectedMediaIds, controller.getPlaylist());
+    }
+
     /**
      * This also tests {@link MediaController#getPlaylistMetadata()}.
      */
@@ -1273,4 +1334,21 @@ public class MediaControllerCallbackTest extends MediaSessionTestBase {
         mRemoteSessionList.add(session);
         return session;
     }
+
+    private static List<String> getFakeMediaIds(int size) {
+        List<String> mediaIds = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            mediaIds.add(TestUtils.getMediaIdInFakeList(i));
+        }
+        return mediaIds;
+    }
+
+    private static void assertMediaIds(List<String> expectedMediaIds, List<MediaItem> playlist) {
+        assertNotNull(playlist);
+        List<String> mediaIds = new ArrayList<>();
+        for (MediaItem item : playlist) {
+            mediaIds.add(item.getMediaId());
+        }
+        assertEquals(expectedMediaIds, mediaIds);
+    }
 }
@@ -463,6 +463,32 @@ public class MediaSessionProviderService extends Service {
             player.mPlaylist = list;
         }
 
+        @Override
+        public void moveFakePlaylistItem(String sessionId, int fromIndex, int toIndex)
+                throws RemoteException {
+            MediaSession session = mSessionMap.get(sessionId);
+            MockPlayer player = (MockPlayer) session.getPlayer();
+
+            // Keep the instances of the items, so that the session can tell what has changed.
+            List<MediaItem> list = new ArrayList<>(player.mPlaylist);
+            list.add(toIndex, list.remove(fromIndex));
+            player.mPlaylist = list;
+        }
+
+        @Override
+        public void addFakePlaylistItem(String sessionId, int index, String mediaId)
+                throws RemoteException {
+            MediaSession session = mSessionMap.get(sessionId);
+            MockPlayer player = (MockPlayer) session.getPlayer();
+
+            List<MediaItem> list = new ArrayList<>(player.mPlaylist);
+            list.add(index, new MediaItem.Builder()
+                    .setMetadata(new MediaMetadata.Builder()
+                            .putString(MediaMetadata.METADATA_KEY_MEDIA_ID, mediaId).build())
+                    .build());
+            player.mPlaylist = list;
+        }
+
         @Override
         public void setPlaylistWithFakeItem(String sessionId, List<ParcelImpl> playlist)
                 throws RemoteException {
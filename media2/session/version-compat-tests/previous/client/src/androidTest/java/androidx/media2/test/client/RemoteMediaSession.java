@@ -417,6 +417,22 @@ public class RemoteMediaSession {
             }
         }
 
+        public void moveFakePlaylistItem(int fromIndex, int toIndex) {
+            try {
+                mBinder.moveFakePlaylistItem(mSessionId, fromIndex, toIndex);
+            } catch (RemoteException ex) {
+                Log.e(TAG, "Failed to call moveFakePlaylistItem()");
+            }
+        }
+
+        public void addFakePlaylistItem(int index, String mediaId) {
+            try {
+                mBinder.addFakePlaylistItem(mSessionId, index, mediaId);
+            } catch (RemoteException ex) {
+                Log.e(TAG, "Failed to call addFakePlaylistItem()");
+            }
+        }
+
         public void setPlaylistWithFakeItem(List<MediaItem> playlist) {
             try {
                 mBinder.setPlaylistWithFakeItem(
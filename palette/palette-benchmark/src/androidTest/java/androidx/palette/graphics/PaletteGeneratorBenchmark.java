@@ -0,0 +1,124 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.palette.benchmark.test.R;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Measures generating the palettes of the tiles of a grid, with {@link Palette.Builder#generate()}
+ * and with a {@link PaletteGenerator}.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class PaletteGeneratorBenchmark {
+    private static final int TILES = 100;
+    private static final int TILE_SIZE = 256;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final List<Bitmap> mTiles = new ArrayList<>();
+    private Bitmap mPhoto;
+    private ExecutorService mExecutor;
+    private int mThreads;
+
+    @Before
+    public void setUp() {
+        mPhoto = BitmapFactory.decodeResource(
+                ApplicationProvider.getApplicationContext().getResources(), R.drawable.photo);
+        for (int i = 0; i < TILES; i++) {
+            // Cut the tiles from different parts of the photo
+            final int x = (i * 31) % Math.max(1, mPhoto.getWidth() - TILE_SIZE);
+            final int y = (i * 17) % Math.max(1, mPhoto.getHeight() - TILE_SIZE);
+            mTiles.add(Bitmap.createBitmap(mPhoto, x, y,
+                    Math.min(TILE_SIZE, mPhoto.getWidth()),
+                    Math.min(TILE_SIZE, mPhoto.getHeight())));
+        }
+        mThreads = Runtime.getRuntime().availableProcessors();
+        mExecutor = Executors.newFixedThreadPool(mThreads);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void builderGenerate() {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (Bitmap tile : mTiles) {
+                Palette.from(tile).generate();
+            }
+        }
+    }
+
+    @Test
+    public void generatorGenerate() {
+        final PaletteGenerator generator = new PaletteGenerator();
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (Bitmap tile : mTiles) {
+                generator.generate(Palette.from(tile));
+            }
+        }
+    }
+
+    @Test
+    public void generatorBatch() {
+        final PaletteGenerator generator = new PaletteGenerator(mExecutor, mThreads);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            final List<Palette.Builder> builders = new ArrayList<>();
+            for (Bitmap tile : mTiles) {
+                builders.add(Palette.from(tile));
+            }
+            state.resumeTiming();
+            generator.generate(builders);
+        }
+    }
+
+    @Test
+    public void generatorFullSize() {
+        // Large bitmaps which are not scaled down have their histogram split across threads
+        final PaletteGenerator generator = new PaletteGenerator(mExecutor, mThreads);
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            generator.generate(Palette.from(mPhoto).resizeBitmapArea(0));
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+
+import android.graphics.Bitmap;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+import androidx.test.filters.SmallTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@RunWith(AndroidJUnit4.class)
+public class PaletteGeneratorTest {
+
+    private ExecutorService mExecutor;
+
+    @Before
+    public void setUp() {
+        mExecutor = Executors.newFixedThreadPool(3);
+    }
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    @SmallTest
+    public void testGenerate() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final Palette expected = Palette.from(bitmap).generate();
+
+        final PaletteGenerator generator = new PaletteGenerator();
+        // Generate a few times so that the buffers are reused
+        for (int i = 0; i < 3; i++) {
+            assertSwatchesEqual(expected, generator.generate(Palette.from(bitmap)));
+        }
+    }
+
+    @Test
+    @SmallTest
+    public void testGenerate_withRegion() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final Palette expected = Palette.from(bitmap)
+                .setRegion(0, 0, bitmap.getWidth() / 2, bitmap.getHeight() / 2)
+                .generate();
+
+        final Palette palette = new PaletteGenerator().generate(Palette.from(bitmap)
+                .setRegion(0, 0, bitmap.getWidth() / 2, bitmap.getHeight() / 2));
+        assertSwatchesEqual(expected, palette);
+    }
+
+    @Test
+    @MediumTest
+    public void testGenerate_splitsHistogram() {
+        // Without resizing, the histogram of the bitmap is built on multiple threads
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final Palette expected = Palette.from(bitmap).resizeBitmapArea(0).generate();
+
+        final PaletteGenerator generator = new PaletteGenerator(mExecutor, 4);
+        assertSwatchesEqual(expected,
+                generator.generate(Palette.from(bitmap).resizeBitmapArea(0)));
+    }
+
+    @Test
+    @MediumTest
+    public void testGenerate_batch() {
+        final Bitmap bitmap = TestUtils.loadSampleBitmap();
+        final List<Palette.Builder> builders = new ArrayList<>();
+        final List<Palette> expected = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) {
+            builders.add(Palette.from(bitmap).maximumColorCount(i * 3));
+            expected.add(Palette.from(bitmap).maximumColorCount(i * 3).generate());
+        }
+
+        final List<Palette> palettes = new PaletteGenerator(mExecutor, 4).generate(builders);
+        assertEquals(expected.size(), palettes.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertSwatchesEqual(expected.get(i), palettes.get(i));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    @SmallTest
+    public void testInvalidParallelism() {
+        new PaletteGenerator(mExecutor, 0);
+    }
+
+    private static void assertSwatchesEqual(Palette expected, Palette actual) {
+        assertEquals(expected.getSwatches(), actual.getSwatches());
+        assertEquals(expected.getVibrantSwatch(), actual.getVibrantSwatch());
+        assertEquals(expected.getMutedSwatch(), actual.getMutedSwatch());
+        assertEquals(expected.getDominantSwatch(), actual.getDominantSwatch());
+    }
+}
@@ -16,11 +16,10 @@
 
 package androidx.palette.graphics;
 
-import android.graphics.Color;
-
 import androidx.annotation.Nullable;
 import androidx.core.graphics.ColorUtils;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -49,36 +48,85 @@ final class ColorCutQuantizer {
     private static final int QUANTIZE_WORD_WIDTH = 5;
     private static final int QUANTIZE_WORD_MASK = (1 << QUANTIZE_WORD_WIDTH) - 1;
 
+    /**
+     * The number of entries of a histogram, one for each quantized color.
+     */
+    static final int HISTOGRAM_SIZE = 1 << (QUANTIZE_WORD_WIDTH * 3);
+
     final int[] mColors;
     final int[] mHistogram;
     final List<Palette.Swatch> mQuantizedColors;
     @Nullable final Palette.Filter[] mFilters;
 
-    private final float[] mTempHsl = new float[3];
-
     /**
      * Constructor.
      *
-     * @param pixels histogram representing an image's pixel data
+     * @param histogram histogram representing an image's pixel data, see
+     *                  {@link #addToHistogram(int[], int, int, int[])}. The populations of the
+     *                  colors which are filtered out are set to 0.
      * @param maxColors The maximum number of colors that should be in the result palette.
      * @param filters Set of filters to use in the quantization stage
      */
-    ColorCutQuantizer(int[] pixels, int maxColors, @Nullable Palette.Filter[] filters) {
+    ColorCutQuantizer(int[] histogram, int maxColors, @Nullable Palette.Filter[] filters) {
         mFilters = filters;
+        mHistogram = histogram;
+
+        final int[] colors = mColors = getDistinctColors(histogram, filters);
+
+        if (colors.length <= maxColors) {
+            // The image has fewer colors than the maximum requested, so just return the colors
+            mQuantizedColors = createSwatches(colors, histogram);
+        } else {
+            // We need use quantization to reduce the number of colors
+            mQuantizedColors = quantizePixels(maxColors);
+        }
+    }
+
+    /**
+     * Adds the pixels in the given range to a histogram of their quantized colors.
+     *
+     * @param pixels the pixels in RGB888
+     * @param from the index of the first pixel, inclusive
+     * @param to the index of the last pixel, exclusive
+     * @param histogram the histogram to add to, with {@link #HISTOGRAM_SIZE} entries
+     */
+    static void addToHistogram(int[] pixels, int from, int to, int[] histogram) {
+        for (int i = from; i < to; i++) {
+            histogram[quantizeFromRgb888(pixels[i])]++;
+        }
+    }
 
-        final int[] hist = mHistogram = new int[1 << (QUANTIZE_WORD_WIDTH * 3)];
-        for (int i = 0; i < pixels.length; i++) {
-            final int quantizedColor = quantizeFromRgb888(pixels[i]);
-            // Now update the pixel value to the quantized value
-            pixels[i] = quantizedColor;
-            // And update the histogram
-            hist[quantizedColor]++;
+    /**
+     * Adds the remaining pixels of the buffer to a histogram of their quantized colors.
+     *
+     * @param pixels the pixels in RGB888, which are all consumed
+     * @param histogram the histogram to add to, with {@link #HISTOGRAM_SIZE} entries
+     */
+    static void addToHistogram(IntBuffer pixels, int[] histogram) {
+        if (pixels.hasArray()) {
+            final int from = pixels.arrayOffset() + pixels.position();
+            addToHistogram(pixels.array(), from, from + pixels.remaining(), histogram);
+            pixels.position(pixels.limit());
+        } else {
+            while (pixels.hasRemaining()) {
+                histogram[quantizeFromRgb888(pixels.get())]++;
+            }
         }
+    }
+
+    /**
+     * Removes the colors which are filtered out from a histogram, by setting their population to
+     * 0.
+     *
+     * @return the quantized colors which remain in the histogram
+     */
+    static int[] getDistinctColors(int[] hist, @Nullable Palette.Filter[] filters) {
+        final float[] tempHsl = new float[3];
 
         // Now let's count the number of distinct colors
         int distinctColorCount = 0;
         for (int color = 0; color < hist.length; color++) {
-            if (hist[color] > 0 && shouldIgnoreColor(color)) {
+            if (hist[color] > 0 && shouldIgnoreQuantizedColor(color, tempHsl, filters)) {
                 // If we should ignore the color, set the population to 0
                 hist[color] = 0;
             }
@@ -89,24 +137,25 @@ final class ColorCutQuantizer {
         }
 
         // Now lets go through create an array consisting of only distinct colors
-        final int[] colors = mColors = new int[distinctColorCount];
+        final int[] colors = new int[distinctColorCount];
         int distinctColorIndex = 0;
         for (int color = 0; color < hist.length; color++) {
             if (hist[color] > 0) {
                 colors[distinctColorIndex++] = color;
             }
         }
+        return colors;
+    }
 
-        if (distinctColorCount <= maxColors) {
-            // The image has fewer colors than the maximum requested, so just return the colors
-            mQuantizedColors = new ArrayList<>();
-            for (int color : colors) {
-                mQuantizedColors.add(new Palette.Swatch(approximateToRgb888(color), hist[color]));
-            }
-        } else {
-            // We need use quantization to reduce the number of colors
-            mQuantizedColors = quantizePixels(maxColors);
+    /**
+     * @return a swatch for each of the given quantized colors
+     */
+    static List<Palette.Swatch> createSwatches(int[] colors, int[] hist) {
+        final List<Palette.Swatch> swatches = new ArrayList<>(colors.length);
+        for (int color : colors) {
+            swatches.add(new Palette.Swatch(approximateToRgb888(color), hist[color]));
         }
+        return swatches;
     }
 
     /**
@@ -392,20 +441,26 @@ final class ColorCutQuantizer {
         }
     }
 
-    private boolean shouldIgnoreColor(int color565) {
+    private static boolean shouldIgnoreQuantizedColor(int color565, float[] tempHsl,
+            @Nullable Palette.Filter[] filters) {
         final int rgb = approximateToRgb888(color565);
-        ColorUtils.colorToHSL(rgb, mTempHsl);
-        return shouldIgnoreColor(rgb, mTempHsl);
+        ColorUtils.RGBToHSL((rgb >> 16) & 0xFF, (rgb >> 8) & 0xFF, rgb & 0xFF, tempHsl);
+        return shouldIgnoreColor(rgb, tempHsl, filters);
     }
 
     private boolean shouldIgnoreColor(Palette.Swatch color) {
-        return shouldIgnoreColor(color.getRgb(), color.getHsl());
+        return shouldIgnoreColor(color, mFilters);
+    }
+
+    static boolean shouldIgnoreColor(Palette.Swatch color, @Nullable Palette.Filter[] filters) {
+        return shouldIgnoreColor(color.getRgb(), color.getHsl(), filters);
     }
 
-    private boolean shouldIgnoreColor(int rgb, float[] hsl) {
-        if (mFilters != null && mFilters.length > 0) {
-            for (int i = 0, count = mFilters.length; i < count; i++) {
-                if (!mFilters[i].isAllowed(rgb, hsl)) {
+    private static boolean shouldIgnoreColor(int rgb, float[] hsl,
+            @Nullable Palette.Filter[] filters) {
+        if (filters != null && filters.length > 0) {
+            for (int i = 0, count = filters.length; i < count; i++) {
+                if (!filters[i].isAllowed(rgb, hsl)) {
                     return true;
                 }
             }
@@ -427,9 +482,9 @@ final class ColorCutQuantizer {
      * Quantized a RGB888 value to have a word width of {@value #QUANTIZE_WORD_WIDTH}.
      */
     private static int quantizeFromRgb888(int color) {
-        int r = modifyWordWidth(Color.red(color), 8, QUANTIZE_WORD_WIDTH);
-        int g = modifyWordWidth(Color.green(color), 8, QUANTIZE_WORD_WIDTH);
-        int b = modifyWordWidth(Color.blue(color), 8, QUANTIZE_WORD_WIDTH);
+        int r = modifyWordWidth((color >> 16) & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        int g = modifyWordWidth((color >> 8) & 0xFF, 8, QUANTIZE_WORD_WIDTH);
+        int b = modifyWordWidth(color & 0xFF, 8, QUANTIZE_WORD_WIDTH);
         return r << (QUANTIZE_WORD_WIDTH + QUANTIZE_WORD_WIDTH) | g << QUANTIZE_WORD_WIDTH | b;
     }
 
@@ -437,9 +492,10 @@ final class ColorCutQuantizer {
      * Quantized RGB888 values to have a word width of {@value #QUANTIZE_WORD_WIDTH}.
      */
     static int approximateToRgb888(int r, int g, int b) {
-        return Color.rgb(modifyWordWidth(r, QUANTIZE_WORD_WIDTH, 8),
-                modifyWordWidth(g, QUANTIZE_WORD_WIDTH, 8),
-                modifyWordWidth(b, QUANTIZE_WORD_WIDTH, 8));
+        return 0xFF000000
+                | modifyWordWidth(r, QUANTIZE_WORD_WIDTH, 8) << 16
+                | modifyWordWidth(g, QUANTIZE_WORD_WIDTH, 8) << 8
+                | modifyWordWidth(b, QUANTIZE_WORD_WIDTH, 8);
     }
 
     private static int approximateToRgb888(int color) {
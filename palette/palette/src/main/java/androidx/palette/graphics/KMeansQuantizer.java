@@ -0,0 +1,211 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A {@link Palette.Quantizer} based on the k-means algorithm, which finds representative colors
+ * of an image.
+ * <p>
+ * The colors are grouped into as many clusters as the maximum number of colors. Each color is
+ * assigned to the cluster with the nearest center, and the centers are moved to the average
+ * color of their cluster, until no color changes its cluster or the maximum number of
+ * iterations is reached. The swatches are the centers of the clusters.
+ * <p>
+ * Like {@link MedianCutQuantizer}, this works on a histogram of colors with 5 bits per
+ * component, so its cost depends on the number of distinct colors rather than on the number of
+ * pixels. Its swatches are usually closer to the colors of the image than the ones of
+ * {@link MedianCutQuantizer}, which is better at picking out distinct colors that only cover a
+ * small part of the image.
+ */
+public final class KMeansQuantizer implements Palette.Quantizer {
+    private static final int DEFAULT_MAX_ITERATIONS = 10;
+
+    private final int mMaxIterations;
+
+    /**
+     * Creates a quantizer which moves the centers of the clusters up to 10 times.
+     */
+    public KMeansQuantizer() {
+        this(DEFAULT_MAX_ITERATIONS);
+    }
+
+    /**
+     * Creates a quantizer which moves the centers of the clusters up to the given number of times.
+     *
+     * @param maxIterations the maximum number of iterations, which is at least 1
+     */
+    public KMeansQuantizer(int maxIterations) {
+        if (maxIterations < 1) {
+            throw new IllegalArgumentException("maxIterations should be at least 1");
+        }
+        mMaxIterations = maxIterations;
+    }
+
+    @NonNull
+    @Override
+    public List<Palette.Swatch> quantize(@NonNull IntBuffer pixels, int maxColors,
+            @NonNull List<Palette.Filter> filters) {
+        final int[] histogram = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+        ColorCutQuantizer.addToHistogram(pixels.duplicate(), histogram);
+        return quantize(histogram, maxColors,
+                filters.isEmpty() ? null : filters.toArray(new Palette.Filter[filters.size()]));
+    }
+
+    /**
+     * Quantizes the colors of a histogram, see
+     * {@link ColorCutQuantizer#addToHistogram(int[], int, int, int[])}.
+     */
+    List<Palette.Swatch> quantize(int[] histogram, int maxColors,
+            @Nullable Palette.Filter[] filters) {
+        final int[] colors = ColorCutQuantizer.getDistinctColors(histogram, filters);
+        if (colors.length <= maxColors) {
+            // The image has fewer colors than the maximum requested, so just return the colors
+            return ColorCutQuantizer.createSwatches(colors, histogram);
+        }
+
+        final int colorCount = colors.length;
+        final int[] reds = new int[colorCount];
+        final int[] greens = new int[colorCount];
+        final int[] blues = new int[colorCount];
+        final int[] populations = new int[colorCount];
+        for (int i = 0; i < colorCount; i++) {
+            reds[i] = ColorCutQuantizer.quantizedRed(colors[i]);
+            greens[i] = ColorCutQuantizer.quantizedGreen(colors[i]);
+            blues[i] = ColorCutQuantizer.quantizedBlue(colors[i]);
+            populations[i] = histogram[colors[i]];
+        }
+
+        // Pick the initial centers: the most common color first, then each time the color which
+        // is farthest from the centers so far, weighted by its population
+        int clusterCount = Math.max(1, maxColors);
+        final float[] centerReds = new float[clusterCount];
+        final float[] centerGreens = new float[clusterCount];
+        final float[] centerBlues = new float[clusterCount];
+        final long[] distances = new long[colorCount];
+        int center = 0;
+        for (int i = 1; i < colorCount; i++) {
+            if (populations[i] > populations[center]) {
+                center = i;
+            }
+        }
+        Arrays.fill(distances, Long.MAX_VALUE);
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            if (cluster > 0) {
+                long maxScore = 0;
+                for (int i = 0; i < colorCount; i++) {
+                    final long score = distances[i] * populations[i];
+                    if (score > maxScore) {
+                        maxScore = score;
+                        center = i;
+                    }
+                }
+                if (maxScore == 0) {
+                    // Every color is a center already
+                    clusterCount = cluster;
+                    break;
+                }
+            }
+            centerReds[cluster] = reds[center];
+            centerGreens[cluster] = greens[center];
+            centerBlues[cluster] = blues[center];
+            for (int i = 0; i < colorCount; i++) {
+                final int dr = reds[i] - reds[center];
+                final int dg = greens[i] - greens[center];
+                final int db = blues[i] - blues[center];
+                distances[i] = Math.min(distances[i], dr * dr + dg * dg + db * db);
+            }
+        }
+
+        // Now move the centers until the clusters don't change anymore
+        final int[] assignments = new int[colorCount];
+        Arrays.fill(assignments, -1);
+        final long[] redSums = new long[clusterCount];
+        final long[] greenSums = new long[clusterCount];
+        final long[] blueSums = new long[clusterCount];
+        final int[] clusterPopulations = new int[clusterCount];
+        for (int iteration = 0; iteration < mMaxIterations; iteration++) {
+            Arrays.fill(redSums, 0);
+            Arrays.fill(greenSums, 0);
+            Arrays.fill(blueSums, 0);
+            Arrays.fill(clusterPopulations, 0);
+
+            boolean changed = false;
+            for (int i = 0; i < colorCount; i++) {
+                int nearest = 0;
+                float minDistance = Float.MAX_VALUE;
+                for (int cluster = 0; cluster < clusterCount; cluster++) {
+                    final float dr = reds[i] - centerReds[cluster];
+                    final float dg = greens[i] - centerGreens[cluster];
+                    final float db = blues[i] - centerBlues[cluster];
+                    final float distance = dr * dr + dg * dg + db * db;
+                    if (distance < minDistance) {
+                        minDistance = distance;
+                        nearest = cluster;
+                    }
+                }
+                if (assignments[i] != nearest) {
+                    assignments[i] = nearest;
+                    changed = true;
+                }
+                final int population = populations[i];
+                redSums[nearest] += (long) reds[i] * population;
+                greenSums[nearest] += (long) greens[i] * population;
+                blueSums[nearest] += (long) blues[i] * population;
+                clusterPopulations[nearest] += population;
+            }
+
+            for (int cluster = 0; cluster < clusterCount; cluster++) {
+                final int population = clusterPopulations[cluster];
+                if (population > 0) {
+                    centerReds[cluster] = redSums[cluster] / (float) population;
+                    centerGreens[cluster] = greenSums[cluster] / (float) population;
+                    centerBlues[cluster] = blueSums[cluster] / (float) population;
+                }
+            }
+
+            if (!changed) {
+                break;
+            }
+        }
+
+        // Finally, return the centers of the clusters
+        final List<Palette.Swatch> swatches = new ArrayList<>(clusterCount);
+        for (int cluster = 0; cluster < clusterCount; cluster++) {
+            if (clusterPopulations[cluster] == 0) {
+                continue;
+            }
+            final Palette.Swatch swatch = new Palette.Swatch(
+                    ColorCutQuantizer.approximateToRgb888(Math.round(centerReds[cluster]),
+                            Math.round(centerGreens[cluster]), Math.round(centerBlues[cluster])),
+                    clusterPopulations[cluster]);
+            // As we're averaging colors, we can still get colors which we do not want, so we
+            // check again here
+            if (!ColorCutQuantizer.shouldIgnoreColor(swatch, filters)) {
+                swatches.add(swatch);
+            }
+        }
+        return swatches;
+    }
+}
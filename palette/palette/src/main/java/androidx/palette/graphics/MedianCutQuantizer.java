@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.IntBuffer;
+import java.util.List;
+
+/**
+ * The default {@link Palette.Quantizer}, which is based on the median-cut algorithm but optimized
+ * for picking out distinct colors rather than representative colors.
+ * <p>
+ * The color space is repeatedly divided into boxes, always splitting the box with the largest
+ * volume, until there are as many boxes as the maximum number of colors. The swatches are the
+ * average colors of the boxes.
+ */
+public final class MedianCutQuantizer implements Palette.Quantizer {
+
+    @NonNull
+    @Override
+    public List<Palette.Swatch> quantize(@NonNull IntBuffer pixels, int maxColors,
+            @NonNull List<Palette.Filter> filters) {
+        final int[] histogram = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+        ColorCutQuantizer.addToHistogram(pixels.duplicate(), histogram);
+        return quantize(histogram, maxColors,
+                filters.isEmpty() ? null : filters.toArray(new Palette.Filter[filters.size()]));
+    }
+
+    /**
+     * Quantizes the colors of a histogram, see
+     * {@link ColorCutQuantizer#addToHistogram(int[], int, int, int[])}.
+     */
+    List<Palette.Swatch> quantize(int[] histogram, int maxColors,
+            @Nullable Palette.Filter[] filters) {
+        return new ColorCutQuantizer(histogram, maxColors, filters).getQuantizedColors();
+    }
+}
@@ -20,7 +20,6 @@ import android.graphics.Bitmap;
 import android.graphics.Color;
 import android.graphics.Rect;
 import android.util.Log;
-import android.util.SparseBooleanArray;
 
 import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
@@ -30,10 +29,13 @@ import androidx.collection.SimpleArrayMap;
 import androidx.core.graphics.ColorUtils;
 import androidx.core.util.Preconditions;
 
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * A helper class to extract prominent colors from an image.
@@ -101,6 +103,28 @@ public final class Palette {
         return new Builder(bitmap);
     }
 
+    /**
+     * Start generating a {@link Palette} from the given pixels with the returned {@link Builder}
+     * instance.
+     *
+     * @see Builder#Builder(int[])
+     */
+    @NonNull
+    public static Builder from(@NonNull int[] pixels) {
+        return new Builder(pixels);
+    }
+
+    /**
+     * Start generating a {@link Palette} from the given pixels with the returned {@link Builder}
+     * instance.
+     *
+     * @see Builder#Builder(IntBuffer)
+     */
+    @NonNull
+    public static Builder from(@NonNull IntBuffer pixels) {
+        return new Builder(pixels);
+    }
+
     /**
      * Generate a {@link Palette} from the pre-generated list of {@link Palette.Swatch} swatches.
      * This is useful for testing, or if you want to resurrect a {@link Palette} instance from a
@@ -153,7 +177,7 @@ public final class Palette {
     private final List<Target> mTargets;
 
     private final SimpleArrayMap<Target, Swatch> mSelectedSwatches;
-    private final SparseBooleanArray mUsedColors;
+    private final Set<Integer> mUsedColors;
 
     @Nullable private final Swatch mDominantSwatch;
 
@@ -161,7 +185,7 @@ public final class Palette {
         mSwatches = swatches;
         mTargets = targets;
 
-        mUsedColors = new SparseBooleanArray();
+        mUsedColors = new HashSet<>();
         mSelectedSwatches = new SimpleArrayMap<>();
 
         mDominantSwatch = findDominantSwatch();
@@ -369,7 +393,7 @@ public final class Palette {
         final Swatch maxScoreSwatch = getMaxScoredSwatchForTarget(target);
         if (maxScoreSwatch != null && target.isExclusive()) {
             // If we have a swatch, and the target is exclusive, add the color to the used list
-            mUsedColors.append(maxScoreSwatch.getRgb(), true);
+            mUsedColors.add(maxScoreSwatch.getRgb());
         }
         return maxScoreSwatch;
     }
@@ -397,7 +421,7 @@ public final class Palette {
         final float hsl[] = swatch.getHsl();
         return hsl[1] >= target.getMinimumSaturation() && hsl[1] <= target.getMaximumSaturation()
                 && hsl[2] >= target.getMinimumLightness() && hsl[2] <= target.getMaximumLightness()
-                && !mUsedColors.get(swatch.getRgb());
+                && !mUsedColors.contains(swatch.getRgb());
     }
 
     private float generateScore(Swatch swatch, Target target) {
@@ -455,9 +479,9 @@ public final class Palette {
         @Nullable private float[] mHsl;
 
         public Swatch(@ColorInt int color, int population) {
-            mRed = Color.red(color);
-            mGreen = Color.green(color);
-            mBlue = Color.blue(color);
+            mRed = (color >> 16) & 0xFF;
+            mGreen = (color >> 8) & 0xFF;
+            mBlue = color & 0xFF;
             mRgb = color;
             mPopulation = population;
         }
@@ -592,6 +616,7 @@ public final class Palette {
     public static final class Builder {
         @Nullable private final List<Swatch> mSwatches;
         @Nullable private final Bitmap mBitmap;
+        @Nullable private final IntBuffer mPixels;
 
         private final List<Target> mTargets = new ArrayList<>();
 
@@ -601,6 +626,7 @@ public final class Palette {
 
         private final List<Filter> mFilters = new ArrayList<>();
         @Nullable private Rect mRegion;
+        private Quantizer mQuantizer = DEFAULT_QUANTIZER;
 
         /**
          * Construct a new {@link Builder} using a source {@link Bitmap}
@@ -611,15 +637,38 @@ public final class Palette {
             }
             mFilters.add(DEFAULT_FILTER);
             mBitmap = bitmap;
+            mPixels = null;
             mSwatches = null;
 
-            // Add the default targets
-            mTargets.add(Target.LIGHT_VIBRANT);
-            mTargets.add(Target.VIBRANT);
-            mTargets.add(Target.DARK_VIBRANT);
-            mTargets.add(Target.LIGHT_MUTED);
-            mTargets.add(Target.MUTED);
-            mTargets.add(Target.DARK_MUTED);
+            addDefaultTargets();
+        }
+
+        /**
+         * Construct a new {@link Builder} using the colors of the given pixels, e.g. from a
+         * decoded image which is not a {@link Bitmap}. The pixels are used as they are, without
+         * resizing.
+         *
+         * @param pixels the pixels as ARGB8888 colors, of which the alpha component is ignored
+         */
+        public Builder(@NonNull int[] pixels) {
+            this(IntBuffer.wrap(Preconditions.checkNotNull(pixels)));
+        }
+
+        /**
+         * Construct a new {@link Builder} using the colors of the remaining pixels of the given
+         * buffer. The pixels are used as they are, without resizing, and are read when the
+         * palette is generated. The position of the buffer is not changed.
+         *
+         * @param pixels the pixels as ARGB8888 colors, of which the alpha component is ignored
+         */
+        public Builder(@NonNull IntBuffer pixels) {
+            Preconditions.checkNotNull(pixels);
+            mFilters.add(DEFAULT_FILTER);
+            mPixels = pixels;
+            mBitmap = null;
+            mSwatches = null;
+
+            addDefaultTargets();
         }
 
         /**
@@ -633,11 +682,21 @@ public final class Palette {
             mFilters.add(DEFAULT_FILTER);
             mSwatches = swatches;
             mBitmap = null;
+            mPixels = null;
+        }
+
+        private void addDefaultTargets() {
+            mTargets.add(Target.LIGHT_VIBRANT);
+            mTargets.add(Target.VIBRANT);
+            mTargets.add(Target.DARK_VIBRANT);
+            mTargets.add(Target.LIGHT_MUTED);
+            mTargets.add(Target.MUTED);
+            mTargets.add(Target.DARK_MUTED);
         }
 
         /**
          * Set the maximum number of colors to use in the quantization step when using a
-         * {@link android.graphics.Bitmap} as the source.
+         * {@link android.graphics.Bitmap} or pixels as the source.
          * <p>
          * Good values for depend on the source image type. For landscapes, good values are in
          * the range 10-16. For images which are largely made up of people's faces then this
@@ -689,6 +748,17 @@ public final class Palette {
             return this;
         }
 
+        /**
+         * Set the {@link Quantizer} which reduces the colors of the source to the swatches of
+         * the palette, when using a {@link android.graphics.Bitmap} or pixels as the source. The
+         * default is a {@link MedianCutQuantizer}.
+         */
+        @NonNull
+        public Builder setQuantizer(@NonNull Quantizer quantizer) {
+            mQuantizer = Preconditions.checkNotNull(quantizer);
+            return this;
+        }
+
         /**
          * Clear all added filters. This includes any default filters added automatically by
          * {@link Palette}.
@@ -773,9 +843,20 @@ public final class Palette {
 
         /**
          * Generate and return the {@link Palette} synchronously.
+         *
+         * @see PaletteGenerator
          */
         @NonNull
         public Palette generate() {
+            return generateWith(null);
+        }
+
+        /**
+         * Generate and return the {@link Palette} synchronously. If a generator is given, its
+         * buffers and threads are used to build the histogram of the bitmap.
+         */
+        @NonNull
+        Palette generateWith(@Nullable PaletteGenerator generator) {
             List<Swatch> swatches;
 
             if (mBitmap != null) {
@@ -797,18 +878,37 @@ public final class Palette {
                             bitmap.getHeight());
                 }
 
-                // Now generate a quantizer from the Bitmap
-                final ColorCutQuantizer quantizer = new ColorCutQuantizer(
-                        getPixelsFromBitmap(bitmap),
-                        mMaxColors,
-                        mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]));
+                // Now quantize the colors of the Bitmap
+                if (!isHistogramQuantizer(mQuantizer)) {
+                    swatches = mQuantizer.quantize(IntBuffer.wrap(getPixelsFromBitmap(bitmap)),
+                            mMaxColors, Collections.unmodifiableList(mFilters));
+                } else if (generator == null) {
+                    final int[] pixels = getPixelsFromBitmap(bitmap);
+                    final int[] histogram = new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+                    ColorCutQuantizer.addToHistogram(pixels, 0, pixels.length, histogram);
+                    swatches = quantizeHistogram(histogram, null);
+                } else {
+                    swatches = quantizeHistogram(generator.createHistogram(bitmap, region),
+                            generator);
+                }
 
                 // If created a new bitmap, recycle it
                 if (bitmap != mBitmap) {
                     bitmap.recycle();
                 }
-
-                swatches = quantizer.getQuantizedColors();
+            } else if (mPixels != null) {
+                // Read the pixels without changing the position of the given buffer
+                final IntBuffer pixels = mPixels.duplicate();
+                if (!isHistogramQuantizer(mQuantizer)) {
+                    swatches = mQuantizer.quantize(pixels, mMaxColors,
+                            Collections.unmodifiableList(mFilters));
+                } else {
+                    final int[] histogram = generator != null
+                            ? generator.acquireHistogram()
+                            : new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+                    ColorCutQuantizer.addToHistogram(pixels, histogram);
+                    swatches = quantizeHistogram(histogram, generator);
+                }
             } else if (mSwatches != null) {
                 // Else we're using the provided swatches
                 swatches = mSwatches;
@@ -859,6 +959,30 @@ public final class Palette {
             }.executeOnExecutor(android.os.AsyncTask.THREAD_POOL_EXECUTOR, mBitmap);
         }
 
+        /**
+         * Returns whether the quantizer is one of ours, which work on a histogram of the colors
+         * that can be reused by a {@link PaletteGenerator}.
+         */
+        private static boolean isHistogramQuantizer(Quantizer quantizer) {
+            return quantizer instanceof MedianCutQuantizer || quantizer instanceof KMeansQuantizer;
+        }
+
+        private List<Swatch> quantizeHistogram(int[] histogram,
+                @Nullable PaletteGenerator generator) {
+            final Filter[] filters =
+                    mFilters.isEmpty() ? null : mFilters.toArray(new Filter[mFilters.size()]);
+            try {
+                if (mQuantizer instanceof KMeansQuantizer) {
+                    return ((KMeansQuantizer) mQuantizer).quantize(histogram, mMaxColors, filters);
+                }
+                return ((MedianCutQuantizer) mQuantizer).quantize(histogram, mMaxColors, filters);
+            } finally {
+                if (generator != null) {
+                    generator.releaseHistogram(histogram);
+                }
+            }
+        }
+
         private int[] getPixelsFromBitmap(Bitmap bitmap) {
             final int bitmapWidth = bitmap.getWidth();
             final int bitmapHeight = bitmap.getHeight();
@@ -932,6 +1056,33 @@ public final class Palette {
         boolean isAllowed(@ColorInt int rgb, @NonNull float[] hsl);
     }
 
+    /**
+     * A Quantizer reduces the colors of an image to the swatches of a {@link Palette}.
+     *
+     * @see Builder#setQuantizer(Quantizer)
+     * @see MedianCutQuantizer
+     * @see KMeansQuantizer
+     */
+    public interface Quantizer {
+        /**
+         * Returns the swatches which represent the colors of the given pixels.
+         *
+         * @param pixels the pixels as ARGB8888 colors, of which the alpha component is ignored.
+         *               Only the remaining pixels of the buffer are used.
+         * @param maxColors the maximum number of swatches to return
+         * @param filters the filters which decide which colors may be in the result, see
+         *                {@link Builder#addFilter(Filter)}
+         */
+        @NonNull
+        List<Swatch> quantize(@NonNull IntBuffer pixels, int maxColors,
+                @NonNull List<Filter> filters);
+    }
+
+    /**
+     * The default quantizer.
+     */
+    static final Quantizer DEFAULT_QUANTIZER = new MedianCutQuantizer();
+
     /**
      * The default filter.
      */
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import android.graphics.Bitmap;
+import android.graphics.Rect;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.util.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Generates {@link Palette}s from many {@link Palette.Builder}s, e.g. for every image of a
+ * scrolling grid.
+ * <p>
+ * Generating a palette from a bitmap reads its pixels into an array and counts them in a
+ * histogram of colors. A generator keeps these arrays after a palette has been generated and
+ * reuses them for the next one, instead of allocating them for every palette. It is safe to use
+ * a generator from multiple threads.
+ * <p>
+ * A generator that is created with an {@link Executor} also generates the palettes of a batch
+ * in parallel, and splits building the histogram of a large bitmap across threads:
+ *
+ * <pre>
+ * PaletteGenerator generator = new PaletteGenerator(executor, 4);
+ *
+ * List&lt;Palette.Builder&gt; builders = new ArrayList&lt;&gt;();
+ * for (Bitmap bitmap : bitmaps) {
+ *     builders.add(Palette.from(bitmap));
+ * }
+ * List&lt;Palette&gt; palettes = generator.generate(builders);
+ * </pre>
+ */
+public final class PaletteGenerator {
+    // Building a histogram is only split across threads if every thread gets at least this many
+    // pixels, as it is not worth it for the default size of the scaled down bitmap.
+    private static final int MIN_PIXELS_PER_TASK = 64 * 1024;
+
+    @Nullable private final Executor mExecutor;
+    private final int mParallelism;
+
+    // Buffers which are not in use. At most as many buffers as there are concurrent generations
+    // are kept.
+    private final ArrayDeque<int[]> mPixelBuffers = new ArrayDeque<>();
+    private final ArrayDeque<int[]> mHistograms = new ArrayDeque<>();
+
+    /**
+     * Creates a generator that generates palettes on the calling thread.
+     */
+    public PaletteGenerator() {
+        mExecutor = null;
+        mParallelism = 1;
+    }
+
+    /**
+     * Creates a generator that generates palettes on the calling thread and the given executor.
+     *
+     * @param executor the executor to generate palettes on
+     * @param parallelism the maximum number of threads to use for a call, including the calling
+     *                    thread, which should not be larger than the number of threads of the
+     *                    executor plus one
+     */
+    public PaletteGenerator(@NonNull Executor executor, int parallelism) {
+        Preconditions.checkNotNull(executor);
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism should be at least 1");
+        }
+        mExecutor = executor;
+        mParallelism = parallelism;
+    }
+
+    /**
+     * Generates the palette of the given builder synchronously. The result is the same as the
+     * one of {@link Palette.Builder#generate()}.
+     */
+    @NonNull
+    public Palette generate(@NonNull Palette.Builder builder) {
+        return builder.generateWith(this);
+    }
+
+    /**
+     * Generates the palettes of the given builders synchronously, in parallel if this generator
+     * has an executor.
+     *
+     * @return the palettes, in the order of the builders
+     */
+    @NonNull
+    public List<Palette> generate(@NonNull final List<Palette.Builder> builders) {
+        final Palette[] palettes = new Palette[builders.size()];
+        runInParallel(builders.size(), new IndexedTask() {
+            @Override
+            public void run(int index) {
+                palettes[index] = builders.get(index).generateWith(PaletteGenerator.this);
+            }
+        });
+        return Arrays.asList(palettes);
+    }
+
+    /**
+     * Returns the histogram of the given region of the bitmap, see
+     * {@link ColorCutQuantizer#addToHistogram(int[], int, int, int[])}. The histogram should be
+     * released with {@link #releaseHistogram(int[])} once it is no longer used.
+     */
+    int[] createHistogram(Bitmap bitmap, @Nullable Rect region) {
+        final int left = region != null ? region.left : 0;
+        final int top = region != null ? region.top : 0;
+        final int width = region != null ? region.width() : bitmap.getWidth();
+        final int height = region != null ? region.height() : bitmap.getHeight();
+        final int pixelCount = width * height;
+
+        final int[] pixels = acquirePixelBuffer(pixelCount);
+        final int[] histogram = acquireHistogram();
+        try {
+            // Only read the pixels of the region
+            bitmap.getPixels(pixels, 0, width, left, top, width, height);
+
+            final int taskCount = Math.min(mParallelism, pixelCount / MIN_PIXELS_PER_TASK);
+            if (taskCount <= 1) {
+                ColorCutQuantizer.addToHistogram(pixels, 0, pixelCount, histogram);
+            } else {
+                addToHistogramInParallel(pixels, pixelCount, histogram, taskCount);
+            }
+        } finally {
+            releasePixelBuffer(pixels);
+        }
+        return histogram;
+    }
+
+    /**
+     * Returns a histogram created by {@link #createHistogram(Bitmap, Rect)} or
+     * {@link #acquireHistogram()} to the pool.
+     */
+    void releaseHistogram(int[] histogram) {
+        Arrays.fill(histogram, 0);
+        synchronized (mHistograms) {
+            if (mHistograms.size() < mParallelism) {
+                mHistograms.push(histogram);
+            }
+        }
+    }
+
+    private void addToHistogramInParallel(final int[] pixels, final int pixelCount,
+            int[] histogram, final int taskCount) {
+        // Every task counts its part of the pixels in its own histogram
+        final int[][] histograms = new int[taskCount][];
+        histograms[0] = histogram;
+        for (int i = 1; i < taskCount; i++) {
+            histograms[i] = acquireHistogram();
+        }
+        runInParallel(taskCount, new IndexedTask() {
+            @Override
+            public void run(int index) {
+                final int from = (int) ((long) pixelCount * index / taskCount);
+                final int to = (int) ((long) pixelCount * (index + 1) / taskCount);
+                ColorCutQuantizer.addToHistogram(pixels, from, to, histograms[index]);
+            }
+        });
+
+        // Now merge the histograms
+        for (int i = 1; i < taskCount; i++) {
+            final int[] partialHistogram = histograms[i];
+            for (int color = 0; color < histogram.length; color++) {
+                histogram[color] += partialHistogram[color];
+            }
+            releaseHistogram(partialHistogram);
+        }
+    }
+
+    /**
+     * Returns an empty histogram, which should be released with {@link #releaseHistogram(int[])}
+     * once it is no longer used.
+     */
+    int[] acquireHistogram() {
+        synchronized (mHistograms) {
+            if (!mHistograms.isEmpty()) {
+                return mHistograms.pop();
+            }
+        }
+        return new int[ColorCutQuantizer.HISTOGRAM_SIZE];
+    }
+
+    private int[] acquirePixelBuffer(int size) {
+        synchronized (mPixelBuffers) {
+            final int[] pixels = mPixelBuffers.peek();
+            if (pixels != null && pixels.length >= size) {
+                return mPixelBuffers.pop();
+            }
+        }
+        return new int[size];
+    }
+
+    private void releasePixelBuffer(int[] pixels) {
+        synchronized (mPixelBuffers) {
+            if (mPixelBuffers.size() < mParallelism) {
+                mPixelBuffers.push(pixels);
+            }
+        }
+    }
+
+    /**
+     * Runs the task for every index from 0 to {@code count - 1} on the calling thread and the
+     * executor, and returns once all of them have finished. As the calling thread runs every index
+     * that has not been started by the executor, this doesn't wait for tasks that are queued
+     * behind other work, including the tasks of an outer call.
+     */
+    private void runInParallel(final int count, final IndexedTask task) {
+        final AtomicInteger nextIndex = new AtomicInteger();
+        final CountDownLatch finished = new CountDownLatch(count);
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                int index;
+                while ((index = nextIndex.getAndIncrement()) < count) {
+                    try {
+                        task.run(index);
+                    } catch (RuntimeException e) {
+                        failure.compareAndSet(null, e);
+                    } finally {
+                        finished.countDown();
+                    }
+                }
+            }
+        };
+
+        if (mExecutor != null) {
+            for (int i = 1; i < Math.min(mParallelism, count); i++) {
+                try {
+                    mExecutor.execute(runnable);
+                } catch (RejectedExecutionException e) {
+                    // The calling thread runs the remaining indices
+                    break;
+                }
+            }
+        }
+        runnable.run();
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                finished.await();
+                break;
+            } catch (InterruptedException e) {
+                // The indices that were started by the executor are finished soon
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        final RuntimeException exception = failure.get();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    private interface IndexedTask {
+        void run(int index);
+    }
+}
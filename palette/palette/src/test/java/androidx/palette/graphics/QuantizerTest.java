@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.palette.graphics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Tests for generating palettes from pixels, with the different {@link Palette.Quantizer}s.
+ */
+@RunWith(JUnit4.class)
+public class QuantizerTest {
+    private static final int RED = 0xFFF80000;
+    private static final int GREEN = 0xFF00F800;
+    private static final int BLUE = 0xFF0000F8;
+
+    @Test
+    public void testFromPixels() {
+        final Palette palette = Palette.from(threeColorPixels()).generate();
+        assertThreeColorSwatches(palette.getSwatches());
+        assertEquals(RED, palette.getDominantSwatch().getRgb());
+    }
+
+    @Test
+    public void testFromIntBuffer() {
+        // Only the remaining pixels are used
+        final IntBuffer pixels = IntBuffer.allocate(10);
+        pixels.put(new int[] {GREEN, GREEN, GREEN});
+        pixels.put(threeColorPixels());
+        pixels.flip();
+        pixels.position(3);
+
+        assertThreeColorSwatches(Palette.from(pixels).generate().getSwatches());
+        assertEquals(3, pixels.position());
+    }
+
+    @Test
+    public void testFromDirectIntBuffer() {
+        final IntBuffer pixels = ByteBuffer.allocateDirect(4 * 7).asIntBuffer();
+        pixels.put(threeColorPixels());
+        pixels.flip();
+
+        assertThreeColorSwatches(Palette.from(pixels).generate().getSwatches());
+    }
+
+    @Test
+    public void testKMeansQuantizer_fewColors() {
+        final Palette palette = Palette.from(threeColorPixels())
+                .setQuantizer(new KMeansQuantizer())
+                .generate();
+        assertThreeColorSwatches(palette.getSwatches());
+    }
+
+    @Test
+    public void testMaxColors() {
+        final int[] pixels = randomPixels();
+        for (Palette.Quantizer quantizer
+                : new Palette.Quantizer[] {new MedianCutQuantizer(), new KMeansQuantizer()}) {
+            final List<Palette.Swatch> swatches = Palette.from(pixels)
+                    .setQuantizer(quantizer)
+                    .maximumColorCount(8)
+                    .generate()
+                    .getSwatches();
+            assertTrue(!swatches.isEmpty() && swatches.size() <= 8);
+
+            int population = 0;
+            for (Palette.Swatch swatch : swatches) {
+                population += swatch.getPopulation();
+            }
+            assertTrue(population <= pixels.length);
+        }
+    }
+
+    @Test
+    public void testKMeansQuantizer_isDeterministic() {
+        final int[] pixels = randomPixels();
+        final List<Palette.Swatch> expected = Palette.from(pixels)
+                .setQuantizer(new KMeansQuantizer())
+                .generate()
+                .getSwatches();
+        final List<Palette.Swatch> swatches = Palette.from(pixels)
+                .setQuantizer(new KMeansQuantizer())
+                .generate()
+                .getSwatches();
+        assertEquals(expected, swatches);
+    }
+
+    @Test
+    public void testGeneratorReusesHistograms() {
+        final int[] pixels = randomPixels();
+        final List<Palette.Swatch> expected = Palette.from(pixels).generate().getSwatches();
+
+        final PaletteGenerator generator = new PaletteGenerator();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expected, generator.generate(Palette.from(pixels)).getSwatches());
+        }
+    }
+
+    @Test
+    public void testCustomQuantizer() {
+        final int[] pixels = threeColorPixels();
+        final Palette.Swatch swatch = new Palette.Swatch(BLUE, 1);
+        final Palette palette = Palette.from(pixels)
+                .maximumColorCount(5)
+                .setQuantizer(new Palette.Quantizer() {
+                    @NonNull
+                    @Override
+                    public List<Palette.Swatch> quantize(@NonNull IntBuffer buffer,
+                            int maxColors, @NonNull List<Palette.Filter> filters) {
+                        assertEquals(pixels.length, buffer.remaining());
+                        assertEquals(5, maxColors);
+                        assertEquals(1, filters.size());
+                        return Collections.singletonList(swatch);
+                    }
+                })
+                .generate();
+        assertEquals(Collections.singletonList(swatch), palette.getSwatches());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testKMeansQuantizer_invalidIterations() {
+        new KMeansQuantizer(0);
+    }
+
+    @Test
+    public void testClearFilters() {
+        final int[] pixels = new int[] {0xFF000000, 0xFFFFFFFF, RED};
+        assertEquals(1, Palette.from(pixels).generate().getSwatches().size());
+        final Palette palette = Palette.from(pixels).clearFilters().generate();
+        assertEquals(3, palette.getSwatches().size());
+        assertSame(palette.getSwatches().get(0), palette.getDominantSwatch());
+    }
+
+    private static int[] threeColorPixels() {
+        return new int[] {RED, GREEN, RED, BLUE, RED, GREEN, RED};
+    }
+
+    private static int[] randomPixels() {
+        final Random random = new Random(42);
+        final int[] pixels = new int[100 * 100];
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        return pixels;
+    }
+
+    private static void assertThreeColorSwatches(List<Palette.Swatch> swatches) {
+        assertEquals(3, swatches.size());
+        // The swatches are sorted by their quantized color
+        assertEquals(new Palette.Swatch(BLUE, 1), swatches.get(0));
+        assertEquals(new Palette.Swatch(GREEN, 2), swatches.get(1));
+        assertEquals(new Palette.Swatch(RED, 4), swatches.get(2));
+    }
+}
@@ -17,6 +17,7 @@
 package androidx.room.benchmark
 
 import android.os.Build
+import android.util.Log
 import androidx.benchmark.junit4.BenchmarkRule
 import androidx.benchmark.junit4.measureRepeated
 import androidx.room.Dao
@@ -33,11 +34,13 @@ import androidx.test.filters.LargeTest
 import androidx.test.filters.SdkSuppress
 import org.junit.Assert.assertEquals
 import org.junit.Assert.assertTrue
+import org.junit.Assume.assumeTrue
 import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
 import org.junit.runners.Parameterized
+import java.util.concurrent.TimeUnit
 
 @LargeTest
 @RunWith(Parameterized::class)
@@ -61,6 +64,7 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
 
     @Test
     fun largeTransaction() {
+        assumeTrue(mode.largeTransaction)
         val db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
             .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
             .build()
@@ -91,6 +95,46 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         db.close()
     }
 
+    /**
+     * Inserts [sampleSize] rows, each in its own transaction, while an observer is registered.
+     * Every transaction requests a refresh of the invalidation tracker, which with a coalescing
+     * window are merged into a few refreshes running alongside the writes.
+     */
+    @Test
+    fun smallTransactions() {
+        assumeTrue(!mode.largeTransaction)
+        val builder = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+        if (mode == Mode.MEASURE_SMALL_TRANSACTIONS_COALESCED) {
+            builder.setInvalidationCoalescingWindow(COALESCING_WINDOW_MILLIS, TimeUnit.MILLISECONDS)
+        }
+        val db = builder.build()
+
+        val observer = object : InvalidationTracker.Observer("user") {
+            override fun onInvalidated(tables: MutableSet<String>) {}
+        }
+        db.invalidationTracker.addObserver(observer)
+
+        val users = List(sampleSize) { User(it, "name$it") }
+
+        benchmarkRule.measureRepeated {
+            for (user in users) {
+                db.getUserDao().insert(user)
+            }
+
+            runWithTimingConditional(pauseTiming = true) {
+                assertEquals(db.getUserDao().deleteAll(), sampleSize)
+            }
+        }
+
+        val tracker = db.invalidationTracker
+        Log.d(
+            LOG_TAG, "$mode sampleSize=$sampleSize delivered=${tracker.deliveredRefreshCount}" +
+                    " coalesced=${tracker.coalescedRefreshCount}"
+        )
+        db.close()
+    }
+
     private inline fun runWithTimingConditional(
         pauseTiming: Boolean = false,
         block: () -> Unit
@@ -105,11 +149,7 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         @Parameterized.Parameters(name = "sampleSize={0}, mode={1}")
         fun data(): List<Array<Any>> {
             return mutableListOf<Array<Any>>().apply {
-                arrayOf(
-                    Mode.MEASURE_INSERT,
-                    Mode.MEASURE_DELETE,
-                    Mode.MEASURE_INSERT_AND_DELETE
-                ).forEach { mode ->
+                Mode.values().forEach { mode ->
                     arrayOf(100, 1000, 5000, 10000).forEach { sampleSize ->
                         add(arrayOf(sampleSize, mode))
                     }
@@ -118,6 +158,8 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         }
 
         private const val DB_NAME = "invalidation-benchmark-test"
+        private const val LOG_TAG = "InvalidationBenchmark"
+        private const val COALESCING_WINDOW_MILLIS = 16L
     }
 
     @Database(entities = [User::class], version = 1, exportSchema = false)
@@ -137,9 +179,11 @@ class InvalidationTrackerBenchmark(private val sampleSize: Int, private val mode
         fun deleteAll(): Int
     }
 
-    enum class Mode {
-        MEASURE_INSERT,
-        MEASURE_DELETE,
-        MEASURE_INSERT_AND_DELETE
+    enum class Mode(val largeTransaction: Boolean) {
+        MEASURE_INSERT(true),
+        MEASURE_DELETE(true),
+        MEASURE_INSERT_AND_DELETE(true),
+        MEASURE_SMALL_TRANSACTIONS(false),
+        MEASURE_SMALL_TRANSACTIONS_COALESCED(false)
     }
 }
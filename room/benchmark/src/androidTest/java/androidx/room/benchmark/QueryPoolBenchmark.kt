@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room.benchmark
+
+import android.annotation.SuppressLint
+import android.os.Build
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.room.Dao
+import androidx.room.Database
+import androidx.room.Entity
+import androidx.room.Insert
+import androidx.room.PrimaryKey
+import androidx.room.Query
+import androidx.room.Room
+import androidx.room.RoomDatabase
+import androidx.room.RoomSQLiteQuery
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.test.filters.SdkSuppress
+import org.junit.After
+import org.junit.Assert.assertTrue
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.CyclicBarrier
+import java.util.concurrent.Executors
+
+/**
+ * Measures the time for [threads] threads to each run [QUERIES_PER_THREAD] small DAO queries,
+ * each of which acquires and releases a pooled [RoomSQLiteQuery].
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+@SdkSuppress(minSdkVersion = Build.VERSION_CODES.JELLY_BEAN)
+class QueryPoolBenchmark(private val threads: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    val context = ApplicationProvider.getApplicationContext() as android.content.Context
+
+    private val executor = Executors.newFixedThreadPool(threads)
+    private val barrier = CyclicBarrier(threads + 1)
+
+    @Before
+    fun setup() {
+        for (postfix in arrayOf("", "-wal", "-shm")) {
+            val dbFile = context.getDatabasePath(DB_NAME + postfix)
+            if (dbFile.exists()) {
+                assertTrue(dbFile.delete())
+            }
+        }
+    }
+
+    @After
+    fun tearDown() {
+        executor.shutdownNow()
+    }
+
+    @SuppressLint("RestrictedApi")
+    @Test
+    fun queryFromAllThreads() {
+        val db = Room.databaseBuilder(context, TestDatabase::class.java, DB_NAME)
+            .setJournalMode(RoomDatabase.JournalMode.WRITE_AHEAD_LOGGING)
+            .build()
+        val dao = db.getUserDao()
+        dao.insert(List(USER_COUNT) { User(it, "name$it") })
+        val hits = RoomSQLiteQuery.getPoolHitCount()
+        val misses = RoomSQLiteQuery.getPoolMissCount()
+
+        benchmarkRule.measureRepeated {
+            repeat(threads) { thread ->
+                executor.execute {
+                    barrier.await()
+                    repeat(QUERIES_PER_THREAD) {
+                        dao.getUser((thread + it * threads) % USER_COUNT)
+                    }
+                    barrier.await()
+                }
+            }
+            barrier.await()
+            barrier.await()
+        }
+
+        Log.d(
+            LOG_TAG, "threads=$threads hits=${RoomSQLiteQuery.getPoolHitCount() - hits}" +
+                    " misses=${RoomSQLiteQuery.getPoolMissCount() - misses}"
+        )
+        db.close()
+    }
+
+    companion object {
+        @JvmStatic
+        @Parameterized.Parameters(name = "threads={0}")
+        fun data() = listOf(1, 2, 4, 8)
+
+        private const val DB_NAME = "query-pool-benchmark-test"
+        private const val LOG_TAG = "QueryPoolBenchmark"
+        private const val USER_COUNT = 100
+        private const val QUERIES_PER_THREAD = 100
+    }
+
+    @Database(entities = [User::class], version = 1, exportSchema = false)
+    abstract class TestDatabase : RoomDatabase() {
+        abstract fun getUserDao(): UserDao
+    }
+
+    @Entity
+    data class User(@PrimaryKey val id: Int, val name: String)
+
+    @Dao
+    interface UserDao {
+        @Insert
+        fun insert(users: List<User>)
+
+        @Query("SELECT * FROM User WHERE id = :id")
+        fun getUser(id: Int): User
+    }
+}
@@ -29,6 +29,11 @@ import java.lang.annotation.Target;
  * All of the parameters of the Insert method must either be classes annotated with {@link Entity}
  * or collections/array of it.
  * <p>
+ * A method that does not return row ids can also take a single {@code Iterator} or Kotlin
+ * {@code Sequence} of entities. Its elements are consumed as they are inserted and a transaction is
+ * committed every thousand rows, so large streams are neither collected in memory nor held in one
+ * transaction. If the stream fails halfway, the rows committed until then are kept.
+ * <p>
  * Example:
  * <pre>
  * {@literal @}Dao
@@ -192,6 +192,7 @@ object KotlinTypeNames {
     val RECEIVE_CHANNEL = ClassName.get("kotlinx.coroutines.channels", "ReceiveChannel")
     val SEND_CHANNEL = ClassName.get("kotlinx.coroutines.channels", "SendChannel")
     val FLOW = ClassName.get("kotlinx.coroutines.flow", "Flow")
+    val SEQUENCE = ClassName.get("kotlin.sequences", "Sequence")
 }
 
 fun TypeName.defaultValue(): String {
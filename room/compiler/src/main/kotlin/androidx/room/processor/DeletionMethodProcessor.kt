@@ -48,6 +48,12 @@ class DeletionMethodProcessor(
             onValidatePartialEntity = { _, _ -> }
         )
 
+        context.checker.check(
+            params.none { it.isStreaming },
+            executableElement,
+            ProcessorErrors.STREAMING_PARAMS_ONLY_IN_INSERT
+        )
+
         return DeletionMethod(
             element = delegate.executableElement,
             name = delegate.executableElement.name,
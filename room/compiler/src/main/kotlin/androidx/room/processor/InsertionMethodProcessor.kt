@@ -85,6 +85,12 @@ class InsertionMethodProcessor(
             }
         )
 
+        context.checker.check(
+            params.size == 1 || params.none { it.isStreaming },
+            executableElement,
+            ProcessorErrors.INVALID_STREAMING_INSERT
+        )
+
         val methodBinder = delegate.findInsertMethodBinder(returnType, params)
 
         context.checker.check(
@@ -140,6 +140,12 @@ object ProcessorErrors {
 
     val CANNOT_FIND_INSERT_RESULT_ADAPTER = "Not sure how to handle insert method's return type."
 
+    val INVALID_STREAMING_INSERT = "Method annotated with @Insert can only take an Iterator or a" +
+        " Sequence as its single parameter."
+
+    val STREAMING_PARAMS_ONLY_IN_INSERT = "Iterator and Sequence parameters can only be used" +
+        " in methods annotated with @Insert."
+
     val UPDATE_MISSING_PARAMS = "Method annotated with" +
         " @Update but does not have any parameters to update."
 
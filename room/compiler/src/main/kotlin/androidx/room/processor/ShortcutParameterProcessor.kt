@@ -21,6 +21,7 @@ import androidx.room.compiler.processing.XType
 import androidx.room.compiler.processing.XVariableElement
 import androidx.room.compiler.processing.asDeclaredType
 import androidx.room.compiler.processing.isArray
+import androidx.room.ext.KotlinTypeNames
 import androidx.room.vo.ShortcutQueryParameter
 
 /**
@@ -40,30 +41,35 @@ class ShortcutParameterProcessor(
             ProcessorErrors.QUERY_PARAMETERS_CANNOT_START_WITH_UNDERSCORE
         )
 
-        val (pojoType, isMultiple) = extractPojoType(asMember)
+        val (pojoType, isMultiple, isStreaming) = extractPojoType(asMember)
         return ShortcutQueryParameter(
             element = element,
             name = name,
             type = asMember,
             pojoType = pojoType,
-            isMultiple = isMultiple
+            isMultiple = isMultiple,
+            isStreaming = isStreaming
         )
     }
 
     @Suppress("PLATFORM_CLASS_MAPPED_TO_KOTLIN")
-    private fun extractPojoType(typeMirror: XType): Pair<XType?, Boolean> {
+    private fun extractPojoType(typeMirror: XType): Triple<XType?, Boolean, Boolean> {
 
         val processingEnv = context.processingEnv
 
-        fun verifyAndPair(pojoType: XType, isMultiple: Boolean): Pair<XType?, Boolean> {
+        fun verifyAndPair(
+            pojoType: XType,
+            isMultiple: Boolean,
+            isStreaming: Boolean = false
+        ): Triple<XType?, Boolean, Boolean> {
             if (!pojoType.isType()) {
                 // kotlin may generate ? extends T so we should reduce it.
                 val boundedVar = pojoType.extendsBound()
                 return boundedVar?.let {
-                    verifyAndPair(boundedVar, isMultiple)
-                } ?: Pair(null, isMultiple)
+                    verifyAndPair(boundedVar, isMultiple, isStreaming)
+                } ?: Triple(null, isMultiple, isStreaming)
             }
-            return Pair(pojoType, isMultiple)
+            return Triple(pojoType, isMultiple, isStreaming)
         }
 
         fun extractPojoTypeFromIterator(iterableType: XDeclaredType): XType {
@@ -90,6 +96,21 @@ class ShortcutParameterProcessor(
             val pojo = typeMirror.componentType
             return verifyAndPair(pojo, true)
         }
+        // Only Iterator and Sequence themselves, since the generated Java code needs to know how
+        // to iterate them.
+        val iteratorType = processingEnv
+            .requireType("java.util.Iterator").rawType
+        if (iteratorType == typeMirror.rawType) {
+            val pojo = typeMirror.asDeclaredType().typeArguments.firstOrNull()
+                ?: return Triple(null, true, true)
+            return verifyAndPair(pojo, isMultiple = true, isStreaming = true)
+        }
+        val sequenceType = processingEnv
+            .findType(KotlinTypeNames.SEQUENCE)?.rawType
+        if (sequenceType != null && sequenceType == typeMirror.rawType) {
+            val pojo = extractPojoTypeFromIterator(typeMirror.asDeclaredType())
+            return verifyAndPair(pojo, isMultiple = true, isStreaming = true)
+        }
         return verifyAndPair(typeMirror, false)
     }
 }
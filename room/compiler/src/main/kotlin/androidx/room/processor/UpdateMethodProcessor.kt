@@ -59,6 +59,12 @@ class UpdateMethodProcessor(
             }
         )
 
+        context.checker.check(
+            params.none { it.isStreaming },
+            executableElement,
+            ProcessorErrors.STREAMING_PARAMS_ONLY_IN_INSERT
+        )
+
         val returnType = delegate.extractReturnType()
         val methodBinder = delegate.findDeleteOrUpdateMethodBinder(returnType)
 
@@ -22,6 +22,7 @@ import androidx.room.compiler.processing.isArray
 import androidx.room.ext.KotlinTypeNames
 import androidx.room.ext.L
 import androidx.room.ext.N
+import androidx.room.ext.RoomTypeNames
 import androidx.room.ext.T
 import androidx.room.ext.typeName
 import androidx.room.solver.CodeGenScope
@@ -59,7 +60,10 @@ class InsertMethodAdapter private constructor(private val insertionType: Inserti
                 return insertionType == InsertionType.INSERT_VOID ||
                     insertionType == InsertionType.INSERT_UNIT
             }
-            return if (params.first().isMultiple) {
+            return if (params.first().isStreaming) {
+                // Streamed rows are committed in chunks, so there is no list of ids to return.
+                insertionType in STREAMING_SET
+            } else if (params.first().isMultiple) {
                 insertionType in MULTIPLE_ITEM_SET
             } else {
                 insertionType == InsertionType.INSERT_VOID ||
@@ -80,6 +84,14 @@ class InsertMethodAdapter private constructor(private val insertionType: Inserti
             )
         }
 
+        private val STREAMING_SET by lazy {
+            setOf(
+                InsertionType.INSERT_VOID,
+                InsertionType.INSERT_VOID_OBJECT,
+                InsertionType.INSERT_UNIT
+            )
+        }
+
         @Suppress("PLATFORM_CLASS_MAPPED_TO_KOTLIN")
         private fun getInsertionType(returnType: XType): InsertionType? {
             return if (returnType.isVoid()) {
@@ -121,6 +133,10 @@ class InsertMethodAdapter private constructor(private val insertionType: Inserti
         dbField: FieldSpec,
         scope: CodeGenScope
     ) {
+        if (parameters.size == 1 && parameters.first().isStreaming) {
+            createStreamingInsertionMethodBody(parameters.first(), insertionAdapters, scope)
+            return
+        }
         scope.builder().apply {
             // TODO assert thread
             // TODO collect results
@@ -169,6 +185,34 @@ class InsertMethodAdapter private constructor(private val insertionType: Inserti
         }
     }
 
+    /**
+     * Streams an Iterator or a Sequence into the insertion adapter, which commits a transaction
+     * every DEFAULT_ROWS_PER_TRANSACTION rows instead of holding one open for the whole stream.
+     */
+    private fun createStreamingInsertionMethodBody(
+        param: ShortcutQueryParameter,
+        insertionAdapters: Map<String, Pair<FieldSpec, TypeSpec>>,
+        scope: CodeGenScope
+    ) {
+        scope.builder().apply {
+            val insertionAdapter = insertionAdapters[param.name]?.first
+            val iterator = if (param.type.rawType.typeName == KotlinTypeNames.SEQUENCE) {
+                "${param.name}.iterator()"
+            } else {
+                param.name
+            }
+            addStatement(
+                "$N.insertInTransactions($L, $T.DEFAULT_ROWS_PER_TRANSACTION, null)",
+                insertionAdapter, iterator, RoomTypeNames.INSERTION_ADAPTER
+            )
+            if (insertionType == InsertionType.INSERT_VOID_OBJECT) {
+                addStatement("return null")
+            } else if (insertionType == InsertionType.INSERT_UNIT) {
+                addStatement("return $T.INSTANCE", KotlinTypeNames.UNIT)
+            }
+        }
+    }
+
     enum class InsertionType(
         // methodName matches EntityInsertionAdapter methods
         val methodName: String,
@@ -27,7 +27,8 @@ data class ShortcutQueryParameter(
     val name: String,
     val type: XType, // actual param type (List<Foo>, Set<Foo>, Foo, etc...)
     val pojoType: XType?, // extracted type, never a Collection
-    val isMultiple: Boolean
+    val isMultiple: Boolean,
+    val isStreaming: Boolean // an Iterator or a Sequence, which can only be consumed once
 ) {
     /**
      * Method name in entity insertion or update adapter.
@@ -21,6 +21,7 @@ import androidx.room.ext.L
 import androidx.room.ext.RoomTypeNames
 import androidx.room.ext.S
 import androidx.room.ext.SupportDbTypeNames
+import androidx.room.ext.T
 import androidx.room.solver.CodeGenScope
 import androidx.room.vo.FieldWithIndex
 import androidx.room.vo.Pojo
@@ -70,54 +71,96 @@ class EntityInsertionAdapterWriter private constructor(
         @Suppress("RemoveSingleExpressionStringTemplate")
         return TypeSpec.anonymousClassBuilder("$L", dbParam).apply {
             superclass(ParameterizedTypeName.get(RoomTypeNames.INSERTION_ADAPTER, pojo.typeName))
+            val valuesRow = pojo.fields.joinToString(",", prefix = "(", postfix = ")") {
+                if (it.columnName == primitiveAutoGenerateColumn) {
+                    "nullif(?, 0)"
+                } else {
+                    "?"
+                }
+            }
+            val query = "INSERT OR $onConflict INTO `$tableName`" +
+                " (${pojo.columnNames.joinToString(",") { "`$it`" }})" +
+                " VALUES $valuesRow"
             addMethod(
                 MethodSpec.methodBuilder("createQuery").apply {
                     addAnnotation(Override::class.java)
                     addModifiers(PUBLIC)
                     returns(ClassName.get("java.lang", "String"))
-                    val query = buildString {
-                        append("INSERT OR $onConflict INTO `$tableName`")
-                        append(" (${pojo.columnNames.joinToString(",") { "`$it`" }})")
-                        append(" VALUES (")
-                        append(
-                            pojo.fields.joinToString(",") {
-                                if (it.columnName == primitiveAutoGenerateColumn) {
-                                    "nullif(?, 0)"
-                                } else {
-                                    "?"
-                                }
-                            }
-                        )
-                        append(")")
-                    }
                     addStatement("return $S", query)
                 }.build()
             )
+            addMethod(createBindMethod(classWriter, offsetParam = null))
             addMethod(
-                MethodSpec.methodBuilder("bind").apply {
-                    val bindScope = CodeGenScope(classWriter)
+                MethodSpec.methodBuilder("getArgumentCount").apply {
                     addAnnotation(Override::class.java)
                     addModifiers(PUBLIC)
-                    returns(TypeName.VOID)
-                    val stmtParam = "stmt"
-                    addParameter(
-                        ParameterSpec.builder(
-                            SupportDbTypeNames.SQLITE_STMT,
-                            stmtParam
-                        ).build()
-                    )
-                    val valueParam = "value"
-                    addParameter(ParameterSpec.builder(pojo.typeName, valueParam).build())
-                    val mapped = FieldWithIndex.byOrder(pojo.fields)
-                    FieldReadWriteWriter.bindToStatement(
-                        ownerVar = valueParam,
-                        stmtParamVar = stmtParam,
-                        fieldsWithIndices = mapped,
-                        scope = bindScope
+                    returns(TypeName.INT)
+                    addStatement("return $L", pojo.fields.size)
+                }.build()
+            )
+            addMethod(
+                MethodSpec.methodBuilder("createMultiRowQuery").apply {
+                    addAnnotation(Override::class.java)
+                    addModifiers(PUBLIC)
+                    returns(ClassName.get("java.lang", "String"))
+                    val rowsParam = "rows"
+                    addParameter(ParameterSpec.builder(TypeName.INT, rowsParam).build())
+                    val scope = CodeGenScope(classWriter)
+                    val builderVar = scope.getTmpVar("_builder")
+                    val rowVar = scope.getTmpVar("_row")
+                    addStatement(
+                        "final $T $L = new $T($S)",
+                        StringBuilder::class.java, builderVar, StringBuilder::class.java, query
                     )
-                    addCode(bindScope.builder().build())
+                    beginControlFlow(
+                        "for (int $L = 1; $L < $L; $L++)",
+                        rowVar, rowVar, rowsParam, rowVar
+                    ).apply {
+                        addStatement("$L.append($S)", builderVar, ",$valuesRow")
+                    }.endControlFlow()
+                    addStatement("return $L.toString()", builderVar)
                 }.build()
             )
+            addMethod(createBindMethod(classWriter, offsetParam = "offset"))
+        }.build()
+    }
+
+    /**
+     * Creates the bind method, which binds the fields of the entity to the arguments after
+     * [offsetParam] if given, for rows of multi-row statements.
+     */
+    private fun createBindMethod(classWriter: ClassWriter, offsetParam: String?): MethodSpec {
+        return MethodSpec.methodBuilder("bind").apply {
+            val bindScope = CodeGenScope(classWriter)
+            addAnnotation(Override::class.java)
+            addModifiers(PUBLIC)
+            returns(TypeName.VOID)
+            val stmtParam = "stmt"
+            addParameter(
+                ParameterSpec.builder(
+                    SupportDbTypeNames.SQLITE_STMT,
+                    stmtParam
+                ).build()
+            )
+            if (offsetParam != null) {
+                addParameter(ParameterSpec.builder(TypeName.INT, offsetParam).build())
+            }
+            val valueParam = "value"
+            addParameter(ParameterSpec.builder(pojo.typeName, valueParam).build())
+            val mapped = FieldWithIndex.byOrder(pojo.fields).let { fields ->
+                if (offsetParam == null) {
+                    fields
+                } else {
+                    fields.map { it.copy(indexVar = "$offsetParam + ${it.indexVar}") }
+                }
+            }
+            FieldReadWriteWriter.bindToStatement(
+                ownerVar = valueParam,
+                stmtParamVar = stmtParam,
+                fieldsWithIndices = mapped,
+                scope = bindScope
+            )
+            addCode(bindScope.builder().build())
         }.build()
     }
 }
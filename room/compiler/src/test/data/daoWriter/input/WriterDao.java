@@ -16,6 +16,7 @@
 
 package foo.bar;
 import androidx.room.*;
+import java.util.Iterator;
 import java.util.List;
 
 @Dao
@@ -28,4 +29,6 @@ abstract interface WriterDao {
     void insertUsers(User[] users);
     @Insert
     void insertUserAndBook(User user, Book book);
+    @Insert
+    void insertUserStream(Iterator<User> users);
 }
@@ -22,8 +22,10 @@ import androidx.sqlite.db.SupportSQLiteStatement;
 import java.lang.Class;
 import java.lang.Override;
 import java.lang.String;
+import java.lang.StringBuilder;
 import java.lang.SuppressWarnings;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 import javax.annotation.processing.Generated;
 
@@ -61,6 +63,36 @@ public final class WriterDao_Impl implements WriterDao {
                 }
                 stmt.bindLong(4, value.age);
             }
+
+            @Override
+            public int getArgumentCount() {
+                return 4;
+            }
+
+            @Override
+            public String createMultiRowQuery(int rows) {
+                final StringBuilder _builder = new StringBuilder("INSERT OR ABORT INTO `User` (`uid`,`name`,`lastName`,`ageColumn`) VALUES (?,?,?,?)");
+                for (int _row = 1; _row < rows; _row++) {
+                    _builder.append(",(?,?,?,?)");
+                }
+                return _builder.toString();
+            }
+
+            @Override
+            public void bind(SupportSQLiteStatement stmt, int offset, User value) {
+                stmt.bindLong(offset + 1, value.uid);
+                if (value.name == null) {
+                    stmt.bindNull(offset + 2);
+                } else {
+                    stmt.bindString(offset + 2, value.name);
+                }
+                if (value.getLastName() == null) {
+                    stmt.bindNull(offset + 3);
+                } else {
+                    stmt.bindString(offset + 3, value.getLastName());
+                }
+                stmt.bindLong(offset + 4, value.age);
+            }
         };
         this.__insertionAdapterOfUser_1 = new EntityInsertionAdapter<User>(__db) {
             @Override
@@ -83,6 +115,36 @@ public final class WriterDao_Impl implements WriterDao {
                 }
                 stmt.bindLong(4, value.age);
             }
+
+            @Override
+            public int getArgumentCount() {
+                return 4;
+            }
+
+            @Override
+            public String createMultiRowQuery(int rows) {
+                final StringBuilder _builder = new StringBuilder("INSERT OR REPLACE INTO `User` (`uid`,`name`,`lastName`,`ageColumn`) VALUES (?,?,?,?)");
+                for (int _row = 1; _row < rows; _row++) {
+                    _builder.append(",(?,?,?,?)");
+                }
+                return _builder.toString();
+            }
+
+            @Override
+            public void bind(SupportSQLiteStatement stmt, int offset, User value) {
+                stmt.bindLong(offset + 1, value.uid);
+                if (value.name == null) {
+                    stmt.bindNull(offset + 2);
+                } else {
+                    stmt.bindString(offset + 2, value.name);
+                }
+                if (value.getLastName() == null) {
+                    stmt.bindNull(offset + 3);
+                } else {
+                    stmt.bindString(offset + 3, value.getLastName());
+                }
+                stmt.bindLong(offset + 4, value.age);
+            }
         };
         this.__insertionAdapterOfBook = new EntityInsertionAdapter<Book>(__db) {
             @Override
@@ -95,6 +157,26 @@ public final class WriterDao_Impl implements WriterDao {
                 stmt.bindLong(1, value.bookId);
                 stmt.bindLong(2, value.uid);
             }
+
+            @Override
+            public int getArgumentCount() {
+                return 2;
+            }
+
+            @Override
+            public String createMultiRowQuery(int rows) {
+                final StringBuilder _builder = new StringBuilder("INSERT OR ABORT INTO `Book` (`bookId`,`uid`) VALUES (?,?)");
+                for (int _row = 1; _row < rows; _row++) {
+                    _builder.append(",(?,?)");
+                }
+                return _builder.toString();
+            }
+
+            @Override
+            public void bind(SupportSQLiteStatement stmt, int offset, Book value) {
+                stmt.bindLong(offset + 1, value.bookId);
+                stmt.bindLong(offset + 2, value.uid);
+            }
         };
     }
 
@@ -148,6 +230,12 @@ public final class WriterDao_Impl implements WriterDao {
         }
     }
 
+    @Override
+    public void insertUserStream(final Iterator<User> users) {
+        __db.assertNotSuspendingTransaction();
+        __insertionAdapterOfUser.insertInTransactions(users, EntityInsertionAdapter.DEFAULT_ROWS_PER_TRANSACTION, null);
+    }
+
     public static List<Class<?>> getRequiredConverters() {
         return Collections.emptyList();
     }
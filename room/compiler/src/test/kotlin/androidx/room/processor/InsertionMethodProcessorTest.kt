@@ -276,6 +276,71 @@ class InsertionMethodProcessorTest {
         }.compilesWithoutError()
     }
 
+    @Test
+    fun insertIterator() {
+        singleInsertMethod(
+            """
+                @Insert
+                abstract public void insert(Iterator<User> users);
+                """
+        ) { insertion, _ ->
+            assertThat(insertion.parameters.size, `is`(1))
+            val param = insertion.parameters.first()
+            assertThat(
+                param.type.typeName,
+                `is`(
+                    ParameterizedTypeName.get(
+                        ClassName.get("java.util", "Iterator"),
+                        USER_TYPE_NAME
+                    ) as TypeName
+                )
+            )
+            assertThat(param.isMultiple, `is`(true))
+            assertThat(param.isStreaming, `is`(true))
+            assertThat(insertion.entities["users"]?.pojo?.typeName, `is`(USER_TYPE_NAME))
+            assertThat(insertion.methodBinder.adapter, `is`(notNullValue()))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun insertSequence() {
+        singleInsertMethod(
+            """
+                @Insert
+                abstract public void insert(kotlin.sequences.Sequence<User> users);
+                """
+        ) { insertion, _ ->
+            val param = insertion.parameters.first()
+            assertThat(param.isMultiple, `is`(true))
+            assertThat(param.isStreaming, `is`(true))
+            assertThat(insertion.entities["users"]?.pojo?.typeName, `is`(USER_TYPE_NAME))
+            assertThat(insertion.methodBinder.adapter, `is`(notNullValue()))
+        }.compilesWithoutError()
+    }
+
+    @Test
+    fun insertIteratorWithOtherParams() {
+        singleInsertMethod(
+            """
+                @Insert
+                abstract public void insert(User user, Iterator<User> users);
+                """
+        ) { _, _ ->
+        }.failsToCompile().withErrorContaining(ProcessorErrors.INVALID_STREAMING_INSERT)
+    }
+
+    @Test
+    fun insertIteratorReturningIds() {
+        singleInsertMethod(
+            """
+                @Insert
+                abstract public List<Long> insert(Iterator<User> users);
+                """
+        ) { insertion, _ ->
+            assertThat(insertion.methodBinder.adapter, `is`(nullValue()))
+        }.failsToCompile().withErrorContaining(ProcessorErrors.CANNOT_FIND_INSERT_RESULT_ADAPTER)
+    }
+
     @Test
     fun insertCustomCollection() {
         singleInsertMethod(
@@ -246,6 +246,18 @@ abstract class ShortcutMethodProcessorTest<out T : ShortcutMethod>(
         }.compilesWithoutError()
     }
 
+    @Test
+    fun iterator() {
+        singleShortcutMethod(
+            """
+                @${annotation.java.canonicalName}
+                abstract public void modifyUsers(Iterator<User> users);
+                """
+        ) { shortcut, _ ->
+            assertThat(shortcut.parameters.first().isStreaming, `is`(true))
+        }.failsToCompile().withErrorContaining(ProcessorErrors.STREAMING_PARAMS_ONLY_IN_INSERT)
+    }
+
     @Test
     fun customCollection() {
         singleShortcutMethod(
@@ -76,6 +76,12 @@ interface BooksDao {
     @Insert
     fun addPublisherSuspend(publisher: Publisher)
 
+    @Insert
+    fun addPublishersSequence(publishers: Sequence<Publisher>)
+
+    @Insert
+    fun addPublishersIterator(publishers: Iterator<Publisher>)
+
     @Delete
     fun deletePublishers(vararg publishers: Publisher)
 
@@ -334,6 +334,26 @@ class BooksDaoTest : TestDatabaseTest() {
         assertThat(author, CoreMatchers.`is`<Author>(TestUtil.AUTHOR_1))
     }
 
+    @Test
+    fun addPublishersSequence() {
+        // Spans several transactions of EntityInsertionAdapter.DEFAULT_ROWS_PER_TRANSACTION rows.
+        booksDao.addPublishersSequence(
+            generateSequence(0) { it + 1 }.take(2500).map { Publisher("p$it", "publisher $it") }
+        )
+        booksDao.getPublishers().run {
+            assertThat(this.size, `is`(2500))
+            assertThat(this.last(), `is`(equalTo(Publisher("p2499", "publisher 2499"))))
+        }
+    }
+
+    @Test
+    fun addPublishersIterator() {
+        booksDao.addPublishersIterator(listOf(TestUtil.PUBLISHER, TestUtil.PUBLISHER2).iterator())
+        booksDao.getPublishers().run {
+            assertThat(this, `is`(equalTo(listOf(TestUtil.PUBLISHER, TestUtil.PUBLISHER2))))
+        }
+    }
+
     @Test
     fun deleteAndAddPublisher() {
         booksDao.addPublishers(TestUtil.PUBLISHER)
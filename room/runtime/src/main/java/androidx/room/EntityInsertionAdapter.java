@@ -16,17 +16,29 @@
 
 package androidx.room;
 
+import android.os.Build;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
+import androidx.annotation.VisibleForTesting;
 import androidx.sqlite.db.SupportSQLiteStatement;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Implementations of this class knows how to insert a particular entity.
  * <p>
  * This is an internal library class and all of its implementations are auto-generated.
+ * <p>
+ * Inserts of many entities without returning their row ids bind several entities into one
+ * {@code INSERT ... VALUES (...), (...)} statement, up to SQLite's limits on bound arguments, so
+ * that each statement execution inserts many rows.
  *
  * @param <T> The type parameter of the entity to be inserted
  * @hide
@@ -34,6 +46,27 @@ import java.util.List;
 @SuppressWarnings({"WeakerAccess", "unused"})
 @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP_PREFIX)
 public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
+    /**
+     * The number of rows committed in each transaction when a DAO streams an {@code Iterator} or a
+     * {@code Sequence} into {@link #insertInTransactions(Iterator, int, BulkInsertListener)}.
+     */
+    public static final int DEFAULT_ROWS_PER_TRANSACTION = 1000;
+
+    // SQLite's default SQLITE_MAX_VARIABLE_NUMBER.
+    private static final int MAX_BIND_ARGUMENTS = 999;
+    // Stays below SQLITE_MAX_COMPOUND_SELECT, which limits multi-row VALUES before SQLite 3.8.8.
+    private static final int MAX_ROWS_PER_STATEMENT = 256;
+    // Smaller remainders are inserted one row at a time.
+    private static final int MIN_ROWS_PER_STATEMENT = 4;
+
+    private final RoomDatabase mDatabase;
+    // Guards the multi-row statements below. When they are in use, other threads insert one row
+    // at a time.
+    private final AtomicBoolean mBulkLock = new AtomicBoolean(false);
+    // Row counts of the multi-row statements, largest first, or empty if they are not supported.
+    private int[] mBulkRowCounts;
+    private SupportSQLiteStatement[] mBulkStatements;
+
     /**
      * Creates an InsertionAdapter that can insert the entity type T into the given database.
      *
@@ -41,6 +74,7 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      */
     public EntityInsertionAdapter(RoomDatabase database) {
         super(database);
+        mDatabase = database;
     }
 
     /**
@@ -52,6 +86,40 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      */
     protected abstract void bind(SupportSQLiteStatement statement, T entity);
 
+    /**
+     * Returns the number of arguments each entity binds, or 0 if this adapter can't insert
+     * several entities with one statement, as is the case for adapters generated by older
+     * versions of Room.
+     *
+     * @return The number of arguments in a row of the VALUES clause of the insert query.
+     */
+    protected int getArgumentCount() {
+        return 0;
+    }
+
+    /**
+     * Creates the insert query with the given number of rows in its VALUES clause. Only called if
+     * {@link #getArgumentCount()} is positive.
+     *
+     * @param rows The number of rows to insert with the query.
+     * @return The multi-row insert query.
+     */
+    protected String createMultiRowQuery(int rows) {
+        throw new UnsupportedOperationException("Multi-row inserts are not supported.");
+    }
+
+    /**
+     * Binds the entity into a row of a statement returned from {@link #createMultiRowQuery(int)}.
+     * Only called if {@link #getArgumentCount()} is positive.
+     *
+     * @param statement The SQLite statement that prepared for the multi-row query.
+     * @param offset    The number of arguments bound by the previous rows of the statement.
+     * @param entity    The entity of type T.
+     */
+    protected void bind(SupportSQLiteStatement statement, int offset, T entity) {
+        throw new UnsupportedOperationException("Multi-row inserts are not supported.");
+    }
+
     /**
      * Inserts the entity into the database.
      *
@@ -73,15 +141,7 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      * @param entities Entities to insert
      */
     public final void insert(T[] entities) {
-        final SupportSQLiteStatement stmt = acquire();
-        try {
-            for (T entity : entities) {
-                bind(stmt, entity);
-                stmt.executeInsert();
-            }
-        } finally {
-            release(stmt);
-        }
+        insertRows(Arrays.asList(entities).iterator(), Long.MAX_VALUE);
     }
 
     /**
@@ -90,17 +150,147 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
      * @param entities Entities to insert
      */
     public final void insert(Iterable<? extends T> entities) {
+        insertRows(entities.iterator(), Long.MAX_VALUE);
+    }
+
+    /**
+     * Inserts the entities returned by the given iterator, committing a transaction every
+     * {@code rowsPerTransaction} rows, so that an arbitrarily large stream of entities, such as a
+     * Kotlin {@code Sequence}, can be inserted without being collected first nor holding a single
+     * transaction open for the whole stream.
+     * <p>
+     * If this is called while a transaction is already open, the chunks are nested in it and only
+     * committed together with it.
+     *
+     * @param entities           Entities to insert, consumed as they are inserted.
+     * @param rowsPerTransaction The number of rows to insert in each transaction.
+     * @param listener           Notified after each committed transaction, or null.
+     * @return The number of inserted rows.
+     */
+    public final long insertInTransactions(@NonNull Iterator<? extends T> entities,
+            int rowsPerTransaction, @Nullable BulkInsertListener listener) {
+        if (rowsPerTransaction <= 0) {
+            throw new IllegalArgumentException("rowsPerTransaction must be positive.");
+        }
+        final long start = System.nanoTime();
+        long insertedRows = 0;
+        while (entities.hasNext()) {
+            mDatabase.beginTransaction();
+            try {
+                insertedRows += insertRows(entities, rowsPerTransaction);
+                mDatabase.setTransactionSuccessful();
+            } finally {
+                mDatabase.endTransaction();
+            }
+            if (listener != null) {
+                listener.onTransactionCommitted(insertedRows, System.nanoTime() - start);
+            }
+        }
+        return insertedRows;
+    }
+
+    /**
+     * Returns whether this SQLite version accepts several rows in a VALUES clause, which was
+     * added in SQLite 3.7.11.
+     */
+    @VisibleForTesting
+    boolean supportsMultiRowValues() {
+        return Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN;
+    }
+
+    /**
+     * Inserts up to {@code maxRows} entities from the given iterator, using multi-row statements
+     * for as many of them as possible.
+     */
+    private long insertRows(Iterator<? extends T> entities, long maxRows) {
+        assertNotMainThread();
+        if (!mBulkLock.compareAndSet(false, true)) {
+            return insertOneByOne(entities, maxRows);
+        }
+        try {
+            prepareBulkStatements();
+            if (mBulkRowCounts.length == 0) {
+                return insertOneByOne(entities, maxRows);
+            }
+            final int chunkSize = mBulkRowCounts[0];
+            final List<T> chunk = new ArrayList<>(chunkSize);
+            long insertedRows = 0;
+            while (insertedRows < maxRows && entities.hasNext()) {
+                chunk.clear();
+                while (chunk.size() < chunkSize && insertedRows + chunk.size() < maxRows
+                        && entities.hasNext()) {
+                    chunk.add(entities.next());
+                }
+                int offset = 0;
+                for (int level = 0; level < mBulkRowCounts.length; level++) {
+                    while (chunk.size() - offset >= mBulkRowCounts[level]) {
+                        executeBulk(level, chunk, offset);
+                        offset += mBulkRowCounts[level];
+                    }
+                }
+                insertOneByOne(chunk.subList(offset, chunk.size()).iterator(), Long.MAX_VALUE);
+                insertedRows += chunk.size();
+            }
+            return insertedRows;
+        } finally {
+            mBulkLock.set(false);
+        }
+    }
+
+    private long insertOneByOne(Iterator<? extends T> entities, long maxRows) {
         final SupportSQLiteStatement stmt = acquire();
         try {
-            for (T entity : entities) {
-                bind(stmt, entity);
+            long insertedRows = 0;
+            while (insertedRows < maxRows && entities.hasNext()) {
+                bind(stmt, entities.next());
                 stmt.executeInsert();
+                insertedRows++;
             }
+            return insertedRows;
         } finally {
             release(stmt);
         }
     }
 
+    /**
+     * Picks the row counts of the multi-row statements, once.
+     */
+    private void prepareBulkStatements() {
+        if (mBulkRowCounts != null) {
+            return;
+        }
+        final int argumentCount = getArgumentCount();
+        final List<Integer> rowCounts = new ArrayList<>();
+        if (argumentCount > 0 && supportsMultiRowValues()) {
+            int rows = Integer.highestOneBit(
+                    Math.min(MAX_ROWS_PER_STATEMENT, MAX_BIND_ARGUMENTS / argumentCount));
+            while (rows >= MIN_ROWS_PER_STATEMENT) {
+                rowCounts.add(rows);
+                rows /= 4;
+            }
+        }
+        mBulkStatements = new SupportSQLiteStatement[rowCounts.size()];
+        final int[] counts = new int[rowCounts.size()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = rowCounts.get(i);
+        }
+        mBulkRowCounts = counts;
+    }
+
+    private void executeBulk(int level, List<T> chunk, int offset) {
+        final int rows = mBulkRowCounts[level];
+        SupportSQLiteStatement stmt = mBulkStatements[level];
+        if (stmt == null) {
+            stmt = mDatabase.compileStatement(createMultiRowQuery(rows));
+            mBulkStatements[level] = stmt;
+        }
+        final int argumentCount = getArgumentCount();
+        for (int row = 0; row < rows; row++) {
+            bind(stmt, row * argumentCount, chunk.get(offset + row));
+        }
+        stmt.executeInsert();
+    }
+
     /**
      * Inserts the given entity into the database and returns the row id.
      *
@@ -248,4 +438,18 @@ public abstract class EntityInsertionAdapter<T> extends SharedSQLiteStatement {
             release(stmt);
         }
     }
+
+    /**
+     * Receives the progress of {@link #insertInTransactions(Iterator, int, BulkInsertListener)}.
+     */
+    public interface BulkInsertListener {
+        /**
+         * Called after each committed transaction.
+         *
+         * @param insertedRows The number of rows inserted so far.
+         * @param elapsedNanos The time spent inserting them, in nanoseconds. The insert rate is
+         *                     {@code insertedRows * 1e9 / elapsedNanos} rows per second.
+         */
+        void onTransactionCommitted(long insertedRows, long elapsedNanos);
+    }
 }
@@ -43,7 +43,13 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -59,6 +65,11 @@ import java.util.concurrent.locks.Lock;
 // tables.
 // * Each update (write operation) on one of the observed tables triggers an update into the
 // memory table table, flipping the invalidated flag ON.
+// * When a coalescing window is set, a refresh requested less than a window after the previous one
+// is delayed until the window has elapsed. Writes in between keep flipping the invalidated flags
+// in the memory table, so the delayed refresh reads and delivers the union of their tables.
+// * When row level tracking is turned on, the triggers also record the rowid of every modified row
+// into a second memory table, (table_id, row_id), which is read and emptied by the same refresh.
 // * When multi-instance invalidation is turned on, MultiInstanceInvalidationClient will be created.
 // It works as an Observer, and notifies other instances of table invalidation.
 public class InvalidationTracker {
@@ -75,6 +86,22 @@ public class InvalidationTracker {
             + "(" + TABLE_ID_COLUMN_NAME + " INTEGER PRIMARY KEY, "
             + INVALIDATED_COLUMN_NAME + " INTEGER NOT NULL DEFAULT 0)";
 
+    private static final String UPDATED_ROWS_TABLE_NAME = "room_table_modification_rows";
+
+    private static final String ROW_ID_COLUMN_NAME = "row_id";
+
+    private static final String CREATE_ROW_TRACKING_TABLE_SQL = "CREATE TEMP TABLE "
+            + UPDATED_ROWS_TABLE_NAME + "(" + TABLE_ID_COLUMN_NAME + " INTEGER NOT NULL, "
+            + ROW_ID_COLUMN_NAME + " INTEGER NOT NULL, "
+            + "PRIMARY KEY(" + TABLE_ID_COLUMN_NAME + ", " + ROW_ID_COLUMN_NAME + "))";
+
+    @VisibleForTesting
+    static final String SELECT_UPDATED_ROWS_SQL = "SELECT " + TABLE_ID_COLUMN_NAME + ", "
+            + ROW_ID_COLUMN_NAME + " FROM " + UPDATED_ROWS_TABLE_NAME;
+
+    @VisibleForTesting
+    static final String RESET_UPDATED_ROWS_SQL = "DELETE FROM " + UPDATED_ROWS_TABLE_NAME;
+
     @VisibleForTesting
     static final String RESET_UPDATED_TABLES_SQL = "UPDATE " + UPDATE_TABLE_NAME
             + " SET " + INVALIDATED_COLUMN_NAME + " = 0 WHERE " + INVALIDATED_COLUMN_NAME + " = 1 ";
@@ -95,11 +122,25 @@ public class InvalidationTracker {
 
     AtomicBoolean mPendingRefresh = new AtomicBoolean(false);
 
+    // Refresh requests waiting for the pending refresh, and lifetime totals of refreshes which
+    // notified observers and of requests merged into an already pending refresh.
+    final AtomicInteger mPendingRefreshRequests = new AtomicInteger();
+    final AtomicLong mDeliveredRefreshCount = new AtomicLong();
+    final AtomicLong mCoalescedRefreshCount = new AtomicLong();
+
+    private volatile long mCoalescingWindowNanos;
+    private volatile long mLastRefreshNanos;
+
     private volatile boolean mInitialized = false;
 
+    private boolean mRowLevelTracking = false;
+
     @SuppressWarnings("WeakerAccess") /* synthetic access */
     volatile SupportSQLiteStatement mCleanupStatement;
 
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    volatile SupportSQLiteStatement mRowCleanupStatement;
+
     private ObservedTableTracker mObservedTableTracker;
 
     private final InvalidationLiveDataContainer mInvalidationLiveDataContainer;
@@ -177,12 +218,27 @@ public class InvalidationTracker {
             database.execSQL("PRAGMA temp_store = MEMORY;");
             database.execSQL("PRAGMA recursive_triggers='ON';");
             database.execSQL(CREATE_TRACKING_TABLE_SQL);
+            if (mRowLevelTracking) {
+                database.execSQL(CREATE_ROW_TRACKING_TABLE_SQL);
+            }
             syncTriggers(database);
             mCleanupStatement = database.compileStatement(RESET_UPDATED_TABLES_SQL);
+            if (mRowLevelTracking) {
+                mRowCleanupStatement = database.compileStatement(RESET_UPDATED_ROWS_SQL);
+            }
             mInitialized = true;
         }
     }
 
+    /**
+     * Makes the triggers record which rows are modified, so that observers are notified of
+     * the changed rows through {@link Observer#onRowsInvalidated(Set, Map)}. Must be called
+     * before the database is opened.
+     */
+    void setRowLevelTracking(boolean rowLevelTracking) {
+        mRowLevelTracking = rowLevelTracking;
+    }
+
     void startMultiInstanceInvalidation(Context context, String name) {
         mMultiInstanceInvalidationClient = new MultiInstanceInvalidationClient(context, name, this,
                 mDatabase.getQueryExecutor());
@@ -234,11 +290,26 @@ public class InvalidationTracker {
                     .append(" SET ").append(INVALIDATED_COLUMN_NAME).append(" = 1")
                     .append(" WHERE ").append(TABLE_ID_COLUMN_NAME).append(" = ").append(tableId)
                     .append(" AND ").append(INVALIDATED_COLUMN_NAME).append(" = 0")
-                    .append("; END");
+                    .append("; ");
+            if (mRowLevelTracking) {
+                if (!trigger.equals("INSERT")) {
+                    appendRecordRow(stringBuilder, tableId, "OLD");
+                }
+                if (!trigger.equals("DELETE")) {
+                    appendRecordRow(stringBuilder, tableId, "NEW");
+                }
+            }
+            stringBuilder.append("END");
             writableDb.execSQL(stringBuilder.toString());
         }
     }
 
+    private static void appendRecordRow(StringBuilder builder, int tableId, String row) {
+        builder.append("INSERT OR IGNORE INTO ")
+                .append(UPDATED_ROWS_TABLE_NAME)
+                .append(" VALUES(").append(tableId).append(", ").append(row).append(".rowid); ");
+    }
+
     /**
      * Adds the given observer to the observers list and it will be notified if any table it
      * observes changes.
@@ -376,6 +447,7 @@ public class InvalidationTracker {
         public void run() {
             final Lock closeLock = mDatabase.getCloseLock();
             Set<Integer> invalidatedTableIds = null;
+            Map<Integer, Set<Long>> invalidatedRowIds = null;
             closeLock.lock();
             try {
 
@@ -383,10 +455,12 @@ public class InvalidationTracker {
                     return;
                 }
 
+                mPendingRefreshRequests.set(0);
                 if (!mPendingRefresh.compareAndSet(true, false)) {
                     // no pending refresh
                     return;
                 }
+                mLastRefreshNanos = System.nanoTime();
 
                 if (mDatabase.inTransaction()) {
                     // current thread is in a transaction. when it ends, it will invoke
@@ -402,12 +476,18 @@ public class InvalidationTracker {
                     db.beginTransactionNonExclusive();
                     try {
                         invalidatedTableIds = checkUpdatedTable();
+                        if (mRowLevelTracking && !invalidatedTableIds.isEmpty()) {
+                            invalidatedRowIds = checkUpdatedRows();
+                        }
                         db.setTransactionSuccessful();
                     } finally {
                         db.endTransaction();
                     }
                 } else {
                     invalidatedTableIds = checkUpdatedTable();
+                    if (mRowLevelTracking && !invalidatedTableIds.isEmpty()) {
+                        invalidatedRowIds = checkUpdatedRows();
+                    }
                 }
             } catch (IllegalStateException | SQLiteException exception) {
                 // may happen if db is closed. just log.
@@ -417,9 +497,11 @@ public class InvalidationTracker {
                 closeLock.unlock();
             }
             if (invalidatedTableIds != null && !invalidatedTableIds.isEmpty()) {
+                mDeliveredRefreshCount.incrementAndGet();
                 synchronized (mObserverMap) {
                     for (Map.Entry<Observer, ObserverWrapper> entry : mObserverMap) {
-                        entry.getValue().notifyByTableInvalidStatus(invalidatedTableIds);
+                        entry.getValue().notifyByTableInvalidStatus(invalidatedTableIds,
+                                invalidatedRowIds);
                     }
                 }
             }
@@ -442,6 +524,29 @@ public class InvalidationTracker {
             }
             return invalidatedTableIds;
         }
+
+        private Map<Integer, Set<Long>> checkUpdatedRows() {
+            HashMap<Integer, Set<Long>> invalidatedRowIds = new HashMap<>();
+            Cursor cursor = mDatabase.query(new SimpleSQLiteQuery(SELECT_UPDATED_ROWS_SQL));
+            //noinspection TryFinallyCanBeTryWithResources
+            try {
+                while (cursor.moveToNext()) {
+                    final int tableId = cursor.getInt(0);
+                    Set<Long> rowIds = invalidatedRowIds.get(tableId);
+                    if (rowIds == null) {
+                        rowIds = new HashSet<>();
+                        invalidatedRowIds.put(tableId, rowIds);
+                    }
+                    rowIds.add(cursor.getLong(1));
+                }
+            } finally {
+                cursor.close();
+            }
+            if (!invalidatedRowIds.isEmpty()) {
+                mRowCleanupStatement.executeUpdateDelete();
+            }
+            return invalidatedRowIds;
+        }
     };
 
     /**
@@ -454,9 +559,69 @@ public class InvalidationTracker {
     @SuppressWarnings("WeakerAccess")
     public void refreshVersionsAsync() {
         // TODO we should consider doing this sync instead of async.
+        mPendingRefreshRequests.incrementAndGet();
         if (mPendingRefresh.compareAndSet(false, true)) {
+            final long windowNanos = mCoalescingWindowNanos;
+            final long delayNanos = windowNanos - (System.nanoTime() - mLastRefreshNanos);
+            if (windowNanos > 0 && delayNanos > 0) {
+                RefreshTimer.INSTANCE.schedule(mDelayedRefreshRunnable, delayNanos,
+                        TimeUnit.NANOSECONDS);
+            } else {
+                mDatabase.getQueryExecutor().execute(mRefreshRunnable);
+            }
+        } else {
+            mCoalescedRefreshCount.incrementAndGet();
+        }
+    }
+
+    private final Runnable mDelayedRefreshRunnable = new Runnable() {
+        @Override
+        public void run() {
             mDatabase.getQueryExecutor().execute(mRefreshRunnable);
         }
+    };
+
+    /**
+     * Sets the minimum time between two refreshes started by {@link #refreshVersionsAsync()}.
+     *
+     * @param windowMillis The length of the window in milliseconds, or 0 to refresh as soon as
+     *                     possible.
+     */
+    void setCoalescingWindow(long windowMillis) {
+        mCoalescingWindowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        mLastRefreshNanos = System.nanoTime() - mCoalescingWindowNanos;
+    }
+
+    /**
+     * Returns the number of {@link #refreshVersionsAsync()} calls waiting for the refresh which is
+     * currently pending, either queued on the query executor or delayed by the coalescing window.
+     *
+     * @return The number of pending refresh requests.
+     */
+    public int getPendingRefreshCount() {
+        return mPendingRefreshRequests.get();
+    }
+
+    /**
+     * Returns the number of refreshes which found invalidated tables and notified the observers,
+     * since this tracker was created.
+     *
+     * @return The number of delivered invalidations.
+     */
+    public long getDeliveredRefreshCount() {
+        return mDeliveredRefreshCount.get();
+    }
+
+    /**
+     * Returns the number of {@link #refreshVersionsAsync()} calls which were merged into a refresh
+     * that was already pending rather than causing one of their own, since this tracker was
+     * created. Together with {@link #getDeliveredRefreshCount()}, this shows how much a coalescing
+     * window set with {@link RoomDatabase.Builder#setInvalidationCoalescingWindow} saves.
+     *
+     * @return The number of coalesced refresh requests.
+     */
+    public long getCoalescedRefreshCount() {
+        return mCoalescedRefreshCount.get();
     }
 
     /**
@@ -630,6 +795,20 @@ public class InvalidationTracker {
          * @param invalidatedTablesIds The table ids of the tables that are invalidated.
          */
         void notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds) {
+            notifyByTableInvalidStatus(invalidatedTablesIds, null);
+        }
+
+        /**
+         * Notifies the underlying {@link #mObserver} if any of the observed tables are invalidated
+         * based on the given invalid status set, along with the modified rows of those tables if
+         * they were tracked.
+         *
+         * @param invalidatedTablesIds The table ids of the tables that are invalidated.
+         * @param invalidatedRowIds The rowids modified in each invalidated table, or null if rows
+         *                          are not tracked.
+         */
+        void notifyByTableInvalidStatus(Set<Integer> invalidatedTablesIds,
+                @Nullable Map<Integer, Set<Long>> invalidatedRowIds) {
             Set<String> invalidatedTables = null;
             final int size = mTableIds.length;
             for (int index = 0; index < size; index++) {
@@ -646,9 +825,21 @@ public class InvalidationTracker {
                     }
                 }
             }
-            if (invalidatedTables != null) {
+            if (invalidatedTables == null) {
+                return;
+            }
+            if (invalidatedRowIds == null) {
                 mObserver.onInvalidated(invalidatedTables);
+                return;
+            }
+            final HashMap<String, Set<Long>> rowIds = new HashMap<>(size);
+            for (int index = 0; index < size; index++) {
+                final Set<Long> tableRowIds = invalidatedRowIds.get(mTableIds[index]);
+                if (tableRowIds != null) {
+                    rowIds.put(mTableNames[index], Collections.unmodifiableSet(tableRowIds));
+                }
             }
+            mObserver.onRowsInvalidated(invalidatedTables, rowIds);
         }
 
         /**
@@ -687,6 +878,22 @@ public class InvalidationTracker {
         }
     }
 
+    /**
+     * Holds the daemon thread which waits out coalescing windows. It only hands delayed refreshes
+     * over to the query executor, and is not started unless a window is set.
+     */
+    private static class RefreshTimer {
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        Thread thread = new Thread(runnable, "Room-invalidation-timer");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
     /**
      * An observer that can listen for changes in the database.
      */
@@ -724,6 +931,28 @@ public class InvalidationTracker {
          */
         public abstract void onInvalidated(@NonNull Set<String> tables);
 
+        /**
+         * Called instead of {@link #onInvalidated(Set)} when one of the observed tables is
+         * invalidated in a database built with
+         * {@link RoomDatabase.Builder#enableRowLevelInvalidation()}.
+         * <p>
+         * Observers which can update their results incrementally, or tell that a change doesn't
+         * affect them, can override this method to avoid re-running their whole query. The default
+         * implementation calls {@link #onInvalidated(Set)}.
+         * <p>
+         * Invalidations received from other instances of the database through
+         * {@link RoomDatabase.Builder#enableMultiInstanceInvalidation()} don't carry rowids and are
+         * still delivered to {@link #onInvalidated(Set)}.
+         *
+         * @param tables A set of invalidated tables, as passed to {@link #onInvalidated(Set)}.
+         * @param rowIds The rowids of the inserted, updated or deleted rows of each table in
+         *               {@code tables}.
+         */
+        public void onRowsInvalidated(@NonNull Set<String> tables,
+                @NonNull Map<String, Set<Long>> rowIds) {
+            onInvalidated(tables);
+        }
+
         boolean isRemote() {
             return false;
         }
@@ -864,5 +1093,16 @@ public class InvalidationTracker {
                 observer.onInvalidated(tables);
             }
         }
+
+        @Override
+        public void onRowsInvalidated(@NonNull Set<String> tables,
+                @NonNull Map<String, Set<Long>> rowIds) {
+            final Observer observer = mDelegateRef.get();
+            if (observer == null) {
+                mTracker.removeObserver(this);
+            } else {
+                observer.onRowsInvalidated(tables, rowIds);
+            }
+        }
     }
 }
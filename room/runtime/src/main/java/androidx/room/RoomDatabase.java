@@ -54,6 +54,7 @@ import java.util.Set;
 import java.util.TreeMap;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -193,6 +194,13 @@ public abstract class RoomDatabase {
         mTransactionExecutor = new TransactionExecutor(configuration.transactionExecutor);
         mAllowMainThreadQueries = configuration.allowMainThreadQueries;
         mWriteAheadLoggingEnabled = wal;
+        if (configuration.invalidationCoalescingWindowMillis > 0) {
+            mInvalidationTracker.setCoalescingWindow(
+                    configuration.invalidationCoalescingWindowMillis);
+        }
+        if (configuration.rowLevelInvalidation) {
+            mInvalidationTracker.setRowLevelTracking(true);
+        }
         if (configuration.multiInstanceInvalidation) {
             mInvalidationTracker.startMultiInstanceInvalidation(configuration.context,
                     configuration.name);
@@ -630,6 +638,8 @@ public abstract class RoomDatabase {
         private boolean mAllowMainThreadQueries;
         private JournalMode mJournalMode;
         private boolean mMultiInstanceInvalidation;
+        private long mInvalidationCoalescingWindowMillis;
+        private boolean mRowLevelInvalidation;
         private boolean mRequireMigration;
         private boolean mAllowDestructiveMigrationOnDowngrade;
         /**
@@ -998,6 +1008,57 @@ public abstract class RoomDatabase {
             return this;
         }
 
+        /**
+         * Makes the {@link InvalidationTracker} record which rows are inserted, updated or deleted
+         * in the observed tables, and report their rowids to
+         * {@link InvalidationTracker.Observer#onRowsInvalidated(Set, Map)}, so that observers of
+         * large tables can tell whether a change affects them instead of always re-running their
+         * query.
+         * <p>
+         * Tracking rows makes every write to an observed table record each modified row in a
+         * temporary table, which costs more for statements modifying many rows.
+         * <p>
+         * This is not enabled by default.
+         *
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> enableRowLevelInvalidation() {
+            mRowLevelInvalidation = true;
+            return this;
+        }
+
+        /**
+         * Sets the minimum time between two notifications of the {@link InvalidationTracker}'s
+         * observers, including {@link androidx.lifecycle.LiveData LiveData} and reactive queries.
+         * <p>
+         * By default, observers are notified after every transaction which modified the tables
+         * they observe, so a burst of small write transactions re-runs every active query once
+         * per transaction. With a coalescing window, the first invalidation after a quiet period
+         * is still delivered right away, but invalidations happening within the window after a
+         * delivery are merged and delivered together once the window has elapsed, with each
+         * observer notified at most once for the union of its invalidated tables.
+         * <p>
+         * Only invalidations detected after transactions, or after calls to
+         * {@link InvalidationTracker#refreshVersionsAsync()}, are coalesced. Invalidations received
+         * from other instances through {@link #enableMultiInstanceInvalidation()} are delivered
+         * as they arrive. The effect of the window can be monitored with
+         * {@link InvalidationTracker#getCoalescedRefreshCount()}.
+         *
+         * @param duration The length of the window, or 0 to disable coalescing.
+         * @param timeUnit The unit of {@code duration}.
+         * @return This {@link Builder} instance.
+         */
+        @NonNull
+        public Builder<T> setInvalidationCoalescingWindow(long duration,
+                @NonNull TimeUnit timeUnit) {
+            if (duration < 0) {
+                throw new IllegalArgumentException("Coalescing window must not be negative.");
+            }
+            mInvalidationCoalescingWindowMillis = timeUnit.toMillis(duration);
+            return this;
+        }
+
         /**
          * Allows Room to destructively recreate database tables if {@link Migration}s that would
          * migrate old database schemas to the latest schema version are not found.
@@ -1192,7 +1253,9 @@ public abstract class RoomDatabase {
                             mCopyFromFile,
                             mCopyFromInputStream,
                             mPrepackagedDatabaseCallback,
-                            mTypeConverters);
+                            mTypeConverters,
+                            mInvalidationCoalescingWindowMillis,
+                            mRowLevelInvalidation);
             T db = Room.getGeneratedImplementation(mDatabaseClass, DB_IMPL_SUFFIX);
             db.init(configuration);
             return db;
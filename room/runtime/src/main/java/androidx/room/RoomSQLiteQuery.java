@@ -17,6 +17,7 @@
 package androidx.room;
 
 import androidx.annotation.IntDef;
+import androidx.annotation.Nullable;
 import androidx.annotation.RestrictTo;
 import androidx.annotation.VisibleForTesting;
 import androidx.sqlite.db.SupportSQLiteProgram;
@@ -25,15 +26,16 @@ import androidx.sqlite.db.SupportSQLiteQuery;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.util.Arrays;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * This class is used as an intermediate place to keep binding arguments so that we can run
  * Cursor queries with correct types rather than passing everything as a string.
  * <p>
  * Because it is relatively a big object, they are pooled and must be released after each use.
+ * The pool is lock free: queries are kept in buckets of increasing capacity, each holding a few
+ * slots which threads claim with atomic operations, starting from a slot picked by thread.
  *
  * @hide
  */
@@ -42,13 +44,13 @@ import java.util.TreeMap;
 public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram {
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
-    // Maximum number of queries we'll keep cached.
-    static final int POOL_LIMIT = 15;
+    // Number of capacity buckets. Bucket 0 holds queries without arguments and bucket b > 0 holds
+    // queries with room for 2^(b - 1) arguments. Larger queries are never pooled.
+    static final int BUCKET_COUNT = 10;
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
-    // Once we hit POOL_LIMIT, we'll bring the pool size back to the desired number. We always
-    // clear the bigger queries (# of arguments).
-    static final int DESIRED_POOL_SIZE = 10;
+    // Maximum number of queries we'll keep cached in each bucket.
+    static final int DEFAULT_POOL_LIMIT = 4;
     private volatile String mQuery;
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
@@ -76,7 +78,7 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
 
     @SuppressWarnings("WeakerAccess")
     @VisibleForTesting
-    static final TreeMap<Integer, RoomSQLiteQuery> sQueryPool = new TreeMap<>();
+    static volatile QueryPool sQueryPool = new QueryPool(DEFAULT_POOL_LIMIT);
 
     /**
      * Copies the given SupportSQLiteQuery and converts it into RoomSQLiteQuery.
@@ -138,21 +140,50 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
      */
     @SuppressWarnings("WeakerAccess")
     public static RoomSQLiteQuery acquire(String query, int argumentCount) {
-        synchronized (sQueryPool) {
-            final Map.Entry<Integer, RoomSQLiteQuery> entry =
-                    sQueryPool.ceilingEntry(argumentCount);
-            if (entry != null) {
-                sQueryPool.remove(entry.getKey());
-                final RoomSQLiteQuery sqliteQuery = entry.getValue();
-                sqliteQuery.init(query, argumentCount);
-                return sqliteQuery;
-            }
+        final RoomSQLiteQuery sqliteQuery = sQueryPool.poll(argumentCount);
+        if (sqliteQuery != null) {
+            sqliteQuery.init(query, argumentCount);
+            return sqliteQuery;
         }
-        RoomSQLiteQuery sqLiteQuery = new RoomSQLiteQuery(argumentCount);
+        RoomSQLiteQuery sqLiteQuery = new RoomSQLiteQuery(QueryPool.capacityFor(argumentCount));
         sqLiteQuery.init(query, argumentCount);
         return sqLiteQuery;
     }
 
+    /**
+     * Sets how many released queries are kept for reuse in each capacity bucket, and resets the
+     * pool statistics. Queries currently in the pool are dropped.
+     *
+     * @param queriesPerBucket The number of queries to keep per bucket, 0 disables pooling.
+     */
+    @VisibleForTesting
+    static void setPoolLimit(int queriesPerBucket) {
+        if (queriesPerBucket < 0) {
+            throw new IllegalArgumentException("Pool limit must not be negative.");
+        }
+        sQueryPool = new QueryPool(queriesPerBucket);
+    }
+
+    /**
+     * Returns the number of {@link #acquire(String, int)} calls which reused a pooled query since
+     * the pool was created or last resized with {@link #setPoolLimit(int)}.
+     *
+     * @return The number of pool hits.
+     */
+    public static long getPoolHitCount() {
+        return sQueryPool.count(QueryPool.HIT);
+    }
+
+    /**
+     * Returns the number of {@link #acquire(String, int)} calls which had to allocate a new query
+     * since the pool was created or last resized with {@link #setPoolLimit(int)}.
+     *
+     * @return The number of pool misses.
+     */
+    public static long getPoolMissCount() {
+        return sQueryPool.count(QueryPool.MISS);
+    }
+
     private RoomSQLiteQuery(int capacity) {
         mCapacity = capacity;
         // because, 1 based indices... we don't want to offsets everything with 1 all the time.
@@ -179,21 +210,7 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
      */
     @SuppressWarnings("WeakerAccess")
     public void release() {
-        synchronized (sQueryPool) {
-            sQueryPool.put(mCapacity, this);
-            prunePoolLocked();
-        }
-    }
-
-    private static void prunePoolLocked() {
-        if (sQueryPool.size() > POOL_LIMIT) {
-            int toBeRemoved = sQueryPool.size() - DESIRED_POOL_SIZE;
-            final Iterator<Integer> iterator = sQueryPool.descendingKeySet().iterator();
-            while (toBeRemoved-- > 0) {
-                iterator.next();
-                iterator.remove();
-            }
-        }
+        sQueryPool.offer(this);
     }
 
     @Override
@@ -286,6 +303,118 @@ public class RoomSQLiteQuery implements SupportSQLiteQuery, SupportSQLiteProgram
         // no need to clear others
     }
 
+    /**
+     * Released queries, kept in {@link #BUCKET_COUNT} buckets of {@link #mLimit} slots each.
+     * <p>
+     * A query is taken by swapping its slot with null and released by swapping an empty slot with
+     * the query, so each query is handed out at most once without any locking. Hits and misses
+     * are counted in padded per-thread stripes so that the counters aren't contended either.
+     */
+    @VisibleForTesting
+    static final class QueryPool {
+        static final int HIT = 0;
+        static final int MISS = 1;
+        // Counters of different stripes are 128 bytes apart to avoid false sharing.
+        private static final int COUNTER_STRIPES = 8;
+        private static final int COUNTER_STRIDE = 16;
+
+        final int mLimit;
+        private final AtomicReferenceArray<RoomSQLiteQuery> mSlots;
+        private final AtomicLongArray mCounters =
+                new AtomicLongArray(COUNTER_STRIPES * COUNTER_STRIDE);
+
+        QueryPool(int limit) {
+            mLimit = limit;
+            mSlots = new AtomicReferenceArray<>(BUCKET_COUNT * limit);
+        }
+
+        /**
+         * Returns the bucket of queries with room for {@code argumentCount} arguments, which is
+         * {@link #BUCKET_COUNT} or more if they aren't pooled.
+         */
+        static int bucketFor(int argumentCount) {
+            return argumentCount == 0 ? 0 : 33 - Integer.numberOfLeadingZeros(argumentCount - 1);
+        }
+
+        /** Returns the capacity to allocate for a query with {@code argumentCount} arguments. */
+        static int capacityFor(int argumentCount) {
+            final int bucket = bucketFor(argumentCount);
+            if (bucket == 0 || bucket >= BUCKET_COUNT) {
+                return argumentCount;
+            }
+            return 1 << (bucket - 1);
+        }
+
+        /**
+         * Takes a pooled query with room for {@code argumentCount} arguments from its own bucket,
+         * or else from the next one, or returns null if both are empty.
+         */
+        @Nullable
+        RoomSQLiteQuery poll(int argumentCount) {
+            final int stripe = stripe();
+            final int bucket = bucketFor(argumentCount);
+            final int lastBucket = Math.min(bucket + 1, BUCKET_COUNT - 1);
+            for (int b = bucket; b <= lastBucket; b++) {
+                final int base = b * mLimit;
+                for (int i = 0; i < mLimit; i++) {
+                    final int slot = base + (stripe + i) % mLimit;
+                    if (mSlots.get(slot) != null) {
+                        final RoomSQLiteQuery query = mSlots.getAndSet(slot, null);
+                        if (query != null) {
+                            mCounters.incrementAndGet(counterIndex(stripe, HIT));
+                            return query;
+                        }
+                    }
+                }
+            }
+            mCounters.incrementAndGet(counterIndex(stripe, MISS));
+            return null;
+        }
+
+        /** Keeps {@code query} for reuse, unless its bucket is full or too large to be pooled. */
+        void offer(RoomSQLiteQuery query) {
+            final int bucket = bucketFor(query.mCapacity);
+            if (bucket >= BUCKET_COUNT || capacityFor(query.mCapacity) != query.mCapacity) {
+                return;
+            }
+            final int stripe = stripe();
+            final int base = bucket * mLimit;
+            for (int i = 0; i < mLimit; i++) {
+                final int slot = base + (stripe + i) % mLimit;
+                if (mSlots.get(slot) == null && mSlots.compareAndSet(slot, null, query)) {
+                    return;
+                }
+            }
+        }
+
+        long count(int counter) {
+            long total = 0;
+            for (int stripe = 0; stripe < COUNTER_STRIPES; stripe++) {
+                total += mCounters.get(counterIndex(stripe, counter));
+            }
+            return total;
+        }
+
+        /** Returns the number of pooled queries, for tests. */
+        int size() {
+            int size = 0;
+            for (int i = 0; i < mSlots.length(); i++) {
+                if (mSlots.get(i) != null) {
+                    size++;
+                }
+            }
+            return size;
+        }
+
+        private static int stripe() {
+            return (int) Thread.currentThread().getId() & Integer.MAX_VALUE;
+        }
+
+        private static int counterIndex(int stripe, int counter) {
+            return (stripe % COUNTER_STRIPES) * COUNTER_STRIDE + counter;
+        }
+    }
+
     private static final int NULL = 1;
     private static final int LONG = 2;
     private static final int DOUBLE = 3;
@@ -43,6 +43,7 @@ import org.junit.runners.JUnit4;
 import java.io.File;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 @SuppressWarnings("ArraysAsListWithZeroOrOneArgument")
 @RunWith(JUnit4.class)
@@ -404,6 +405,20 @@ public class BuilderTest {
         assertThat(config.allowMainThreadQueries, is(true));
     }
 
+    @Test
+    public void createWithoutCoalescingWindow() {
+        Context context = mock(Context.class);
+        TestDatabase db = Room.inMemoryDatabaseBuilder(context, TestDatabase.class).build();
+        DatabaseConfiguration config = ((BuilderTest_TestDatabase_Impl) db).mConfig;
+        assertThat(config.invalidationCoalescingWindowMillis, is(0L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeCoalescingWindow() {
+        Room.inMemoryDatabaseBuilder(mock(Context.class), TestDatabase.class)
+                .setInvalidationCoalescingWindow(-1, TimeUnit.MILLISECONDS);
+    }
+
     @Test
     public void createWriteAheadLogging() {
         Context context = mock(Context.class);
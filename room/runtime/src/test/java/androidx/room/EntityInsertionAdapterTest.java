@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.room;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import androidx.sqlite.db.SupportSQLiteStatement;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RunWith(JUnit4.class)
+public class EntityInsertionAdapterTest {
+    private static final String QUERY = "INSERT OR ABORT INTO `User` (`id`,`name`) VALUES (?,?)";
+    private static final String FOUR_ROWS_QUERY =
+            "INSERT OR ABORT INTO `User` (`id`,`name`) VALUES (?,?),(?,?),(?,?),(?,?)";
+
+    private RoomDatabase mDb;
+    private final Map<String, SupportSQLiteStatement> mStatements = new HashMap<>();
+
+    @Before
+    public void init() {
+        mDb = mock(RoomDatabase.class);
+        when(mDb.compileStatement(anyString())).thenAnswer(
+                new Answer<SupportSQLiteStatement>() {
+                    @Override
+                    public SupportSQLiteStatement answer(InvocationOnMock invocation) {
+                        SupportSQLiteStatement statement = mock(SupportSQLiteStatement.class);
+                        mStatements.put((String) invocation.getArguments()[0], statement);
+                        return statement;
+                    }
+                });
+    }
+
+    @Test
+    public void insertIterableUsesMultiRowStatements() {
+        createAdapter(true).insert(users(10));
+
+        // 256 rows per statement fit 2 arguments per row, then 64, 16 and 4.
+        SupportSQLiteStatement bulk = mStatements.get(FOUR_ROWS_QUERY);
+        verify(bulk, times(2)).executeInsert();
+        verify(bulk).bindLong(1, 0);
+        verify(bulk).bindString(8, "name3");
+        verify(bulk).bindLong(7, 7);
+        SupportSQLiteStatement single = mStatements.get(QUERY);
+        verify(single, times(2)).executeInsert();
+        verify(single).bindLong(1, 9);
+    }
+
+    @Test
+    public void insertIterableWithoutMultiRowSupport() {
+        createAdapter(false).insert(users(10));
+
+        assertThat(mStatements.size(), is(1));
+        verify(mStatements.get(QUERY), times(10)).executeInsert();
+    }
+
+    @Test
+    public void insertIterableWithAdapterFromOlderCompiler() {
+        EntityInsertionAdapter<User> adapter = new EntityInsertionAdapter<User>(mDb) {
+            @Override
+            protected String createQuery() {
+                return QUERY;
+            }
+
+            @Override
+            protected void bind(SupportSQLiteStatement statement, User entity) {
+                statement.bindLong(1, entity.mId);
+                statement.bindString(2, entity.mName);
+            }
+        };
+        adapter.insert(users(10));
+
+        assertThat(mStatements.size(), is(1));
+        verify(mStatements.get(QUERY), times(10)).executeInsert();
+    }
+
+    @Test
+    public void insertArray() {
+        createAdapter(true).insert(users(4).toArray(new User[0]));
+
+        assertThat(mStatements.keySet().contains(QUERY), is(false));
+        verify(mStatements.get(FOUR_ROWS_QUERY)).executeInsert();
+    }
+
+    @Test
+    public void insertInTransactions() {
+        final List<Long> progress = new ArrayList<>();
+        long inserted = createAdapter(true).insertInTransactions(users(25).iterator(), 10,
+                new EntityInsertionAdapter.BulkInsertListener() {
+                    @Override
+                    public void onTransactionCommitted(long insertedRows, long elapsedNanos) {
+                        progress.add(insertedRows);
+                    }
+                });
+
+        assertThat(inserted, is(25L));
+        assertThat(progress.toString(), is("[10, 20, 25]"));
+        verify(mDb, times(3)).beginTransaction();
+        verify(mDb, times(3)).setTransactionSuccessful();
+        verify(mDb, times(3)).endTransaction();
+        // 10 rows run as 4 + 4 + 1 + 1 and the last 5 rows as 4 + 1
+        verify(mStatements.get(FOUR_ROWS_QUERY), times(5)).executeInsert();
+        verify(mStatements.get(QUERY), times(5)).executeInsert();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void insertInTransactionsRejectsEmptyTransactions() {
+        createAdapter(true).insertInTransactions(users(1).iterator(), 0, null);
+    }
+
+    private EntityInsertionAdapter<User> createAdapter(final boolean multiRowValues) {
+        return new EntityInsertionAdapter<User>(mDb) {
+            @Override
+            protected String createQuery() {
+                return QUERY;
+            }
+
+            @Override
+            protected void bind(SupportSQLiteStatement statement, User entity) {
+                bind(statement, 0, entity);
+            }
+
+            @Override
+            protected int getArgumentCount() {
+                return 2;
+            }
+
+            @Override
+            protected String createMultiRowQuery(int rows) {
+                StringBuilder query = new StringBuilder(QUERY);
+                for (int row = 1; row < rows; row++) {
+                    query.append(",(?,?)");
+                }
+                return query.toString();
+            }
+
+            @Override
+            protected void bind(SupportSQLiteStatement statement, int offset, User entity) {
+                statement.bindLong(offset + 1, entity.mId);
+                statement.bindString(offset + 2, entity.mName);
+            }
+
+            @Override
+            boolean supportsMultiRowValues() {
+                return multiRowValues;
+            }
+        };
+    }
+
+    private static List<User> users(int count) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            users.add(new User(i, "name" + i));
+        }
+        return users;
+    }
+
+    static class User {
+        final int mId;
+        final String mName;
+
+        User(int id, String name) {
+            mId = id;
+            mName = name;
+        }
+    }
+}
@@ -17,6 +17,7 @@
 package androidx.room;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsCollectionContaining.hasItem;
 import static org.hamcrest.core.IsCollectionContaining.hasItems;
@@ -68,12 +69,14 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReentrantLock;
 
 @RunWith(JUnit4.class)
@@ -257,6 +260,77 @@ public class InvalidationTrackerTest {
         assertThat(observer.await(), is(false));
     }
 
+    @Test
+    public void coalescingWindowMergesRefreshes() throws Exception {
+        mTracker.setCoalescingWindow(TimeUnit.SECONDS.toMillis(1));
+        LatchObserver observer = new LatchObserver(1, "A", "B");
+        mTracker.addObserver(observer);
+        setInvalidatedTables(0);
+        // the first refresh after a quiet period is not delayed
+        refreshSync();
+        assertThat(observer.await(), is(true));
+        assertThat(observer.getInvalidatedTables(), hasItem("A"));
+
+        setInvalidatedTables(0, 1);
+        observer.reset(1);
+        mTracker.refreshVersionsAsync();
+        mTracker.refreshVersionsAsync();
+        mTracker.refreshVersionsAsync();
+        assertThat(mTracker.getPendingRefreshCount(), is(3));
+        assertThat(mTracker.getCoalescedRefreshCount(), is(2L));
+        drainTasks();
+        assertThat(observer.getInvalidatedTables(), is(nullValue()));
+
+        assertThat(observer.await(), is(true));
+        assertThat(observer.getInvalidatedTables().size(), is(2));
+        assertThat(observer.getInvalidatedTables(), hasItems("A", "B"));
+        drainTasks();
+        assertThat(mTracker.getPendingRefreshCount(), is(0));
+        assertThat(mTracker.getDeliveredRefreshCount(), is(2L));
+    }
+
+    @Test
+    public void rowLevelTracking() throws Exception {
+        final SupportSQLiteStatement statement = mock(SupportSQLiteStatement.class);
+        doReturn(statement).when(mSqliteDb).compileStatement(any(String.class));
+        InvalidationTracker tracker = new InvalidationTracker(mRoomDatabase, "a", "B");
+        tracker.setRowLevelTracking(true);
+        tracker.internalInit(mSqliteDb);
+        verify(mSqliteDb).compileStatement(InvalidationTracker.RESET_UPDATED_ROWS_SQL);
+
+        reset(mSqliteDb);
+        final AtomicReference<Map<String, Set<Long>>> rowIds = new AtomicReference<>();
+        LatchObserver observer = new LatchObserver(1, "a", "B") {
+            @Override
+            public void onRowsInvalidated(@NonNull Set<String> tables,
+                    @NonNull Map<String, Set<Long>> invalidatedRowIds) {
+                rowIds.set(invalidatedRowIds);
+                super.onRowsInvalidated(tables, invalidatedRowIds);
+            }
+        };
+        tracker.addObserver(observer);
+        ArgumentCaptor<String> sqlArgCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mSqliteDb, times(8)).execSQL(sqlArgCaptor.capture());
+        assertThat(sqlArgCaptor.getAllValues().get(1),
+                is("CREATE TEMP TRIGGER IF NOT EXISTS `room_table_modification_trigger_a_UPDATE`"
+                        + " AFTER UPDATE ON `a` BEGIN UPDATE room_table_modification_log"
+                        + " SET invalidated = 1 WHERE table_id = 0 AND invalidated = 0;"
+                        + " INSERT OR IGNORE INTO room_table_modification_rows"
+                        + " VALUES(0, OLD.rowid);"
+                        + " INSERT OR IGNORE INTO room_table_modification_rows"
+                        + " VALUES(0, NEW.rowid); END"));
+
+        setInvalidatedTables(0, 1);
+        setInvalidatedRows(new int[]{0, 0, 1}, new long[]{5, 7, 3});
+        tracker.refreshVersionsAsync();
+        assertThat(observer.await(), is(true));
+        assertThat(observer.getInvalidatedTables(), hasItems("a", "B"));
+        assertThat(rowIds.get().size(), is(2));
+        assertThat(rowIds.get().get("a"), hasItems(5L, 7L));
+        assertThat(rowIds.get().get("a").size(), is(2));
+        assertThat(rowIds.get().get("B"), hasItem(3L));
+    }
+
     @Test
     public void locale() {
         LatchObserver observer = new LatchObserver(1, "I");
@@ -475,6 +549,41 @@ public class InvalidationTrackerTest {
         );
     }
 
+    /**
+     * Setup Cursor result to return the given (tableId, rowId) pairs as modified rows
+     */
+    private void setInvalidatedRows(final int[] tableIds, final long[] rowIds) {
+        final Cursor cursor = mock(Cursor.class);
+        final AtomicInteger index = new AtomicInteger(-1);
+        when(cursor.moveToNext()).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) throws Throwable {
+                return index.addAndGet(1) < tableIds.length;
+            }
+        });
+        when(cursor.getInt(0)).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) throws Throwable {
+                return tableIds[index.intValue()];
+            }
+        });
+        when(cursor.getLong(1)).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+                return rowIds[index.intValue()];
+            }
+        });
+        doReturn(cursor).when(mRoomDatabase).query(
+                argThat(new ArgumentMatcher<SimpleSQLiteQuery>() {
+                    @Override
+                    public boolean matches(SimpleSQLiteQuery argument) {
+                        return argument.getSql().equals(
+                                InvalidationTracker.SELECT_UPDATED_ROWS_SQL);
+                    }
+                })
+        );
+    }
+
     private Cursor createCursorWithValues(final int... tableIds) {
         Cursor cursor = mock(Cursor.class);
         final AtomicInteger index = new AtomicInteger(-1);
@@ -31,14 +31,18 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @RunWith(JUnit4.class)
 public class RoomSQLiteQueryTest {
     @Before
     public void clear() {
-        RoomSQLiteQuery.sQueryPool.clear();
+        RoomSQLiteQuery.setPoolLimit(RoomSQLiteQuery.DEFAULT_POOL_LIMIT);
     }
 
     @Test
@@ -46,10 +50,12 @@ public class RoomSQLiteQueryTest {
         RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
         assertThat(query.getSql(), is("abc"));
         assertThat(query.mArgCount, is(3));
-        assertThat(query.mBlobBindings.length, is(4));
-        assertThat(query.mLongBindings.length, is(4));
-        assertThat(query.mStringBindings.length, is(4));
-        assertThat(query.mDoubleBindings.length, is(4));
+        // rounded up to the capacity of its bucket
+        assertThat(query.mCapacity, is(4));
+        assertThat(query.mBlobBindings.length, is(5));
+        assertThat(query.mLongBindings.length, is(5));
+        assertThat(query.mStringBindings.length, is(5));
+        assertThat(query.mDoubleBindings.length, is(5));
     }
 
     @Test
@@ -90,17 +96,19 @@ public class RoomSQLiteQueryTest {
     }
 
     @Test
-    public void dontKeepSameSizeTwice() {
-        RoomSQLiteQuery query1 = RoomSQLiteQuery.acquire("abc", 3);
-        RoomSQLiteQuery query2 = RoomSQLiteQuery.acquire("zx", 3);
-        RoomSQLiteQuery query3 = RoomSQLiteQuery.acquire("qw", 0);
-
-        query1.release();
-        query2.release();
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(1));
+    public void keepSameSizeUpToLimit() {
+        List<RoomSQLiteQuery> queries = new ArrayList<>();
+        for (int i = 0; i < RoomSQLiteQuery.DEFAULT_POOL_LIMIT + 2; i++) {
+            queries.add(RoomSQLiteQuery.acquire("abc", 3));
+        }
+        for (RoomSQLiteQuery query : queries) {
+            query.release();
+        }
+        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(RoomSQLiteQuery.DEFAULT_POOL_LIMIT));
 
-        query3.release();
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(2));
+        RoomSQLiteQuery.acquire("qw", 0).release();
+        assertThat(RoomSQLiteQuery.sQueryPool.size(),
+                is(RoomSQLiteQuery.DEFAULT_POOL_LIMIT + 1));
     }
 
     @Test
@@ -110,40 +118,84 @@ public class RoomSQLiteQueryTest {
         assertThat(RoomSQLiteQuery.acquire("dsa", 2), sameInstance(query));
     }
 
+    @Test
+    public void returnExistingForSameBucket() {
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
+        query.release();
+        assertThat(RoomSQLiteQuery.acquire("dsa", 4), sameInstance(query));
+    }
+
     @Test
     public void returnNewForBigger() {
         RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
         query.release();
-        assertThat(RoomSQLiteQuery.acquire("dsa", 4), not(sameInstance(query)));
+        assertThat(RoomSQLiteQuery.acquire("dsa", 5), not(sameInstance(query)));
     }
 
     @Test
-    public void pruneCache() {
-        for (int i = 0; i < RoomSQLiteQuery.POOL_LIMIT; i++) {
-            RoomSQLiteQuery.acquire("dsdsa", i).release();
-        }
-        pruneCacheTest();
+    public void returnNewForMuchSmaller() {
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 8);
+        query.release();
+        assertThat(RoomSQLiteQuery.acquire("dsa", 1), not(sameInstance(query)));
     }
 
     @Test
-    public void pruneCacheReverseInsertion() {
-        List<RoomSQLiteQuery> queries = new ArrayList<>();
-        for (int i = RoomSQLiteQuery.POOL_LIMIT - 1; i >= 0; i--) {
-            queries.add(RoomSQLiteQuery.acquire("dsdsa", i));
-        }
-        for (RoomSQLiteQuery query : queries) {
-            query.release();
-        }
-        pruneCacheTest();
+    public void dontPoolHugeQueries() {
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 1000);
+        assertThat(query.mCapacity, is(1000));
+        query.release();
+        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(0));
+    }
+
+    @Test
+    public void zeroLimitDisablesPooling() {
+        RoomSQLiteQuery.setPoolLimit(0);
+        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", 3);
+        query.release();
+        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(0));
+        assertThat(RoomSQLiteQuery.acquire("abc", 3), not(sameInstance(query)));
     }
 
-    private void pruneCacheTest() {
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(RoomSQLiteQuery.POOL_LIMIT));
-        RoomSQLiteQuery.acquire("dsadsa", RoomSQLiteQuery.POOL_LIMIT + 1).release();
-        assertThat(RoomSQLiteQuery.sQueryPool.size(), is(RoomSQLiteQuery.DESIRED_POOL_SIZE));
-        Iterator<RoomSQLiteQuery> itr = RoomSQLiteQuery.sQueryPool.values().iterator();
-        for (int i = 0; i < RoomSQLiteQuery.DESIRED_POOL_SIZE; i++) {
-            assertThat(itr.next().mCapacity, is(i));
+    @Test
+    public void statistics() {
+        RoomSQLiteQuery.acquire("abc", 3).release();
+        RoomSQLiteQuery.acquire("abc", 3).release();
+        RoomSQLiteQuery.acquire("abc", 2).release();
+        RoomSQLiteQuery.acquire("abc", 20);
+        assertThat(RoomSQLiteQuery.getPoolHitCount(), is(2L));
+        assertThat(RoomSQLiteQuery.getPoolMissCount(), is(2L));
+
+        RoomSQLiteQuery.setPoolLimit(RoomSQLiteQuery.DEFAULT_POOL_LIMIT);
+        assertThat(RoomSQLiteQuery.getPoolHitCount(), is(0L));
+        assertThat(RoomSQLiteQuery.getPoolMissCount(), is(0L));
+    }
+
+    @Test
+    public void concurrentAcquireNeverSharesQueries() throws InterruptedException {
+        final int threadCount = 8;
+        final Set<RoomSQLiteQuery> inUse =
+                Collections.newSetFromMap(new ConcurrentHashMap<RoomSQLiteQuery, Boolean>());
+        final AtomicBoolean shared = new AtomicBoolean();
+        final CountDownLatch done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10_000; i++) {
+                        RoomSQLiteQuery query = RoomSQLiteQuery.acquire("abc", i % 4);
+                        if (!inUse.add(query)) {
+                            shared.set(true);
+                        }
+                        inUse.remove(query);
+                        query.release();
+                    }
+                    done.countDown();
+                }
+            }.start();
         }
+        done.await();
+        assertThat(shared.get(), is(false));
+        assertThat(RoomSQLiteQuery.getPoolHitCount() + RoomSQLiteQuery.getPoolMissCount(),
+                is((long) threadCount * 10_000));
     }
 }
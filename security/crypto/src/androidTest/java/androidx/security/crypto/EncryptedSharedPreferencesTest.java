@@ -348,6 +348,134 @@ public class EncryptedSharedPreferencesTest {
                 sharedPreferences.getAll().size());
     }
 
+    @Test
+    public void testMoreKeysThanKeyCache() throws Exception {
+        SharedPreferences sharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+
+        // More keys than the encrypted and decrypted keys kept in memory.
+        int keys = 1000;
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (int i = 0; i < keys; i++) {
+            editor.putInt("Key" + i, i);
+        }
+        editor.commit();
+
+        for (int i = 0; i < keys; i++) {
+            Assert.assertEquals(i, sharedPreferences.getInt("Key" + i, -1));
+        }
+        Map<String, ?> all = sharedPreferences.getAll();
+        Assert.assertEquals(keys, all.size());
+        for (int i = 0; i < keys; i++) {
+            Assert.assertEquals(i, all.get("Key" + i));
+        }
+    }
+
+    @Test
+    public void testCachedValues() throws Exception {
+        SharedPreferences cachedSharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM,
+                        true);
+        SharedPreferences sharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+
+        String stringTestKey = "StringTest";
+        String intTestKey = "IntTest";
+        String stringSetTestKey = "StringSetTest";
+        Set<String> stringSetValue = new ArraySet<>();
+        stringSetValue.add("Test1");
+        stringSetValue.add("Test2");
+
+        cachedSharedPreferences.edit()
+                .putString(stringTestKey, "First")
+                .putInt(intTestKey, 1)
+                .putStringSet(stringSetTestKey, stringSetValue)
+                .commit();
+
+        // Read the values twice, the second time from the cache
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(stringTestKey + " has the wrong value",
+                    "First",
+                    cachedSharedPreferences.getString(stringTestKey, null));
+            Assert.assertEquals(intTestKey + " has the wrong value",
+                    1,
+                    cachedSharedPreferences.getInt(intTestKey, 0));
+            Assert.assertEquals(stringSetTestKey + " has the wrong value",
+                    stringSetValue,
+                    cachedSharedPreferences.getStringSet(stringSetTestKey, null));
+        }
+
+        // The cached set can not be modified through the returned set
+        cachedSharedPreferences.getStringSet(stringSetTestKey, null).add("Test3");
+        Assert.assertEquals(stringSetTestKey + " has the wrong value",
+                stringSetValue,
+                cachedSharedPreferences.getStringSet(stringSetTestKey, null));
+
+        // Changes made through another instance replace the cached values
+        sharedPreferences.edit()
+                .putString(stringTestKey, "Second")
+                .remove(intTestKey)
+                .commit();
+        Assert.assertEquals(stringTestKey + " has the wrong value",
+                "Second",
+                cachedSharedPreferences.getString(stringTestKey, null));
+        Assert.assertFalse(intTestKey + " should not exist",
+                cachedSharedPreferences.contains(intTestKey));
+        Assert.assertEquals(intTestKey + " has the wrong value",
+                0,
+                cachedSharedPreferences.getInt(intTestKey, 0));
+
+        cachedSharedPreferences.edit().clear().commit();
+        Assert.assertEquals("Get all size should be equal", 0,
+                cachedSharedPreferences.getAll().size());
+        Assert.assertEquals(stringTestKey + " should have been removed.",
+                null,
+                cachedSharedPreferences.getString(stringTestKey, null));
+    }
+
+    @Test
+    public void testEditorKeepsLastChange() throws Exception {
+        SharedPreferences sharedPreferences = EncryptedSharedPreferences
+                .create(mContext,
+                        PREFS_FILE,
+                        mMasterKey,
+                        EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                        EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (int i = 0; i < 100; i++) {
+            editor.putInt("Counter", i);
+        }
+        editor.putString("Removed", "Value");
+        editor.remove("Removed");
+        editor.remove("PutAgain");
+        editor.putString("PutAgain", "Value");
+        editor.apply();
+
+        Assert.assertEquals("Counter has the wrong value",
+                99,
+                sharedPreferences.getInt("Counter", 0));
+        Assert.assertFalse("Removed should not exist",
+                sharedPreferences.contains("Removed"));
+        Assert.assertEquals("PutAgain has the wrong value",
+                "Value",
+                sharedPreferences.getString("PutAgain", null));
+        Assert.assertEquals("Get all size should be equal", 2,
+                sharedPreferences.getAll().size());
+    }
+
     @Test
     public void testWriteSharedPrefsTink() throws Exception {
         String tinkTestPrefs = "TinkTestPrefs";
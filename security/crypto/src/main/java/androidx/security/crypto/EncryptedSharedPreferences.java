@@ -27,6 +27,7 @@ import android.util.Pair;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.collection.ArraySet;
+import androidx.collection.LruCache;
 
 import com.google.crypto.tink.Aead;
 import com.google.crypto.tink.DeterministicAead;
@@ -43,9 +44,11 @@ import java.nio.ByteBuffer;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -66,6 +69,10 @@ import java.util.concurrent.atomic.AtomicBoolean;
  *  // use the shared preferences and editor as you normally would
  *  SharedPreferences.Editor editor = sharedPreferences.edit();
  * </pre>
+ *
+ * Reading a value decrypts it every time, unless the instance has been created with
+ * {@link #create(Context, String, MasterKey, PrefKeyEncryptionScheme, PrefValueEncryptionScheme,
+ * boolean)} to keep the decrypted values in memory.
  */
 public final class EncryptedSharedPreferences implements SharedPreferences {
 
@@ -76,6 +83,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
 
     private static final String NULL_VALUE = "__NULL__";
 
+    // The number of keys kept encrypted and decrypted in memory, for each direction.
+    private static final int KEY_CACHE_SIZE = 256;
+
     final SharedPreferences mSharedPreferences;
     final List<OnSharedPreferenceChangeListener> mListeners;
     final String mFileName;
@@ -84,17 +94,53 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
     final Aead mValueAead;
     final DeterministicAead mKeyDeterministicAead;
 
+    // Keys are encrypted deterministically, so the encrypted key of a key never changes. The
+    // caches are bounded since apps may use an unbounded number of distinct keys.
+    private final LruCache<String, String> mEncryptedKeys = new LruCache<>(KEY_CACHE_SIZE);
+    private final LruCache<String, String> mDecryptedKeys = new LruCache<>(KEY_CACHE_SIZE);
+
+    // The decrypted values by encrypted key, or null if values are not cached.
+    @Nullable
+    final ConcurrentHashMap<String, CachedValue> mValueCache;
+    // SharedPreferences only keeps a weak reference to its listeners.
+    @Nullable
+    private final OnSharedPreferenceChangeListener mValueCacheListener;
+
     EncryptedSharedPreferences(@NonNull String name,
             @NonNull String masterKeyAlias,
             @NonNull SharedPreferences sharedPreferences,
             @NonNull Aead aead,
             @NonNull DeterministicAead deterministicAead) {
+        this(name, masterKeyAlias, sharedPreferences, aead, deterministicAead, false);
+    }
+
+    EncryptedSharedPreferences(@NonNull String name,
+            @NonNull String masterKeyAlias,
+            @NonNull SharedPreferences sharedPreferences,
+            @NonNull Aead aead,
+            @NonNull DeterministicAead deterministicAead,
+            boolean cacheValues) {
         mFileName = name;
         mSharedPreferences = sharedPreferences;
         mMasterKeyAlias = masterKeyAlias;
         mValueAead = aead;
         mKeyDeterministicAead = deterministicAead;
         mListeners = new ArrayList<>();
+
+        if (cacheValues) {
+            mValueCache = new ConcurrentHashMap<>();
+            mValueCacheListener = new OnSharedPreferenceChangeListener() {
+                @Override
+                public void onSharedPreferenceChanged(SharedPreferences sharedPreferences,
+                        String encryptedKey) {
+                    evictCachedValue(encryptedKey);
+                }
+            };
+            mSharedPreferences.registerOnSharedPreferenceChangeListener(mValueCacheListener);
+        } else {
+            mValueCache = null;
+            mValueCacheListener = null;
+        }
     }
 
     /**
@@ -117,7 +163,38 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme)
             throws GeneralSecurityException, IOException {
         return create(fileName, masterKey.getKeyAlias(), context,
-                prefKeyEncryptionScheme, prefValueEncryptionScheme);
+                prefKeyEncryptionScheme, prefValueEncryptionScheme, false);
+    }
+
+    /**
+     * Opens an instance of encrypted SharedPreferences, which optionally keeps the values that
+     * have been read or written in memory.
+     * <p>
+     * With {@code cacheValues}, reading a value again returns the decrypted value from memory,
+     * as long as it has not been changed in the file since. This makes frequent reads of the
+     * same values about as cheap as with unencrypted SharedPreferences, but the cached values
+     * are kept in memory as plain text for as long as the instance is in use.
+     *
+     * @param fileName                  The name of the file to open; can not contain path
+     *                                  separators.
+     * @param masterKey                 The master key to use.
+     * @param prefKeyEncryptionScheme   The scheme to use for encrypting keys.
+     * @param prefValueEncryptionScheme The scheme to use for encrypting values.
+     * @param cacheValues               Whether to keep the decrypted values in memory.
+     * @return The SharedPreferences instance that encrypts all data.
+     * @throws GeneralSecurityException when a bad master key or keyset has been attempted
+     * @throws IOException              when fileName can not be used
+     */
+    @NonNull
+    public static SharedPreferences create(@NonNull Context context,
+            @NonNull String fileName,
+            @NonNull MasterKey masterKey,
+            @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
+            @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme,
+            boolean cacheValues)
+            throws GeneralSecurityException, IOException {
+        return create(fileName, masterKey.getKeyAlias(), context,
+                prefKeyEncryptionScheme, prefValueEncryptionScheme, cacheValues);
     }
 
     /**
@@ -143,6 +220,17 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             @NonNull PrefKeyEncryptionScheme prefKeyEncryptionScheme,
             @NonNull PrefValueEncryptionScheme prefValueEncryptionScheme)
             throws GeneralSecurityException, IOException {
+        return create(fileName, masterKeyAlias, context, prefKeyEncryptionScheme,
+                prefValueEncryptionScheme, false);
+    }
+
+    private static SharedPreferences create(String fileName,
+            String masterKeyAlias,
+            Context context,
+            PrefKeyEncryptionScheme prefKeyEncryptionScheme,
+            PrefValueEncryptionScheme prefValueEncryptionScheme,
+            boolean cacheValues)
+            throws GeneralSecurityException, IOException {
         TinkConfig.register();
 
         final Context applicationContext = context.getApplicationContext();
@@ -162,7 +250,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
 
         return new EncryptedSharedPreferences(fileName, masterKeyAlias,
                 applicationContext.getSharedPreferences(fileName, Context.MODE_PRIVATE), aead,
-                daead);
+                daead, cacheValues);
     }
 
     /**
@@ -217,6 +305,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         private final EncryptedSharedPreferences mEncryptedSharedPreferences;
         private final SharedPreferences.Editor mEditor;
         private final List<String> mKeysChanged;
+        // The values to encrypt on commit, by key. Putting a key again replaces its value, so
+        // that only the last value is encrypted.
+        private final Map<String, byte[]> mPendingValues = new LinkedHashMap<>();
         private AtomicBoolean mClearRequested = new AtomicBoolean(false);
 
         Editor(EncryptedSharedPreferences encryptedSharedPreferences,
@@ -316,6 +407,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
                 throw new SecurityException(key + " is a reserved key for the encryption keyset.");
             }
             mEditor.remove(mEncryptedSharedPreferences.encryptKey(key));
+            synchronized (mPendingValues) {
+                mPendingValues.remove(key == null ? NULL_VALUE : key);
+            }
             mKeysChanged.remove(key);
             return this;
         }
@@ -333,6 +427,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         @Override
         public boolean commit() {
             clearKeysIfNeeded();
+            encryptPendingValues();
             try {
                 return mEditor.commit();
             } finally {
@@ -344,6 +439,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         @Override
         public void apply() {
             clearKeysIfNeeded();
+            encryptPendingValues();
             mEditor.apply();
             notifyListeners();
             mKeysChanged.clear();
@@ -353,11 +449,32 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             // Call "clear" first as per the documentation, remove all keys that haven't
             // been modified in this editor.
             if (mClearRequested.getAndSet(false)) {
-                for (String key : mEncryptedSharedPreferences.getAll().keySet()) {
-                    if (!mKeysChanged.contains(key)
-                            && !mEncryptedSharedPreferences.isReservedKey(key)) {
-                        mEditor.remove(mEncryptedSharedPreferences.encryptKey(key));
+                // Only the keys are needed, so don't decrypt the values
+                for (String encryptedKey
+                        : mEncryptedSharedPreferences.mSharedPreferences.getAll().keySet()) {
+                    if (!mEncryptedSharedPreferences.isReservedKey(encryptedKey)
+                            && !mKeysChanged.contains(
+                                    mEncryptedSharedPreferences.decryptKey(encryptedKey))) {
+                        mEditor.remove(encryptedKey);
+                    }
+                }
+            }
+        }
+
+        private void encryptPendingValues() {
+            synchronized (mPendingValues) {
+                try {
+                    for (Map.Entry<String, byte[]> entry : mPendingValues.entrySet()) {
+                        Pair<String, String> encryptedPair = mEncryptedSharedPreferences
+                                .encryptKeyValuePair(entry.getKey(), entry.getValue());
+                        mEditor.putString(encryptedPair.first, encryptedPair.second);
+                        mEncryptedSharedPreferences.cacheValue(encryptedPair.first,
+                                encryptedPair.second, entry.getValue());
                     }
+                } catch (GeneralSecurityException ex) {
+                    throw new SecurityException("Could not encrypt data: " + ex.getMessage(), ex);
+                } finally {
+                    mPendingValues.clear();
                 }
             }
         }
@@ -370,12 +487,9 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             if (key == null) {
                 key = NULL_VALUE;
             }
-            try {
-                Pair<String, String> encryptedPair = mEncryptedSharedPreferences
-                        .encryptKeyValuePair(key, value);
-                mEditor.putString(encryptedPair.first, encryptedPair.second);
-            } catch (GeneralSecurityException ex) {
-                throw new SecurityException("Could not encrypt data: " + ex.getMessage(), ex);
+            // The values are encrypted together on commit
+            synchronized (mPendingValues) {
+                mPendingValues.put(key, value);
             }
         }
 
@@ -399,7 +513,7 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
             if (!isReservedKey(entry.getKey())) {
                 String decryptedKey = decryptKey(entry.getKey());
                 allEntries.put(decryptedKey,
-                        getDecryptedObject(decryptedKey));
+                        decryptValue(entry.getKey(), (String) entry.getValue()));
             }
         }
         return allEntries;
@@ -524,91 +638,177 @@ public final class EncryptedSharedPreferences implements SharedPreferences {
         if (key == null) {
             key = NULL_VALUE;
         }
-        Object returnValue = null;
-        try {
-            String encryptedKey = encryptKey(key);
-            String encryptedValue = mSharedPreferences.getString(encryptedKey, null);
-            if (encryptedValue != null) {
-                byte[] cipherText = Base64.decode(encryptedValue, Base64.DEFAULT);
-                byte[] value = mValueAead.decrypt(cipherText, encryptedKey.getBytes(UTF_8));
-                ByteBuffer buffer = ByteBuffer.wrap(value);
-                buffer.position(0);
-                int typeId = buffer.getInt();
-                EncryptedType type = EncryptedType.fromId(typeId);
-                switch (type) {
-                    case STRING:
-                        int stringLength = buffer.getInt();
-                        ByteBuffer stringSlice = buffer.slice();
-                        buffer.limit(stringLength);
-                        String stringValue = UTF_8.decode(stringSlice).toString();
-                        if (stringValue.equals(NULL_VALUE)) {
-                            returnValue = null;
-                        } else {
-                            returnValue = stringValue;
-                        }
-                        break;
-                    case INT:
-                        returnValue = buffer.getInt();
-                        break;
-                    case LONG:
-                        returnValue = buffer.getLong();
-                        break;
-                    case FLOAT:
-                        returnValue = buffer.getFloat();
-                        break;
-                    case BOOLEAN:
-                        returnValue = buffer.get() != (byte) 0;
-                        break;
-                    case STRING_SET:
-                        ArraySet<String> stringSet = new ArraySet<>();
-                        while (buffer.hasRemaining()) {
-                            int subStringLength = buffer.getInt();
-                            ByteBuffer subStringSlice = buffer.slice();
-                            subStringSlice.limit(subStringLength);
-                            buffer.position(buffer.position() + subStringLength);
-                            stringSet.add(UTF_8.decode(subStringSlice).toString());
-                        }
-                        if (stringSet.size() == 1 && NULL_VALUE.equals(stringSet.valueAt(0))) {
-                            returnValue = null;
-                        } else {
-                            returnValue = stringSet;
-                        }
-                        break;
-                }
+        String encryptedKey = encryptKey(key);
+        String encryptedValue = mSharedPreferences.getString(encryptedKey, null);
+        if (encryptedValue == null) {
+            return null;
+        }
+        return decryptValue(encryptedKey, encryptedValue);
+    }
+
+    Object decryptValue(String encryptedKey, String encryptedValue) {
+        if (mValueCache != null) {
+            CachedValue cachedValue = mValueCache.get(encryptedKey);
+            // The cached value can only be used if the value has not changed since
+            if (cachedValue != null && cachedValue.mEncryptedValue.equals(encryptedValue)) {
+                return copyIfMutable(cachedValue.mValue);
             }
+        }
+        Object returnValue;
+        try {
+            byte[] cipherText = Base64.decode(encryptedValue, Base64.DEFAULT);
+            byte[] value = mValueAead.decrypt(cipherText, encryptedKey.getBytes(UTF_8));
+            returnValue = deserializeValue(value);
         } catch (GeneralSecurityException ex) {
             throw new SecurityException("Could not decrypt value. " + ex.getMessage(), ex);
         }
+        if (mValueCache != null) {
+            mValueCache.put(encryptedKey, new CachedValue(encryptedValue, returnValue));
+            return copyIfMutable(returnValue);
+        }
+        return returnValue;
+    }
+
+    /**
+     * Returns a copy of a cached string set, so that the cached set cannot be modified.
+     */
+    @SuppressWarnings("unchecked")
+    private static Object copyIfMutable(Object value) {
+        return value instanceof Set ? new ArraySet<>((Set<String>) value) : value;
+    }
+
+    /**
+     * Caches a value which has been written, so that it does not need to be decrypted when it is
+     * read.
+     */
+    void cacheValue(String encryptedKey, String encryptedValue, byte[] value) {
+        if (mValueCache != null) {
+            mValueCache.put(encryptedKey,
+                    new CachedValue(encryptedValue, deserializeValue(value)));
+        }
+    }
+
+    /**
+     * Removes a cached value if the value of its key has changed.
+     *
+     * @param encryptedKey the encrypted key, or null if all values may have changed
+     */
+    void evictCachedValue(@Nullable String encryptedKey) {
+        if (mValueCache == null) {
+            return;
+        }
+        if (encryptedKey == null) {
+            mValueCache.clear();
+            return;
+        }
+        CachedValue cachedValue = mValueCache.get(encryptedKey);
+        if (cachedValue != null && !cachedValue.mEncryptedValue.equals(
+                mSharedPreferences.getString(encryptedKey, null))) {
+            mValueCache.remove(encryptedKey, cachedValue);
+        }
+    }
+
+    private static Object deserializeValue(byte[] value) {
+        Object returnValue = null;
+        ByteBuffer buffer = ByteBuffer.wrap(value);
+        buffer.position(0);
+        int typeId = buffer.getInt();
+        EncryptedType type = EncryptedType.fromId(typeId);
+        switch (type) {
+            case STRING:
+                int stringLength = buffer.getInt();
+                ByteBuffer stringSlice = buffer.slice();
+                buffer.limit(stringLength);
+                String stringValue = UTF_8.decode(stringSlice).toString();
+                if (stringValue.equals(NULL_VALUE)) {
+                    returnValue = null;
+                } else {
+                    returnValue = stringValue;
+                }
+                break;
+            case INT:
+                returnValue = buffer.getInt();
+                break;
+            case LONG:
+                returnValue = buffer.getLong();
+                break;
+            case FLOAT:
+                returnValue = buffer.getFloat();
+                break;
+            case BOOLEAN:
+                returnValue = buffer.get() != (byte) 0;
+                break;
+            case STRING_SET:
+                ArraySet<String> stringSet = new ArraySet<>();
+                while (buffer.hasRemaining()) {
+                    int subStringLength = buffer.getInt();
+                    ByteBuffer subStringSlice = buffer.slice();
+                    subStringSlice.limit(subStringLength);
+                    buffer.position(buffer.position() + subStringLength);
+                    stringSet.add(UTF_8.decode(subStringSlice).toString());
+                }
+                if (stringSet.size() == 1 && NULL_VALUE.equals(stringSet.valueAt(0))) {
+                    returnValue = null;
+                } else {
+                    returnValue = stringSet;
+                }
+                break;
+        }
         return returnValue;
     }
 
+    /**
+     * A decrypted value, and the encrypted value it was decrypted from.
+     */
+    static final class CachedValue {
+        final String mEncryptedValue;
+        @Nullable
+        final Object mValue;
+
+        CachedValue(String encryptedValue, @Nullable Object value) {
+            mEncryptedValue = encryptedValue;
+            mValue = value;
+        }
+    }
+
     String encryptKey(String key) {
         if (key == null) {
             key = NULL_VALUE;
         }
+        String encryptedKey = mEncryptedKeys.get(key);
+        if (encryptedKey != null) {
+            return encryptedKey;
+        }
         try {
             byte[] encryptedKeyBytes = mKeyDeterministicAead.encryptDeterministically(
                     key.getBytes(UTF_8),
                     mFileName.getBytes());
-            return Base64.encode(encryptedKeyBytes);
+            encryptedKey = Base64.encode(encryptedKeyBytes);
         } catch (GeneralSecurityException ex) {
             throw new SecurityException("Could not encrypt key. " + ex.getMessage(), ex);
         }
+        mEncryptedKeys.put(key, encryptedKey);
+        return encryptedKey;
     }
 
     String decryptKey(String encryptedKey) {
-        try {
-            byte[] clearText = mKeyDeterministicAead.decryptDeterministically(
-                    Base64.decode(encryptedKey, Base64.DEFAULT),
-                    mFileName.getBytes());
-            String key = new String(clearText, UTF_8);
-            if (key.equals(NULL_VALUE)) {
-                key = null;
+        String key = mDecryptedKeys.get(encryptedKey);
+        if (key == null) {
+            try {
+                byte[] clearText = mKeyDeterministicAead.decryptDeterministically(
+                        Base64.decode(encryptedKey, Base64.DEFAULT),
+                        mFileName.getBytes());
+                key = new String(clearText, UTF_8);
+            } catch (GeneralSecurityException ex) {
+                throw new SecurityException("Could not decrypt key. " + ex.getMessage(), ex);
             }
-            return key;
-        } catch (GeneralSecurityException ex) {
-            throw new SecurityException("Could not decrypt key. " + ex.getMessage(), ex);
+            mDecryptedKeys.put(encryptedKey, key);
+            mEncryptedKeys.put(key, encryptedKey);
+        }
+        if (key.equals(NULL_VALUE)) {
+            key = null;
         }
+        return key;
     }
 
 
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.security.crypto;
+
+import static android.content.Context.MODE_PRIVATE;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares reading and writing feature flags with plain SharedPreferences and with
+ * EncryptedSharedPreferences, with and without cached values.
+ */
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class EncryptedSharedPreferencesBenchmark {
+    private static final String PLAIN_PREFS_FILE = "benchmark_plain_prefs";
+    private static final String ENCRYPTED_PREFS_FILE = "benchmark_encrypted_prefs";
+    private static final int FLAGS = 100;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private Context mContext;
+    private SharedPreferences mPlain;
+    private SharedPreferences mEncrypted;
+    private SharedPreferences mEncryptedCached;
+
+    @Before
+    public void setUp() throws Exception {
+        mContext = ApplicationProvider.getApplicationContext();
+        MasterKey masterKey = new MasterKey.Builder(mContext)
+                .setKeyScheme(MasterKey.KeyScheme.AES256_GCM)
+                .build();
+
+        mPlain = mContext.getSharedPreferences(PLAIN_PREFS_FILE, MODE_PRIVATE);
+        mEncrypted = EncryptedSharedPreferences.create(mContext, ENCRYPTED_PREFS_FILE, masterKey,
+                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM);
+        mEncryptedCached = EncryptedSharedPreferences.create(mContext, ENCRYPTED_PREFS_FILE,
+                masterKey,
+                EncryptedSharedPreferences.PrefKeyEncryptionScheme.AES256_SIV,
+                EncryptedSharedPreferences.PrefValueEncryptionScheme.AES256_GCM,
+                true);
+
+        writeFlags(mPlain);
+        writeFlags(mEncrypted);
+    }
+
+    @After
+    public void tearDown() {
+        mContext.getSharedPreferences(PLAIN_PREFS_FILE, MODE_PRIVATE).edit().clear().commit();
+        mContext.getSharedPreferences(ENCRYPTED_PREFS_FILE, MODE_PRIVATE).edit().clear().commit();
+    }
+
+    @Test
+    public void readPlain() {
+        measureReads(mPlain);
+    }
+
+    @Test
+    public void readEncrypted() {
+        measureReads(mEncrypted);
+    }
+
+    @Test
+    public void readEncryptedCached() {
+        measureReads(mEncryptedCached);
+    }
+
+    @Test
+    public void getAllPlain() {
+        measureGetAll(mPlain);
+    }
+
+    @Test
+    public void getAllEncrypted() {
+        measureGetAll(mEncrypted);
+    }
+
+    @Test
+    public void getAllEncryptedCached() {
+        measureGetAll(mEncryptedCached);
+    }
+
+    @Test
+    public void applyPlain() {
+        measureApply(mPlain);
+    }
+
+    @Test
+    public void applyEncrypted() {
+        measureApply(mEncrypted);
+    }
+
+    private void measureReads(SharedPreferences sharedPreferences) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int flag = 0; flag < FLAGS; flag++) {
+                sharedPreferences.getBoolean("flag" + flag, false);
+            }
+        }
+    }
+
+    private void measureGetAll(SharedPreferences sharedPreferences) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            sharedPreferences.getAll();
+        }
+    }
+
+    private void measureApply(SharedPreferences sharedPreferences) {
+        final BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            writeFlags(sharedPreferences);
+        }
+    }
+
+    private static void writeFlags(SharedPreferences sharedPreferences) {
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+        for (int flag = 0; flag < FLAGS; flag++) {
+            editor.putBoolean("flag" + flag, flag % 2 == 0);
+        }
+        editor.apply();
+    }
+}
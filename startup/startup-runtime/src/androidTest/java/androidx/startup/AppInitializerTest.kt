@@ -75,4 +75,77 @@ class AppInitializerTest {
             assertThat(exception.localizedMessage, containsString("Cycle detected."))
         }
     }
+
+    @Test
+    fun concurrentInitializationWaitsForCriticalInitializers() {
+        appInitializer.initializeConcurrently(
+            setOf(CriticalInitializerWithDependency::class.java), 2
+        )
+        assertThat(appInitializer.mInitialized.size, `is`(2))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerNoDependencies::class.java))
+        assertTrue(
+            appInitializer.mInitialized.containsKey(CriticalInitializerWithDependency::class.java)
+        )
+        assertTrue(appInitializer.mPending.isEmpty())
+    }
+
+    @Test
+    fun concurrentInitializationWithDependencies() {
+        appInitializer.initializeConcurrently(setOf(InitializerWithDependency::class.java), 2)
+        // Waits for the components initializing in the background.
+        appInitializer.initializeComponent(InitializerWithDependency::class.java)
+        assertThat(appInitializer.mInitialized.size, `is`(2))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerNoDependencies::class.java))
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerWithDependency::class.java))
+        assertTrue(appInitializer.mPending.isEmpty())
+    }
+
+    @Test
+    fun concurrentInitializationWithCyclicDependencies() {
+        try {
+            appInitializer.initializeConcurrently(
+                setOf(CyclicDependencyInitializer::class.java), 2
+            )
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.localizedMessage, containsString("Cycle detected."))
+        }
+        assertTrue(appInitializer.mPending.isEmpty())
+    }
+
+    @Test
+    fun concurrentInitializationResolvesUndeclaredDependenciesInline() {
+        val appInitializer = AppInitializer.getInstance(context)
+        // The only thread initializes NestedInitializer, while the component it asks for is
+        // still queued behind it.
+        appInitializer.initializeConcurrently(
+            linkedSetOf<Class<out Initializer<*>>>(
+                NestedInitializer::class.java,
+                BackgroundInitializerNoDependencies::class.java
+            ),
+            1
+        )
+        assertTrue(appInitializer.mInitialized.containsKey(NestedInitializer::class.java))
+        assertTrue(
+            appInitializer.mInitialized.containsKey(
+                BackgroundInitializerNoDependencies::class.java
+            )
+        )
+    }
+
+    @Test
+    fun concurrentInitializationRethrowsFailuresOnCallingThread() {
+        try {
+            appInitializer.initializeConcurrently(
+                setOf(FailingInitializer::class.java, InitializerWithDependency::class.java), 2
+            )
+            fail()
+        } catch (exception: StartupException) {
+            assertThat(exception.cause?.localizedMessage, containsString("Failed"))
+        }
+        // The failure does not prevent the other components from initializing.
+        assertTrue(appInitializer.mInitialized.containsKey(InitializerWithDependency::class.java))
+        assertTrue(appInitializer.mPending.isEmpty())
+        assertTrue(appInitializer.mFailures.containsKey(FailingInitializer::class.java))
+    }
 }
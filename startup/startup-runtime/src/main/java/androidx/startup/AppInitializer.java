@@ -23,20 +23,42 @@ import android.content.Context;
 import android.content.pm.PackageManager;
 import android.content.pm.ProviderInfo;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.tracing.Trace;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * An {@link AppInitializer} can be used to initialize all discovered [ComponentInitializer]s.
  * <br/>
  * The discovery mechanism is via `<meta-data>` entries in the merged `AndroidManifest.xml`.
+ * <br/>
+ * By default the discovered initializers run one after another on the main thread. Adding a
+ * `<meta-data android:name="androidx.startup.CONCURRENCY" android:value="n" />` entry to the
+ * {@link InitializationProvider} makes independent {@link BackgroundInitializer}s run
+ * concurrently on up to `n` background threads, while the other initializers keep running on the
+ * main thread. An initializer still only runs once all its dependencies are initialized.
+ * The application then waits for the main thread initializers and the {@link CriticalInitializer}s
+ * with their dependencies, the other initializers may complete after
+ * {@link android.app.Application#onCreate()}.
  */
 @SuppressWarnings("WeakerAccess")
 public final class AppInitializer {
@@ -44,6 +66,17 @@ public final class AppInitializer {
     // Tracing
     private static final String SECTION_NAME = "Startup";
 
+    /**
+     * The `<meta-data>` key holding the number of threads used to run the discovered
+     * initializers concurrently.
+     */
+    static final String CONCURRENCY_KEY = "androidx.startup.CONCURRENCY";
+
+    /**
+     * How long the threads initializing components concurrently are kept alive when idle.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 1;
+
     /**
      * The {@link AppInitializer} instance.
      */
@@ -60,6 +93,51 @@ public final class AppInitializer {
     @NonNull
     final Set<Class<? extends Initializer<?>>> mDiscovered;
 
+    /**
+     * The nodes of the components scheduled by {@link #initializeConcurrently(Set, int)} that are
+     * not initialized yet. Guarded by {@link #sLock}, which is notified when a component leaves it.
+     */
+    @NonNull
+    final Map<Class<?>, Node> mPending;
+
+    /**
+     * The reasons the components scheduled by {@link #initializeConcurrently(Set, int)} failed.
+     */
+    @NonNull
+    final Map<Class<?>, Throwable> mFailures;
+
+    /**
+     * The failures rethrown by the thread joining {@link #initializeConcurrently(Set, int)}.
+     * Guarded by {@link #sLock}.
+     */
+    @NonNull
+    final List<Throwable> mUnreported;
+
+    /**
+     * The ready nodes to run on the thread joining {@link #initializeConcurrently(Set, int)}.
+     * Guarded by {@link #sLock}, which is notified when a node is added.
+     */
+    @NonNull
+    final ArrayDeque<Node> mMainThreadQueue;
+
+    /**
+     * Whether a thread is joining {@link #initializeConcurrently(Set, int)}. Guarded by
+     * {@link #sLock}.
+     */
+    boolean mJoining;
+
+    /**
+     * Runs the main thread nodes that become ready once the join is over.
+     */
+    @NonNull
+    final Handler mMainHandler;
+
+    /**
+     * Runs the background nodes. Guarded by {@link #sLock}.
+     */
+    @Nullable
+    Executor mExecutor;
+
     @NonNull
     final Context mContext;
 
@@ -72,6 +150,11 @@ public final class AppInitializer {
         mContext = context.getApplicationContext();
         mDiscovered = new HashSet<>();
         mInitialized = new HashMap<>();
+        mPending = new HashMap<>();
+        mFailures = new HashMap<>();
+        mUnreported = new ArrayList<>();
+        mMainThreadQueue = new ArrayDeque<>();
+        mMainHandler = new Handler(Looper.getMainLooper());
     }
 
     /**
@@ -133,6 +216,8 @@ public final class AppInitializer {
                     );
                     throw new IllegalStateException(message);
                 }
+                // The component may be scheduled to initialize concurrently.
+                awaitPending(component);
                 Object result;
                 if (!mInitialized.containsKey(component)) {
                     initializing.add(component);
@@ -182,9 +267,14 @@ public final class AppInitializer {
             Bundle metadata = providerInfo.metaData;
             String startup = mContext.getString(R.string.androidx_startup);
             if (metadata != null) {
+                int concurrency = metadata.getInt(CONCURRENCY_KEY, 0);
+                Set<Class<? extends Initializer<?>>> components = new LinkedHashSet<>();
                 Set<Class<?>> initializing = new HashSet<>();
                 Set<String> keys = metadata.keySet();
                 for (String key : keys) {
+                    if (CONCURRENCY_KEY.equals(key)) {
+                        continue;
+                    }
                     String value = metadata.getString(key, null);
                     if (startup.equals(value)) {
                         Class<?> clazz = Class.forName(key);
@@ -195,10 +285,17 @@ public final class AppInitializer {
                             if (StartupLogger.DEBUG) {
                                 StartupLogger.i(String.format("Discovered %s", key));
                             }
-                            doInitialize(component, initializing);
+                            if (concurrency > 0) {
+                                components.add(component);
+                            } else {
+                                doInitialize(component, initializing);
+                            }
                         }
                     }
                 }
+                if (concurrency > 0) {
+                    initializeConcurrently(components, concurrency);
+                }
             }
         } catch (PackageManager.NameNotFoundException | ClassNotFoundException exception) {
             throw new StartupException(exception);
@@ -206,4 +303,426 @@ public final class AppInitializer {
             Trace.endSection();
         }
     }
+
+
+    /**
+     * Initializes the given components and their dependencies. The {@link BackgroundInitializer}s
+     * run on up to {@code concurrency} background threads, the other components run on the calling
+     * thread. A component is initialized as soon as all its dependencies are.
+     * <br/>
+     * Returns once the components running on the calling thread and the
+     * {@link CriticalInitializer}s with their dependencies are initialized, the other components
+     * keep initializing in the background. The failures that happened until then are rethrown on
+     * the calling thread, later ones are rethrown on the main thread.
+     *
+     * @param components  The components to initialize
+     * @param concurrency The maximum number of components initialized at the same time
+     */
+    void initializeConcurrently(
+            @NonNull Set<Class<? extends Initializer<?>>> components,
+            int concurrency) {
+
+        List<Node> ready = new ArrayList<>();
+        Set<Class<?>> joined = new HashSet<>();
+        synchronized (sLock) {
+            Map<Class<?>, Node> graph = new LinkedHashMap<>();
+            Set<Class<?>> initializing = new HashSet<>();
+            for (Class<? extends Initializer<?>> component : components) {
+                addToGraph(component, graph, initializing);
+            }
+            for (Node node : graph.values()) {
+                if (node.mInitializer instanceof CriticalInitializer) {
+                    markCritical(node, joined);
+                }
+                if (node.mMainThread) {
+                    joined.add(node.mComponent);
+                }
+                if (node.mRemaining == 0) {
+                    ready.add(node);
+                }
+            }
+            mPending.putAll(graph);
+            if (mExecutor == null) {
+                mExecutor = createExecutor(concurrency);
+            }
+            mJoining = true;
+        }
+
+        for (Node node : ready) {
+            schedule(node);
+        }
+        join(joined);
+    }
+
+    /**
+     * Adds the given component and its dependencies that still need to be initialized to the
+     * graph.
+     *
+     * @return The node of the component, or {@code null} when it needs no initialization.
+     */
+    @Nullable
+    private Node addToGraph(
+            @NonNull Class<? extends Initializer<?>> component,
+            @NonNull Map<Class<?>, Node> graph,
+            @NonNull Set<Class<?>> initializing) {
+
+        if (initializing.contains(component)) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", component.getName()
+            );
+            throw new StartupException(new IllegalStateException(message));
+        }
+        Node node = graph.get(component);
+        if (node != null || mInitialized.containsKey(component)) {
+            return node;
+        }
+
+        initializing.add(component);
+        Initializer<?> initializer;
+        try {
+            initializer = (Initializer<?>) component.getDeclaredConstructor().newInstance();
+        } catch (Throwable throwable) {
+            throw new StartupException(throwable);
+        }
+        node = new Node(component, initializer);
+        for (Class<? extends Initializer<?>> dependency : initializer.dependencies()) {
+            if (mPending.containsKey(dependency)) {
+                // Already being initialized by a previous call.
+                node.mPendingDependencies.add(dependency);
+                continue;
+            }
+            Node dependencyNode = addToGraph(dependency, graph, initializing);
+            if (dependencyNode != null) {
+                node.mDependencies.add(dependencyNode);
+                dependencyNode.mDependents.add(node);
+                node.mRemaining++;
+            }
+        }
+        initializing.remove(component);
+        graph.put(component, node);
+        return node;
+    }
+
+    private static void markCritical(@NonNull Node node, @NonNull Set<Class<?>> critical) {
+        if (critical.add(node.mComponent)) {
+            critical.addAll(node.mPendingDependencies);
+            for (Node dependency : node.mDependencies) {
+                markCritical(dependency, critical);
+            }
+        }
+    }
+
+    /**
+     * Runs the main thread nodes as they become ready until the given components are initialized,
+     * then rethrows the failures that happened in the meantime.
+     */
+    private void join(@NonNull Set<Class<?>> components) {
+        List<Throwable> failures;
+        boolean interrupted = false;
+        try {
+            while (true) {
+                Node node;
+                synchronized (sLock) {
+                    while ((node = mMainThreadQueue.poll()) == null && isPending(components)) {
+                        try {
+                            sLock.wait();
+                        } catch (InterruptedException exception) {
+                            interrupted = true;
+                        }
+                    }
+                }
+                if (node == null) {
+                    break;
+                }
+                initialize(node);
+            }
+        } finally {
+            List<Node> remaining;
+            synchronized (sLock) {
+                mJoining = false;
+                remaining = new ArrayList<>(mMainThreadQueue);
+                mMainThreadQueue.clear();
+                failures = new ArrayList<>(mUnreported);
+                mUnreported.clear();
+            }
+            for (Node node : remaining) {
+                schedule(node);
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (!failures.isEmpty()) {
+            for (int i = 1; i < failures.size(); i++) {
+                StartupLogger.e("Failed to initialize a component", failures.get(i));
+            }
+            throw new StartupException(failures.get(0));
+        }
+    }
+
+    /**
+     * Must be called with {@link #sLock} held.
+     */
+    private boolean isPending(@NonNull Set<Class<?>> components) {
+        for (Class<?> component : components) {
+            if (mPending.containsKey(component)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void schedule(@NonNull final Node node) {
+        Runnable runnable = new Runnable() {
+            @Override
+            public void run() {
+                initialize(node);
+            }
+        };
+        Executor executor;
+        synchronized (sLock) {
+            if (node.mMainThread && mJoining) {
+                mMainThreadQueue.add(node);
+                sLock.notifyAll();
+                return;
+            }
+            executor = mExecutor;
+        }
+        if (node.mMainThread) {
+            mMainHandler.post(runnable);
+        } else {
+            executor.execute(runnable);
+        }
+    }
+
+    /**
+     * Initializes the given node, unless a thread that needed it already did.
+     */
+    @SuppressWarnings("WeakerAccess") /* synthetic access */
+    void initialize(@NonNull Node node) {
+        synchronized (sLock) {
+            if (node.mThread != null) {
+                return;
+            }
+            node.mThread = Thread.currentThread();
+        }
+        run(node);
+    }
+
+    /**
+     * Initializes a node claimed by the current thread, then schedules the dependents it made
+     * ready.
+     */
+    private void run(@NonNull Node node) {
+        Object result;
+        boolean isTracingEnabled = Trace.isEnabled();
+        try {
+            if (isTracingEnabled) {
+                // Use the simpleName here because section names would get too big otherwise.
+                Trace.beginSection(node.mComponent.getSimpleName());
+            }
+            try {
+                synchronized (sLock) {
+                    // Only needed when the node is initialized before it is ready.
+                    for (Node dependency : node.mDependencies) {
+                        awaitPending(dependency.mComponent);
+                    }
+                    for (Class<?> dependency : node.mPendingDependencies) {
+                        awaitPending(dependency);
+                    }
+                }
+            } catch (StartupException exception) {
+                // Already reported by the thread initializing the dependency.
+                synchronized (sLock) {
+                    fail(node, exception.getCause());
+                    sLock.notifyAll();
+                }
+                return;
+            }
+            long start = 0;
+            if (StartupLogger.DEBUG) {
+                StartupLogger.i(String.format("Initializing %s", node.mComponent.getName()));
+                start = System.nanoTime();
+            }
+            result = node.mInitializer.create(mContext);
+            if (StartupLogger.DEBUG) {
+                StartupLogger.i(String.format("Initialized %s in %d ms", node.mComponent.getName(),
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            }
+        } catch (Throwable throwable) {
+            synchronized (sLock) {
+                fail(node, throwable);
+                report(throwable);
+                sLock.notifyAll();
+            }
+            return;
+        } finally {
+            Trace.endSection();
+        }
+
+        List<Node> ready = new ArrayList<>();
+        synchronized (sLock) {
+            mInitialized.put(node.mComponent, result);
+            mPending.remove(node.mComponent);
+            mFailures.remove(node.mComponent);
+            for (Node dependent : node.mDependents) {
+                if (--dependent.mRemaining == 0) {
+                    ready.add(dependent);
+                }
+            }
+            sLock.notifyAll();
+        }
+        for (Node dependent : ready) {
+            schedule(dependent);
+        }
+    }
+
+    /**
+     * Marks the given node as failed, together with all the nodes depending on it that will now
+     * never run. Must be called with {@link #sLock} held.
+     */
+    private void fail(@NonNull Node node, @NonNull Throwable throwable) {
+        if (mPending.remove(node.mComponent) != null) {
+            mFailures.put(node.mComponent, throwable);
+            for (Node dependent : node.mDependents) {
+                fail(dependent, throwable);
+            }
+        }
+    }
+
+    /**
+     * Rethrows the given failure on the thread joining {@link #initializeConcurrently(Set, int)},
+     * or on the main thread when the join is over. Must be called with {@link #sLock} held.
+     */
+    private void report(@NonNull final Throwable throwable) {
+        if (mJoining) {
+            mUnreported.add(throwable);
+            return;
+        }
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                throw new StartupException(throwable);
+            }
+        });
+    }
+
+    /**
+     * Makes sure the given component is initialized if it is scheduled to initialize concurrently.
+     * A component no thread picked yet is initialized on the calling thread, instead of waiting for
+     * a thread that may itself be waiting for it. Must be called with {@link #sLock} held, which is
+     * released while waiting.
+     *
+     * @throws StartupException if the concurrent initialization failed.
+     */
+    private void awaitPending(@NonNull Class<?> component) {
+        Node node = mPending.get(component);
+        if (node == null) {
+            return;
+        }
+        if (node.mThread == null) {
+            node.mThread = Thread.currentThread();
+            run(node);
+        } else if (node.mThread == Thread.currentThread()) {
+            String message = String.format(
+                    "Cannot initialize %s. Cycle detected.", component.getName()
+            );
+            throw new StartupException(new IllegalStateException(message));
+        } else {
+            boolean interrupted = false;
+            while (mPending.containsKey(component)) {
+                try {
+                    sLock.wait();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Throwable failure = mFailures.get(component);
+        if (failure != null) {
+            throw new StartupException(failure);
+        }
+    }
+
+    @NonNull
+    private static Executor createExecutor(int concurrency) {
+        final AtomicInteger threadCount = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+                concurrency,
+                concurrency,
+                KEEP_ALIVE_SECONDS,
+                TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(@NonNull Runnable runnable) {
+                        return new Thread(runnable,
+                                "androidx.startup-" + threadCount.incrementAndGet());
+                    }
+                });
+        // Let the threads go away once all the components are initialized.
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * A component to initialize concurrently, with the links to the components depending on it.
+     */
+    static final class Node {
+        @NonNull
+        final Class<? extends Initializer<?>> mComponent;
+
+        @NonNull
+        final Initializer<?> mInitializer;
+
+        /**
+         * The dependencies in the graph. Only updated while building the graph.
+         */
+        @NonNull
+        final List<Node> mDependencies;
+
+        /**
+         * The components depending on this one. Only updated while building the graph.
+         */
+        @NonNull
+        final List<Node> mDependents;
+
+        /**
+         * The dependencies scheduled by a previous call, that are awaited before initializing.
+         */
+        @NonNull
+        final List<Class<?>> mPendingDependencies;
+
+        /**
+         * Whether the component runs on the main thread, which is the default unless it is a
+         * {@link BackgroundInitializer}.
+         */
+        final boolean mMainThread;
+
+        /**
+         * The number of dependencies in the graph that are not initialized yet. Guarded by
+         * {@link #sLock}.
+         */
+        int mRemaining;
+
+        /**
+         * The thread that claimed the node to initialize it, or {@code null} when no thread did
+         * yet. Guarded by {@link #sLock}.
+         */
+        @Nullable
+        Thread mThread;
+
+        Node(@NonNull Class<? extends Initializer<?>> component,
+                @NonNull Initializer<?> initializer) {
+            mComponent = component;
+            mInitializer = initializer;
+            mDependencies = new ArrayList<>();
+            mDependents = new ArrayList<>();
+            mPendingDependencies = new ArrayList<>();
+            mMainThread = !(initializer instanceof BackgroundInitializer);
+        }
+    }
 }
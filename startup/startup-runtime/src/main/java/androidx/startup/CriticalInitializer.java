@@ -0,0 +1,33 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.startup;
+
+/**
+ * An {@link Initializer} the application cannot start without.
+ * <br/>
+ * When initializers run concurrently, {@link InitializationProvider} only waits for the
+ * {@link CriticalInitializer}s, their dependencies and the initializers running on the main thread
+ * before letting the application start. The other {@link BackgroundInitializer}s may complete
+ * afterwards.
+ * <br/>
+ * When initializers run serially, a {@link CriticalInitializer} behaves like any other
+ * {@link Initializer}.
+ *
+ * @param <T> The instance type being initialized
+ */
+public interface CriticalInitializer<T> extends Initializer<T> {
+}
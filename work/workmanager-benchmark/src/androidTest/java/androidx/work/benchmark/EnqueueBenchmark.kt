@@ -0,0 +1,145 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work.benchmark
+
+import android.content.Context
+import android.util.Log
+import androidx.benchmark.junit4.BenchmarkRule
+import androidx.benchmark.junit4.measureRepeated
+import androidx.test.core.app.ApplicationProvider
+import androidx.test.filters.LargeTest
+import androidx.work.Configuration
+import androidx.work.OneTimeWorkRequest
+import androidx.work.OneTimeWorkRequestBuilder
+import androidx.work.impl.Processor
+import androidx.work.impl.Scheduler
+import androidx.work.impl.WorkContinuationImpl
+import androidx.work.impl.WorkDatabase
+import androidx.work.impl.WorkManagerImpl
+import androidx.work.impl.model.WorkSpec
+import androidx.work.impl.utils.EnqueueRunnable
+import androidx.work.impl.utils.SerialExecutor
+import androidx.work.impl.utils.SynchronousExecutor
+import androidx.work.impl.utils.taskexecutor.TaskExecutor
+import org.junit.After
+import org.junit.Assert.assertEquals
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.junit.runner.RunWith
+import org.junit.runners.Parameterized
+import java.util.concurrent.Executor
+
+/**
+ * Measures the throughput of enqueueing a large list of independent [OneTimeWorkRequest]s, each
+ * with a tag, followed by a single scheduling pass.
+ */
+@LargeTest
+@RunWith(Parameterized::class)
+class EnqueueBenchmark(private val requestCount: Int) {
+
+    @get:Rule
+    val benchmarkRule = BenchmarkRule()
+
+    private lateinit var context: Context
+    private lateinit var database: WorkDatabase
+    private lateinit var workManager: WorkManagerImpl
+    private lateinit var scheduler: CountingScheduler
+
+    @Before
+    fun setUp() {
+        context = ApplicationProvider.getApplicationContext()
+        val executor = SynchronousExecutor()
+        val serialExecutor = SerialExecutor(executor)
+        val taskExecutor = object : TaskExecutor {
+            override fun postToMainThread(runnable: Runnable) {
+                serialExecutor.execute(runnable)
+            }
+
+            override fun getMainThreadExecutor(): Executor {
+                return serialExecutor
+            }
+
+            override fun executeOnBackgroundThread(runnable: Runnable) {
+                serialExecutor.execute(runnable)
+            }
+
+            override fun getBackgroundExecutor(): SerialExecutor {
+                return serialExecutor
+            }
+        }
+        val configuration = Configuration.Builder()
+            .setTaskExecutor(executor)
+            .setExecutor(executor)
+            .setMinimumLoggingLevel(Log.ERROR)
+            .build()
+
+        database = WorkDatabase.create(context, executor, true)
+        scheduler = CountingScheduler()
+        val schedulers = listOf<Scheduler>(scheduler)
+        val processor = Processor(context, configuration, taskExecutor, database, schedulers)
+        workManager = WorkManagerImpl(
+            context, configuration, taskExecutor, database, schedulers, processor
+        )
+    }
+
+    @After
+    fun tearDown() {
+        database.close()
+    }
+
+    @Test
+    fun enqueue() {
+        // Ignore the scheduling done while initializing WorkManager.
+        scheduler.scheduleCount = 0
+        benchmarkRule.measureRepeated {
+            val requests = runWithTimingDisabled {
+                List(requestCount) {
+                    OneTimeWorkRequestBuilder<NoOpWorker>().addTag(TAG).build()
+                }
+            }
+
+            EnqueueRunnable(WorkContinuationImpl(workManager, requests)).run()
+
+            runWithTimingDisabled {
+                assertEquals(1, scheduler.scheduleCount)
+                scheduler.scheduleCount = 0
+                database.clearAllTables()
+            }
+        }
+    }
+
+    private class CountingScheduler : Scheduler {
+        var scheduleCount = 0
+
+        override fun schedule(vararg workSpecs: WorkSpec) {
+            scheduleCount++
+        }
+
+        override fun cancel(workSpecId: String) {}
+
+        override fun hasLimitedSchedulingSlots() = true
+    }
+
+    companion object {
+        private const val TAG = "EnqueueBenchmark"
+
+        @JvmStatic
+        @Parameterized.Parameters(name = "requestCount={0}")
+        fun data() = listOf(100, 1_000, 20_000)
+    }
+}
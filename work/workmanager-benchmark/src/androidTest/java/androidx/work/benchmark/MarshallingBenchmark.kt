@@ -17,6 +17,7 @@
 package androidx.work.benchmark
 
 import android.net.Uri
+import android.util.Log
 import androidx.benchmark.junit4.BenchmarkRule
 import androidx.benchmark.junit4.measureRepeated
 import androidx.test.ext.junit.runners.AndroidJUnit4
@@ -34,6 +35,8 @@ import org.junit.Before
 import org.junit.Rule
 import org.junit.Test
 import org.junit.runner.RunWith
+import java.io.ByteArrayOutputStream
+import java.io.ObjectOutputStream
 import java.util.concurrent.TimeUnit
 
 @RunWith(AndroidJUnit4::class)
@@ -48,6 +51,10 @@ class MarshallingBenchmark {
     lateinit var request: WorkRequest
     lateinit var parcelledWorkRequest: ParcelableWorkRequest
 
+    lateinit var data: Data
+    lateinit var serializedData: ByteArray
+    lateinit var legacySerializedData: ByteArray
+
     @Before
     fun setUp() {
         val uri = Uri.parse("test://foo")
@@ -77,6 +84,22 @@ class MarshallingBenchmark {
 
         parcelledConstraints = ParcelableConstraints(constraints)
         parcelledWorkRequest = ParcelableWorkRequest(request)
+
+        data = Data.Builder()
+            .putString("url", "https://www.example.com/images/1234.png")
+            .putInt("attempt", 3)
+            .putLong("timestamp", 1594000000000L)
+            .putBoolean("metered", false)
+            .putDouble("progress", 0.5)
+            .putIntArray("sizes", IntArray(64) { it * 31 })
+            .putStringArray("tags", Array(16) { "tag$it" })
+            .build()
+        serializedData = data.toByteArray()
+        legacySerializedData = legacyToByteArray(data)
+        Log.d(
+            TAG,
+            "Data size: ${serializedData.size} bytes, legacy: ${legacySerializedData.size} bytes"
+        )
     }
 
     @Test
@@ -98,4 +121,52 @@ class MarshallingBenchmark {
             )
         }
     }
+
+    @Test
+    fun dataToByteArrayBenchmark() {
+        benchmarkRule.measureRepeated {
+            data.toByteArray()
+        }
+    }
+
+    @Test
+    fun legacyDataToByteArrayBenchmark() {
+        benchmarkRule.measureRepeated {
+            legacyToByteArray(data)
+        }
+    }
+
+    @Test
+    fun dataFromByteArrayBenchmark() {
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(serializedData)
+        }
+    }
+
+    @Test
+    fun legacyDataFromByteArrayBenchmark() {
+        benchmarkRule.measureRepeated {
+            Data.fromByteArray(legacySerializedData)
+        }
+    }
+
+    companion object {
+        private const val TAG = "MarshallingBenchmark"
+
+        /**
+         * The [java.io.Serializable] based encoding [Data] used before the compact format, which
+         * is still understood by [Data.fromByteArray].
+         */
+        private fun legacyToByteArray(data: Data): ByteArray {
+            val outputStream = ByteArrayOutputStream()
+            ObjectOutputStream(outputStream).use { objectOutputStream ->
+                objectOutputStream.writeInt(data.keyValueMap.size)
+                for ((key, value) in data.keyValueMap) {
+                    objectOutputStream.writeUTF(key)
+                    objectOutputStream.writeObject(value)
+                }
+            }
+            return outputStream.toByteArray()
+        }
+    }
 }
@@ -42,11 +42,15 @@ import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.greaterThanOrEqualTo;
 import static org.hamcrest.Matchers.isIn;
 import static org.hamcrest.Matchers.isOneOf;
+import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.doCallRealMethod;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.spy;
@@ -58,6 +62,7 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.ContextWrapper;
 import android.content.pm.PackageManager;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
 import android.os.Build;
 import android.provider.MediaStore;
@@ -99,6 +104,7 @@ import androidx.work.impl.model.WorkSpecDao;
 import androidx.work.impl.model.WorkTag;
 import androidx.work.impl.model.WorkTagDao;
 import androidx.work.impl.utils.CancelWorkRunnable;
+import androidx.work.impl.utils.EnqueueRunnable;
 import androidx.work.impl.utils.ForceStopRunnable;
 import androidx.work.impl.utils.PreferenceUtils;
 import androidx.work.impl.utils.taskexecutor.InstantWorkTaskExecutor;
@@ -114,6 +120,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.ArgumentCaptor;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -230,6 +237,60 @@ public class WorkManagerImplTest {
         assertThat(workSpecDao.getWorkSpec(work3.getStringId()), is(notNullValue()));
     }
 
+    @Test
+    @MediumTest
+    public void testEnqueue_insertManyWork_inBatches()
+            throws ExecutionException, InterruptedException {
+        final String tag = "batched_tag";
+        int count = 2 * EnqueueRunnable.MAX_REQUESTS_PER_TRANSACTION + 1;
+        List<OneTimeWorkRequest> workRequests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            workRequests.add(new OneTimeWorkRequest.Builder(TestWorker.class).addTag(tag).build());
+        }
+
+        mWorkManagerImpl.enqueue(workRequests).getResult().get();
+
+        WorkSpecDao workSpecDao = mDatabase.workSpecDao();
+        for (OneTimeWorkRequest work : workRequests) {
+            WorkSpec workSpec = workSpecDao.getWorkSpec(work.getStringId());
+            assertThat(workSpec, is(notNullValue()));
+            assertThat(workSpec.state, is(ENQUEUED));
+        }
+        assertThat(mDatabase.workTagDao().getWorkSpecIdsWithTag(tag).size(), is(count));
+    }
+
+    @Test
+    @MediumTest
+    public void testEnqueue_insertManyWork_failureInLaterBatch_removesEarlierBatches()
+            throws InterruptedException {
+        final String tag = "batched_tag";
+        int count = 2 * EnqueueRunnable.MAX_REQUESTS_PER_TRANSACTION + 1;
+        List<OneTimeWorkRequest> workRequests = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            workRequests.add(new OneTimeWorkRequest.Builder(TestWorker.class).addTag(tag).build());
+        }
+        WorkDatabase database = spy(mDatabase);
+        WorkSpecDao workSpecDao = spy(mDatabase.workSpecDao());
+        when(database.workSpecDao()).thenReturn(workSpecDao);
+        when(mWorkManagerImpl.getWorkDatabase()).thenReturn(database);
+        // Let the first batch through and fail the second one.
+        doCallRealMethod()
+                .doThrow(new SQLiteException("Injected failure"))
+                .when(workSpecDao).insertWorkSpecs(anyList());
+
+        try {
+            mWorkManagerImpl.enqueue(workRequests).getResult().get();
+            fail("Enqueue should have failed");
+        } catch (ExecutionException expected) {
+            // expected
+        }
+
+        for (OneTimeWorkRequest work : workRequests) {
+            assertThat(mDatabase.workSpecDao().getWorkSpec(work.getStringId()), is(nullValue()));
+        }
+        assertThat(mDatabase.workTagDao().getWorkSpecIdsWithTag(tag).size(), is(0));
+    }
+
     @Test
     @MediumTest
     public void testEnqueue_insertMultipleWork_continuationBlocking()
@@ -384,6 +384,27 @@ public final class Data {
     @RestrictTo(RestrictTo.Scope.LIBRARY_GROUP)
     @TypeConverter
     public static @NonNull byte[] toByteArrayInternal(@NonNull Data data) {
+        byte[] bytes;
+        if (DataCodec.canEncode(data.mValues)) {
+            bytes = DataCodec.encode(data.mValues);
+        } else {
+            bytes = toLegacyByteArray(data);
+        }
+        if (bytes.length > MAX_DATA_BYTES) {
+            throw new IllegalStateException(
+                    "Data cannot occupy more than " + MAX_DATA_BYTES
+                            + " bytes when serialized");
+        }
+        return bytes;
+    }
+
+    /**
+     * Converts {@link Data} to a byte array using {@link ObjectOutputStream}. This is the format
+     * used before the compact encoding was introduced, and is still used for boxed arrays holding
+     * {@code null} elements.
+     */
+    @VisibleForTesting
+    static @NonNull byte[] toLegacyByteArray(@NonNull Data data) {
         ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
         ObjectOutputStream objectOutputStream = null;
         try {
@@ -412,12 +433,6 @@ public final class Data {
                 Log.e(TAG, "Error in Data#toByteArray: ", e);
             }
         }
-
-        if (outputStream.size() > MAX_DATA_BYTES) {
-            throw new IllegalStateException(
-                    "Data cannot occupy more than " + MAX_DATA_BYTES
-                            + " bytes when serialized");
-        }
         return outputStream.toByteArray();
     }
 
@@ -436,6 +451,16 @@ public final class Data {
         }
 
         Map<String, Object> map = new HashMap<>();
+        if (DataCodec.isCompact(bytes)) {
+            try {
+                DataCodec.decode(bytes, map);
+            } catch (IllegalArgumentException e) {
+                Log.e(TAG, "Error in Data#fromByteArray: ", e);
+            }
+            return new Data(map);
+        }
+
+        // Data persisted before the compact encoding was introduced.
         ByteArrayInputStream inputStream = new ByteArrayInputStream(bytes);
         ObjectInputStream objectInputStream = null;
         try {
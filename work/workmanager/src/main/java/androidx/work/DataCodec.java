@@ -0,0 +1,414 @@
+/*
+ * Copyright 2020 The Android Open Source Project
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package androidx.work;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Compact binary encoding of the values held by {@link Data}.
+ * <p>
+ * The payload starts with a two byte magic and a version byte, followed by the number of entries
+ * as a varint. Each entry is the UTF-8 key prefixed by its varint length, a type tag and the
+ * value. Integers and lengths use (zig-zag) varints, floating point values are stored as fixed
+ * little-endian words and boolean arrays are packed into bits.
+ * <p>
+ * The magic never matches the header written by {@link java.io.ObjectOutputStream}
+ * ({@code 0xACED}), so blobs persisted by earlier versions can still be told apart and read.
+ */
+final class DataCodec {
+
+    static final byte MAGIC_0 = (byte) 0xDA;
+    static final byte MAGIC_1 = (byte) 0x7A;
+    static final byte VERSION = 1;
+
+    private static final int HEADER_SIZE = 3;
+    private static final int BOOLEAN_BITS = 1;
+
+    private static final byte TYPE_NULL = 0;
+    private static final byte TYPE_BOOLEAN = 1;
+    private static final byte TYPE_BYTE = 2;
+    private static final byte TYPE_INT = 3;
+    private static final byte TYPE_LONG = 4;
+    private static final byte TYPE_FLOAT = 5;
+    private static final byte TYPE_DOUBLE = 6;
+    private static final byte TYPE_STRING = 7;
+    private static final byte TYPE_BOOLEAN_ARRAY = 8;
+    private static final byte TYPE_BYTE_ARRAY = 9;
+    private static final byte TYPE_INT_ARRAY = 10;
+    private static final byte TYPE_LONG_ARRAY = 11;
+    private static final byte TYPE_FLOAT_ARRAY = 12;
+    private static final byte TYPE_DOUBLE_ARRAY = 13;
+    private static final byte TYPE_STRING_ARRAY = 14;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private byte[] mBuffer;
+    private int mPosition;
+
+    private DataCodec(@NonNull byte[] buffer) {
+        mBuffer = buffer;
+    }
+
+    /**
+     * @return {@code true} if the bytes were written by {@link #encode(Map)}
+     */
+    static boolean isCompact(@NonNull byte[] bytes) {
+        return bytes.length >= HEADER_SIZE && bytes[0] == MAGIC_0 && bytes[1] == MAGIC_1;
+    }
+
+    /**
+     * @return {@code true} if all the values can be represented by the compact encoding. Boxed
+     * arrays holding {@code null} elements are not supported and need the legacy encoding.
+     */
+    static boolean canEncode(@NonNull Map<String, Object> values) {
+        for (Object value : values.values()) {
+            if (value instanceof Object[] && !(value instanceof String[])) {
+                for (Object element : (Object[]) value) {
+                    if (element == null) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the given values.
+     *
+     * @param values The values of a {@link Data}; must pass {@link #canEncode(Map)}
+     * @return The encoded byte array
+     */
+    static @NonNull byte[] encode(@NonNull Map<String, Object> values) {
+        DataCodec codec = new DataCodec(new byte[64 + 32 * values.size()]);
+        codec.writeByte(MAGIC_0);
+        codec.writeByte(MAGIC_1);
+        codec.writeByte(VERSION);
+        codec.writeVarInt(values.size());
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            codec.writeString(entry.getKey());
+            codec.writeValue(entry.getValue());
+        }
+        return Arrays.copyOf(codec.mBuffer, codec.mPosition);
+    }
+
+    /**
+     * Decodes bytes written by {@link #encode(Map)} into the given map.
+     *
+     * @param bytes  The encoded byte array
+     * @param values The map receiving the decoded values
+     * @throws IllegalArgumentException if the payload is malformed or of an unknown version
+     */
+    static void decode(@NonNull byte[] bytes, @NonNull Map<String, Object> values) {
+        if (!isCompact(bytes)) {
+            throw new IllegalArgumentException("Not a compact Data payload");
+        }
+        if (bytes[2] != VERSION) {
+            throw new IllegalArgumentException("Unsupported Data version " + bytes[2]);
+        }
+        DataCodec codec = new DataCodec(bytes);
+        codec.mPosition = HEADER_SIZE;
+        try {
+            for (int i = codec.readVarInt(); i > 0; i--) {
+                String key = codec.readString();
+                values.put(key, codec.readValue());
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated Data payload", e);
+        }
+    }
+
+    private void writeValue(@Nullable Object value) {
+        if (value == null) {
+            writeByte(TYPE_NULL);
+        } else if (value instanceof Boolean) {
+            writeByte(TYPE_BOOLEAN);
+            writeByte((Boolean) value ? (byte) 1 : (byte) 0);
+        } else if (value instanceof Byte) {
+            writeByte(TYPE_BYTE);
+            writeByte((Byte) value);
+        } else if (value instanceof Integer) {
+            writeByte(TYPE_INT);
+            writeVarLong(zigZag((Integer) value));
+        } else if (value instanceof Long) {
+            writeByte(TYPE_LONG);
+            writeVarLong(zigZag((Long) value));
+        } else if (value instanceof Float) {
+            writeByte(TYPE_FLOAT);
+            writeFixed(Float.floatToIntBits((Float) value), 4);
+        } else if (value instanceof Double) {
+            writeByte(TYPE_DOUBLE);
+            writeFixed(Double.doubleToLongBits((Double) value), 8);
+        } else if (value instanceof String) {
+            writeByte(TYPE_STRING);
+            writeString((String) value);
+        } else if (value instanceof Boolean[]) {
+            Boolean[] array = (Boolean[]) value;
+            writeByte(TYPE_BOOLEAN_ARRAY);
+            writeVarInt(array.length);
+            ensureCapacity((array.length + 7) / 8);
+            for (int i = 0; i < array.length; i += 8) {
+                int bits = 0;
+                for (int j = i; j < i + 8 && j < array.length; j++) {
+                    if (array[j]) {
+                        bits |= 1 << (j - i);
+                    }
+                }
+                mBuffer[mPosition++] = (byte) bits;
+            }
+        } else if (value instanceof Byte[]) {
+            Byte[] array = (Byte[]) value;
+            writeByte(TYPE_BYTE_ARRAY);
+            writeVarInt(array.length);
+            ensureCapacity(array.length);
+            for (Byte element : array) {
+                mBuffer[mPosition++] = element;
+            }
+        } else if (value instanceof Integer[]) {
+            Integer[] array = (Integer[]) value;
+            writeByte(TYPE_INT_ARRAY);
+            writeVarInt(array.length);
+            for (Integer element : array) {
+                writeVarLong(zigZag(element));
+            }
+        } else if (value instanceof Long[]) {
+            Long[] array = (Long[]) value;
+            writeByte(TYPE_LONG_ARRAY);
+            writeVarInt(array.length);
+            for (Long element : array) {
+                writeVarLong(zigZag(element));
+            }
+        } else if (value instanceof Float[]) {
+            Float[] array = (Float[]) value;
+            writeByte(TYPE_FLOAT_ARRAY);
+            writeVarInt(array.length);
+            for (Float element : array) {
+                writeFixed(Float.floatToIntBits(element), 4);
+            }
+        } else if (value instanceof Double[]) {
+            Double[] array = (Double[]) value;
+            writeByte(TYPE_DOUBLE_ARRAY);
+            writeVarInt(array.length);
+            for (Double element : array) {
+                writeFixed(Double.doubleToLongBits(element), 8);
+            }
+        } else if (value instanceof String[]) {
+            String[] array = (String[]) value;
+            writeByte(TYPE_STRING_ARRAY);
+            writeVarInt(array.length);
+            for (String element : array) {
+                if (element == null) {
+                    writeVarInt(0);
+                } else {
+                    byte[] bytes = element.getBytes(UTF_8);
+                    writeVarInt(bytes.length + 1);
+                    writeBytes(bytes);
+                }
+            }
+        } else {
+            throw new IllegalArgumentException(
+                    String.format("Unsupported value type %s", value.getClass()));
+        }
+    }
+
+    private @Nullable Object readValue() {
+        byte type = mBuffer[mPosition++];
+        switch (type) {
+            case TYPE_NULL:
+                return null;
+            case TYPE_BOOLEAN:
+                return mBuffer[mPosition++] != 0;
+            case TYPE_BYTE:
+                return mBuffer[mPosition++];
+            case TYPE_INT:
+                return (int) unZigZag(readVarLong());
+            case TYPE_LONG:
+                return unZigZag(readVarLong());
+            case TYPE_FLOAT:
+                return Float.intBitsToFloat((int) readFixed(4));
+            case TYPE_DOUBLE:
+                return Double.longBitsToDouble(readFixed(8));
+            case TYPE_STRING:
+                return readString();
+            case TYPE_BOOLEAN_ARRAY: {
+                Boolean[] array = new Boolean[readLength(BOOLEAN_BITS)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (mBuffer[mPosition + i / 8] & (1 << (i % 8))) != 0;
+                }
+                mPosition += (array.length + 7) / 8;
+                return array;
+            }
+            case TYPE_BYTE_ARRAY: {
+                Byte[] array = new Byte[readLength(Byte.SIZE)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = mBuffer[mPosition++];
+                }
+                return array;
+            }
+            case TYPE_INT_ARRAY: {
+                Integer[] array = new Integer[readLength(Byte.SIZE)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = (int) unZigZag(readVarLong());
+                }
+                return array;
+            }
+            case TYPE_LONG_ARRAY: {
+                Long[] array = new Long[readLength(Byte.SIZE)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = unZigZag(readVarLong());
+                }
+                return array;
+            }
+            case TYPE_FLOAT_ARRAY: {
+                Float[] array = new Float[readLength(Float.SIZE)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = Float.intBitsToFloat((int) readFixed(4));
+                }
+                return array;
+            }
+            case TYPE_DOUBLE_ARRAY: {
+                Double[] array = new Double[readLength(Double.SIZE)];
+                for (int i = 0; i < array.length; i++) {
+                    array[i] = Double.longBitsToDouble(readFixed(8));
+                }
+                return array;
+            }
+            case TYPE_STRING_ARRAY: {
+                String[] array = new String[readLength(Byte.SIZE)];
+                for (int i = 0; i < array.length; i++) {
+                    int length = readVarInt();
+                    if (length > 0) {
+                        array[i] = readString(length - 1);
+                    }
+                }
+                return array;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown value type " + type);
+        }
+    }
+
+    /**
+     * Reads an array length and makes sure the remaining payload can hold that many elements of
+     * at least {@code minElementBits} bits, so a corrupt length cannot trigger a huge allocation.
+     */
+    private int readLength(int minElementBits) {
+        int length = readVarInt();
+        long remainingBits = (mBuffer.length - mPosition) * 8L;
+        if ((long) length * minElementBits > remainingBits) {
+            throw new IllegalArgumentException("Invalid array length " + length);
+        }
+        return length;
+    }
+
+    private void writeString(@NonNull String value) {
+        byte[] bytes = value.getBytes(UTF_8);
+        writeVarInt(bytes.length);
+        writeBytes(bytes);
+    }
+
+    private @NonNull String readString() {
+        return readString(readVarInt());
+    }
+
+    private @NonNull String readString(int length) {
+        if (length < 0 || length > mBuffer.length - mPosition) {
+            throw new IllegalArgumentException("Invalid string length " + length);
+        }
+        String value = new String(mBuffer, mPosition, length, UTF_8);
+        mPosition += length;
+        return value;
+    }
+
+    private void writeByte(byte value) {
+        ensureCapacity(1);
+        mBuffer[mPosition++] = value;
+    }
+
+    private void writeBytes(@NonNull byte[] bytes) {
+        ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, mBuffer, mPosition, bytes.length);
+        mPosition += bytes.length;
+    }
+
+    private void writeVarInt(int value) {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private int readVarInt() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid length " + value);
+        }
+        return (int) value;
+    }
+
+    private void writeVarLong(long value) {
+        ensureCapacity(10);
+        while ((value & ~0x7FL) != 0) {
+            mBuffer[mPosition++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mPosition++] = (byte) value;
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = mBuffer[mPosition++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private void writeFixed(long value, int bytes) {
+        ensureCapacity(bytes);
+        for (int i = 0; i < bytes; i++) {
+            mBuffer[mPosition++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private long readFixed(int bytes) {
+        long value = 0;
+        for (int i = 0; i < bytes; i++) {
+            value |= (long) (mBuffer[mPosition++] & 0xFF) << (8 * i);
+        }
+        return value;
+    }
+
+    private void ensureCapacity(int extra) {
+        if (mPosition + extra > mBuffer.length) {
+            mBuffer = Arrays.copyOf(mBuffer, Math.max(mBuffer.length * 2, mPosition + extra));
+        }
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
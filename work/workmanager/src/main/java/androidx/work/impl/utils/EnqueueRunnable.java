@@ -71,6 +71,13 @@ public class EnqueueRunnable implements Runnable {
 
     private static final String TAG = Logger.tagWithPrefix("EnqueueRunnable");
 
+    /**
+     * The maximum number of {@link WorkRequest}s of an independent continuation written to the
+     * database in a single transaction.
+     */
+    @VisibleForTesting
+    public static final int MAX_REQUESTS_PER_TRANSACTION = 500;
+
     private final WorkContinuationImpl mWorkContinuation;
     private final OperationImpl mOperation;
 
@@ -115,6 +122,10 @@ public class EnqueueRunnable implements Runnable {
     public boolean addToDatabase() {
         WorkManagerImpl workManagerImpl = mWorkContinuation.getWorkManagerImpl();
         WorkDatabase workDatabase = workManagerImpl.getWorkDatabase();
+        if (isIndependent(mWorkContinuation)
+                && mWorkContinuation.getWork().size() > MAX_REQUESTS_PER_TRANSACTION) {
+            return addToDatabaseInBatches(mWorkContinuation);
+        }
         workDatabase.beginTransaction();
         try {
             boolean needsScheduling = processContinuation(mWorkContinuation);
@@ -125,6 +136,83 @@ public class EnqueueRunnable implements Runnable {
         }
     }
 
+    /**
+     * Adds a large independent continuation to the datastore using a transaction per batch of
+     * {@link #MAX_REQUESTS_PER_TRANSACTION} requests, so other database work is not blocked for
+     * the duration of the whole enqueue.
+     * <p>
+     * If a batch fails, the batches which were already committed are removed again, so the
+     * enqueue as a whole either succeeds or fails. If even that fails, the committed work stays
+     * enqueued and is scheduled.
+     */
+    private boolean addToDatabaseInBatches(@NonNull WorkContinuationImpl workContinuation) {
+        WorkManagerImpl workManagerImpl = workContinuation.getWorkManagerImpl();
+        WorkDatabase workDatabase = workManagerImpl.getWorkDatabase();
+        List<? extends WorkRequest> workList = workContinuation.getWork();
+        boolean needsScheduling = false;
+        int committed = 0;
+        boolean removed = false;
+        try {
+            while (committed < workList.size()) {
+                int end = Math.min(committed + MAX_REQUESTS_PER_TRANSACTION, workList.size());
+                workDatabase.beginTransaction();
+                try {
+                    needsScheduling |= enqueueWorkWithPrerequisites(
+                            workManagerImpl,
+                            workList.subList(committed, end),
+                            null,
+                            null,
+                            workContinuation.getExistingWorkPolicy());
+                    workDatabase.setTransactionSuccessful();
+                } finally {
+                    workDatabase.endTransaction();
+                }
+                committed = end;
+            }
+        } catch (RuntimeException exception) {
+            if (committed > 0) {
+                Logger.get().error(TAG, String.format(
+                        "Unable to enqueue all work, removing %s enqueued requests", committed),
+                        exception);
+                removeFromDatabase(workDatabase, workList.subList(0, committed));
+            }
+            removed = true;
+            throw exception;
+        } finally {
+            if (!removed && committed > 0 && committed < workList.size()) {
+                // The committed batches could not be removed, so they have to run.
+                scheduleWorkInBackground();
+            }
+        }
+        workContinuation.markEnqueued();
+        return needsScheduling;
+    }
+
+    private static void removeFromDatabase(@NonNull WorkDatabase workDatabase,
+            @NonNull List<? extends WorkRequest> workList) {
+        WorkSpecDao workSpecDao = workDatabase.workSpecDao();
+        workDatabase.beginTransaction();
+        try {
+            // Tags, names and dependencies are removed along with the WorkSpecs.
+            for (WorkRequest work : workList) {
+                workSpecDao.delete(work.getStringId());
+            }
+            workDatabase.setTransactionSuccessful();
+        } finally {
+            workDatabase.endTransaction();
+        }
+    }
+
+    /**
+     * @return {@code true} if the {@link WorkContinuationImpl} has no parents, prerequisites or
+     * unique name, which means its requests can be written to the datastore in any grouping.
+     */
+    private static boolean isIndependent(@NonNull WorkContinuationImpl workContinuation) {
+        List<WorkContinuationImpl> parents = workContinuation.getParents();
+        return (parents == null || parents.isEmpty())
+                && TextUtils.isEmpty(workContinuation.getName());
+    }
+
     /**
      * Schedules work on the background scheduler.
      */
@@ -288,6 +376,12 @@ public class EnqueueRunnable implements Runnable {
             }
         }
 
+        // Collect all the rows first so each table is written with a single insert statement
+        // that is reused for every row.
+        List<WorkSpec> workSpecs = new ArrayList<>(workList.size());
+        List<Dependency> dependencies = new ArrayList<>();
+        List<WorkTag> workTags = new ArrayList<>();
+        List<WorkName> workNames = new ArrayList<>();
         for (WorkRequest work : workList) {
             WorkSpec workSpec = work.getWorkSpec();
 
@@ -330,23 +424,33 @@ public class EnqueueRunnable implements Runnable {
                 needsScheduling = true;
             }
 
-            workDatabase.workSpecDao().insertWorkSpec(workSpec);
+            workSpecs.add(workSpec);
 
             if (hasPrerequisite) {
                 for (String prerequisiteId : prerequisiteIds) {
-                    Dependency dep = new Dependency(work.getStringId(), prerequisiteId);
-                    workDatabase.dependencyDao().insertDependency(dep);
+                    dependencies.add(new Dependency(work.getStringId(), prerequisiteId));
                 }
             }
 
             for (String tag : work.getTags()) {
-                workDatabase.workTagDao().insert(new WorkTag(tag, work.getStringId()));
+                workTags.add(new WorkTag(tag, work.getStringId()));
             }
 
             if (isNamed) {
-                workDatabase.workNameDao().insert(new WorkName(name, work.getStringId()));
+                workNames.add(new WorkName(name, work.getStringId()));
             }
         }
+
+        workDatabase.workSpecDao().insertWorkSpecs(workSpecs);
+        if (!dependencies.isEmpty()) {
+            workDatabase.dependencyDao().insertDependencies(dependencies);
+        }
+        if (!workTags.isEmpty()) {
+            workDatabase.workTagDao().insert(workTags);
+        }
+        if (!workNames.isEmpty()) {
+            workDatabase.workNameDao().insert(workNames);
+        }
         return needsScheduling;
     }
 
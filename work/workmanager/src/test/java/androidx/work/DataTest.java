@@ -27,6 +27,7 @@ import androidx.annotation.NonNull;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -89,6 +90,61 @@ public class DataTest {
         assertThat(restoredData.getIntArray(KEY2), is(equalTo(expectedValue2)));
     }
 
+    @Test
+    public void testSerializeAllTypes() {
+        Data data = createAllTypesData();
+
+        byte[] byteArray = data.toByteArray();
+        Data restoredData = Data.fromByteArray(byteArray);
+
+        assertThat(byteArray[0], is(DataCodec.MAGIC_0));
+        assertThat(byteArray[1], is(DataCodec.MAGIC_1));
+        assertThat(restoredData, is(data));
+        assertThat(restoredData.getLong("long", 0L), is(Long.MIN_VALUE));
+        assertThat(restoredData.getBooleanArray("boolean array"),
+                is(new boolean[]{true, false, true, true, false, false, true, false, true}));
+        assertThat(restoredData.getStringArray("String array"),
+                is(new String[]{"a", null, "\u00e9\u6f22"}));
+    }
+
+    @Test
+    public void testCompactSerializationIsSmaller() {
+        Data data = createAllTypesData();
+        assertThat(Data.toByteArrayInternal(data).length
+                < Data.toLegacyByteArray(data).length, is(true));
+    }
+
+    @Test
+    public void testDeserializeLegacyFormat() {
+        Data data = createAllTypesData();
+
+        Data restoredData = Data.fromByteArray(Data.toLegacyByteArray(data));
+
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testSerializeBoxedArrayWithNullElements() {
+        Data data = new Data.Builder()
+                .put(KEY1, new Integer[]{1, null, 3})
+                .build();
+
+        byte[] byteArray = data.toByteArray();
+        Data restoredData = Data.fromByteArray(byteArray);
+
+        assertThat(DataCodec.isCompact(byteArray), is(false));
+        assertThat(restoredData, is(data));
+    }
+
+    @Test
+    public void testDeserializeTruncatedPayload() {
+        byte[] byteArray = createAllTypesData().toByteArray();
+
+        Data restoredData = Data.fromByteArray(Arrays.copyOf(byteArray, byteArray.length / 2));
+
+        assertThat(restoredData.size() < createAllTypesData().size(), is(true));
+    }
+
     @Test
     public void testSerializePastMaxSize() {
         int[] payload = new int[Data.MAX_DATA_BYTES + 1];
@@ -230,6 +286,28 @@ public class DataTest {
         assertThat(caughtIllegalArgumentException, is(true));
     }
 
+    @NonNull
+    private Data createAllTypesData() {
+        return new Data.Builder()
+                .putBoolean("boolean", true)
+                .putByte("byte", (byte) -7)
+                .putInt("int", -300)
+                .putLong("long", Long.MIN_VALUE)
+                .putFloat("float", 1.5f)
+                .putDouble("double", Math.PI)
+                .putString("String", "value")
+                .putString("null", null)
+                .putBooleanArray("boolean array",
+                        new boolean[]{true, false, true, true, false, false, true, false, true})
+                .putByteArray("byte array", new byte[]{-1, 0, 127})
+                .putIntArray("int array", new int[]{Integer.MIN_VALUE, 0, Integer.MAX_VALUE})
+                .putLongArray("long array", new long[]{-1L, 1L << 40})
+                .putFloatArray("float array", new float[]{Float.NaN, -0f})
+                .putDoubleArray("double array", new double[]{Double.MAX_VALUE})
+                .putStringArray("String array", new String[]{"a", null, "\u00e9\u6f22"})
+                .build();
+    }
+
     @NonNull
     private Data createData() {
         Map<String, Object> map = new HashMap<>();